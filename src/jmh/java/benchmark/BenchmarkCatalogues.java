@@ -0,0 +1,211 @@
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue.Catalogue;
+import catalogue_browser_dao.CatalogueDAO;
+import catalogue_browser_dao.DatabaseManager;
+import catalogue_object.Term;
+import dcf_manager.Dcf.DcfType;
+import import_catalogue.CatalogueImporter;
+import import_catalogue.CatalogueImporter.ImportFileFormat;
+
+/**
+ * Prepare the catalogue databases used by the benchmarks. The catalogue is
+ * selected with the system properties:
+ * <ul>
+ * <li>{@code benchmark.catalogueCode}: code of a real catalogue already
+ * downloaded (or imported) with the browser in the working directory, the last
+ * version is used;</li>
+ * <li>{@code benchmark.catalogue}: .ecf, .xml or .xlsx file which is imported
+ * before running the benchmarks (together with
+ * {@code benchmark.catalogueCode});</li>
+ * <li>{@code benchmark.terms}: number of terms of the synthetic catalogue
+ * which is generated and imported if no real catalogue was set (default
+ * 20000).</li>
+ * </ul>
+ */
+public class BenchmarkCatalogues {
+
+	private static final Logger LOGGER = LogManager.getLogger(BenchmarkCatalogues.class);
+
+	public static final String CATALOGUE_CODE_PROPERTY = "benchmark.catalogueCode";
+	public static final String CATALOGUE_FILE_PROPERTY = "benchmark.catalogue";
+	public static final String TERMS_PROPERTY = "benchmark.terms";
+
+	private static final int DEFAULT_TERMS = 20000;
+	private static final int FACETS = 500;
+	private static final int CHILDREN = 8;
+
+	/**
+	 * Start the main database and get the catalogue to benchmark, importing it if
+	 * needed. The data of the catalogue are not loaded.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	public static Catalogue open() throws Exception {
+
+		DatabaseManager.startMainDB();
+
+		String code = getProperty(CATALOGUE_CODE_PROPERTY);
+		String file = getProperty(CATALOGUE_FILE_PROPERTY);
+
+		if (code == null) {
+
+			if (file != null)
+				throw new IllegalArgumentException(
+						"Set " + CATALOGUE_CODE_PROPERTY + " with the code of the catalogue contained in " + file);
+
+			return openSynthetic();
+		}
+
+		if (file != null)
+			importFile(file);
+
+		Catalogue catalogue = getCatalogue(code);
+
+		if (catalogue == null)
+			throw new IllegalArgumentException("Catalogue " + code + " not found in the database");
+
+		return catalogue;
+	}
+
+	/**
+	 * Close the catalogue and stop the main database
+	 *
+	 * @param catalogue
+	 */
+	public static void close(Catalogue catalogue) {
+
+		if (catalogue != null)
+			catalogue.closeQuitely();
+
+		DatabaseManager.stopMainDB();
+	}
+
+	/**
+	 * Get a sample of the terms of a loaded catalogue, taken at regular intervals
+	 *
+	 * @param catalogue
+	 * @param size      maximum number of terms
+	 * @return
+	 */
+	public static List<Term> sample(Catalogue catalogue, int size) {
+
+		Collection<Term> terms = catalogue.getTerms();
+
+		int step = Math.max(1, terms.size() / size);
+
+		List<Term> sample = new ArrayList<>();
+
+		int i = 0;
+		for (Term term : terms) {
+
+			if (i++ % step == 0)
+				sample.add(term);
+
+			if (sample.size() >= size)
+				break;
+		}
+
+		return sample;
+	}
+
+	/**
+	 * Generate and import the synthetic catalogue. The import is skipped if the
+	 * catalogue was already imported by a previous run.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	private static Catalogue openSynthetic() throws Exception {
+
+		String terms = getProperty(TERMS_PROPERTY);
+
+		SyntheticCatalogue synthetic = new SyntheticCatalogue(terms == null ? DEFAULT_TERMS : Integer.parseInt(terms),
+				FACETS, CHILDREN);
+
+		Catalogue catalogue = getCatalogue(synthetic.getCode());
+
+		if (catalogue != null)
+			return catalogue;
+
+		File file = File.createTempFile(synthetic.getCode(), ".xml");
+		file.deleteOnExit();
+
+		LOGGER.info("Generating synthetic catalogue " + synthetic.getCode() + " in " + file);
+
+		synthetic.write(file.getAbsolutePath());
+
+		importFile(file.getAbsolutePath());
+
+		return getCatalogue(synthetic.getCode());
+	}
+
+	/**
+	 * Import a catalogue file into the database
+	 *
+	 * @param filename
+	 * @throws Exception
+	 */
+	private static void importFile(String filename) throws Exception {
+
+		String lower = filename.toLowerCase();
+
+		ImportFileFormat format;
+		if (lower.endsWith(".ecf"))
+			format = ImportFileFormat.ECF;
+		else if (lower.endsWith(".xml"))
+			format = ImportFileFormat.XML;
+		else if (lower.endsWith(".xlsx"))
+			format = ImportFileFormat.XLSX;
+		else
+			throw new IllegalArgumentException("Not supported catalogue file " + filename);
+
+		long start = System.currentTimeMillis();
+
+		CatalogueImporter importer = new CatalogueImporter(filename, format);
+		importer.setStreamXml(true);
+		importer.makeImport();
+
+		LOGGER.info(filename + " imported in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Get the last version of the catalogue, searching first the official ones
+	 *
+	 * @param code
+	 * @return
+	 */
+	private static Catalogue getCatalogue(String code) {
+
+		CatalogueDAO catDao = new CatalogueDAO();
+
+		for (DcfType type : DcfType.values()) {
+
+			Catalogue catalogue = catDao.getLastVersionByCode(code, type);
+
+			if (catalogue != null)
+				return catalogue;
+		}
+
+		return null;
+	}
+
+	private static String getProperty(String name) {
+
+		String value = System.getProperty(name);
+
+		if (value == null || value.trim().isEmpty())
+			return null;
+
+		return value.trim();
+	}
+}
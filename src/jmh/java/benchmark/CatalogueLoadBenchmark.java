@@ -0,0 +1,55 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import catalogue.Catalogue;
+
+/**
+ * Benchmark the load of the catalogue data in RAM ({@link Catalogue#loadData()}),
+ * which is done each time a catalogue is opened.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CatalogueLoadBenchmark {
+
+	private Catalogue catalogue;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		catalogue = BenchmarkCatalogues.open();
+		catalogue.open();
+	}
+
+	@Setup(Level.Invocation)
+	public void clear() {
+		catalogue.clearData();
+	}
+
+	@Benchmark
+	public Catalogue loadData() {
+		catalogue.loadData();
+		return catalogue;
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		BenchmarkCatalogues.close(catalogue);
+	}
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import catalogue.Catalogue;
+import export_catalogue.ExportCatalogueWorkbook;
+
+/**
+ * Benchmark the export of the catalogue into a .xlsx workbook
+ * ({@link ExportCatalogueWorkbook#exportCatalogue}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmark {
+
+	private Catalogue catalogue;
+	private File workbook;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		catalogue = BenchmarkCatalogues.open();
+		catalogue.open();
+		workbook = File.createTempFile(catalogue.getCode(), ".xlsx");
+		workbook.deleteOnExit();
+	}
+
+	@Benchmark
+	public File exportCatalogue() throws Exception {
+		new ExportCatalogueWorkbook().exportCatalogue(catalogue, workbook.getAbsolutePath(), true);
+		return workbook;
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		BenchmarkCatalogues.close(catalogue);
+		workbook.delete();
+	}
+}
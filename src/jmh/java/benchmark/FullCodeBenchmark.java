@@ -0,0 +1,67 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import catalogue.Catalogue;
+import catalogue_object.Term;
+
+/**
+ * Benchmark the computation of the full codes of a sample of terms with all
+ * their facets ({@link Term#getFullCode(boolean, boolean)}), with and without
+ * the inherited implicit facets already cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FullCodeBenchmark {
+
+	private static final int SAMPLE_SIZE = 1000;
+
+	private Catalogue catalogue;
+	private List<Term> terms;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		catalogue = BenchmarkCatalogues.open();
+		catalogue.open();
+		terms = BenchmarkCatalogues.sample(catalogue, SAMPLE_SIZE);
+	}
+
+	@Benchmark
+	public void fullCode(Blackhole bh) {
+		for (Term term : terms)
+			bh.consume(term.getFullCode(true, true));
+	}
+
+	@Benchmark
+	public void fullCodeNoCache(Blackhole bh) {
+
+		catalogue.getInheritedFacetsCache().clear();
+
+		for (Term term : terms)
+			bh.consume(term.getFullCode(true, true));
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		BenchmarkCatalogues.close(catalogue);
+	}
+}
@@ -0,0 +1,64 @@
+package benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import catalogue.Catalogue;
+import export_catalogue.ExportCatalogueWorkbook;
+import import_catalogue.CatalogueWorkbookImporter;
+
+/**
+ * Benchmark the import of a .xlsx catalogue
+ * ({@link CatalogueWorkbookImporter#importWorkbook}). The workbook is exported
+ * from the benchmark catalogue, which is then replaced by each import.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportBenchmark {
+
+	private Catalogue catalogue;
+	private File workbook;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+
+		catalogue = BenchmarkCatalogues.open();
+		catalogue.open();
+
+		workbook = File.createTempFile(catalogue.getCode(), ".xlsx");
+		workbook.deleteOnExit();
+
+		new ExportCatalogueWorkbook().exportCatalogue(catalogue, workbook.getAbsolutePath(), true);
+
+		// the import replaces the catalogue database
+		catalogue.closeQuitely();
+	}
+
+	@Benchmark
+	public void importWorkbook() throws Exception {
+		new CatalogueWorkbookImporter().importWorkbook(null, workbook.getAbsolutePath(), 100);
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		BenchmarkCatalogues.close(null);
+		workbook.delete();
+	}
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import catalogue.Catalogue;
+import catalogue_browser_dao.ParentTermDAO;
+import catalogue_object.Hierarchy;
+import catalogue_object.Term;
+import term.TermSubtreeIterator;
+
+/**
+ * Benchmark the navigation of the tree of the terms, that is, the children of a
+ * sample of terms ({@link ParentTermDAO#getChildren}) and the iteration of the
+ * whole master hierarchy ({@link TermSubtreeIterator}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NavigationBenchmark {
+
+	private static final int SAMPLE_SIZE = 1000;
+
+	private Catalogue catalogue;
+	private Hierarchy master;
+	private ParentTermDAO parentDao;
+	private List<Term> parents;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		catalogue = BenchmarkCatalogues.open();
+		catalogue.open();
+		master = catalogue.getMasterHierarchy();
+		parentDao = new ParentTermDAO(catalogue);
+		parents = BenchmarkCatalogues.sample(catalogue, SAMPLE_SIZE);
+	}
+
+	@Benchmark
+	public void getChildren(Blackhole bh) {
+		for (Term parent : parents)
+			bh.consume(parentDao.getChildren(parent, master, false, false));
+	}
+
+	@Benchmark
+	public int subtreeIteration() {
+
+		int count = 0;
+
+		for (Term root : master.getFirstLevelNodes(false, false)) {
+
+			TermSubtreeIterator iterator = new TermSubtreeIterator(root, master);
+
+			while (iterator.next() != null)
+				count++;
+		}
+
+		return count;
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		BenchmarkCatalogues.close(catalogue);
+	}
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import business_rules.CodeValidationResult;
+import business_rules.TermRulesBatchValidator;
+import catalogue.Catalogue;
+import catalogue_object.Term;
+import utilities.GlobalUtil;
+
+/**
+ * Benchmark the business rules checks of the full codes of a sample of terms.
+ * The checks are the same of the warnings of the user interface, but are
+ * performed with the {@link TermRulesBatchValidator} since the ui checks need
+ * the widgets to show the warnings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RulesBenchmark {
+
+	private static final int SAMPLE_SIZE = 5000;
+
+	@Param({ "1", "4" })
+	public int threads;
+
+	private Catalogue catalogue;
+	private TermRulesBatchValidator validator;
+	private List<String> codes;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+
+		catalogue = BenchmarkCatalogues.open();
+		catalogue.open();
+
+		validator = new TermRulesBatchValidator(catalogue, GlobalUtil.getBRData(), GlobalUtil.getBRMessages(),
+				threads);
+
+		codes = new ArrayList<>();
+		for (Term term : BenchmarkCatalogues.sample(catalogue, SAMPLE_SIZE))
+			codes.add(term.getFullCode(true, true));
+	}
+
+	@Benchmark
+	public List<CodeValidationResult> validate() {
+		return validator.validate(codes);
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		BenchmarkCatalogues.close(catalogue);
+	}
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import catalogue.Catalogue;
+import catalogue_object.Hierarchy;
+import catalogue_object.Term;
+import ui_search_bar.SearchDAO;
+import ui_search_bar.SearchType;
+
+/**
+ * Benchmark the searches of the search bar ({@link SearchDAO#startSearch}) in
+ * the master hierarchy. The default keywords match the names and the codes of
+ * the synthetic catalogue, use {@code -p text=...} for the real ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+	@Param({ "milk", "goat cheese", "B00010" })
+	public String text;
+
+	@Param({ "ANY_WORD", "ALL_WORDS", "EXACT_MATCH" })
+	public String type;
+
+	private Catalogue catalogue;
+	private Hierarchy master;
+	private SearchDAO searchDao;
+	private SearchType searchType;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		catalogue = BenchmarkCatalogues.open();
+		catalogue.open();
+		master = catalogue.getMasterHierarchy();
+		searchDao = new SearchDAO(catalogue);
+		searchType = SearchType.valueOf(type);
+	}
+
+	@Benchmark
+	public ArrayList<Term> startSearch() {
+		return searchDao.startSearch(text, searchType, master);
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		BenchmarkCatalogues.close(catalogue);
+	}
+}
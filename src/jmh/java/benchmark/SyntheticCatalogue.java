@@ -0,0 +1,267 @@
+package benchmark;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import naming_convention.SpecialValues;
+
+/**
+ * Generate a synthetic catalogue in the .xml format of the DCF, to benchmark
+ * the browser without downloading a real catalogue. The catalogue contains a
+ * tree of base terms (in the master and in a reporting hierarchy) and a facet
+ * hierarchy whose terms are used as implicit facets of the base terms.
+ *
+ * The generation is deterministic, therefore the same parameters always produce
+ * the same catalogue.
+ */
+public class SyntheticCatalogue {
+
+	public static final String CODE_PREFIX = "BENCH";
+
+	public static final String REPORT_HIERARCHY = "report";
+	public static final String FACET_HIERARCHY = "process";
+	public static final String FACET_CATEGORY = "F01";
+
+	// words used to build the names of the terms (and then to search them)
+	public static final String[] WORDS = { "milk", "cheese", "apple", "wheat", "bovine", "goat", "dried", "raw",
+			"cooked", "flour", "juice", "fish", "smoked", "frozen", "sweet", "oil" };
+
+	private static final String DATE = "2020-01-01T00:00:00";
+
+	private final int termsCount;
+	private final int facetsCount;
+	private final int children;
+
+	/**
+	 * @param termsCount  number of base terms
+	 * @param facetsCount number of terms of the facet hierarchy
+	 * @param children    number of children of each term in the tree
+	 */
+	public SyntheticCatalogue(int termsCount, int facetsCount, int children) {
+		this.termsCount = termsCount;
+		this.facetsCount = facetsCount;
+		this.children = children;
+	}
+
+	/**
+	 * Get the code of the catalogue
+	 *
+	 * @return
+	 */
+	public String getCode() {
+		return CODE_PREFIX + termsCount;
+	}
+
+	/**
+	 * Get the code of the i-th base term
+	 *
+	 * @param i
+	 * @return
+	 */
+	public static String getTermCode(int i) {
+		return String.format("B%05d", i);
+	}
+
+	/**
+	 * Get the code of the i-th facet term
+	 *
+	 * @param i
+	 * @return
+	 */
+	public static String getFacetCode(int i) {
+		return String.format("F%05d", i);
+	}
+
+	/**
+	 * Write the catalogue into an .xml file
+	 *
+	 * @param filename
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public void write(String filename) throws IOException, XMLStreamException {
+
+		try (OutputStream out = new FileOutputStream(filename);) {
+
+			XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+
+			try {
+				write(writer);
+			} finally {
+				writer.close();
+			}
+		}
+	}
+
+	private void write(XMLStreamWriter writer) throws XMLStreamException {
+
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.writeStartElement("message");
+		writer.writeStartElement("catalogue");
+
+		writer.writeStartElement("catalogueDesc");
+		element(writer, "code", getCode());
+		element(writer, "name", getCode());
+		element(writer, "label", "Synthetic catalogue " + getCode());
+		element(writer, "scopeNote", "Synthetic catalogue used by the benchmarks");
+		element(writer, "acceptNonStandardCodes", "true");
+		element(writer, "generateMissingCodes", "false");
+		writer.writeEndElement();
+
+		writer.writeStartElement("catalogueVersion");
+		element(writer, "version", "1.0");
+		element(writer, "lastUpdate", DATE);
+		element(writer, "status", "PUBLISHED MAJOR");
+		writer.writeEndElement();
+
+		writer.writeStartElement("catalogueHierarchies");
+		writeHierarchy(writer, REPORT_HIERARCHY, "base", 2);
+		writeHierarchy(writer, FACET_HIERARCHY, "attribute", 3);
+		writer.writeEndElement();
+
+		writer.writeStartElement("catalogueAttributes");
+		writeAttribute(writer, FACET_CATEGORY, FACET_HIERARCHY, "catalogue", getCode() + "." + FACET_HIERARCHY,
+				"repeatable", 1);
+		writeAttribute(writer, SpecialValues.IMPLICIT_FACETS_NAME, SpecialValues.IMPLICIT_FACETS_NAME,
+				"xsd:string", null, "repeatable", 2);
+		writer.writeEndElement();
+
+		writer.writeStartElement("catalogueTerms");
+
+		Random random = new Random(termsCount);
+
+		for (int i = 0; i < facetsCount; i++) {
+
+			String parent = i < children ? "root" : getFacetCode(i / children - 1);
+
+			writeTerm(writer, getFacetCode(i), getName(random, i), null, FACET_HIERARCHY, parent, i, null);
+		}
+
+		for (int i = 0; i < termsCount; i++) {
+
+			String parent = i < children ? "root" : getTermCode(i / children - 1);
+
+			// one implicit facet every three terms
+			String facet = i % 3 == 0 && facetsCount > 0
+					? FACET_CATEGORY + "." + getFacetCode(random.nextInt(facetsCount))
+					: null;
+
+			writeTerm(writer, getTermCode(i), getName(random, i), parent, getCode(), parent, i, facet);
+		}
+
+		writer.writeEndElement();
+
+		writer.writeEndElement();
+		writer.writeEndElement();
+		writer.writeEndDocument();
+	}
+
+	private static String getName(Random random, int i) {
+		return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+	}
+
+	private static void writeHierarchy(XMLStreamWriter writer, String code, String applicability, int order)
+			throws XMLStreamException {
+
+		writer.writeStartElement("hierarchy");
+		element(writer, "code", code);
+		element(writer, "name", code);
+		element(writer, "label", code);
+		element(writer, "hierarchyApplicability", applicability);
+		element(writer, "hierarchyOrder", String.valueOf(order));
+		element(writer, "version", "1.0");
+		element(writer, "lastUpdate", DATE);
+		element(writer, "validFrom", DATE);
+		element(writer, "status", "APPROVED");
+		writer.writeEndElement();
+	}
+
+	private static void writeAttribute(XMLStreamWriter writer, String code, String name, String type,
+			String catalogueCode, String repeatable, int order) throws XMLStreamException {
+
+		writer.writeStartElement("attribute");
+		element(writer, "code", code);
+		element(writer, "name", name);
+		element(writer, "label", name);
+		element(writer, "attributeReportable", "optional");
+		element(writer, "attributeVisible", "true");
+		element(writer, "attributeSearchable", "true");
+		element(writer, "attributeOrder", String.valueOf(order));
+		element(writer, "attributeType", type);
+
+		if (catalogueCode != null)
+			element(writer, "attributeCatalogueCode", catalogueCode);
+
+		element(writer, "attributeSingleOrRepeatable", repeatable);
+		element(writer, "attributeInheritance", "D");
+		element(writer, "attributeUniqueness", "false");
+		element(writer, "attributeTermCodeAlias", "false");
+		element(writer, "version", "1.0");
+		element(writer, "lastUpdate", DATE);
+		element(writer, "validFrom", DATE);
+		element(writer, "status", "APPROVED");
+		writer.writeEndElement();
+	}
+
+	private static void writeTerm(XMLStreamWriter writer, String code, String name, String reportParent,
+			String hierarchy, String parent, int order, String implicitFacet) throws XMLStreamException {
+
+		writer.writeStartElement("term");
+
+		writer.writeStartElement("termDesc");
+		element(writer, "termCode", code);
+		element(writer, "termExtendedName", name);
+		element(writer, "termShortName", name);
+		element(writer, "termScopeNote", "Synthetic term " + code);
+		writer.writeEndElement();
+
+		writer.writeStartElement("termVersion");
+		element(writer, "version", "1.0");
+		element(writer, "lastUpdate", DATE);
+		element(writer, "validFrom", DATE);
+		element(writer, "status", "APPROVED");
+		writer.writeEndElement();
+
+		if (implicitFacet != null) {
+			writer.writeStartElement("implicitAttributes");
+			writer.writeStartElement("attribute");
+			element(writer, "attributeCode", SpecialValues.IMPLICIT_FACETS_NAME);
+			element(writer, "attributeValue", implicitFacet);
+			writer.writeEndElement();
+			writer.writeEndElement();
+		}
+
+		writer.writeStartElement("hierarchyAssignments");
+		writeAssignment(writer, hierarchy, parent, order);
+
+		if (reportParent != null)
+			writeAssignment(writer, REPORT_HIERARCHY, reportParent, order);
+
+		writer.writeEndElement();
+
+		writer.writeEndElement();
+	}
+
+	private static void writeAssignment(XMLStreamWriter writer, String hierarchy, String parent, int order)
+			throws XMLStreamException {
+
+		writer.writeStartElement("hierarchyAssignment");
+		element(writer, "hierarchyCode", hierarchy);
+		element(writer, "parentCode", parent);
+		element(writer, "order", String.valueOf(order + 1));
+		element(writer, "reportable", "true");
+		writer.writeEndElement();
+	}
+
+	private static void element(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+		writer.writeStartElement(name);
+		writer.writeCharacters(value);
+		writer.writeEndElement();
+	}
+}
@@ -0,0 +1,121 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import catalogue.Catalogue;
+import catalogue_browser_dao.TermDAO;
+import catalogue_object.Term;
+
+/**
+ * Benchmark the case insensitive lookups of the terms by code and by name
+ * ({@link TermDAO#getByCode}, {@link TermDAO#getByName}), which use the
+ * indexed upper case columns of the TERM table, against the previous queries
+ * which computed {@code upper()} on each record. Use a large catalogue (for
+ * example {@code -Dbenchmark.terms=200000}) to see the difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TermLookupBenchmark {
+
+	private static final int SAMPLE_SIZE = 100;
+
+	private Catalogue catalogue;
+	private TermDAO termDao;
+	private List<String> codes;
+	private List<String> names;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+
+		catalogue = BenchmarkCatalogues.open();
+		catalogue.open();
+
+		termDao = new TermDAO(catalogue);
+
+		codes = new ArrayList<>();
+		names = new ArrayList<>();
+
+		// lower case, to check that the lookups ignore the case
+		for (Term term : BenchmarkCatalogues.sample(catalogue, SAMPLE_SIZE)) {
+			codes.add(term.getCode().toLowerCase());
+			names.add(term.getName().toLowerCase());
+		}
+	}
+
+	@Benchmark
+	public void getByCode(Blackhole bh) {
+		for (String code : codes)
+			bh.consume(termDao.getByCode(code));
+	}
+
+	@Benchmark
+	public void getByCodeExpression(Blackhole bh) throws SQLException {
+		lookup(bh, "select TERM_ID from APP.TERM where upper( TERM_CODE ) = ?", codes);
+	}
+
+	@Benchmark
+	public void getByName(Blackhole bh) {
+		for (String name : names)
+			bh.consume(termDao.getByName(name));
+	}
+
+	@Benchmark
+	public void getByNameExpression(Blackhole bh) throws SQLException {
+		lookup(bh, "select TERM_ID from APP.TERM where upper( TERM_EXTENDED_NAME ) = ?", names);
+	}
+
+	/**
+	 * Run the query for each value as the lookups of the dao do, that is, with a
+	 * new connection and statement for each value, so that only the queries
+	 * differ
+	 *
+	 * @param bh
+	 * @param query
+	 * @param values
+	 * @throws SQLException
+	 */
+	private void lookup(Blackhole bh, String query, List<String> values) throws SQLException {
+
+		for (String value : values) {
+
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+
+				stmt.setString(1, value.toUpperCase());
+
+				try (ResultSet rs = stmt.executeQuery();) {
+					if (rs.next())
+						bh.consume(catalogue.getTermById(rs.getInt("TERM_ID")));
+				}
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		BenchmarkCatalogues.close(catalogue);
+	}
+}
@@ -64,6 +64,9 @@ public class PicklistDAO implements CatalogueEntityDAO<Picklist> {
 
 		// insert into the database all the new picklist terms
 		insertPicklistTerms(picklist);
+
+		// replace the index of the previous terms
+		catalogue.getPicklistIndex().put(picklist);
 	}
 
 	/**
@@ -219,6 +222,8 @@ public class PicklistDAO implements CatalogueEntityDAO<Picklist> {
 			stmt.close();
 			con.close();
 
+			catalogue.getPicklistIndex().put(picklist);
+
 			return true;
 
 		} catch (SQLException e) {
@@ -416,69 +421,40 @@ public class PicklistDAO implements CatalogueEntityDAO<Picklist> {
 	}
 
 	/**
-	 * This method returns all the picklist terms which contains the "term" as base
-	 * term, implicit facet or explicit facet
+	 * Index the terms of a picklist, if not already done, in order to search them
+	 * with {@link #searchTermInPicklist(Picklist, Term)}
 	 * 
-	 * @param term
-	 * @return
+	 * @param picklist
 	 */
-	public ArrayList<PicklistTerm> searchTermInPicklist(Picklist picklist, Term term) {
-
-		// output array
-		ArrayList<PicklistTerm> terms = new ArrayList<>();
+	public void index(Picklist picklist) {
 
-		// first get the base term information using the base term codes
-		// then get the implicit facets string related to the base term
-		// then select all the terms which contains in their implicit facets or explicit
-		// facets the
-		// term passed in input.
-		// TA.ATTR_VALUE contains the implicit facet string (baseTerm#F01.A05T6$...)
-		// PT.PICKLIST_TERM_CODE contains the explicit facet string in the same format
-		// of the implicit ones
-		String query = "select PT.PICKLIST_TERM_LEVEL, PT.PICKLIST_TERM_CODE, PT.PICKLIST_TERM_LABEL "
-				+ "from APP.PICKLIST_TERM as PT "
-				+ "inner join APP.TERM as T on PT.PICKLIST_BASETERM_CODE = T.TERM_CODE "
-				+ "inner join APP.TERM_ATTRIBUTE as TA on TA.TERM_ID = T.TERM_ID "
-				+ "inner join APP.ATTRIBUTE as A on A.ATTR_ID = TA.ATTR_ID "
-				+ "where PT.PICKLIST_ID = ? and A.ATTR_NAME = ? and ( TA.ATTR_VALUE like ? or PT.PICKLIST_TERM_CODE like ? )";
+		PicklistIndex index = catalogue.getPicklistIndex();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
-
-			stmt.clearParameters();
-
-			stmt.setInt(1, picklist.getId());
-
-			// we search in all the implicit facets of the term (inherited included)
-			stmt.setString(2, "allFacets");
-			stmt.setString(3, "%" + term.getCode() + "%");
-			stmt.setString(4, "%" + term.getCode() + "%");
-
-			try (ResultSet rs = stmt.executeQuery();) {
-
-				// for each picklist term
-				while (rs.next()) {
-
-					int level = rs.getInt("PICKLIST_TERM_LEVEL");
-					String code = rs.getString("PICKLIST_TERM_CODE");
-					String label = rs.getString("PICKLIST_TERM_LABEL");
+		if (index.isIndexed(picklist))
+			return;
 
-					// add the current term to the output list
-					PicklistTerm picklistTerm = new PicklistTerm(catalogue, level, code, label);
-					terms.add(picklistTerm);
-				}
+		// read the terms if they were not set
+		if (picklist.getTerms() == null)
+			picklist.setTerms(getPicklistTerms(picklist));
 
-				rs.close();
-			}
+		index.put(picklist);
+	}
 
-			stmt.close();
-			con.close();
+	/**
+	 * This method returns all the picklist terms which contains the "term" as base
+	 * term, implicit facet or explicit facet
+	 * 
+	 * @param term
+	 * @return
+	 */
+	public ArrayList<PicklistTerm> searchTermInPicklist(Picklist picklist, Term term) {
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-		}
+		// the base term, the explicit facets and the implicit facets
+		// of the base term (inherited included) of each picklist term
+		// are indexed by code, see PicklistIndex
+		index(picklist);
 
-		return terms;
+		return catalogue.getPicklistIndex().search(picklist, term);
 	}
 
 	@Override
@@ -488,6 +464,8 @@ public class PicklistDAO implements CatalogueEntityDAO<Picklist> {
 		// to remove dependencies
 		deletePicklistTerms(picklist);
 
+		catalogue.getPicklistIndex().remove(picklist);
+
 		String query = "delete from APP.PICKLIST where PICKLIST_ID = ?";
 
 		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
@@ -0,0 +1,237 @@
+package already_described_terms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.StringTokenizer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue.Catalogue;
+import catalogue_object.Term;
+import naming_convention.SpecialValues;
+
+/**
+ * In memory index of the picklists of a catalogue. The full code of each
+ * picklist term (baseTerm#facetHeader.facetCode$...) is broken down into the
+ * codes of the base term and of the explicit facets, to which the implicit
+ * facets of the base term (all facets attribute, inherited included) are
+ * added. In this way the picklist terms which contain a term can be found with
+ * a single hash lookup instead of scanning the picklist.
+ *
+ * The index of a picklist is built the first time it is searched, or when the
+ * picklist is imported, and it is replaced when the picklist changes. The
+ * implicit facets are read when the index is built, therefore the index of a
+ * picklist is removed when the implicit facets of one of its base terms change
+ * (see {@link #invalidate(Term)}), and the whole index is cleared with the
+ * catalogue data.
+ */
+public class PicklistIndex {
+
+	private static final Logger LOGGER = LogManager.getLogger(PicklistIndex.class);
+
+	private Catalogue catalogue;
+
+	// picklist id => index of the picklist terms
+	private HashMap<Integer, Entry> entries;
+
+	/**
+	 * Index of the terms of a single picklist
+	 */
+	private static class Entry {
+
+		// picklist terms in the order of the picklist
+		private final ArrayList<PicklistTerm> terms = new ArrayList<>();
+
+		// codes of the base terms of the picklist terms
+		private final HashSet<String> baseTerms = new HashSet<>();
+
+		// term code => positions of the picklist terms which contain it
+		private final HashMap<String, ArrayList<Integer>> tokens = new HashMap<>();
+	}
+
+	public PicklistIndex(Catalogue catalogue) {
+		this.catalogue = catalogue;
+		this.entries = new HashMap<>();
+	}
+
+	/**
+	 * Index the terms of a picklist, replacing the previous index of the same
+	 * picklist. The picklist terms must be set.
+	 *
+	 * @param picklist
+	 */
+	public synchronized void put(Picklist picklist) {
+
+		if (picklist.getTerms() == null)
+			return;
+
+		long start = System.currentTimeMillis();
+
+		Entry entry = new Entry();
+
+		for (PicklistTerm term : picklist.getTerms())
+			add(entry, term);
+
+		entries.put(picklist.getId(), entry);
+
+		LOGGER.debug("Picklist " + picklist.getCode() + " indexed in " + (System.currentTimeMillis() - start)
+				+ " ms, terms=" + entry.terms.size() + ", tokens=" + entry.tokens.size());
+	}
+
+	/**
+	 * Check if the picklist is already indexed
+	 *
+	 * @param picklist
+	 * @return
+	 */
+	public synchronized boolean isIndexed(Picklist picklist) {
+		return entries.containsKey(picklist.getId());
+	}
+
+	/**
+	 * Get all the picklist terms which contain the term as base term, implicit
+	 * facet or explicit facet. The picklist must be indexed.
+	 *
+	 * @param picklist
+	 * @param term
+	 * @return the picklist terms, in the order of the picklist
+	 */
+	public synchronized ArrayList<PicklistTerm> search(Picklist picklist, Term term) {
+
+		ArrayList<PicklistTerm> found = new ArrayList<>();
+
+		Entry entry = entries.get(picklist.getId());
+
+		if (entry == null)
+			return found;
+
+		ArrayList<Integer> positions = entry.tokens.get(term.getCode());
+
+		if (positions == null)
+			return found;
+
+		for (int position : positions)
+			found.add(entry.terms.get(position));
+
+		return found;
+	}
+
+	/**
+	 * Remove the index of a picklist
+	 *
+	 * @param picklist
+	 */
+	public synchronized void remove(Picklist picklist) {
+		entries.remove(picklist.getId());
+	}
+
+	/**
+	 * Remove the index of the picklists which contain the term as base term. To
+	 * be called when the implicit facets of the term change, the picklists are
+	 * indexed again at their next search.
+	 *
+	 * @param baseTerm
+	 */
+	public synchronized void invalidate(Term baseTerm) {
+
+		Iterator<Entry> iterator = entries.values().iterator();
+
+		while (iterator.hasNext()) {
+			if (iterator.next().baseTerms.contains(baseTerm.getCode()))
+				iterator.remove();
+		}
+	}
+
+	/**
+	 * Remove the index of all the picklists
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Add a picklist term to the index of its picklist
+	 *
+	 * @param entry
+	 * @param term
+	 */
+	private void add(Entry entry, PicklistTerm term) {
+
+		int position = entry.terms.size();
+
+		entry.terms.add(term);
+		entry.baseTerms.add(term.getBaseTermCode());
+
+		for (String token : getTokens(term)) {
+
+			ArrayList<Integer> positions = entry.tokens.get(token);
+
+			if (positions == null) {
+				positions = new ArrayList<>(1);
+				entry.tokens.put(token, positions);
+			}
+
+			positions.add(position);
+		}
+	}
+
+	/**
+	 * Get the codes of the base term, of the explicit facets and of the implicit
+	 * facets of the base term of a picklist term
+	 *
+	 * @param term
+	 * @return
+	 */
+	private Collection<String> getTokens(PicklistTerm term) {
+
+		HashSet<String> tokens = new HashSet<>();
+
+		String baseTermCode = term.getBaseTermCode();
+
+		if (baseTermCode == null || baseTermCode.isEmpty())
+			return tokens;
+
+		tokens.add(baseTermCode);
+
+		addFacets(tokens, term.getFacetsCodes());
+
+		// implicit facets of the base term, inherited included
+		Term baseTerm = catalogue.hasTerms() ? catalogue.getTermByCode(baseTermCode) : null;
+
+		if (baseTerm != null)
+			addFacets(tokens, baseTerm.getAttributeValueByName(SpecialValues.ALL_FACETS_NAME));
+
+		return tokens;
+	}
+
+	/**
+	 * Add the facet codes of a facets string (facetHeader.facetCode$...,
+	 * optionally preceded by the base term code and #)
+	 *
+	 * @param tokens
+	 * @param facets
+	 */
+	private static void addFacets(Collection<String> tokens, String facets) {
+
+		if (facets == null || facets.isEmpty())
+			return;
+
+		int hash = facets.indexOf('#');
+
+		StringTokenizer st = new StringTokenizer(hash < 0 ? facets : facets.substring(hash + 1), "$");
+
+		while (st.hasMoreTokens()) {
+
+			String facet = st.nextToken();
+
+			// remove the facet header
+			int dot = facet.indexOf('.');
+
+			tokens.add(dot < 0 ? facet : facet.substring(dot + 1));
+		}
+	}
+}
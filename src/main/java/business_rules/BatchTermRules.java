@@ -0,0 +1,113 @@
+package business_rules;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import catalogue.Catalogue;
+import catalogue_object.Term;
+
+/**
+ * Business rules used by the {@link TermRulesBatchValidator}. The warnings are
+ * not printed but collected for each full code, and the terms are retrieved
+ * from the in memory catalogue instead of the database. Each validation thread
+ * uses its own instance, while the forbidden processes, the warning messages
+ * and the terms are shared (read only) between the instances.
+ */
+class BatchTermRules extends TermRules {
+
+	// upper case term code => term
+	private Map<String, Term> terms;
+
+	// warnings of the code which is currently checked
+	private ArrayList<CodeValidationResult.Warning> warnings;
+
+	// the highest level of the current warnings
+	private WarningLevel currentLevel;
+
+	/**
+	 * Load the business rules files
+	 * 
+	 * @param catalogue    the catalogue used to check the codes
+	 * @param terms        upper case term code => term of the catalogue
+	 * @param brData       the forbidden processes file
+	 * @param brMessages   the warning messages file
+	 */
+	BatchTermRules(Catalogue catalogue, Map<String, Term> terms, String brData, String brMessages) {
+		this.currentCat = catalogue;
+		this.terms = terms;
+		this.forbiddenProcesses = loadForbiddenProcesses(brData);
+		this.warningMessages = loadWarningMessages(brMessages);
+	}
+
+	/**
+	 * Create a new instance which shares the data of another one
+	 * 
+	 * @param rules
+	 */
+	BatchTermRules(BatchTermRules rules) {
+		this.currentCat = rules.currentCat;
+		this.terms = rules.terms;
+		this.forbiddenProcesses = rules.forbiddenProcesses;
+		this.warningMessages = rules.warningMessages;
+	}
+
+	/**
+	 * Check if the business rules files were correctly loaded
+	 * 
+	 * @return
+	 */
+	boolean isLoaded() {
+		return forbiddenProcesses != null && warningMessages != null;
+	}
+
+	/**
+	 * Perform all the checks on the full code (as done by the interpreting and
+	 * checking tool)
+	 * 
+	 * @param fullCode
+	 * @return the warnings raised by the code
+	 */
+	CodeValidationResult check(String fullCode) {
+
+		this.warnings = new ArrayList<>();
+		this.currentLevel = WarningLevel.NONE;
+
+		String error = null;
+
+		try {
+			performWarningChecks(fullCode, false, true);
+		} catch (RuntimeException e) {
+			// malformed codes can break the checks, report the error
+			// for the code without stopping the whole validation
+			error = e.toString();
+		}
+
+		return new CodeValidationResult(fullCode, currentLevel.name(), warnings, error);
+	}
+
+	@Override
+	protected Term getTermByCode(String code) {
+
+		if (code == null)
+			return null;
+
+		return terms.get(code.toUpperCase());
+	}
+
+	@Override
+	protected void printWarning(WarningEvent event, String postMessage, boolean dateTime, boolean stdOut) {
+
+		WarningLevel level = getSemaphoreLevel(event);
+
+		if (level.ordinal() > currentLevel.ordinal())
+			currentLevel = level;
+
+		warnings.add(new CodeValidationResult.Warning(event.name(), level.name(), getTextLevel(event).name(),
+				createMessage(event, postMessage, dateTime)));
+	}
+
+	@Override
+	protected boolean highWarningsPresent() {
+		return currentLevel.ordinal() > 1;
+	}
+}
@@ -0,0 +1,107 @@
+package business_rules;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Result of the business rules checks of a single full code, as produced by the
+ * {@link TermRulesBatchValidator}
+ */
+public class CodeValidationResult {
+
+	private String fullCode;
+	private String level;
+	private Collection<Warning> warnings;
+	private String error;
+
+	/**
+	 * Create the result of the checks of a code
+	 * 
+	 * @param fullCode the checked code
+	 * @param level    the highest warning level raised by the code
+	 * @param warnings the warnings raised by the code
+	 * @param error    the error which stopped the checks, null if none
+	 */
+	public CodeValidationResult(String fullCode, String level, Collection<Warning> warnings, String error) {
+		this.fullCode = fullCode;
+		this.level = level;
+		this.warnings = warnings;
+		this.error = error;
+	}
+
+	public String getFullCode() {
+		return fullCode;
+	}
+
+	/**
+	 * Get the highest warning level of the code (NONE, LOW, HIGH, ERROR)
+	 * 
+	 * @return
+	 */
+	public String getLevel() {
+		return level;
+	}
+
+	public Collection<Warning> getWarnings() {
+		return Collections.unmodifiableCollection(warnings);
+	}
+
+	/**
+	 * Get the error which stopped the checks of the code
+	 * 
+	 * @return the error or null if the checks were completed
+	 */
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "CODE VALIDATION: code=" + fullCode + ";level=" + level + ";warnings=" + warnings.size()
+				+ ";error=" + error;
+	}
+
+	/**
+	 * A warning raised by a business rule
+	 */
+	public static class Warning {
+
+		private String rule;
+		private String level;
+		private String textLevel;
+		private String message;
+
+		public Warning(String rule, String level, String textLevel, String message) {
+			this.rule = rule;
+			this.level = level;
+			this.textLevel = textLevel;
+			this.message = message;
+		}
+
+		/**
+		 * Get the id of the business rule (as BR01)
+		 * 
+		 * @return
+		 */
+		public String getRule() {
+			return rule;
+		}
+
+		public String getLevel() {
+			return level;
+		}
+
+		public String getTextLevel() {
+			return textLevel;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return rule + " (" + level + "): " + message;
+		}
+	}
+}
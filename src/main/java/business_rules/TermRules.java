@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.StringTokenizer;
@@ -22,6 +23,8 @@ import catalogue_object.Attribute;
 import catalogue_object.Hierarchy;
 import catalogue_object.Term;
 import catalogue_object.TermAttribute;
+import metrics.Metrics;
+import metrics.Timer;
 import ui_implicit_facet.DescriptorTreeItem;
 import ui_implicit_facet.FacetDescriptor;
 import ui_implicit_facet.FacetType;
@@ -37,6 +40,8 @@ public abstract class TermRules {
 
 	private static final Logger LOGGER = LogManager.getLogger(TermRules.class);
 
+	private static final Timer CHECK_TIMER = Metrics.timer("TermRules.performWarningChecks");
+
 	protected Catalogue currentCat;
 
 	// list of all the processes which may cause a warning
@@ -49,6 +54,12 @@ public abstract class TermRules {
 	protected ArrayList<WarningMessage> warningMessages;
 	
 	protected boolean btCorrect = false;
+
+	// forbidden processes grouped by warn group code
+	private HashMap<String, ArrayList<ForbiddenProcess>> forbiddenGroups;
+
+	// the list used to create the forbidden groups
+	private ArrayList<ForbiddenProcess> groupedProcesses;
 	
 	/**
 	 * Enum type: identify the warning messages to print
@@ -92,12 +103,11 @@ public abstract class TermRules {
 
 		ArrayList<FacetDescriptor> implicitFacets = bt.getFacets(true);
 
-		TermDAO termDao = new TermDAO(currentCat);
 		ArrayList<Term> implicitTerms = new ArrayList<>();
 		
 		// add implicit facets of the term
 		for (FacetDescriptor fd : implicitFacets)
-			implicitTerms.add(termDao.getByCode(fd.getFacetCode()));
+			implicitTerms.add(getTermByCode(fd.getFacetCode()));
 
 		// populate the explicit facets
 		ArrayList<FacetDescriptor> explicitFacets = new ArrayList<>();
@@ -115,7 +125,7 @@ public abstract class TermRules {
 			// split the facet in facet header and facet code
 			String[] split = splitFacetFullCode(code);
 
-			Term term = termDao.getByCode(split[1]);
+			Term term = getTermByCode(split[1]);
 
 			FacetDescriptor fd = new FacetDescriptor(term, new TermAttribute(term, null, code), FacetType.EXPLICIT);
 
@@ -217,12 +227,10 @@ public abstract class TermRules {
 		// string builder for generating the diagnostic string
 		StringBuilder sb = new StringBuilder();
 
-		TermDAO termDao = new TermDAO(currentCat);
-
 		// check implicit facets
 		for (FacetDescriptor fd : implicitFacets) {
 
-			implicitTerms.add(termDao.getByCode(fd.getFacetCode()));
+			implicitTerms.add(getTermByCode(fd.getFacetCode()));
 
 			String header = fd.getFacetHeader();
 
@@ -250,7 +258,7 @@ public abstract class TermRules {
 			// split the facet in facet header and facet code
 			String[] split = splitFacetFullCode(code);
 
-			Term term = termDao.getByCode(split[1]);
+			Term term = getTermByCode(split[1]);
 
 			FacetDescriptor fd = new FacetDescriptor(term, new TermAttribute(term, null, code), FacetType.EXPLICIT);
 
@@ -965,17 +973,42 @@ public abstract class TermRules {
 		if (forbiddenProcesses == null)
 			return false;
 
-		// get all the warn groups codes
-		ArrayList<String> warnGroupsCodes = new ArrayList<>();
-		for (int i = 0; i < forbiddenProcesses.size(); i++) {
-			warnGroupsCodes.add(forbiddenProcesses.get(i).getGroupCode());
+		// return true if the group is one of the warn groups
+		return getForbiddenGroups(forbiddenProcesses).containsKey(groupCode);
+	}
+
+	/**
+	 * Group the forbidden processes by their warn group code. The groups are
+	 * computed only once for the same list of processes, in order to avoid
+	 * scanning all the processes for each facet which is checked.
+	 * 
+	 * @param forbiddenProcesses
+	 * @return warn group code => forbidden processes of the group
+	 */
+	private HashMap<String, ArrayList<ForbiddenProcess>> getForbiddenGroups(
+			ArrayList<ForbiddenProcess> forbiddenProcesses) {
+
+		if (forbiddenGroups != null && groupedProcesses == forbiddenProcesses)
+			return forbiddenGroups;
+
+		HashMap<String, ArrayList<ForbiddenProcess>> groups = new HashMap<>();
+
+		for (ForbiddenProcess fp : forbiddenProcesses) {
+
+			ArrayList<ForbiddenProcess> group = groups.get(fp.getGroupCode());
+
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.put(fp.getGroupCode(), group);
+			}
+
+			group.add(fp);
 		}
 
-		// get the unique codes set (delete duplicates)
-		Set<String> uniqueGroupsCodes = new HashSet<String>(warnGroupsCodes);
+		forbiddenGroups = groups;
+		groupedProcesses = forbiddenProcesses;
 
-		// return true if the group is one of the warn groups
-		return uniqueGroupsCodes.contains(groupCode);
+		return groups;
 	}
 
 	/**
@@ -1334,16 +1367,14 @@ public abstract class TermRules {
 		if (fps == null || warnGroup == null)
 			return null;
 
+		// get the processes related to the warn group of the baseTerm
+		ArrayList<ForbiddenProcess> group = getForbiddenGroups(fps).get(warnGroup.getCode());
+
 		// output array
 		ArrayList<ForbiddenProcess> currentFP = new ArrayList<>();
 
-		// for each forbidden process
-		for (ForbiddenProcess fp : fps) {
-			// if the warn group related to the current forbidden process is actually the warn group of the baseTerm
-			if (fp.getGroupCode().equals(warnGroup.getCode()))
-				// add the related process to the forbidden processes
-				currentFP.add(fp);
-		}
+		if (group != null)
+			currentFP.addAll(group);
 
 		return currentFP;
 	}
@@ -1374,6 +1405,17 @@ public abstract class TermRules {
 		return null;
 	}
 
+	/**
+	 * Get a term of the current catalogue by its code (case insensitive)
+	 * 
+	 * @param code
+	 * @return the term or null if not found
+	 */
+	protected Term getTermByCode(String code) {
+		TermDAO termDao = new TermDAO(currentCat);
+		return termDao.getByCode(code);
+	}
+
 	/**
 	 * Print the warning messages
 	 * 
@@ -1457,6 +1499,24 @@ public abstract class TermRules {
 	 * @param fromICT
 	 */
 	protected void performWarningChecks(String fullCode, boolean stdOut, boolean fromICT) {
+
+		long start = CHECK_TIMER.start();
+
+		try {
+			checkFullCode(fullCode, stdOut, fromICT);
+		} finally {
+			CHECK_TIMER.stop(start);
+		}
+	}
+
+	/**
+	 * Perform the checks of {@link #performWarningChecks(String, boolean, boolean)}
+	 * 
+	 * @param fullCode
+	 * @param stdOut
+	 * @param fromICT
+	 */
+	private void checkFullCode(String fullCode, boolean stdOut, boolean fromICT) {
 		
 		// force code to upper case
 		fullCode = fullCode.toUpperCase();
@@ -1470,9 +1530,7 @@ public abstract class TermRules {
 		// get the base term code (the first part of the full code)
 		String baseTermCode = splits[0];
 
-		TermDAO termDao = new TermDAO(currentCat);
-
-		Term baseTerm = termDao.getByCode(baseTermCode);
+		Term baseTerm = getTermByCode(baseTermCode);
 
 		// if the base term is not in the database
 		if (baseTerm == null) {
@@ -1528,6 +1586,21 @@ public abstract class TermRules {
 		// implicit facets of the base term
 		ArrayList<ForbiddenProcess> implicit = getImplicitForbiddenProcesses(baseTerm, forbiddenProcesses, stdOut);
 
+		// get all the forbidden processes related to the base term
+		// (defined in the BR_Data.csv or BR_exceptions.csv)
+		ArrayList<ForbiddenProcess> currentFP = null;
+
+		// get the forbidden processes codes (NOT ord code!) related to the base term
+		ArrayList<String> currentFPCodes = new ArrayList<>();
+
+		if (warnGroup) {
+
+			currentFP = getForbiddenProcesses(baseTerm, forbiddenProcesses, stdOut);
+
+			for (ForbiddenProcess proc : currentFP)
+				currentFPCodes.add(proc.getCode());
+		}
+
 		// tokenise the rest of the full code to get all the facets codes separately
 		StringTokenizer st = new StringTokenizer(fullFacetsCodes, "$");
 
@@ -1548,7 +1621,7 @@ public abstract class TermRules {
 			String facetCode = facetComponents[1];
 
 			// get the facet by code
-			Term facet = termDao.getByCode(facetCode);
+			Term facet = getTermByCode(facetCode);
 
 			// if the facet is not present into the database return (for excel macro)
 			if (facet == null) {
@@ -1603,16 +1676,6 @@ public abstract class TermRules {
 			// if it is indeed a warn group
 			if (warnGroup) {
 
-				// get all the forbidden processes related to the base term
-				// (defined in the BR_Data.csv or BR_exceptions.csv)
-				ArrayList<ForbiddenProcess> currentFP = getForbiddenProcesses(baseTerm, forbiddenProcesses, stdOut);
-
-				// get the forbidden processes codes (NOT ord code!) related to the base term
-				ArrayList<String> currentFPCodes = new ArrayList<>();
-
-				for (ForbiddenProcess proc : currentFP)
-					currentFPCodes.add(proc.getCode());
-
 				// if the process just added is present into the current forbidden processes
 				if (currentFPCodes.contains(facetCode)) {
 
@@ -1625,8 +1688,8 @@ public abstract class TermRules {
 					for (ForbiddenProcess proc : implicit) {
 
 						// get the facet terms related to the forbidden processes codes
-						Term ancestor = termDao.getByCode(proc.getCode());
-						Term descendant = termDao.getByCode(currentFP.get(index).getCode());
+						Term ancestor = getTermByCode(proc.getCode());
+						Term descendant = getTermByCode(currentFP.get(index).getCode());
 
 						// if the added process is a son of one of the implicit process
 						// add it but remove the implicit, in order to ignore it
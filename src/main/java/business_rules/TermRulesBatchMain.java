@@ -0,0 +1,121 @@
+package business_rules;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import business_rules.ValidationReportWriter.ReportFormat;
+import catalogue.Catalogue;
+import catalogue_browser_dao.CatalogueDAO;
+import catalogue_browser_dao.DatabaseManager;
+import dcf_manager.Dcf.DcfType;
+import utilities.GlobalUtil;
+
+/**
+ * Command line entry point to check the business rules of a file of FoodEx2
+ * full codes (one for each line) without starting the user interface. The
+ * last version of the catalogue (downloaded or imported with the browser) is
+ * used for the checks, therefore the tool should be started from the folder
+ * of the browser.
+ * 
+ * Usage: {@code TermRulesBatchMain inputFile outputFile [CSV|JSON] [catalogueCode] [threads]}
+ */
+public class TermRulesBatchMain {
+
+	private static final Logger LOGGER = LogManager.getLogger(TermRulesBatchMain.class);
+
+	private static final String DEFAULT_CATALOGUE = "MTX";
+
+	public static void main(String[] args) {
+
+		if (args.length < 2) {
+			System.err.println(
+					"Usage: TermRulesBatchMain inputFile outputFile [CSV|JSON] [catalogueCode] [threads]");
+			System.exit(1);
+		}
+
+		String input = args[0];
+		String output = args[1];
+		ReportFormat format = args.length > 2 ? ReportFormat.valueOf(args[2].toUpperCase()) : ReportFormat.CSV;
+		String catalogueCode = args.length > 3 ? args[3] : DEFAULT_CATALOGUE;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+		int status = 0;
+
+		try {
+
+			DatabaseManager.startMainDB();
+
+			Catalogue catalogue = getCatalogue(catalogueCode);
+
+			if (catalogue == null) {
+				System.err.println("Catalogue " + catalogueCode + " not found, download it with the browser");
+				status = 2;
+			} else {
+				validate(catalogue, input, output, format, threads);
+			}
+
+		} catch (IOException | SQLException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot validate the codes of " + input, e);
+			status = 3;
+		} finally {
+			DatabaseManager.stopMainDB();
+		}
+
+		System.exit(status);
+	}
+
+	/**
+	 * Get the last version of the catalogue, searching first the official ones
+	 * 
+	 * @param code
+	 * @return
+	 */
+	private static Catalogue getCatalogue(String code) {
+
+		CatalogueDAO catDao = new CatalogueDAO();
+
+		for (DcfType type : DcfType.values()) {
+
+			Catalogue catalogue = catDao.getLastVersionByCode(code, type);
+
+			if (catalogue != null)
+				return catalogue;
+		}
+
+		return null;
+	}
+
+	private static void validate(Catalogue catalogue, String input, String output, ReportFormat format,
+			int threads) throws IOException {
+
+		LOGGER.info("Loading " + catalogue);
+
+		catalogue.loadData();
+
+		TermRulesBatchValidator validator = new TermRulesBatchValidator(catalogue,
+				GlobalUtil.getBRData(), GlobalUtil.getBRMessages(), threads);
+
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8));
+				BufferedWriter writer = new BufferedWriter(
+						new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8));) {
+
+			int count = validator.validate(reader, new ValidationReportWriter(writer, format));
+
+			System.out.println(count + " codes validated, report saved in " + output);
+		} finally {
+			catalogue.closeQuitely();
+		}
+	}
+}
@@ -0,0 +1,302 @@
+package business_rules;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue.Catalogue;
+import catalogue_object.Term;
+import shared_data.SharedDataContainer;
+import utilities.GlobalUtil;
+
+/**
+ * Check the business rules of a large number of FoodEx2 full codes. The codes
+ * are split in chunks which are checked in parallel by a pool of threads, each
+ * one with its own {@link BatchTermRules}. The terms are retrieved from the
+ * catalogue loaded in memory, which should not be modified during the
+ * validation. The implicit facets of the terms are computed before starting
+ * the threads, which then only read them. The results are returned in the
+ * same order of the input codes.
+ * 
+ * Example: <br>
+ * {@code TermRulesBatchValidator validator = new TermRulesBatchValidator(catalogue);}
+ * <br>
+ * {@code validator.validate(reader, new ValidationReportWriter(out, ReportFormat.CSV));}
+ */
+public class TermRulesBatchValidator {
+
+	private static final Logger LOGGER = LogManager.getLogger(TermRulesBatchValidator.class);
+
+	// number of codes checked by each task
+	private static final int CHUNK_SIZE = 500;
+
+	private BatchTermRules rules;
+	private int threads;
+
+	/**
+	 * Create a validator which uses all the available processors and the
+	 * business rules files of the application
+	 * 
+	 * @param catalogue the catalogue (with its data loaded) used to check the
+	 *                  codes
+	 * @throws IOException if the business rules files cannot be read
+	 */
+	public TermRulesBatchValidator(Catalogue catalogue) throws IOException {
+		this(catalogue, GlobalUtil.getBRData(), GlobalUtil.getBRMessages(),
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a validator
+	 * 
+	 * @param catalogue  the catalogue (with its data loaded) used to check the
+	 *                   codes
+	 * @param brData     the forbidden processes file
+	 * @param brMessages the warning messages file
+	 * @param threads    number of threads used to check the codes
+	 * @throws IOException if the business rules files cannot be read
+	 */
+	public TermRulesBatchValidator(Catalogue catalogue, String brData, String brMessages, int threads)
+			throws IOException {
+
+		// index the terms by code, as the database search is case insensitive
+		HashMap<String, Term> terms = new HashMap<>();
+		for (Term term : catalogue.getTerms())
+			terms.put(term.getCode().toUpperCase(), term);
+
+		this.rules = new BatchTermRules(catalogue, terms, brData, brMessages);
+		this.threads = Math.max(1, threads);
+
+		if (!rules.isLoaded())
+			throw new IOException("Cannot load the business rules from " + brData + " and " + brMessages);
+
+		// the implicit facets computation needs the facet hierarchies
+		if (SharedDataContainer.facetsHierarchies == null)
+			SharedDataContainer.updateFacetsHierarchies(catalogue);
+
+		computeImplicitFacets(catalogue);
+	}
+
+	/**
+	 * Compute the inherited implicit facets of all the terms. The computation
+	 * changes the implicit facets of the terms and fills the catalogue cache, so
+	 * it cannot be done by the validation threads at the same time.
+	 * 
+	 * @param catalogue
+	 */
+	private static void computeImplicitFacets(Catalogue catalogue) {
+
+		long start = System.currentTimeMillis();
+
+		for (Term term : catalogue.getTerms()) {
+			try {
+				term.getFacets(true);
+			} catch (RuntimeException e) {
+				// the codes which use the term will report the error
+				LOGGER.warn("Cannot compute the implicit facets of " + term.getCode(), e);
+			}
+		}
+
+		LOGGER.info("Implicit facets computed in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Check all the codes
+	 * 
+	 * @param codes
+	 * @return the results, in the same order of the codes
+	 */
+	public List<CodeValidationResult> validate(Collection<String> codes) {
+
+		final List<CodeValidationResult> results = new ArrayList<>(codes.size());
+
+		try {
+			final Iterator<String> iterator = new ArrayList<>(codes).iterator();
+
+			validate(new CodeSource() {
+				@Override
+				public String next() {
+					return iterator.hasNext() ? iterator.next() : null;
+				}
+			}, new ResultHandler() {
+				@Override
+				public void handle(CodeValidationResult result) {
+					results.add(result);
+				}
+			});
+		} catch (IOException e) {
+			// the source and the handler do not throw
+			LOGGER.error("Cannot validate the codes", e);
+		}
+
+		return results;
+	}
+
+	/**
+	 * Check all the codes contained in the reader (one for each line, empty lines
+	 * are skipped) and write the results into the report
+	 * 
+	 * @param reader
+	 * @param report
+	 * @return the number of checked codes
+	 * @throws IOException
+	 */
+	public int validate(final BufferedReader reader, final ValidationReportWriter report) throws IOException {
+
+		report.start();
+
+		int count = validate(new CodeSource() {
+			@Override
+			public String next() throws IOException {
+				return reader.readLine();
+			}
+		}, new ResultHandler() {
+			@Override
+			public void handle(CodeValidationResult result) throws IOException {
+				report.write(result);
+			}
+		});
+
+		report.end();
+
+		return count;
+	}
+
+	/**
+	 * Check the codes in parallel. The chunks of codes are read only when there
+	 * is a free slot, in order to keep in memory only a limited number of codes
+	 * and results.
+	 * 
+	 * @param codes
+	 * @param handler
+	 * @return the number of checked codes
+	 * @throws IOException
+	 */
+	private int validate(CodeSource codes, ResultHandler handler) throws IOException {
+
+		long start = System.currentTimeMillis();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		// the checks are not thread safe, one instance for each thread
+		final ThreadLocal<BatchTermRules> localRules = new ThreadLocal<BatchTermRules>() {
+			@Override
+			protected BatchTermRules initialValue() {
+				return new BatchTermRules(rules);
+			}
+		};
+
+		Queue<Future<List<CodeValidationResult>>> pending = new LinkedList<>();
+
+		int count = 0;
+
+		try {
+
+			boolean finished = false;
+
+			while (!finished) {
+
+				final List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+
+				while (chunk.size() < CHUNK_SIZE) {
+
+					String code = codes.next();
+
+					if (code == null) {
+						finished = true;
+						break;
+					}
+
+					code = code.trim();
+
+					if (!code.isEmpty())
+						chunk.add(code);
+				}
+
+				if (chunk.isEmpty())
+					continue;
+
+				count += chunk.size();
+
+				pending.add(executor.submit(new Callable<List<CodeValidationResult>>() {
+					@Override
+					public List<CodeValidationResult> call() {
+
+						BatchTermRules checker = localRules.get();
+
+						List<CodeValidationResult> results = new ArrayList<>(chunk.size());
+						for (String code : chunk)
+							results.add(checker.check(code));
+
+						return results;
+					}
+				}));
+
+				// write the oldest results if too many chunks are waiting
+				while (pending.size() >= threads * 2)
+					handle(pending.poll(), handler);
+			}
+
+			while (!pending.isEmpty())
+				handle(pending.poll(), handler);
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+		long time = Math.max(1, System.currentTimeMillis() - start);
+
+		LOGGER.info("Validated " + count + " codes in " + time + " ms with " + threads + " threads ("
+				+ (count * 60000L / time) + " codes/min)");
+
+		return count;
+	}
+
+	private void handle(Future<List<CodeValidationResult>> future, ResultHandler handler) throws IOException {
+
+		try {
+			for (CodeValidationResult result : future.get())
+				handler.handle(result);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Validation interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Validation failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Receive the results in the order of the codes
+	 */
+	private interface ResultHandler {
+		void handle(CodeValidationResult result) throws IOException;
+	}
+
+	/**
+	 * Give the codes to check one by one
+	 */
+	private interface CodeSource {
+
+		/**
+		 * Get the next code
+		 * 
+		 * @return the code or null if there are no more codes
+		 * @throws IOException
+		 */
+		String next() throws IOException;
+	}
+}
@@ -0,0 +1,227 @@
+package business_rules;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Write the results of the {@link TermRulesBatchValidator} into a structured
+ * report. The results are written as soon as they are received, in order to
+ * avoid keeping the whole report in memory.
+ * 
+ * CSV: one line for each warning (or one line without rule if the code did not
+ * raise warnings), with the fields separated by semicolons as in the business
+ * rules files.
+ * 
+ * JSON: an array with an object for each code, containing its warnings.
+ */
+public class ValidationReportWriter {
+
+	private static final String CSV_SEPARATOR = ";";
+
+	/**
+	 * Format of the report
+	 */
+	public enum ReportFormat {
+		CSV, JSON;
+	}
+
+	private Writer out;
+	private ReportFormat format;
+	private boolean first;
+
+	/**
+	 * Create the report writer. The writer is not closed by this class.
+	 * 
+	 * @param out
+	 * @param format
+	 */
+	public ValidationReportWriter(Writer out, ReportFormat format) {
+		this.out = out;
+		this.format = format;
+		this.first = true;
+	}
+
+	/**
+	 * Write the beginning of the report
+	 * 
+	 * @throws IOException
+	 */
+	public void start() throws IOException {
+
+		first = true;
+
+		switch (format) {
+		case CSV:
+			out.write(csvLine("FULL_CODE", "CODE_LEVEL", "RULE", "RULE_LEVEL", "TEXT_LEVEL", "MESSAGE"));
+			break;
+		case JSON:
+			out.write("[");
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Write the result of a code
+	 * 
+	 * @param result
+	 * @throws IOException
+	 */
+	public void write(CodeValidationResult result) throws IOException {
+
+		switch (format) {
+		case CSV:
+			writeCsv(result);
+			break;
+		case JSON:
+			writeJson(result);
+			break;
+		default:
+			break;
+		}
+
+		first = false;
+	}
+
+	/**
+	 * Write the end of the report and flush it
+	 * 
+	 * @throws IOException
+	 */
+	public void end() throws IOException {
+
+		if (format == ReportFormat.JSON)
+			out.write(first ? "]" : "\n]");
+
+		out.write(System.lineSeparator());
+		out.flush();
+	}
+
+	private void writeCsv(CodeValidationResult result) throws IOException {
+
+		if (result.getError() != null) {
+			out.write(csvLine(result.getFullCode(), result.getLevel(), "", "", "", result.getError()));
+			return;
+		}
+
+		if (result.getWarnings().isEmpty()) {
+			out.write(csvLine(result.getFullCode(), result.getLevel(), "", "", "", ""));
+			return;
+		}
+
+		for (CodeValidationResult.Warning warning : result.getWarnings()) {
+			out.write(csvLine(result.getFullCode(), result.getLevel(), warning.getRule(), warning.getLevel(),
+					warning.getTextLevel(), warning.getMessage()));
+		}
+	}
+
+	private void writeJson(CodeValidationResult result) throws IOException {
+
+		StringBuilder sb = new StringBuilder();
+
+		sb.append(first ? "\n" : ",\n");
+		sb.append("{\"fullCode\":").append(jsonString(result.getFullCode()));
+		sb.append(",\"level\":").append(jsonString(result.getLevel()));
+
+		if (result.getError() != null)
+			sb.append(",\"error\":").append(jsonString(result.getError()));
+
+		sb.append(",\"warnings\":[");
+
+		boolean firstWarning = true;
+		for (CodeValidationResult.Warning warning : result.getWarnings()) {
+
+			if (!firstWarning)
+				sb.append(",");
+
+			sb.append("{\"rule\":").append(jsonString(warning.getRule()));
+			sb.append(",\"level\":").append(jsonString(warning.getLevel()));
+			sb.append(",\"textLevel\":").append(jsonString(warning.getTextLevel()));
+			sb.append(",\"message\":").append(jsonString(warning.getMessage()));
+			sb.append("}");
+
+			firstWarning = false;
+		}
+
+		sb.append("]}");
+
+		out.write(sb.toString());
+	}
+
+	/**
+	 * Create a csv line, quoting the values which contain separators or quotes
+	 * 
+	 * @param values
+	 * @return
+	 */
+	private static String csvLine(String... values) {
+
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < values.length; i++) {
+
+			if (i > 0)
+				sb.append(CSV_SEPARATOR);
+
+			String value = values[i] == null ? "" : values[i];
+
+			if (value.contains(CSV_SEPARATOR) || value.contains("\"") || value.contains("\n")
+					|| value.contains("\r"))
+				value = "\"" + value.replace("\"", "\"\"") + "\"";
+
+			sb.append(value);
+		}
+
+		sb.append(System.lineSeparator());
+
+		return sb.toString();
+	}
+
+	/**
+	 * Convert a value into a json string, escaping the special characters
+	 * 
+	 * @param value
+	 * @return
+	 */
+	private static String jsonString(String value) {
+
+		if (value == null)
+			return "null";
+
+		StringBuilder sb = new StringBuilder("\"");
+
+		for (int i = 0; i < value.length(); i++) {
+
+			char c = value.charAt(i);
+
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20)
+					sb.append(String.format("\\u%04x", (int) c));
+				else
+					sb.append(c);
+				break;
+			}
+		}
+
+		sb.append("\"");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,586 @@
+package catalogue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import catalogue_object.Applicability;
+import catalogue_object.Hierarchy;
+import catalogue_object.Nameable;
+import catalogue_object.Term;
+
+/**
+ * In memory parent/child adjacency of the catalogue terms. For each hierarchy
+ * we keep the ordered list of children of each parent term (and of the
+ * hierarchy itself for the first level terms), in order to navigate the trees
+ * without querying the PARENT_TERM table of the catalogue database.
+ *
+ * The index is built once when the applicabilities are loaded (see
+ * {@link Catalogue#refreshApplicabities()}) and then kept in sync by the
+ * applicabilities which are added, removed or updated permanently.
+ *
+ * Together with the adjacency we keep, for each term, the number of
+ * deprecated/reportable terms contained in its subtree (see
+ * {@link SubtreeCounts}). The counts are computed bottom-up when the index is
+ * built and then updated along the path of the ancestors when a term is moved
+ * or its deprecation/reportability changes.
+ *
+ */
+public class ApplicabilityIndex {
+
+	// hierarchy id => adjacency of the hierarchy
+	private HashMap<Integer, HierarchyLevels> hierarchies;
+
+	// true if the index was built from the catalogue applicabilities
+	private boolean built;
+
+	public ApplicabilityIndex() {
+		this.hierarchies = new HashMap<>();
+		this.built = false;
+	}
+
+	/**
+	 * Build the index from scratch using all the applicabilities of the catalogue
+	 *
+	 * @param appls
+	 */
+	public synchronized void build(Collection<Applicability> appls) {
+
+		hierarchies.clear();
+
+		for (Applicability appl : appls) {
+
+			if (appl == null || appl.getChild() == null || appl.getHierarchy() == null)
+				continue;
+
+			HierarchyLevels levels = getLevels(appl.getHierarchy(), true);
+
+			// the counts are computed at the end for all the terms
+			levels.add(appl.getChild(), appl.getParentTerm(), appl.isReportable(), false);
+		}
+
+		for (HierarchyLevels levels : hierarchies.values())
+			levels.computeCounts();
+
+		built = true;
+	}
+
+	/**
+	 * Check if the index was built or not. If not, the parent/child relationships
+	 * should be retrieved from the database.
+	 *
+	 * @return
+	 */
+	public synchronized boolean isBuilt() {
+		return built;
+	}
+
+	/**
+	 * Remove all the relationships from the index
+	 */
+	public synchronized void clear() {
+		hierarchies.clear();
+		built = false;
+	}
+
+	/**
+	 * Add a parent/child relationship to the index
+	 *
+	 * @param appl
+	 */
+	public synchronized void add(Applicability appl) {
+
+		if (appl == null || appl.getChild() == null || appl.getHierarchy() == null)
+			return;
+
+		HierarchyLevels levels = getLevels(appl.getHierarchy(), true);
+		levels.add(appl.getChild(), appl.getParentTerm(), appl.isReportable(), true);
+	}
+
+	/**
+	 * Remove a parent/child relationship from the index
+	 *
+	 * @param appl
+	 */
+	public synchronized void remove(Applicability appl) {
+
+		if (appl == null || appl.getChild() == null || appl.getHierarchy() == null)
+			return;
+
+		HierarchyLevels levels = getLevels(appl.getHierarchy(), false);
+
+		if (levels != null)
+			levels.remove(appl.getChild());
+	}
+
+	/**
+	 * Refresh the position of the child of the applicability, since its parent or
+	 * its order could be changed. Applicabilities which were not added to the
+	 * index (e.g. the ones of temporary terms) are ignored.
+	 *
+	 * @param appl
+	 */
+	public synchronized void update(Applicability appl) {
+
+		if (appl == null || appl.getChild() == null || appl.getHierarchy() == null)
+			return;
+
+		HierarchyLevels levels = getLevels(appl.getHierarchy(), false);
+
+		if (levels == null || !levels.contains(appl.getChild()))
+			return;
+
+		// move the child under the new parent (if changed) and
+		// invalidate the order of its level
+		levels.remove(appl.getChild());
+		levels.add(appl.getChild(), appl.getParentTerm(), appl.isReportable(), true);
+	}
+
+	/**
+	 * Refresh the reportability of the child of the applicability in the subtree
+	 * counts of its ancestors. Terms which were not added to the index are
+	 * ignored.
+	 *
+	 * @param appl
+	 */
+	public synchronized void updateReportability(Applicability appl) {
+
+		if (appl == null || appl.getChild() == null || appl.getHierarchy() == null)
+			return;
+
+		HierarchyLevels levels = getLevels(appl.getHierarchy(), false);
+
+		if (levels != null)
+			levels.setReportable(appl.getChild(), appl.isReportable());
+	}
+
+	/**
+	 * Refresh the deprecation of the term in the subtree counts of its ancestors,
+	 * in all the hierarchies. Terms which were not added to the index (e.g.
+	 * temporary copies of the catalogue terms) are ignored.
+	 *
+	 * @param term
+	 */
+	public synchronized void updateDeprecation(Term term) {
+
+		if (term == null)
+			return;
+
+		for (HierarchyLevels levels : hierarchies.values())
+			levels.setDeprecated(term, term.isDeprecated());
+	}
+
+	/**
+	 * Get the counts of the terms contained in the subtree of the term in the
+	 * selected hierarchy (the term itself is excluded).
+	 *
+	 * @param term
+	 * @param hierarchy
+	 * @return a copy of the counts, or null if the index was not built
+	 */
+	public synchronized SubtreeCounts getSubtreeCounts(Term term, Hierarchy hierarchy) {
+
+		if (!built)
+			return null;
+
+		HierarchyLevels levels = getLevels(hierarchy, false);
+
+		if (levels == null)
+			return new SubtreeCounts();
+
+		return levels.getDescendants(term.getId());
+	}
+
+	/**
+	 * Remove all the relationships related to a hierarchy
+	 *
+	 * @param hierarchy
+	 */
+	public synchronized void remove(Hierarchy hierarchy) {
+		hierarchies.remove(hierarchy.getId());
+	}
+
+	/**
+	 * Get the children of the parent in the selected hierarchy, sorted by order
+	 * integer and then by extended name (as in the PARENT_TERM queries). The
+	 * parent can be a term or the hierarchy itself (or null) to get the first
+	 * level terms.
+	 *
+	 * @param parent
+	 * @param hierarchy
+	 * @return a copy of the children list, which can be freely modified
+	 */
+	public synchronized ArrayList<Term> getChildren(Nameable parent, Hierarchy hierarchy) {
+
+		HierarchyLevels levels = getLevels(hierarchy, false);
+
+		if (levels == null)
+			return new ArrayList<>();
+
+		Level level = levels.getLevel(parent, false);
+
+		if (level == null)
+			return new ArrayList<>();
+
+		return new ArrayList<>(level.getSorted(hierarchy));
+	}
+
+	/**
+	 * Get the adjacency of a hierarchy
+	 *
+	 * @param hierarchy
+	 * @param create    create it if not present
+	 * @return
+	 */
+	private HierarchyLevels getLevels(Hierarchy hierarchy, boolean create) {
+
+		HierarchyLevels levels = hierarchies.get(hierarchy.getId());
+
+		if (levels == null && create) {
+			levels = new HierarchyLevels();
+			hierarchies.put(hierarchy.getId(), levels);
+		}
+
+		return levels;
+	}
+
+	/**
+	 * Adjacency of a single hierarchy
+	 */
+	private static class HierarchyLevels {
+
+		// children of the hierarchy (first level terms)
+		private Level roots;
+
+		// parent term id => children of the term
+		private HashMap<Integer, Level> byParent;
+
+		// child term id => position of the term in the hierarchy
+		private HashMap<Integer, Node> nodes;
+
+		// term id => counts of the terms contained in its subtree
+		private HashMap<Integer, SubtreeCounts> descendants;
+
+		public HierarchyLevels() {
+			this.roots = new Level();
+			this.byParent = new HashMap<>();
+			this.nodes = new HashMap<>();
+			this.descendants = new HashMap<>();
+		}
+
+		/**
+		 * Add the child under the parent
+		 * 
+		 * @param child
+		 * @param parent
+		 * @param reportable reportability of the child in the hierarchy
+		 * @param propagate  true to update the subtree counts of the ancestors
+		 */
+		public void add(Term child, Nameable parent, boolean reportable, boolean propagate) {
+
+			// only one parent per hierarchy is allowed
+			if (nodes.containsKey(child.getId()))
+				remove(child);
+
+			Integer parentId = parent instanceof Term ? ((Term) parent).getId() : null;
+
+			Node node = new Node(child, parentId, reportable, child.isDeprecated());
+			nodes.put(child.getId(), node);
+			getLevel(parent, true).add(child);
+
+			if (propagate)
+				propagate(parentId, getTotal(node), 1);
+		}
+
+		public boolean contains(Term child) {
+			return nodes.containsKey(child.getId());
+		}
+
+		public void remove(Term child) {
+
+			Node node = nodes.remove(child.getId());
+
+			if (node == null)
+				return;
+
+			// the subtree of the child is not part of the ancestors anymore
+			// (the counts of the child are kept since its children are still
+			// linked to it)
+			propagate(node.parentId, getTotal(node), -1);
+
+			Level level = node.parentId == null ? roots : byParent.get(node.parentId);
+
+			if (level == null)
+				return;
+
+			level.remove(child);
+
+			if (node.parentId != null && level.isEmpty())
+				byParent.remove(node.parentId);
+		}
+
+		public void setReportable(Term child, boolean reportable) {
+
+			Node node = nodes.get(child.getId());
+
+			if (node == null || node.term != child || node.reportable == reportable)
+				return;
+
+			propagate(node.parentId, node.getCounts(), -1);
+			node.reportable = reportable;
+			propagate(node.parentId, node.getCounts(), 1);
+		}
+
+		public void setDeprecated(Term child, boolean deprecated) {
+
+			Node node = nodes.get(child.getId());
+
+			if (node == null || node.term != child || node.deprecated == deprecated)
+				return;
+
+			propagate(node.parentId, node.getCounts(), -1);
+			node.deprecated = deprecated;
+			propagate(node.parentId, node.getCounts(), 1);
+		}
+
+		/**
+		 * Get a copy of the counts of the subtree of the term
+		 * 
+		 * @param termId
+		 * @return
+		 */
+		public SubtreeCounts getDescendants(int termId) {
+
+			SubtreeCounts counts = descendants.get(termId);
+
+			return counts == null ? new SubtreeCounts() : new SubtreeCounts(counts);
+		}
+
+		/**
+		 * Compute the subtree counts of all the terms from scratch, visiting the
+		 * trees bottom-up
+		 */
+		public void computeCounts() {
+
+			descendants.clear();
+
+			// visit the trees top-down starting from the first level terms
+			// (and from the terms whose parent is not in the hierarchy)
+			LinkedList<Node> queue = new LinkedList<>();
+			ArrayList<Node> visited = new ArrayList<>(nodes.size());
+
+			for (Node node : nodes.values()) {
+				if (node.parentId == null || !nodes.containsKey(node.parentId))
+					queue.add(node);
+			}
+
+			while (!queue.isEmpty()) {
+
+				Node node = queue.poll();
+				visited.add(node);
+
+				Level level = byParent.get(node.term.getId());
+
+				if (level == null)
+					continue;
+
+				for (Term child : level.children) {
+
+					Node childNode = nodes.get(child.getId());
+
+					if (childNode != null)
+						queue.add(childNode);
+				}
+			}
+
+			// then add the totals of each term to its parent, in reverse order,
+			// so that the children are always processed before their parents
+			for (int i = visited.size() - 1; i >= 0; i--) {
+
+				Node node = visited.get(i);
+
+				if (node.parentId == null)
+					continue;
+
+				getCounts(node.parentId).add(getTotal(node), 1);
+			}
+		}
+
+		/**
+		 * Add (or subtract) the counts to the parent and to all its ancestors
+		 * 
+		 * @param parentId
+		 * @param counts
+		 * @param sign
+		 */
+		private void propagate(Integer parentId, SubtreeCounts counts, int sign) {
+
+			Integer current = parentId;
+
+			// the number of steps is limited to avoid loops with wrong data
+			int steps = 0;
+
+			while (current != null && steps <= nodes.size()) {
+
+				getCounts(current).add(counts, sign);
+
+				Node node = nodes.get(current);
+
+				if (node == null)
+					break;
+
+				current = node.parentId;
+				steps++;
+			}
+		}
+
+		/**
+		 * Get the counts of the term itself plus the ones of its subtree
+		 * 
+		 * @param node
+		 * @return
+		 */
+		private SubtreeCounts getTotal(Node node) {
+
+			SubtreeCounts total = node.getCounts();
+
+			SubtreeCounts subtree = descendants.get(node.term.getId());
+
+			if (subtree != null)
+				total.add(subtree, 1);
+
+			return total;
+		}
+
+		private SubtreeCounts getCounts(int termId) {
+
+			SubtreeCounts counts = descendants.get(termId);
+
+			if (counts == null) {
+				counts = new SubtreeCounts();
+				descendants.put(termId, counts);
+			}
+
+			return counts;
+		}
+
+		public Level getLevel(Nameable parent, boolean create) {
+
+			if (!(parent instanceof Term))
+				return roots;
+
+			int parentId = ((Term) parent).getId();
+
+			Level level = byParent.get(parentId);
+
+			if (level == null && create) {
+				level = new Level();
+				byParent.put(parentId, level);
+			}
+
+			return level;
+		}
+	}
+
+	/**
+	 * Position of a term in a hierarchy
+	 */
+	private static class Node {
+
+		private Term term;
+
+		// null for first level terms
+		private Integer parentId;
+
+		private boolean reportable;
+		private boolean deprecated;
+
+		public Node(Term term, Integer parentId, boolean reportable, boolean deprecated) {
+			this.term = term;
+			this.parentId = parentId;
+			this.reportable = reportable;
+			this.deprecated = deprecated;
+		}
+
+		/**
+		 * Get the counts of the term alone
+		 * 
+		 * @return
+		 */
+		public SubtreeCounts getCounts() {
+			return new SubtreeCounts(reportable, deprecated);
+		}
+	}
+
+	/**
+	 * Children of a single parent. The children are sorted lazily, only when they
+	 * are requested after a modification.
+	 */
+	private static class Level {
+
+		private ArrayList<Term> children;
+		private boolean sorted;
+
+		public Level() {
+			this.children = new ArrayList<>();
+			this.sorted = true;
+		}
+
+		public void add(Term child) {
+			children.add(child);
+			sorted = false;
+		}
+
+		public void remove(Term child) {
+
+			// remove by id, since terms equality is based on codes
+			for (int i = 0; i < children.size(); i++) {
+				if (children.get(i).getId() == child.getId()) {
+					children.remove(i);
+					break;
+				}
+			}
+		}
+
+		public boolean isEmpty() {
+			return children.isEmpty();
+		}
+
+		public ArrayList<Term> getSorted(final Hierarchy hierarchy) {
+
+			if (!sorted) {
+
+				Collections.sort(children, new Comparator<Term>() {
+					public int compare(Term t1, Term t2) {
+
+						int o1 = t1.getOrder(hierarchy);
+						int o2 = t2.getOrder(hierarchy);
+
+						if (o1 != o2)
+							return o1 < o2 ? -1 : 1;
+
+						return compareNames(t1.getName(), t2.getName());
+					};
+				});
+
+				sorted = true;
+			}
+
+			return children;
+		}
+
+		private static int compareNames(String n1, String n2) {
+
+			if (n1 == null)
+				return n2 == null ? 0 : -1;
+
+			if (n2 == null)
+				return 1;
+
+			return n1.compareTo(n2);
+		}
+	}
+}
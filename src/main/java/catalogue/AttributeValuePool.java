@@ -0,0 +1,118 @@
+package catalogue;
+
+import java.util.HashMap;
+
+import catalogue_object.Attribute;
+
+/**
+ * Pool of the values of the term attributes of a catalogue. The values of the
+ * attributes which have few distinct values (detail levels, term types, facets,
+ * booleans and catalogue codes) are repeated thousands of times, therefore the
+ * equal values are shared in order to keep in memory only one copy of them.
+ * Free text values are not pooled.
+ */
+public class AttributeValuePool {
+
+	private HashMap<String, String> values;
+
+	// number of values which were replaced with the pooled copy
+	private long shared;
+
+	// estimated memory of the values which were replaced
+	private long savedBytes;
+
+	public AttributeValuePool() {
+		this.values = new HashMap<>();
+	}
+
+	/**
+	 * Get the pooled copy of the value of the attribute. If the attribute does
+	 * not have low cardinality values the value is returned as it is.
+	 *
+	 * @param attribute
+	 * @param value
+	 * @return
+	 */
+	public synchronized String intern(Attribute attribute, String value) {
+
+		if (value == null || attribute == null || !isPooled(attribute))
+			return value;
+
+		String pooled = values.get(value);
+
+		if (pooled == null) {
+			values.put(value, value);
+			return value;
+		}
+
+		if (pooled != value) {
+			shared++;
+			savedBytes += getStringSize(value);
+		}
+
+		return pooled;
+	}
+
+	/**
+	 * Check if the values of the attribute should be pooled
+	 *
+	 * @param attribute
+	 * @return
+	 */
+	private static boolean isPooled(Attribute attribute) {
+		return attribute.isDetailLevel() || attribute.isTermType() || attribute.isImplicitFacet()
+				|| attribute.isAllFacet() || attribute.isCatalogue()
+				|| Attribute.booleanTypeName.equals(attribute.getType());
+	}
+
+	/**
+	 * Estimate the heap size of a string (object header, hash, reference to the
+	 * char array and the char array itself, aligned to 8 bytes)
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static long getStringSize(String value) {
+		return 24 + align(16 + 2L * value.length());
+	}
+
+	private static long align(long size) {
+		return (size + 7) / 8 * 8;
+	}
+
+	/**
+	 * Get the number of distinct values in the pool
+	 *
+	 * @return
+	 */
+	public synchronized int size() {
+		return values.size();
+	}
+
+	/**
+	 * Get the number of values which were replaced by the pooled copy
+	 *
+	 * @return
+	 */
+	public synchronized long getShared() {
+		return shared;
+	}
+
+	/**
+	 * Get the estimated memory saved by sharing the values, in bytes
+	 *
+	 * @return
+	 */
+	public synchronized long getSavedBytes() {
+		return savedBytes;
+	}
+
+	/**
+	 * Remove all the values from the pool
+	 */
+	public synchronized void clear() {
+		values.clear();
+		shared = 0;
+		savedBytes = 0;
+	}
+}
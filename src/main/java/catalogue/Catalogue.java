@@ -10,13 +10,18 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.xml.soap.SOAPException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import already_described_terms.PicklistIndex;
 import catalogue_browser_dao.AttributeDAO;
 import catalogue_browser_dao.CatalogueDAO;
+import catalogue_browser_dao.CatalogueSchema;
+import catalogue_browser_dao.ConnectionPool;
 import catalogue_browser_dao.DatabaseManager;
 import catalogue_browser_dao.HierarchyDAO;
 import catalogue_browser_dao.ParentTermDAO;
@@ -36,6 +41,7 @@ import catalogue_object.Status.StatusValues;
 import catalogue_object.Term;
 import catalogue_object.TermAttribute;
 import catalogue_object.Version;
+import config.AppConfig;
 import data_transformation.BooleanConverter;
 import data_transformation.DateTrimmer;
 import dcf_manager.Dcf;
@@ -47,13 +53,18 @@ import global_manager.GlobalManager;
 import i18n_messages.CBMessages;
 import import_catalogue.CatalogueImporter.ImportFileFormat;
 import import_catalogue.CatalogueImporterThread;
+import metrics.Metrics;
+import metrics.Timer;
 import progress_bar.IProgressBar;
 import property.SorterCatalogueObject;
 import soap.UploadCatalogueFileImpl.ReserveLevel;
 import term_code_generator.CodeGenerator;
 import term_code_generator.TermCodeException;
+import term_code_generator.TermCodeTracker;
 import term_type.TermType;
 import term_type.TermTypeDAO;
+import ui_search_bar.TermSearchIndex;
+import user_preferences.PreferenceCache;
 import utilities.GlobalUtil;
 
 /**
@@ -68,6 +79,14 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 
 	private static final Logger LOGGER = LogManager.getLogger(Catalogue.class);
 
+	private static final Timer OPEN_TIMER = Metrics.timer("Catalogue.open");
+	private static final Timer LOAD_TIMER = Metrics.timer("Catalogue.loadData");
+	private static final Timer LOAD_BASE_TIMER = Metrics.timer("Catalogue.loadData.base");
+	private static final Timer LOAD_TERMS_TIMER = Metrics.timer("Catalogue.loadData.terms");
+	private static final Timer LOAD_APPLICABILITIES_TIMER = Metrics.timer("Catalogue.loadData.applicabilities");
+	private static final Timer LOAD_TERM_ATTRIBUTES_TIMER = Metrics.timer("Catalogue.loadData.termAttributes");
+	private static final Timer SAVE_SNAPSHOT_TIMER = Metrics.timer("Catalogue.loadData.saveSnapshot");
+
 	// date format of the catalogues
 	public static final String ISO_8601_24H_FULL_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
 
@@ -91,24 +110,57 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	private String dbPath;
 	private String backupDbPath; // path where it is located the backup of the catalogue db
 
-	private boolean local; // if the catalogue is a new local catalogue or not
+	// pool of connections to the catalogue db, available
+	// only while the catalogue is opened
+	private volatile ConnectionPool connectionPool;
 
-	// list of terms which are contained in the catalogue
-	private HashMap<Integer, Term> terms;
+	// true if the database has the upper case lookup columns of the
+	// terms, null if not checked yet, see CatalogueSchema
+	private volatile Boolean termLookupColumns;
+
+	private boolean local; // if the catalogue is a new local catalogue or not
 
-	// cache for term ids to speed up finding
-	// terms ids using term code without
-	// iterating the entire collection of terms
-	private HashMap<String, Integer> termsIds;
+	// terms which are contained in the catalogue,
+	// accessible by id and by code
+	private TermStore terms;
 
 	// list of the hierarchies contained in the
 	// catalogue (both base and attribute hierarchies)
 	private ArrayList<Hierarchy> hierarchies;
 
+	// in memory parent/child relationships of the terms
+	// for each hierarchy, used to navigate the trees
+	private ApplicabilityIndex applicabilityIndex = new ApplicabilityIndex();
+
+	// in memory index of codes, names and term attributes used by the searches
+	private TermSearchIndex searchIndex = new TermSearchIndex();
+
+	// inherited implicit facets of the terms computed so far
+	private InheritedFacetsCache inheritedFacets = new InheritedFacetsCache(this);
+
+	// hierarchy codes of the terms computed so far
+	private HierarchyCodeCache hierarchyCodes = new HierarchyCodeCache(this);
+
+	// highest term codes of each code mask
+	private TermCodeTracker termCodes = new TermCodeTracker(this);
+
+	// preferences of the catalogue database
+	private PreferenceCache preferences = new PreferenceCache();
+
+	// picklist terms indexed by base term and facet codes
+	private PicklistIndex picklists = new PicklistIndex(this);
+
 	// list of the attributes contained in the
 	// catalogue (only definitions, not values)
 	private ArrayList<Attribute> attributes;
 
+	// attributes by id, to bind the term attributes to the
+	// same attribute objects of the catalogue
+	private HashMap<Integer, Attribute> attributesById = new HashMap<>();
+
+	// shared values of the term attributes
+	private AttributeValuePool attributeValues = new AttributeValuePool();
+
 	// list of possible implicit facets (i.e. categories) for the terms
 	// could be empty if the catalogue does not have
 	// any implicit facet
@@ -192,13 +244,12 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		this.releaseNotes = releaseNotes;
 
 		// initialize memory for data
-		terms = new HashMap<>();
+		terms = new TermStore();
 		hierarchies = new ArrayList<>();
 		attributes = new ArrayList<>();
 		facetCategories = new ArrayList<>();
 		detailLevels = new ArrayList<>();
 		termTypes = new ArrayList<>();
-		termsIds = new HashMap<>();
 	}
 
 	/**
@@ -232,19 +283,42 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 
 	/**
 	 * Load all the data related to the catalogue that is, hierarchies, terms,
-	 * attributes, term attributes, applicabilities, detail levels and term types
+	 * attributes, term attributes, applicabilities, detail levels and term types.
+	 * The terms, the applicabilities and the term attributes are read from the
+	 * snapshot of the catalogue if it is up to date, otherwise they are read from
+	 * the database and a new snapshot is saved (see {@link CatalogueSnapshot}).
 	 */
 	public void loadData() {
 
+		long start = LOAD_TIMER.start();
+
+		// add the lookup columns to the databases created by older versions,
+		// if it fails the lookups compute upper() on each record as before
+		if (!CatalogueSchema.upgrade(this))
+			LOGGER.warn("Cannot upgrade " + this + ", the term lookups may not use the upper case columns");
+
+		// checked again at the next lookup
+		termLookupColumns = null;
+
+		final CatalogueSnapshot snapshot = new CatalogueSnapshot(this);
+
+		// true if the data can be read from the snapshot
+		final boolean cached = AppConfig.isCatalogueSnapshot() && snapshot.open();
+
+		// true if some data were read from the database
+		final AtomicBoolean fromDb = new AtomicBoolean(!cached);
+
 		// thread to load small data
 		Thread baseThread = new Thread(new Runnable() {
 			@Override
 			public void run() {
+				long start = LOAD_BASE_TIMER.start();
 				refreshHierarchies();
 				refreshAttributes();
 				refreshTermTypes();
 				refreshDetailLevels();
 				refreshReleaseNotes();
+				LOAD_BASE_TIMER.stop(start);
 			}
 		});
 
@@ -252,7 +326,19 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		Thread termThread = new Thread(new Runnable() {
 			@Override
 			public void run() {
-				refreshTerms();
+
+				long start = LOAD_TERMS_TIMER.start();
+
+				Collection<Term> snapshotTerms = cached ? snapshot.readTerms() : null;
+
+				if (snapshotTerms != null)
+					setTerms(snapshotTerms);
+				else {
+					fromDb.set(true);
+					refreshTerms();
+				}
+
+				LOAD_TERMS_TIMER.stop(start);
 			}
 		});
 
@@ -274,14 +360,38 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		Thread applThread = new Thread(new Runnable() {
 			@Override
 			public void run() {
-				refreshApplicabities();
+
+				long start = LOAD_APPLICABILITIES_TIMER.start();
+
+				Collection<Applicability> appls = cached ? snapshot.readApplicabilities() : null;
+
+				if (appls != null)
+					setApplicabilities(appls);
+				else {
+					fromDb.set(true);
+					refreshApplicabities();
+				}
+
+				LOAD_APPLICABILITIES_TIMER.stop(start);
 			}
 		});
 
 		Thread taThread = new Thread(new Runnable() {
 			@Override
 			public void run() {
-				refreshTermAttributes();
+
+				long start = LOAD_TERM_ATTRIBUTES_TIMER.start();
+
+				Collection<TermAttribute> tas = cached ? snapshot.readTermAttributes() : null;
+
+				if (tas != null)
+					setTermAttributes(tas);
+				else {
+					fromDb.set(true);
+					refreshTermAttributes();
+				}
+
+				LOAD_TERM_ATTRIBUTES_TIMER.stop(start);
 			}
 		});
 
@@ -295,7 +405,19 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 			LOGGER.error("Refresh failed for catalogue=" + this, e);
+			return;
+		}
+
+		snapshot.close();
+
+		// save the data for the next opening
+		if (fromDb.get() && AppConfig.isCatalogueSnapshot() && hasTerms()) {
+			long snapshotStart = SAVE_SNAPSHOT_TIMER.start();
+			snapshot.write(terms.values());
+			SAVE_SNAPSHOT_TIMER.stop(snapshotStart);
 		}
+
+		LOAD_TIMER.stop(start);
 	}
 
 	/**
@@ -306,6 +428,8 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 
 		hierarchies.clear();
 		attributes.clear();
+		attributesById.clear();
+		attributeValues.clear();
 		facetCategories.clear();
 
 		if (terms != null) {
@@ -318,7 +442,13 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 
 		detailLevels.clear();
 		termTypes.clear();
-		termsIds.clear();
+		applicabilityIndex.clear();
+		searchIndex.clear();
+		inheritedFacets.clear();
+		hierarchyCodes.clear();
+		termCodes.clear();
+		preferences.clear();
+		picklists.clear();
 
 		if (releaseNotes != null)
 			releaseNotes.clear();
@@ -370,9 +500,21 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		if (manager.getCurrentCatalogue() != null)
 			manager.getCurrentCatalogue().closeQuitely();
 
+		// heap used without the previous catalogue
+		Metrics.recordUsedHeap("Catalogue.open.heapBefore");
+
+		long start = OPEN_TIMER.start();
+
+		// open the pool of connections to the catalogue db
+		openConnectionPool();
+
 		// load the catalogue data into RAM
 		loadData();
 
+		OPEN_TIMER.stop(start);
+
+		Metrics.recordUsedHeap("Catalogue.open.heapAfter");
+
 		manager.setCurrentCatalogue(this);
 
 	}
@@ -386,11 +528,38 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		return "jdbc:derby:" + getDbPath() + ";user=dbuser;password=dbuserpwd;shutdown=true";
 	}
 
+	/**
+	 * Open the pool of connections to the catalogue db. While the pool is open,
+	 * {@link #getConnection()} borrows the connections from it.
+	 */
+	private synchronized void openConnectionPool() {
+
+		if (connectionPool != null)
+			return;
+
+		connectionPool = new ConnectionPool(toString(), getDbUrl());
+	}
+
+	/**
+	 * Close the pool of connections to the catalogue db (if opened)
+	 */
+	private synchronized void closeConnectionPool() {
+
+		if (connectionPool == null)
+			return;
+
+		connectionPool.close();
+		connectionPool = null;
+	}
+
 	/**
 	 * Close the connection with the catalogue db
 	 */
 	public void closeConnection() {
 
+		// release the pooled connections before shutting down the db
+		closeConnectionPool();
+
 		// shutdown the connection, by default this operation throws an exception
 		// but the command is correct! We close the connection since we close the db
 		try {
@@ -501,7 +670,7 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	 * @return
 	 */
 	public Hierarchy getHierarchyByCode(String code) {
-		if(hasHierarchies()) {
+		if(hasHierarchies()) {
 			for (Hierarchy h : hierarchies) {
 	
 				if (h.getCode().equals(code))
@@ -596,6 +765,12 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		AttributeDAO attrDao = new AttributeDAO(this);
 		attributes = attrDao.getAll();
 
+		HashMap<Integer, Attribute> byId = new HashMap<>();
+		for (Attribute attr : attributes)
+			byId.put(attr.getId(), attr);
+
+		attributesById = byId;
+
 		// refresh also the cache of implicit facets
 		facetCategories = attrDao.getFacetCategories();
 	}
@@ -608,7 +783,10 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	 */
 	public Attribute getAttributeById(int id) {
 
-		Attribute attr = null;
+		Attribute attr = attributesById.get(id);
+
+		if (attr != null)
+			return attr;
 
 		for (Attribute a : attributes) {
 			if (a.getId() == id)
@@ -674,13 +852,13 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	}
 
 	/**
-	 * Add a new term into the hashmap of terms
+	 * Add a new term into the catalogue terms (or replace the term with the
+	 * same id)
 	 * 
-	 * @param id
 	 * @param term
 	 */
 	public void addTerm(Term term) {
-		terms.put(term.getId(), term);
+		terms.put(term);
 	}
 
 	/**
@@ -700,14 +878,20 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		TermDAO termDao = new TermDAO(this);
 
 		// initialise the terms
-		terms = termDao.fetchTerms();
+		setTerms(termDao.fetchTerms());
+	}
 
-		termsIds = new HashMap<>();
+	/**
+	 * Set the terms of the catalogue
+	 * 
+	 * @param terms all the catalogue terms
+	 */
+	private void setTerms(Collection<Term> terms) {
 
-		// update cache of ids
-		for (Term term : terms.values()) {
-			termsIds.put(term.getCode(), term.getId());
-		}
+		if (terms == null)
+			this.terms = new TermStore();
+		else
+			this.terms = new TermStore(terms);
 	}
 
 	/**
@@ -717,17 +901,43 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	 */
 	public void refreshApplicabities() {
 
+		ParentTermDAO parentDao = new ParentTermDAO(this);
+
+		setApplicabilities(parentDao.getAll());
+	}
+
+	/**
+	 * Set the parent child relationships of the catalogue terms
+	 * 
+	 * @param appls all the applicabilities of the catalogue
+	 */
+	private void setApplicabilities(Collection<Applicability> appls) {
+
 		// remove applicabilities
 		for (Term term : terms.values())
 			term.clearApplicabilities();
 
-		ParentTermDAO parentDao = new ParentTermDAO(this);
-
 		// add applicabilities
-		for (Applicability appl : parentDao.getAll()) {
+		for (Applicability appl : appls) {
 			Term term = appl.getChild();
 			term.addApplicability(appl);
 		}
+
+		// build the parent/child index of the hierarchies
+		applicabilityIndex.build(appls);
+
+		// the parents could be changed
+		inheritedFacets.clear();
+		hierarchyCodes.clear();
+	}
+
+	/**
+	 * Get the in memory parent/child relationships of the catalogue terms
+	 * 
+	 * @return
+	 */
+	public ApplicabilityIndex getApplicabilityIndex() {
+		return applicabilityIndex;
 	}
 
 	/**
@@ -737,19 +947,109 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	 */
 	public void refreshTermAttributes() {
 
+		// load the attributes values for the terms
+		TermAttributeDAO taDao = new TermAttributeDAO(this);
+
+		setTermAttributes(taDao.getAll());
+	}
+
+	/**
+	 * Set the term attributes of the catalogue terms
+	 * 
+	 * @param tas all the term attributes of the catalogue
+	 */
+	private void setTermAttributes(Collection<TermAttribute> tas) {
+
 		// reset all the attributes of each term
 		for (Term term : terms.values()) {
 			term.clearAttributes();
 		}
 
-		// load the attributes values for the terms
-		TermAttributeDAO taDao = new TermAttributeDAO(this);
+		// count the attribute objects used by the term attributes
+		IdentityHashMap<Attribute, Boolean> attrInstances = new IdentityHashMap<>();
 
 		// set the term attributes to the terms
-		for (TermAttribute ta : taDao.getAll()) {
+		for (TermAttribute ta : tas) {
 			Term term = ta.getTerm();
 			term.addAttribute(ta);
+			attrInstances.put(ta.getAttribute(), true);
 		}
+
+		LOGGER.info("Term attributes loaded for catalogue=" + this + ": " + tas.size() + " values, "
+				+ attrInstances.size() + " attribute objects, " + attributeValues.getShared()
+				+ " values shared with the " + attributeValues.size() + " pooled ones (~"
+				+ attributeValues.getSavedBytes() / 1024 + " KB saved)");
+
+		// index the codes, names and attributes for the searches
+		searchIndex.build(terms.values());
+
+		// the implicit facets could be changed
+		inheritedFacets.clear();
+	}
+
+	/**
+	 * Get the in memory index used to search the catalogue terms
+	 * 
+	 * @return
+	 */
+	public TermSearchIndex getSearchIndex() {
+		return searchIndex;
+	}
+
+	/**
+	 * Get the pool of the shared values of the term attributes
+	 * 
+	 * @return
+	 */
+	public AttributeValuePool getAttributeValuePool() {
+		return attributeValues;
+	}
+
+	/**
+	 * Get the cache of the inherited implicit facets of the terms
+	 * 
+	 * @return
+	 */
+	public InheritedFacetsCache getInheritedFacetsCache() {
+		return inheritedFacets;
+	}
+
+	/**
+	 * Get the cache of the hierarchy codes of the terms
+	 * 
+	 * @return
+	 */
+	public HierarchyCodeCache getHierarchyCodeCache() {
+		return hierarchyCodes;
+	}
+
+	/**
+	 * Get the tracker of the highest term codes, used to create new codes
+	 * 
+	 * @return
+	 */
+	public TermCodeTracker getTermCodeTracker() {
+		return termCodes;
+	}
+
+	/**
+	 * Get the in-memory copy of the catalogue preferences, which can be used to
+	 * listen to their changes
+	 * 
+	 * @return
+	 */
+	public PreferenceCache getPreferenceCache() {
+		return preferences;
+	}
+
+	/**
+	 * Get the index of the picklist terms, used to search the terms in the
+	 * picklists
+	 * 
+	 * @return
+	 */
+	public PicklistIndex getPicklistIndex() {
+		return picklists;
 	}
 
 	/**
@@ -769,6 +1069,15 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		return releaseNotes;
 	}
 
+	/**
+	 * Set the catalogue release notes
+	 * 
+	 * @param releaseNotes
+	 */
+	public void setReleaseNotes(ReleaseNotes releaseNotes) {
+		this.releaseNotes = releaseNotes;
+	}
+
 	/**
 	 * Refresh the detail levels of the catalogue
 	 */
@@ -1002,7 +1311,7 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	public Term addNewTerm(Nameable parent, Hierarchy hierarchy) throws TermCodeException {
 
 		// get the a new code for the term using the catalogue term code mask
-		CodeGenerator generator = new CodeGenerator();
+		CodeGenerator generator = new CodeGenerator(this);
 		String code = generator.getTermCode(termCodeMask);
 
 		return addNewTerm(code, parent, hierarchy);
@@ -1093,11 +1402,8 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		if (parent instanceof Term)
 			termDao.update((Term) parent);
 
-		// add the term to the hashmap
-		terms.put(id, child);
-
-		// update also the ids cache
-		termsIds.put(code, id);
+		// add the term to the catalogue terms
+		terms.put(child);
 
 		return child;
 	}
@@ -1150,11 +1456,8 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		if (parent instanceof Term)
 			termDao.update((Term) parent);
 
-		// add the term to the hashmap
-		terms.put(id, child);
-
-		// update also the ids cache
-		termsIds.put(code, id);
+		// add the term to the catalogue terms
+		terms.put(child);
 
 		return child;
 	}
@@ -1166,7 +1469,7 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	 */
 	public Term getTermById(Integer id) {
 
-		Term term = terms.get(id);
+		Term term = id == null ? null : terms.get(id);
 
 		if (term == null) {
 			LOGGER.error("Term with id " + id + " not found in catalogue " + this);
@@ -1177,19 +1480,25 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		return term;
 	}
 
+	/**
+	 * Check if the term is the instance stored in the catalogue and not a copy
+	 * of it (as the temporary terms of the describe)
+	 * 
+	 * @param term
+	 * @return
+	 */
+	public boolean containsTermInstance(Term term) {
+		return term != null && terms.get(term.getId()) == term;
+	}
+
 	/**
 	 * Get a term by its code
 	 * 
 	 * @param code
-	 * @return
+	 * @return the term or null if no term has the code
 	 */
 	public Term getTermByCode(String code) {
-
-		// get the term id from the cache
-		int id = termsIds.get(code);
-
-		// get the term by its id
-		return getTermById(id);
+		return terms.getByCode(code);
 	}
 
 	/**
@@ -1375,6 +1684,26 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 		return local;
 	}
 
+	/**
+	 * Check if the terms can be looked up through the indexed upper case columns
+	 * of the database (see {@link CatalogueSchema#upgrade(Catalogue)}). The
+	 * database is checked the first time, since the catalogue could be used
+	 * without loading its data.
+	 * 
+	 * @return false if the database was not upgraded
+	 */
+	public boolean hasTermLookupColumns() {
+
+		Boolean columns = termLookupColumns;
+
+		if (columns == null) {
+			columns = CatalogueSchema.hasTermLookupColumns(this);
+			termLookupColumns = columns;
+		}
+
+		return columns;
+	}
+
 	/**
 	 * Get the reserved catalogue object if present.
 	 * 
@@ -2100,6 +2429,41 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	public void makeXmlImport(final File file, IProgressBar progressBar, double maxProgress,
 			final ThreadFinishedListener doneListener) {
 
+		CatalogueImporterThread importCat = prepareXmlImport(file, progressBar, maxProgress, doneListener);
+
+		importCat.start();
+	}
+
+	/**
+	 * Import a catalogue in .xml format in the calling thread. The done listener
+	 * is called before returning.
+	 * 
+	 * @param file
+	 * @param progressBar
+	 * @param maxProgress
+	 * @param doneListener
+	 */
+	public void importXml(final File file, IProgressBar progressBar, double maxProgress,
+			final ThreadFinishedListener doneListener) {
+
+		CatalogueImporterThread importCat = prepareXmlImport(file, progressBar, maxProgress, doneListener);
+
+		importCat.run();
+	}
+
+	/**
+	 * Prepare the import of a catalogue in .xml format, the downloaded file is
+	 * deleted when the import finishes
+	 * 
+	 * @param file
+	 * @param progressBar
+	 * @param maxProgress
+	 * @param doneListener
+	 * @return the import thread, not started
+	 */
+	private CatalogueImporterThread prepareXmlImport(final File file, IProgressBar progressBar, double maxProgress,
+			final ThreadFinishedListener doneListener) {
+
 		CatalogueImporterThread importCat = new CatalogueImporterThread(file, ImportFileFormat.XML);
 
 		if (progressBar != null)
@@ -2122,7 +2486,7 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 			}
 		});
 
-		importCat.start();
+		return importCat;
 	}
 
 	/**
@@ -2193,7 +2557,9 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	}
 
 	/**
-	 * Open the db connection with the currently open catalogue
+	 * Open the db connection with the currently open catalogue. If the catalogue
+	 * is opened, the connection is borrowed from the catalogue connection pool and
+	 * it is given back when closed.
 	 * 
 	 * @author shahaal
 	 * @return
@@ -2201,6 +2567,11 @@ public class Catalogue extends BaseObject implements Comparable<Catalogue>, Mapp
 	 */
 	public Connection getConnection() throws SQLException {
 
+		ConnectionPool pool = connectionPool;
+
+		if (pool != null)
+			return pool.getConnection();
+
 		Connection con = DriverManager.getConnection(getDbUrl());
 		return con;
 	}
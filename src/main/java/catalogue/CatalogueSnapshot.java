@@ -0,0 +1,572 @@
+package catalogue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue_browser_dao.CatalogueSchema;
+import catalogue_object.Applicability;
+import catalogue_object.Attribute;
+import catalogue_object.Hierarchy;
+import catalogue_object.Nameable;
+import catalogue_object.Term;
+import catalogue_object.TermAttribute;
+
+/**
+ * Binary copy of the terms, applicabilities and term attributes of a
+ * catalogue, saved next to the catalogue database folder after the data were
+ * loaded from the database. The next time the catalogue is opened the file is
+ * memory mapped and the data are rebuilt without querying the database (see
+ * {@link Catalogue#loadData()}).
+ *
+ * The snapshot is related to the data version of the database (see
+ * {@link CatalogueSchema#getDataVersion(Catalogue)}) read before loading the
+ * data. If the data were modified since then, or if the snapshot is corrupted
+ * (wrong checksum) or was written with another format version, it is not used
+ * and the data are loaded from the database as usual.
+ *
+ * The hierarchies and the attributes are always loaded from the database,
+ * since they are few and they are needed to resolve the ids of the snapshot.
+ */
+public class CatalogueSnapshot {
+
+	private static final Logger LOGGER = LogManager.getLogger(CatalogueSnapshot.class);
+
+	private static final String EXTENSION = ".snapshot";
+
+	// CBS1
+	private static final int MAGIC = 0x43425331;
+	private static final int FORMAT_VERSION = 2;
+
+	// magic, format version, data version, section offsets, payload end and
+	// checksum
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4 + 4 + 8;
+
+	// value of the null timestamps
+	private static final long NULL_TIME = Long.MIN_VALUE;
+
+	private Catalogue catalogue;
+	private File file;
+
+	// data version of the database, read by open() before loading the data
+	private long dataVersion;
+
+	// the mapped snapshot, null if not opened
+	private ByteBuffer buffer;
+
+	private int termsOffset;
+	private int applOffset;
+	private int taOffset;
+
+	public CatalogueSnapshot(Catalogue catalogue) {
+		this.catalogue = catalogue;
+		this.file = getFile(catalogue);
+		this.dataVersion = -1;
+	}
+
+	/**
+	 * Get the snapshot file of the catalogue, which is saved next to the folder
+	 * of the catalogue database
+	 *
+	 * @param catalogue
+	 * @return
+	 */
+	public static File getFile(Catalogue catalogue) {
+		File dbFolder = catalogue.getDbFolder();
+		return new File(dbFolder.getParentFile(), dbFolder.getName() + EXTENSION);
+	}
+
+	/**
+	 * Delete the snapshot of the catalogue, if present
+	 *
+	 * @param catalogue
+	 */
+	public static void delete(Catalogue catalogue) {
+
+		File file = getFile(catalogue);
+
+		if (file.exists() && !file.delete())
+			LOGGER.warn("Cannot delete the snapshot " + file);
+	}
+
+	/**
+	 * Read the data version of the database and map the snapshot, if it can be
+	 * used, that is, it was written for the current data version and it is not
+	 * corrupted. The header is checked before mapping the file.
+	 *
+	 * @return true if the snapshot can be read
+	 */
+	public boolean open() {
+
+		close();
+
+		// read before loading the data, to be saved with the new snapshot
+		dataVersion = CatalogueSchema.getDataVersion(catalogue);
+
+		if (dataVersion < 0 || !file.exists())
+			return false;
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel();) {
+
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				LOGGER.warn("Invalid snapshot size " + file);
+				return false;
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+			while (header.hasRemaining()) {
+				if (channel.read(header, header.position()) < 0)
+					throw new IOException("Unexpected end of the snapshot " + file);
+			}
+
+			header.flip();
+
+			if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+				LOGGER.info("Snapshot format not supported " + file);
+				return false;
+			}
+
+			if (header.getLong() != dataVersion) {
+				LOGGER.info("Stale snapshot, the database was modified " + file);
+				return false;
+			}
+
+			termsOffset = header.getInt();
+			applOffset = header.getInt();
+			taOffset = header.getInt();
+			int end = header.getInt();
+			long checksum = header.getLong();
+
+			if (end < HEADER_SIZE || end > channel.size() || termsOffset < HEADER_SIZE || applOffset < termsOffset
+					|| taOffset < applOffset || end < taOffset) {
+				LOGGER.warn("Corrupted snapshot " + file);
+				return false;
+			}
+
+			ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			ByteBuffer payload = mapped.duplicate();
+			payload.position(HEADER_SIZE);
+			payload.limit(end);
+
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+
+			if (crc.getValue() != checksum) {
+				LOGGER.warn("Corrupted snapshot, wrong checksum " + file);
+				unmap(mapped);
+				return false;
+			}
+
+			buffer = mapped;
+
+			return true;
+
+		} catch (IOException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot open the snapshot " + file, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Unmap the snapshot, so that the file can be replaced or deleted. The data
+	 * of the snapshot must not be read anymore.
+	 */
+	public void close() {
+
+		if (buffer == null)
+			return;
+
+		unmap(buffer);
+		buffer = null;
+	}
+
+	/**
+	 * Read the terms of the snapshot. {@link #open()} should be called before.
+	 *
+	 * @return the terms, or null if they cannot be read
+	 */
+	public ArrayList<Term> readTerms() {
+
+		if (buffer == null)
+			return null;
+
+		try {
+
+			ByteBuffer in = section(termsOffset);
+
+			int count = in.getInt();
+
+			ArrayList<Term> terms = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+
+				Term term = new Term(catalogue);
+
+				term.setId(in.getInt());
+				term.setCode(readString(in));
+				term.setName(readString(in));
+				term.setDisplayAs(readString(in));
+				term.setScopenotes(readString(in));
+				term.setDeprecated(in.get() != 0);
+				term.setLastUpdate(readTimestamp(in));
+				term.setValidFrom(readTimestamp(in));
+				term.setValidTo(readTimestamp(in));
+				term.setStatus(readString(in));
+				term.setVersion(readString(in));
+
+				terms.add(term);
+			}
+
+			return terms;
+
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot read the terms of the snapshot " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Read the applicabilities of the snapshot. The terms and the hierarchies of
+	 * the catalogue should be already loaded.
+	 *
+	 * @return the applicabilities or null if they cannot be read
+	 */
+	public Collection<Applicability> readApplicabilities() {
+
+		if (buffer == null)
+			return null;
+
+		try {
+
+			ByteBuffer in = section(applOffset);
+
+			int count = in.getInt();
+
+			Collection<Applicability> appls = new ArrayList<>(count);
+
+			HashMap<Integer, Hierarchy> hierarchies = new HashMap<>();
+			for (Hierarchy hierarchy : catalogue.getHierarchies())
+				hierarchies.put(hierarchy.getId(), hierarchy);
+
+			for (int i = 0; i < count; i++) {
+
+				Term child = catalogue.getTermById(in.getInt());
+				Hierarchy hierarchy = hierarchies.get(in.getInt());
+				int parentId = in.getInt();
+				int order = in.getInt();
+				boolean reportable = in.get() != 0;
+
+				if (child == null || hierarchy == null)
+					throw new IllegalStateException("Unknown term or hierarchy in the applicabilities");
+
+				// the first level terms have the hierarchy as parent
+				Nameable parent = parentId == 0 ? hierarchy : catalogue.getTermById(parentId);
+
+				appls.add(new Applicability(child, parent, hierarchy, order, reportable));
+			}
+
+			return appls;
+
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot read the applicabilities of the snapshot " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Read the term attributes of the snapshot. The terms and the attributes of
+	 * the catalogue should be already loaded.
+	 *
+	 * @return the term attributes or null if they cannot be read
+	 */
+	public Collection<TermAttribute> readTermAttributes() {
+
+		if (buffer == null)
+			return null;
+
+		try {
+
+			ByteBuffer in = section(taOffset);
+
+			int count = in.getInt();
+
+			Collection<TermAttribute> tas = new ArrayList<>(count);
+
+			HashMap<Integer, Attribute> attributes = new HashMap<>();
+			for (Attribute attr : catalogue.getAttributes())
+				attributes.put(attr.getId(), attr);
+
+			for (int i = 0; i < count; i++) {
+
+				int id = in.getInt();
+				Term term = catalogue.getTermById(in.getInt());
+				Attribute attr = attributes.get(in.getInt());
+				String value = catalogue.getAttributeValuePool().intern(attr, readString(in));
+
+				if (term == null || attr == null)
+					throw new IllegalStateException("Unknown term or attribute in the term attributes");
+
+				tas.add(new TermAttribute(id, term, attr, value));
+			}
+
+			return tas;
+
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot read the term attributes of the snapshot " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Write the snapshot of the terms (with their applicabilities and
+	 * attributes) which were loaded from the database. The snapshot is written
+	 * in a temporary file and then moved, so that a partial snapshot is never
+	 * read.
+	 *
+	 * @param terms
+	 */
+	public void write(Collection<Term> terms) {
+
+		if (dataVersion < 0) {
+			LOGGER.warn("Unknown data version, the snapshot of " + catalogue + " is not saved");
+			return;
+		}
+
+		// the mapped file cannot be replaced on windows
+		close();
+
+		long start = System.currentTimeMillis();
+
+		File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+		try {
+
+			try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw"); FileChannel channel = raf.getChannel();) {
+
+				raf.setLength(0);
+				channel.position(HEADER_SIZE);
+
+				CRC32 crc = new CRC32();
+				DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+
+				int termsStart = HEADER_SIZE + out.size();
+				writeTerms(out, terms);
+
+				int applStart = HEADER_SIZE + out.size();
+				writeApplicabilities(out, terms);
+
+				int taStart = HEADER_SIZE + out.size();
+				writeTermAttributes(out, terms);
+
+				int end = HEADER_SIZE + out.size();
+
+				out.flush();
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC);
+				header.putInt(FORMAT_VERSION);
+				header.putLong(dataVersion);
+				header.putInt(termsStart);
+				header.putInt(applStart);
+				header.putInt(taStart);
+				header.putInt(end);
+				header.putLong(crc.getValue());
+				header.flip();
+
+				channel.write(header, 0);
+				channel.force(true);
+			}
+
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+			LOGGER.info("Snapshot of " + catalogue + " saved in " + file + " in "
+					+ (System.currentTimeMillis() - start) + " ms");
+
+		} catch (IOException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot write the snapshot " + file, e);
+			tmp.delete();
+		}
+	}
+
+	private static void writeTerms(DataOutputStream out, Collection<Term> terms) throws IOException {
+
+		out.writeInt(terms.size());
+
+		for (Term term : terms) {
+			out.writeInt(term.getId());
+			writeString(out, term.getCode());
+			writeString(out, term.getName());
+			writeString(out, term.getShortName(false));
+			writeString(out, term.getScopenotes());
+			out.writeByte(term.isDeprecated() ? 1 : 0);
+			writeTimestamp(out, term.getLastUpdate());
+			writeTimestamp(out, term.getValidFrom());
+			writeTimestamp(out, term.getValidTo());
+			writeString(out, term.getStatus());
+			writeString(out, term.getVersion());
+		}
+	}
+
+	private static void writeApplicabilities(DataOutputStream out, Collection<Term> terms) throws IOException {
+
+		int count = 0;
+		for (Term term : terms)
+			count += term.getApplicabilities().size();
+
+		out.writeInt(count);
+
+		for (Term term : terms) {
+			for (Applicability appl : term.getApplicabilities()) {
+
+				Nameable parent = appl.getParentTerm();
+
+				out.writeInt(term.getId());
+				out.writeInt(appl.getHierarchy().getId());
+				out.writeInt(parent instanceof Term ? ((Term) parent).getId() : 0);
+				out.writeInt(appl.getOrder());
+				out.writeByte(appl.isReportable() ? 1 : 0);
+			}
+		}
+	}
+
+	private static void writeTermAttributes(DataOutputStream out, Collection<Term> terms) throws IOException {
+
+		int count = 0;
+		for (Term term : terms)
+			count += term.getAttributes().size();
+
+		out.writeInt(count);
+
+		for (Term term : terms) {
+			for (TermAttribute ta : term.getAttributes()) {
+				out.writeInt(ta.getId());
+				out.writeInt(term.getId());
+				out.writeInt(ta.getAttribute().getId());
+				writeString(out, ta.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Get a view of the mapped snapshot positioned at the beginning of a section,
+	 * to read the sections in parallel
+	 *
+	 * @param offset
+	 * @return
+	 */
+	private ByteBuffer section(int offset) {
+		ByteBuffer in = buffer.duplicate();
+		in.position(offset);
+		return in;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+
+		int length = in.getInt();
+
+		if (length < 0)
+			return null;
+
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeTimestamp(DataOutputStream out, Timestamp value) throws IOException {
+
+		if (value == null) {
+			out.writeLong(NULL_TIME);
+			return;
+		}
+
+		out.writeLong(value.getTime());
+		out.writeInt(value.getNanos());
+	}
+
+	private static Timestamp readTimestamp(ByteBuffer in) {
+
+		long time = in.getLong();
+
+		if (time == NULL_TIME)
+			return null;
+
+		Timestamp value = new Timestamp(time);
+		value.setNanos(in.getInt());
+
+		return value;
+	}
+
+	/**
+	 * Release the memory mapping of a buffer, instead of waiting for the garbage
+	 * collector, which can take a long time. On windows a mapped file cannot be
+	 * deleted or replaced.
+	 *
+	 * @param buffer
+	 */
+	private static void unmap(ByteBuffer buffer) {
+
+		if (!buffer.isDirect())
+			return;
+
+		try {
+
+			try {
+				// java 9 and later
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch (NoSuchMethodException e) {
+				// java 8
+				Method getCleaner = buffer.getClass().getMethod("cleaner");
+				getCleaner.setAccessible(true);
+				Object cleaner = getCleaner.invoke(buffer);
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.warn("Cannot unmap the snapshot, it will be released by the garbage collector", e);
+		}
+	}
+}
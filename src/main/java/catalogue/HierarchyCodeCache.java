@@ -0,0 +1,357 @@
+package catalogue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue_object.Applicability;
+import catalogue_object.Hierarchy;
+import catalogue_object.Term;
+
+/**
+ * Cache of the hierarchy codes of the catalogue terms (see
+ * {@link Term#getHierarchyCode(Hierarchy)}), for each hierarchy. The codes of
+ * a hierarchy are computed all together the first time one of them is
+ * requested, with a single top-down visit of the tree which appends the order
+ * of each term to the path of its parent in a reused char buffer. In this way
+ * the parents chain is not walked again for each term.
+ *
+ * When the parent or the order of a term change, the codes of its subtree are
+ * removed and computed again (walking the parents) when requested.
+ *
+ */
+public class HierarchyCodeCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(HierarchyCodeCache.class);
+
+	// minimum number of digits of each level of the code
+	private static final int LEVEL_DIGITS = 4;
+
+	private Catalogue catalogue;
+
+	// hierarchy id => term id => hierarchy code
+	private HashMap<Integer, HashMap<Integer, String>> codes;
+
+	public HierarchyCodeCache(Catalogue catalogue) {
+		this.catalogue = catalogue;
+		this.codes = new HashMap<>();
+	}
+
+	/**
+	 * Get the hierarchy code of the term, computing the codes of the whole
+	 * hierarchy if they are not cached yet
+	 *
+	 * @param term
+	 * @param hierarchy
+	 * @return the code, or an empty string if the term is not in the hierarchy
+	 */
+	public synchronized String get(Term term, Hierarchy hierarchy) {
+
+		// temporary copies of the terms share the ids of the catalogue
+		// terms, but they can have different parents
+		if (hierarchy == null || !catalogue.containsTermInstance(term))
+			return compute(term, hierarchy);
+
+		HashMap<Integer, String> hierarchyCodes = getCodes(hierarchy);
+
+		// without the relationships in memory we cannot visit the tree
+		if (hierarchyCodes == null)
+			return compute(term, hierarchy);
+
+		String code = hierarchyCodes.get(term.getId());
+
+		// invalidated or not reachable from the first level
+		if (code == null) {
+			code = compute(term, hierarchy);
+			hierarchyCodes.put(term.getId(), code);
+		}
+
+		return code;
+	}
+
+	/**
+	 * Compute in advance the codes of the selected hierarchies
+	 *
+	 * @param hierarchies
+	 */
+	public synchronized void build(Collection<Hierarchy> hierarchies) {
+		for (Hierarchy hierarchy : hierarchies)
+			getCodes(hierarchy);
+	}
+
+	/**
+	 * Invalidate the codes of the term and of its subtree in the hierarchy. To be
+	 * called when the parent or the order of the term change.
+	 *
+	 * @param term
+	 * @param hierarchy
+	 */
+	public synchronized void invalidate(Term term, Hierarchy hierarchy) {
+
+		// nothing to do
+		if (codes.isEmpty() || term == null)
+			return;
+
+		if (hierarchy == null) {
+			clear();
+			return;
+		}
+
+		HashMap<Integer, String> hierarchyCodes = codes.get(hierarchy.getId());
+
+		if (hierarchyCodes == null)
+			return;
+
+		// without the relationships in memory we cannot get the
+		// subtree without querying the database, drop the hierarchy
+		if (!catalogue.getApplicabilityIndex().isBuilt()) {
+			codes.remove(hierarchy.getId());
+			return;
+		}
+
+		for (Integer id : getSubtree(term, hierarchy))
+			hierarchyCodes.remove(id);
+	}
+
+	/**
+	 * Remove the codes of a hierarchy
+	 *
+	 * @param hierarchy
+	 */
+	public synchronized void remove(Hierarchy hierarchy) {
+		codes.remove(hierarchy.getId());
+	}
+
+	/**
+	 * Remove all the cached codes
+	 */
+	public synchronized void clear() {
+		codes.clear();
+	}
+
+	/**
+	 * Get the codes of the hierarchy, building them if needed
+	 *
+	 * @param hierarchy
+	 * @return the codes, or null if the relationships are not in memory
+	 */
+	private HashMap<Integer, String> getCodes(Hierarchy hierarchy) {
+
+		HashMap<Integer, String> hierarchyCodes = codes.get(hierarchy.getId());
+
+		if (hierarchyCodes == null && catalogue.getApplicabilityIndex().isBuilt()) {
+			hierarchyCodes = build(hierarchy);
+			codes.put(hierarchy.getId(), hierarchyCodes);
+		}
+
+		return hierarchyCodes;
+	}
+
+	/**
+	 * Compute the codes of all the terms of the hierarchy with a depth first
+	 * visit from the first level terms. Each term writes its level after the
+	 * path of its parent, which is still in the buffer since the terms are
+	 * visited depth first.
+	 *
+	 * @param hierarchy
+	 * @return term id => hierarchy code
+	 */
+	private HashMap<Integer, String> build(Hierarchy hierarchy) {
+
+		long start = System.currentTimeMillis();
+
+		ApplicabilityIndex index = catalogue.getApplicabilityIndex();
+
+		HashMap<Integer, String> hierarchyCodes = new HashMap<>();
+
+		char[] buffer = new char[64];
+		buffer[0] = 'Z';
+
+		// terms to visit and the length of the path of their parent
+		Deque<Term> terms = new ArrayDeque<>();
+		Deque<Integer> lengths = new ArrayDeque<>();
+
+		for (Term root : index.getChildren(hierarchy, hierarchy)) {
+			terms.push(root);
+			lengths.push(1);
+		}
+
+		while (!terms.isEmpty()) {
+
+			Term term = terms.pop();
+			int length = lengths.pop();
+
+			Applicability appl = term.getApplicability(hierarchy);
+
+			// already visited (cycles) or not in the hierarchy
+			if (appl == null || hierarchyCodes.containsKey(term.getId()))
+				continue;
+
+			// room for the dot and the longest int
+			if (buffer.length < length + 12)
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+			int end = length;
+
+			if (end > 1)
+				buffer[end++] = '.';
+
+			end = appendOrder(buffer, end, appl.getOrder());
+
+			hierarchyCodes.put(term.getId(), new String(buffer, 0, end));
+
+			for (Term child : index.getChildren(term, hierarchy)) {
+				terms.push(child);
+				lengths.push(end);
+			}
+		}
+
+		LOGGER.debug("Hierarchy codes of " + hierarchy.getCode() + " computed in "
+				+ (System.currentTimeMillis() - start) + " ms, terms=" + hierarchyCodes.size());
+
+		return hierarchyCodes;
+	}
+
+	/**
+	 * Compute the hierarchy code of a single term walking up its parents, as Z
+	 * followed by the dot separated orders of the ancestors and of the term. The
+	 * walk stops at the first ancestor which is not in the hierarchy.
+	 *
+	 * @param term
+	 * @param hierarchy
+	 * @return the code, or an empty string if the term is not in the hierarchy
+	 */
+	public static String compute(Term term, Hierarchy hierarchy) {
+
+		Applicability appl = term.getApplicability(hierarchy);
+
+		if (appl == null)
+			return "";
+
+		// orders from the term up to the root
+		ArrayList<Applicability> path = new ArrayList<>();
+
+		while (appl != null && !path.contains(appl)) {
+
+			path.add(appl);
+
+			Term parent = appl.getChild().getParent(hierarchy);
+
+			appl = parent == null ? null : parent.getApplicability(hierarchy);
+		}
+
+		char[] buffer = new char[1 + path.size() * 12];
+		buffer[0] = 'Z';
+
+		int end = 1;
+
+		for (int i = path.size() - 1; i >= 0; i--) {
+
+			if (end > 1)
+				buffer[end++] = '.';
+
+			end = appendOrder(buffer, end, path.get(i).getOrder());
+		}
+
+		return new String(buffer, 0, end);
+	}
+
+	/**
+	 * Format an order integer as a level of a hierarchy code (at least four
+	 * digits, padded with zeros)
+	 *
+	 * @param order
+	 * @return
+	 */
+	public static String formatOrder(int order) {
+		char[] buffer = new char[12];
+		return new String(buffer, 0, appendOrder(buffer, 0, order));
+	}
+
+	/**
+	 * Write the order padded with zeros in the buffer
+	 *
+	 * @param buffer
+	 * @param start  position of the first char
+	 * @param order
+	 * @return the position after the last written char
+	 */
+	private static int appendOrder(char[] buffer, int start, int order) {
+
+		// not expected, formatted as the string of the number
+		if (order < 0) {
+
+			String value = String.valueOf(order);
+
+			int pos = start;
+
+			for (int i = value.length(); i < LEVEL_DIGITS; i++)
+				buffer[pos++] = '0';
+
+			value.getChars(0, value.length(), buffer, pos);
+
+			return pos + value.length();
+		}
+
+		int digits = 1;
+		for (int value = order; value >= 10; value /= 10)
+			digits++;
+
+		int end = start + Math.max(LEVEL_DIGITS, digits);
+
+		int pos = end;
+		int value = order;
+
+		// write the digits from the last one
+		for (int i = 0; i < digits; i++) {
+			buffer[--pos] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+
+		while (pos > start)
+			buffer[--pos] = '0';
+
+		return end;
+	}
+
+	/**
+	 * Get the ids of the term and of all its descendants in the hierarchy
+	 *
+	 * @param term
+	 * @param hierarchy
+	 * @return
+	 */
+	private Collection<Integer> getSubtree(Term term, Hierarchy hierarchy) {
+
+		ApplicabilityIndex index = catalogue.getApplicabilityIndex();
+
+		HashSet<Integer> ids = new HashSet<>();
+		Queue<Term> queue = new LinkedList<>();
+
+		queue.add(term);
+		ids.add(term.getId());
+
+		while (!queue.isEmpty()) {
+
+			Term current = queue.poll();
+
+			for (Term child : index.getChildren(current, hierarchy)) {
+
+				// add returns false if already visited
+				if (ids.add(child.getId()))
+					queue.add(child);
+			}
+		}
+
+		return ids;
+	}
+}
@@ -0,0 +1,207 @@
+package catalogue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue_object.Attribute;
+import catalogue_object.Hierarchy;
+import catalogue_object.Term;
+import ui_implicit_facet.DescriptorTreeItem;
+
+/**
+ * Cache of the inherited implicit facets of the catalogue terms (see
+ * {@link Term#getInheritedImplicitFacets(Attribute)}), for each term and facet
+ * category. The facets are computed lazily the first time they are requested
+ * and then reused by the describe, the exports and the business rules, which
+ * otherwise rebuild the same inheritance chains for each call.
+ *
+ * Since the inherited facets depend on the implicit facets of the term and of
+ * its ancestors in the master hierarchy, when the implicit facets or the parent
+ * of a term change all the cached facets of its subtree are invalidated.
+ * Moreover, for each descriptor used in the computation we save which terms
+ * used it, in order to invalidate them if the descriptor is moved in its
+ * hierarchy.
+ *
+ */
+public class InheritedFacetsCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(InheritedFacetsCache.class);
+
+	private Catalogue catalogue;
+
+	// term id => facet category id => inherited facets
+	private HashMap<Integer, HashMap<Integer, ArrayList<DescriptorTreeItem>>> facets;
+
+	// descriptor term id => ids of the terms whose cached facets used it
+	private HashMap<Integer, HashSet<Integer>> dependents;
+
+	public InheritedFacetsCache(Catalogue catalogue) {
+		this.catalogue = catalogue;
+		this.facets = new HashMap<>();
+		this.dependents = new HashMap<>();
+	}
+
+	/**
+	 * Get the cached inherited facets of the term for the facet category
+	 *
+	 * @param term
+	 * @param facetCategory
+	 * @return a copy of the cached facets, or null if they were not computed yet
+	 */
+	public synchronized ArrayList<DescriptorTreeItem> get(Term term, Attribute facetCategory) {
+
+		HashMap<Integer, ArrayList<DescriptorTreeItem>> termFacets = facets.get(term.getId());
+
+		if (termFacets == null)
+			return null;
+
+		ArrayList<DescriptorTreeItem> items = termFacets.get(facetCategory.getId());
+
+		if (items == null)
+			return null;
+
+		return new ArrayList<>(items);
+	}
+
+	/**
+	 * Save the inherited facets of the term for the facet category
+	 *
+	 * @param term
+	 * @param facetCategory
+	 * @param items         the inherited facets of the term
+	 * @param descriptors   the descriptors of the term and of its ancestors which
+	 *                      were used to compute the facets
+	 */
+	public synchronized void put(Term term, Attribute facetCategory, Collection<DescriptorTreeItem> items,
+			Collection<Term> descriptors) {
+
+		HashMap<Integer, ArrayList<DescriptorTreeItem>> termFacets = facets.get(term.getId());
+
+		if (termFacets == null) {
+			termFacets = new HashMap<>();
+			facets.put(term.getId(), termFacets);
+		}
+
+		termFacets.put(facetCategory.getId(), new ArrayList<>(items));
+
+		for (Term descriptor : descriptors) {
+
+			if (descriptor == null)
+				continue;
+
+			HashSet<Integer> terms = dependents.get(descriptor.getId());
+
+			if (terms == null) {
+				terms = new HashSet<>();
+				dependents.put(descriptor.getId(), terms);
+			}
+
+			terms.add(term.getId());
+		}
+	}
+
+	/**
+	 * Invalidate the cached facets of the term and of its subtree in the master
+	 * hierarchy. To be called when the implicit facets of the term change.
+	 *
+	 * @param term
+	 */
+	public synchronized void invalidate(Term term) {
+
+		// nothing to do
+		if (facets.isEmpty())
+			return;
+
+		invalidate(term, catalogue.getMasterHierarchy());
+	}
+
+	/**
+	 * Invalidate the cached facets after that the term was moved in the
+	 * hierarchy. If the hierarchy is the master, all the terms of the subtree can
+	 * inherit different facets. In any case, all the terms which used one of the
+	 * terms of the subtree as descriptor are invalidated.
+	 *
+	 * @param term
+	 * @param hierarchy
+	 */
+	public synchronized void invalidate(Term term, Hierarchy hierarchy) {
+
+		// nothing to do
+		if (facets.isEmpty() || term == null)
+			return;
+
+		// without the relationships in memory we cannot get the
+		// subtree without querying the database, drop everything
+		if (hierarchy == null || !catalogue.getApplicabilityIndex().isBuilt()) {
+			clear();
+			return;
+		}
+
+		boolean master = hierarchy.isMaster();
+
+		for (Integer id : getSubtree(term, hierarchy)) {
+
+			if (master)
+				facets.remove(id);
+
+			HashSet<Integer> terms = dependents.remove(id);
+
+			if (terms == null)
+				continue;
+
+			for (Integer dependent : terms)
+				facets.remove(dependent);
+		}
+	}
+
+	/**
+	 * Remove all the cached facets
+	 */
+	public synchronized void clear() {
+
+		if (!facets.isEmpty())
+			LOGGER.debug("Inherited facets cache cleared for " + catalogue + ", terms=" + facets.size());
+
+		facets.clear();
+		dependents.clear();
+	}
+
+	/**
+	 * Get the ids of the term and of all its descendants in the hierarchy
+	 *
+	 * @param term
+	 * @param hierarchy
+	 * @return
+	 */
+	private Collection<Integer> getSubtree(Term term, Hierarchy hierarchy) {
+
+		ApplicabilityIndex index = catalogue.getApplicabilityIndex();
+
+		HashSet<Integer> ids = new HashSet<>();
+		Queue<Term> queue = new LinkedList<>();
+
+		queue.add(term);
+		ids.add(term.getId());
+
+		while (!queue.isEmpty()) {
+
+			Term current = queue.poll();
+
+			for (Term child : index.getChildren(current, hierarchy)) {
+
+				// add returns false if already visited
+				if (ids.add(child.getId()))
+					queue.add(child);
+			}
+		}
+
+		return ids;
+	}
+}
@@ -0,0 +1,85 @@
+package catalogue;
+
+/**
+ * Number of terms contained in a subtree of a hierarchy, split by deprecation
+ * and reportability. The counts are maintained by the
+ * {@link ApplicabilityIndex} for the descendants of each term, in order to
+ * check if a term is dismissed or deprecable without visiting its subtree.
+ */
+public class SubtreeCounts {
+
+	private int notDeprecated;
+	private int reportable;
+	private int reportableNotDeprecated;
+
+	public SubtreeCounts() {
+	}
+
+	/**
+	 * Create the counts of a single term
+	 *
+	 * @param reportable
+	 * @param deprecated
+	 */
+	SubtreeCounts(boolean reportable, boolean deprecated) {
+		this.notDeprecated = deprecated ? 0 : 1;
+		this.reportable = reportable ? 1 : 0;
+		this.reportableNotDeprecated = reportable && !deprecated ? 1 : 0;
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param counts
+	 */
+	SubtreeCounts(SubtreeCounts counts) {
+		this.notDeprecated = counts.notDeprecated;
+		this.reportable = counts.reportable;
+		this.reportableNotDeprecated = counts.reportableNotDeprecated;
+	}
+
+	/**
+	 * Add (sign = 1) or subtract (sign = -1) other counts to these ones
+	 *
+	 * @param counts
+	 * @param sign
+	 */
+	void add(SubtreeCounts counts, int sign) {
+		this.notDeprecated += sign * counts.notDeprecated;
+		this.reportable += sign * counts.reportable;
+		this.reportableNotDeprecated += sign * counts.reportableNotDeprecated;
+	}
+
+	/**
+	 * Get the number of terms which are not deprecated
+	 *
+	 * @return
+	 */
+	public int getNotDeprecated() {
+		return notDeprecated;
+	}
+
+	/**
+	 * Get the number of terms which are reportable
+	 *
+	 * @return
+	 */
+	public int getReportable() {
+		return reportable;
+	}
+
+	/**
+	 * Get the number of terms which are reportable and not deprecated
+	 *
+	 * @return
+	 */
+	public int getReportableNotDeprecated() {
+		return reportableNotDeprecated;
+	}
+
+	@Override
+	public String toString() {
+		return "SUBTREE COUNTS: notDeprecated=" + notDeprecated + ";reportable=" + reportable
+				+ ";reportableNotDeprecated=" + reportableNotDeprecated;
+	}
+}
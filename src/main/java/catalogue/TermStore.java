@@ -0,0 +1,554 @@
+package catalogue;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+import catalogue_object.Term;
+
+/**
+ * In memory storage of the catalogue terms. Since the term ids are identity
+ * values of the catalogue database (and then almost contiguous), the terms are
+ * stored in an array indexed by id, while the codes are mapped to the ids with
+ * an open addressing hash table. In this way no boxed key is created and a
+ * lookup by code only needs to probe two arrays.
+ *
+ * Terms with an id too far from the others are kept in a separate map, to avoid
+ * allocating huge arrays with wrong data.
+ *
+ * The lookups do not block each other (nor the writers, which are rare): they
+ * are optimistic reads which are repeated with a read lock only if a term was
+ * added in the meanwhile.
+ */
+public class TermStore {
+
+	// maximum number of empty slots allowed in the array of the terms
+	private static final int MAX_GAP = 1 << 20;
+
+	private static final int NO_ID = -1;
+
+	private final StampedLock lock = new StampedLock();
+
+	// terms by id, the first slot is the term with id = base
+	private Term[] byId;
+	private int base;
+
+	// terms with ids outside the range of the array
+	private HashMap<Integer, Term> outliers;
+
+	// open addressing table code => id (the size is a power of 2)
+	private String[] codes;
+	private int[] ids;
+	private int codesCount;
+
+	// number of terms
+	private int size;
+
+	public TermStore() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity expected number of terms
+	 */
+	public TermStore(int capacity) {
+		this.byId = new Term[Math.max(16, capacity)];
+		this.base = 0;
+		this.outliers = new HashMap<>();
+		initCodes(capacity);
+		this.size = 0;
+	}
+
+	/**
+	 * Create the storage with the selected terms
+	 *
+	 * @param terms
+	 */
+	public TermStore(Collection<Term> terms) {
+		this(terms.size());
+
+		// start the array from the minimum id
+		int min = Integer.MAX_VALUE;
+		for (Term term : terms)
+			min = Math.min(min, term.getId());
+
+		if (!terms.isEmpty())
+			base = min;
+
+		for (Term term : terms)
+			put(term);
+	}
+
+	/**
+	 * Add a term to the storage or replace the term with the same id. The code
+	 * of the replaced term is removed, also if the code was changed on the same
+	 * term object.
+	 *
+	 * @param term
+	 */
+	public void put(Term term) {
+
+		long stamp = lock.writeLock();
+
+		try {
+
+			int id = term.getId();
+
+			Term old = remove(id);
+
+			if (old == null)
+				size++;
+			else if (term.getCode() == null || findId(codes, ids, term.getCode()) != id)
+				removeCode(id);
+
+			if (ensureSlot(id))
+				byId[id - base] = term;
+			else
+				outliers.put(id, term);
+
+			if (term.getCode() != null)
+				putCode(term.getCode(), id);
+
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Get a term by its id
+	 *
+	 * @param id
+	 * @return the term or null if not found
+	 */
+	public Term get(int id) {
+
+		long stamp = lock.tryOptimisticRead();
+
+		if (stamp != 0) {
+
+			Term term = null;
+			boolean inRange = false;
+
+			try {
+				Term[] array = byId;
+				int start = base;
+				inRange = isInRange(array, start, id);
+				term = getSlot(array, start, id);
+			} catch (RuntimeException e) {
+				// inconsistent read, repeated below
+			}
+
+			// the outliers are only read with the lock
+			if (lock.validate(stamp) && inRange)
+				return term;
+		}
+
+		stamp = lock.readLock();
+		try {
+
+			if (isInRange(byId, base, id))
+				return byId[id - base];
+
+			return outliers.get(id);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Get the id of a term by its code
+	 *
+	 * @param code
+	 * @return the id or -1 if the code is not present
+	 */
+	public int getId(String code) {
+
+		if (code == null)
+			return NO_ID;
+
+		long stamp = lock.tryOptimisticRead();
+
+		if (stamp != 0) {
+
+			int id = NO_ID;
+
+			try {
+				id = findId(codes, ids, code);
+			} catch (RuntimeException e) {
+				// inconsistent read, repeated below
+			}
+
+			if (lock.validate(stamp))
+				return id;
+		}
+
+		stamp = lock.readLock();
+		try {
+			return findId(codes, ids, code);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Get a term by its code
+	 *
+	 * @param code
+	 * @return the term or null if not found
+	 */
+	public Term getByCode(String code) {
+
+		int id = getId(code);
+
+		if (id == NO_ID)
+			return null;
+
+		return get(id);
+	}
+
+	/**
+	 * Get the number of terms
+	 *
+	 * @return
+	 */
+	public int size() {
+
+		long stamp = lock.readLock();
+		try {
+			return size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Remove all the terms
+	 */
+	public void clear() {
+
+		long stamp = lock.writeLock();
+		try {
+			byId = new Term[16];
+			base = 0;
+			outliers.clear();
+			initCodes(16);
+			size = 0;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Get a view of all the terms, sorted by id (the terms outside the range of
+	 * the array are returned at the end)
+	 *
+	 * @return
+	 */
+	public Collection<Term> values() {
+
+		return new AbstractCollection<Term>() {
+
+			@Override
+			public Iterator<Term> iterator() {
+
+				final Term[] array;
+				final Term[] others;
+
+				long stamp = lock.readLock();
+				try {
+					array = byId;
+					others = outliers.values().toArray(new Term[outliers.size()]);
+				} finally {
+					lock.unlockRead(stamp);
+				}
+
+				return new Iterator<Term>() {
+
+					private int index = advance(0);
+
+					private int advance(int from) {
+
+						int i = from;
+
+						while (i < array.length && array[i] == null)
+							i++;
+
+						return i;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return index < array.length + others.length;
+					}
+
+					@Override
+					public Term next() {
+
+						if (!hasNext())
+							throw new NoSuchElementException();
+
+						Term term;
+
+						if (index < array.length) {
+							term = array[index];
+							index = advance(index + 1);
+						} else {
+							term = others[index - array.length];
+							index++;
+						}
+
+						return term;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return TermStore.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Remove the term with the id from the array or from the outliers
+	 *
+	 * @param id
+	 * @return the removed term
+	 */
+	private Term remove(int id) {
+
+		if (isInRange(byId, base, id)) {
+			Term old = byId[id - base];
+			byId[id - base] = null;
+			return old;
+		}
+
+		return outliers.remove(id);
+	}
+
+	/**
+	 * Grow the array of the terms if needed in order to contain the id
+	 *
+	 * @param id
+	 * @return false if the id is too far from the range of the array
+	 */
+	private boolean ensureSlot(int id) {
+
+		if (isInRange(byId, base, id))
+			return true;
+
+		// new range of ids
+		long min = size == 1 ? id : Math.min(base, id);
+		long max = size == 1 ? id : Math.max((long) base + byId.length - 1, id);
+
+		long needed = max - min + 1;
+
+		if (needed > Math.max(MAX_GAP, 4L * size))
+			return false;
+
+		int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, byId.length + (byId.length >> 1)));
+
+		Term[] array = new Term[capacity];
+
+		// leave the new slots at the end when growing up and
+		// at the beginning when growing down
+		int newBase = size > 1 && id < base ? (int) (max - capacity + 1) : (int) min;
+
+		// copy the old terms only if the storage was not empty
+		if (size > 1) {
+			System.arraycopy(byId, 0, array, base - newBase, byId.length);
+		}
+
+		byId = array;
+		base = newBase;
+
+		// move the outliers into the array if possible
+		Iterator<Term> iterator = outliers.values().iterator();
+		while (iterator.hasNext()) {
+
+			Term term = iterator.next();
+
+			if (isInRange(byId, base, term.getId())) {
+				byId[term.getId() - base] = term;
+				iterator.remove();
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isInRange(Term[] array, int base, int id) {
+		return (long) id - base >= 0 && (long) id - base < array.length;
+	}
+
+	private static Term getSlot(Term[] array, int base, int id) {
+
+		if (!isInRange(array, base, id))
+			return null;
+
+		return array[id - base];
+	}
+
+	private void initCodes(int capacity) {
+
+		int length = 16;
+		while (length < capacity * 2)
+			length <<= 1;
+
+		codes = new String[length];
+		ids = new int[length];
+		codesCount = 0;
+	}
+
+	/**
+	 * Add or replace the id of the code
+	 *
+	 * @param code
+	 * @param id
+	 */
+	private void putCode(String code, int id) {
+
+		// keep the load factor under 0.5
+		if ((codesCount + 1) * 2 > codes.length)
+			rehash(codes.length * 2);
+
+		int mask = codes.length - 1;
+		int i = hash(code) & mask;
+
+		while (codes[i] != null) {
+
+			if (codes[i].equals(code)) {
+				ids[i] = id;
+				return;
+			}
+
+			i = (i + 1) & mask;
+		}
+
+		// set the id before the code, since the code marks the slot as used
+		ids[i] = id;
+		codes[i] = code;
+		codesCount++;
+	}
+
+	/**
+	 * Remove the code of a term. Since we do not know the code (the term could
+	 * be changed in place), the table is scanned, which is fine since the
+	 * terms are rarely replaced.
+	 *
+	 * @param id
+	 */
+	private void removeCode(int id) {
+
+		for (int i = 0; i < codes.length; i++) {
+
+			if (codes[i] != null && ids[i] == id) {
+				removeSlot(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Empty a slot of the codes table, moving back the following codes of the
+	 * same cluster which would not be found anymore (linear probing deletion)
+	 *
+	 * @param slot
+	 */
+	private void removeSlot(int slot) {
+
+		int mask = codes.length - 1;
+
+		int empty = slot;
+		codes[empty] = null;
+
+		int i = (empty + 1) & mask;
+
+		while (codes[i] != null) {
+
+			int home = hash(codes[i]) & mask;
+
+			// move the code if its home slot is not between the empty slot
+			// and its current slot (cyclically)
+			boolean reachable = empty <= i ? (home > empty && home <= i) : (home > empty || home <= i);
+
+			if (!reachable) {
+				ids[empty] = ids[i];
+				codes[empty] = codes[i];
+				codes[i] = null;
+				empty = i;
+			}
+
+			i = (i + 1) & mask;
+		}
+
+		codesCount--;
+	}
+
+	private void rehash(int length) {
+
+		String[] oldCodes = codes;
+		int[] oldIds = ids;
+
+		String[] newCodes = new String[length];
+		int[] newIds = new int[length];
+
+		int mask = length - 1;
+
+		for (int j = 0; j < oldCodes.length; j++) {
+
+			if (oldCodes[j] == null)
+				continue;
+
+			int i = hash(oldCodes[j]) & mask;
+
+			while (newCodes[i] != null)
+				i = (i + 1) & mask;
+
+			newCodes[i] = oldCodes[j];
+			newIds[i] = oldIds[j];
+		}
+
+		// publish the ids first, so that a concurrent optimistic read
+		// never uses the new codes with the old ids
+		ids = newIds;
+		codes = newCodes;
+	}
+
+	private static int findId(String[] codes, int[] ids, String code) {
+
+		int mask = codes.length - 1;
+		int i = hash(code) & mask;
+
+		// the table is never full, therefore an empty slot is always found
+		for (int probes = 0; probes < codes.length; probes++) {
+
+			String current = codes[i];
+
+			if (current == null)
+				return NO_ID;
+
+			if (current.equals(code))
+				return i < ids.length ? ids[i] : NO_ID;
+
+			i = (i + 1) & mask;
+		}
+
+		return NO_ID;
+	}
+
+	private static int hash(String code) {
+
+		int h = code.hashCode();
+
+		// spread the bits of the hash, as in HashMap
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,34 @@
+package catalogue_browser_dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Dao which can load its table in bulk (see {@link BulkLoader}). While the
+ * bulk load is active, the inserted records are staged in a file and they are
+ * written into the database only with {@link #endBulkLoad()}.
+ */
+public interface BulkLoadDAO {
+
+	/**
+	 * Start staging the inserted records. The table must be empty and just
+	 * created, since the ids of the staged records are computed starting from 1.
+	 * 
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public void startBulkLoad() throws IOException, SQLException;
+
+	/**
+	 * Load the staged records into the database
+	 * 
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public void endBulkLoad() throws IOException, SQLException;
+
+	/**
+	 * Discard the staged records
+	 */
+	public void cancelBulkLoad();
+}
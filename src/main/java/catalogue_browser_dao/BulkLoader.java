@@ -0,0 +1,255 @@
+package catalogue_browser_dao;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue.Catalogue;
+import utilities.GlobalUtil;
+
+/**
+ * Bulk load of a table of a catalogue database. The records are staged in a
+ * delimited temporary file and then loaded with the Derby import procedure,
+ * which is much faster than inserting them with jdbc batches when the table is
+ * empty. Identity columns must not be staged: they are generated by the
+ * database following the order of the file.
+ */
+public class BulkLoader {
+
+	private static final Logger LOGGER = LogManager.getLogger(BulkLoader.class);
+
+	private static final char COLUMN_DELIMITER = ',';
+	private static final char CHAR_DELIMITER = '"';
+
+	private String table;
+	private String[] columns;
+	private File file;
+	private Writer writer;
+	private int rowCount;
+
+	/**
+	 * Start staging the records of a table
+	 *
+	 * @param table   the table name (without the APP schema)
+	 * @param columns the staged columns, in the order of the values of
+	 *                {@link #addRow(Object...)}
+	 * @throws IOException
+	 */
+	public BulkLoader(String table, String... columns) throws IOException {
+
+		this.table = table;
+		this.columns = columns;
+
+		File tempDir = new File(GlobalUtil.getTempDir());
+		if (!tempDir.exists())
+			tempDir.mkdirs();
+
+		this.file = File.createTempFile("bulk_" + table.toLowerCase(), ".csv", tempDir);
+		this.writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+		this.rowCount = 0;
+	}
+
+	/**
+	 * Stage a record. Null values are imported as null, strings are imported as
+	 * they are (also if empty).
+	 *
+	 * @param values the values of the columns
+	 * @throws IOException
+	 */
+	public void addRow(Object... values) throws IOException {
+
+		for (int i = 0; i < values.length; i++) {
+
+			if (i > 0)
+				writer.write(COLUMN_DELIMITER);
+
+			Object value = values[i];
+
+			if (value == null)
+				continue;
+
+			if (value instanceof String)
+				writeString((String) value);
+			else
+				writer.write(value.toString());
+		}
+
+		writer.write('\n');
+
+		rowCount++;
+	}
+
+	/**
+	 * Write a string enclosed in the character delimiters, doubling the
+	 * delimiters contained in it
+	 *
+	 * @param value
+	 * @throws IOException
+	 */
+	private void writeString(String value) throws IOException {
+
+		writer.write(CHAR_DELIMITER);
+
+		for (int i = 0; i < value.length(); i++) {
+
+			char c = value.charAt(i);
+
+			if (c == CHAR_DELIMITER)
+				writer.write(CHAR_DELIMITER);
+
+			writer.write(c);
+		}
+
+		writer.write(CHAR_DELIMITER);
+	}
+
+	/**
+	 * Get the number of staged records
+	 *
+	 * @return
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Load the staged records into the table and delete the staging file
+	 *
+	 * @param catalogue the catalogue which contains the table
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public void load(Catalogue catalogue) throws IOException, SQLException {
+
+		writer.close();
+
+		long start = System.currentTimeMillis();
+
+		try (Connection con = catalogue.getConnection();
+				CallableStatement stmt = con
+						.prepareCall("CALL SYSCS_UTIL.SYSCS_IMPORT_DATA('APP', ?, ?, null, ?, ?, ?, 'UTF-8', 0)");) {
+
+			stmt.setString(1, table);
+			stmt.setString(2, String.join(",", columns));
+			stmt.setString(3, file.getAbsolutePath());
+			stmt.setString(4, String.valueOf(COLUMN_DELIMITER));
+			stmt.setString(5, String.valueOf(CHAR_DELIMITER));
+
+			stmt.execute();
+		} finally {
+			delete();
+		}
+
+		LOGGER.info("Bulk loaded " + rowCount + " records into " + table + " in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Discard the staged records
+	 */
+	public void cancel() {
+
+		try {
+			writer.close();
+		} catch (IOException e) {
+			LOGGER.warn("Cannot close " + file, e);
+		}
+
+		delete();
+	}
+
+	private void delete() {
+		if (!file.delete())
+			file.deleteOnExit();
+	}
+
+	/**
+	 * Check if a table of the catalogue is empty
+	 *
+	 * @param catalogue
+	 * @param table
+	 * @return
+	 * @throws SQLException
+	 */
+	public static boolean isEmpty(Catalogue catalogue, String table) throws SQLException {
+
+		try (Connection con = catalogue.getConnection();
+				Statement stmt = con.createStatement();
+				ResultSet rs = stmt.executeQuery("select count(*) from APP." + table);) {
+
+			return rs.next() && rs.getInt(1) == 0;
+		}
+	}
+
+	/**
+	 * Drop the foreign keys of a table, in order to load it without checking them
+	 * for each record. Use {@link #addForeignKeys(Catalogue, String...)} to create
+	 * them again.
+	 *
+	 * @param catalogue
+	 * @param table
+	 * @throws SQLException
+	 */
+	public static void dropForeignKeys(Catalogue catalogue, String table) throws SQLException {
+
+		String query = "select C.CONSTRAINTNAME from SYS.SYSCONSTRAINTS C, SYS.SYSTABLES T, SYS.SYSSCHEMAS S "
+				+ "where C.TABLEID = T.TABLEID and T.SCHEMAID = S.SCHEMAID and S.SCHEMANAME = 'APP' "
+				+ "and T.TABLENAME = ? and C.TYPE = 'F'";
+
+		List<String> names = new ArrayList<>();
+
+		try (Connection con = catalogue.getConnection();) {
+
+			try (PreparedStatement stmt = con.prepareStatement(query);) {
+
+				stmt.setString(1, table);
+
+				try (ResultSet rs = stmt.executeQuery();) {
+					while (rs.next())
+						names.add(rs.getString(1));
+				}
+			}
+
+			try (Statement stmt = con.createStatement();) {
+				for (String name : names)
+					stmt.execute("alter table APP." + table + " drop constraint \"" + name + "\"");
+			}
+		}
+	}
+
+	/**
+	 * Create foreign keys, the indexes which support them are built from the
+	 * loaded records
+	 *
+	 * @param catalogue
+	 * @param statements the alter table statements which add the foreign keys
+	 * @throws SQLException
+	 */
+	public static void addForeignKeys(Catalogue catalogue, String... statements) throws SQLException {
+
+		long start = System.currentTimeMillis();
+
+		try (Connection con = catalogue.getConnection(); Statement stmt = con.createStatement();) {
+			for (String statement : statements)
+				stmt.execute(statement);
+		}
+
+		LOGGER.info("Foreign keys created in " + (System.currentTimeMillis() - start) + " ms");
+	}
+}
@@ -315,6 +315,10 @@ public class CatalogueDAO implements ICatalogueDAO {
 			stmt.close();
 			con.close();
 		}
+
+		CatalogueSchema.increaseDataVersion(catalogue);
+
+		catalogue.getPreferenceCache().clear();
 	}
 
 	/**
@@ -0,0 +1,255 @@
+package catalogue_browser_dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue.Catalogue;
+import catalogue.CatalogueSnapshot;
+
+/**
+ * Upgrade of the databases of the catalogues created with a previous version
+ * of the createCatalogueDB script. The missing columns and indexes are added
+ * when the catalogue is opened, the databases which are already up to date are
+ * not changed.
+ *
+ * The data version (see {@link #getDataVersion(Catalogue)}) is also added
+ * here. It is increased by the DAOs and the importers when they commit their
+ * changes, and not by triggers, so that the writers do not wait for each
+ * other on its single row.
+ */
+public class CatalogueSchema {
+
+	private static final Logger LOGGER = LogManager.getLogger(CatalogueSchema.class);
+
+	// upper case code and name of the terms, with their indexes, used by the
+	// case insensitive lookups of the TermDAO. Same as createCatalogueDB.
+	private static final String[] TERM_LOOKUP_COLUMNS = {
+			"alter table APP.TERM add column TERM_CODE_UPPER varchar(40) "
+					+ "generated always as ( upper( TERM_CODE ) )",
+			"alter table APP.TERM add column TERM_EXTENDED_NAME_UPPER varchar(3000) "
+					+ "generated always as ( upper( TERM_EXTENDED_NAME ) )",
+			"create index TERM_CODE_UPPER_IDX on APP.TERM ( TERM_CODE_UPPER )",
+			"create index TERM_EXTENDED_NAME_UPPER_IDX on APP.TERM ( TERM_EXTENDED_NAME_UPPER )",
+			"create index TERM_EXTENDED_NAME_IDX on APP.TERM ( TERM_EXTENDED_NAME )",
+			"create index TERM_SHORT_NAME_IDX on APP.TERM ( TERM_SHORT_NAME )" };
+
+	// SQL state of a missing table
+	private static final String MISSING_TABLE = "42X05";
+
+	// tables with the triggers which increased the data version
+	private static final String[] VERSIONED_TABLES = { "TERM", "TERM_ATTRIBUTE", "PARENT_TERM" };
+
+	private static final String[] VERSIONED_EVENTS = { "INSERT", "UPDATE", "DELETE" };
+
+	/**
+	 * Add to the catalogue database the columns and the indexes which are missing
+	 *
+	 * @param catalogue
+	 * @return true if the database is up to date
+	 */
+	public static boolean upgrade(Catalogue catalogue) {
+
+		try (Connection con = catalogue.getConnection();) {
+
+			if (!hasColumn(con, "TERM", "TERM_CODE_UPPER")) {
+
+				long start = System.currentTimeMillis();
+
+				execute(con, Arrays.asList(TERM_LOOKUP_COLUMNS));
+
+				LOGGER.info("Term lookup columns added to " + catalogue + " in "
+						+ (System.currentTimeMillis() - start) + " ms");
+			}
+
+			if (!hasColumn(con, "DATA_VERSION", "DATA_VERSION")) {
+
+				execute(con, Arrays.asList("create table APP.DATA_VERSION ( DATA_VERSION bigint not null )",
+						"insert into APP.DATA_VERSION ( DATA_VERSION ) values ( 0 )"));
+
+				LOGGER.info("Data version added to " + catalogue);
+			}
+
+			// the data version was increased by triggers in the previous upgrade
+			List<String> triggers = new ArrayList<>();
+			for (String table : VERSIONED_TABLES) {
+				for (String event : VERSIONED_EVENTS) {
+					String trigger = table + "_" + event + "_VERSION";
+					if (hasTrigger(con, trigger))
+						triggers.add("drop trigger APP." + trigger);
+				}
+			}
+
+			if (!triggers.isEmpty()) {
+				execute(con, triggers);
+				LOGGER.info("Data version triggers removed from " + catalogue);
+			}
+
+			return true;
+
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot upgrade the database of " + catalogue, e);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Check if the catalogue database has the upper case columns used by the
+	 * case insensitive lookups of the terms
+	 *
+	 * @param catalogue
+	 * @return false if the columns are missing or the database cannot be read
+	 */
+	public static boolean hasTermLookupColumns(Catalogue catalogue) {
+
+		try (Connection con = catalogue.getConnection();) {
+			return hasColumn(con, "TERM", "TERM_CODE_UPPER") && hasColumn(con, "TERM", "TERM_EXTENDED_NAME_UPPER");
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot read the columns of " + catalogue, e);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Get the version of the terms, term attributes and applicabilities of the
+	 * catalogue database, which is increased each time a change of them is
+	 * committed. The database should be upgraded before.
+	 *
+	 * @param catalogue
+	 * @return the version, or -1 if it cannot be read
+	 */
+	public static long getDataVersion(Catalogue catalogue) {
+
+		String query = "select DATA_VERSION from APP.DATA_VERSION";
+
+		try (Connection con = catalogue.getConnection();
+				PreparedStatement stmt = con.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery();) {
+
+			if (rs.next())
+				return rs.getLong("DATA_VERSION");
+
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot read the data version of " + catalogue, e);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Increase the data version of the catalogue database, after a change of
+	 * its terms, term attributes or applicabilities was committed. If the version
+	 * cannot be increased the snapshot of the catalogue is deleted, so that it
+	 * is not read with the old data.
+	 *
+	 * @param catalogue
+	 */
+	public static void increaseDataVersion(Catalogue catalogue) {
+
+		String query = "update APP.DATA_VERSION set DATA_VERSION = DATA_VERSION + 1";
+
+		try (Connection con = catalogue.getConnection(); Statement stmt = con.createStatement();) {
+
+			stmt.executeUpdate(query);
+
+		} catch (SQLException e) {
+
+			// database not upgraded yet, no snapshot was saved
+			if (MISSING_TABLE.equals(e.getSQLState()))
+				return;
+
+			e.printStackTrace();
+			LOGGER.error("Cannot increase the data version of " + catalogue, e);
+
+			CatalogueSnapshot.delete(catalogue);
+		}
+	}
+
+	/**
+	 * Execute the statements in a single transaction
+	 *
+	 * @param con
+	 * @param statements
+	 * @throws SQLException
+	 */
+	private static void execute(Connection con, List<String> statements) throws SQLException {
+
+		con.setAutoCommit(false);
+
+		try (Statement stmt = con.createStatement();) {
+
+			for (String statement : statements)
+				stmt.execute(statement);
+
+			con.commit();
+
+		} catch (SQLException e) {
+			con.rollback();
+			throw e;
+		} finally {
+			con.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Check if a table of the APP schema has a column
+	 *
+	 * @param con
+	 * @param table
+	 * @param column
+	 * @return
+	 * @throws SQLException
+	 */
+	private static boolean hasColumn(Connection con, String table, String column) throws SQLException {
+
+		String query = "select C.COLUMNNAME from SYS.SYSCOLUMNS C, SYS.SYSTABLES T, SYS.SYSSCHEMAS S "
+				+ "where C.REFERENCEID = T.TABLEID and T.SCHEMAID = S.SCHEMAID and S.SCHEMANAME = 'APP' "
+				+ "and T.TABLENAME = ? and C.COLUMNNAME = ?";
+
+		try (PreparedStatement stmt = con.prepareStatement(query);) {
+
+			stmt.setString(1, table);
+			stmt.setString(2, column);
+
+			try (ResultSet rs = stmt.executeQuery();) {
+				return rs.next();
+			}
+		}
+	}
+
+	/**
+	 * Check if the APP schema has a trigger
+	 *
+	 * @param con
+	 * @param trigger
+	 * @return
+	 * @throws SQLException
+	 */
+	private static boolean hasTrigger(Connection con, String trigger) throws SQLException {
+
+		String query = "select T.TRIGGERNAME from SYS.SYSTRIGGERS T, SYS.SYSSCHEMAS S "
+				+ "where T.SCHEMAID = S.SCHEMAID and S.SCHEMANAME = 'APP' and T.TRIGGERNAME = ?";
+
+		try (PreparedStatement stmt = con.prepareStatement(query);) {
+
+			stmt.setString(1, trigger);
+
+			try (ResultSet rs = stmt.executeQuery();) {
+				return rs.next();
+			}
+		}
+	}
+}
@@ -0,0 +1,588 @@
+package catalogue_browser_dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Small pool of long-lived connections to a single derby database. The
+ * connections returned by {@link #getConnection()} can be used as normal jdbc
+ * connections: calling {@link Connection#close()} gives the connection back to
+ * the pool instead of closing it.
+ *
+ * Each pooled connection keeps also a cache of its prepared statements, in
+ * order to compile the most used queries only once. As for connections, closing
+ * a cached statement does not release it.
+ *
+ * Call {@link #close()} to release all the connections (for example before
+ * shutting down the database).
+ *
+ */
+public class ConnectionPool {
+
+	private static final Logger LOGGER = LogManager.getLogger(ConnectionPool.class);
+
+	// default maximum number of connections opened at the same time
+	public static final int DEFAULT_MAX_SIZE = 8;
+
+	// max number of prepared statements cached for each connection
+	private static final int STATEMENT_CACHE_SIZE = 64;
+
+	// how much we wait for a free connection before opening
+	// a not pooled one
+	private static final long BORROW_TIMEOUT_MS = 30000;
+
+	// borrow waits longer than this are logged
+	private static final long SLOW_BORROW_MS = 100;
+
+	private final String name;
+	private final String dbUrl;
+	private final int maxSize;
+
+	// connections ready to be borrowed
+	private final Deque<PooledConnection> idle;
+
+	// number of opened connections (idle + borrowed)
+	private int size;
+
+	// number of borrowed connections
+	private int active;
+
+	private boolean closed;
+
+	// metrics
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong borrowWaitNanos = new AtomicLong();
+	private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+	private final AtomicLong createdCount = new AtomicLong();
+	private final AtomicLong stmtCacheHits = new AtomicLong();
+	private final AtomicLong stmtCacheMisses = new AtomicLong();
+	private int peakActive;
+
+	/**
+	 * Create a pool of connections
+	 *
+	 * @param name    name of the pool, used in the logs
+	 * @param dbUrl   the derby url used to open the connections
+	 * @param maxSize maximum number of connections opened at the same time
+	 */
+	public ConnectionPool(String name, String dbUrl, int maxSize) {
+		this.name = name;
+		this.dbUrl = dbUrl;
+		this.maxSize = maxSize;
+		this.idle = new ArrayDeque<>();
+		this.size = 0;
+		this.active = 0;
+		this.closed = false;
+	}
+
+	public ConnectionPool(String name, String dbUrl) {
+		this(name, dbUrl, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Borrow a connection from the pool. If all the connections are in use, we
+	 * wait until one is given back. The connection must be closed after its use
+	 * to give it back to the pool.
+	 *
+	 * @return
+	 * @throws SQLException
+	 */
+	public Connection getConnection() throws SQLException {
+
+		long start = System.nanoTime();
+
+		PooledConnection pooled = null;
+		boolean create = false;
+
+		synchronized (this) {
+
+			if (closed)
+				throw new SQLException("Connection pool " + name + " is closed");
+
+			long deadline = start + TimeUnit.MILLISECONDS.toNanos(BORROW_TIMEOUT_MS);
+
+			while (idle.isEmpty() && size >= maxSize) {
+
+				long remaining = deadline - System.nanoTime();
+
+				if (remaining <= 0)
+					break;
+
+				try {
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+
+				if (closed)
+					throw new SQLException("Connection pool " + name + " is closed");
+			}
+
+			if (!idle.isEmpty()) {
+				pooled = idle.pop();
+			} else if (size < maxSize) {
+				// reserve the slot, the connection is opened outside the lock
+				size++;
+				create = true;
+			}
+
+			if (pooled != null || create) {
+				active++;
+				peakActive = Math.max(peakActive, active);
+			}
+		}
+
+		// no connection available in time => use a not pooled one
+		if (pooled == null && !create) {
+			LOGGER.warn("No free connection in pool " + name + " after " + BORROW_TIMEOUT_MS
+					+ "ms, opening a not pooled connection (active=" + getActiveCount() + ")");
+			return DriverManager.getConnection(dbUrl);
+		}
+
+		if (create) {
+			try {
+				pooled = new PooledConnection(DriverManager.getConnection(dbUrl));
+				createdCount.incrementAndGet();
+			} catch (SQLException e) {
+				synchronized (this) {
+					size--;
+					active--;
+					notifyAll();
+				}
+				throw e;
+			}
+		}
+
+		long wait = System.nanoTime() - start;
+		recordBorrow(wait);
+
+		return pooled.borrow();
+	}
+
+	/**
+	 * Update the borrow metrics
+	 *
+	 * @param wait
+	 */
+	private void recordBorrow(long wait) {
+
+		borrowCount.incrementAndGet();
+		borrowWaitNanos.addAndGet(wait);
+
+		long max;
+		while (wait > (max = maxBorrowWaitNanos.get())) {
+			if (maxBorrowWaitNanos.compareAndSet(max, wait))
+				break;
+		}
+
+		long waitMs = TimeUnit.NANOSECONDS.toMillis(wait);
+
+		if (waitMs >= SLOW_BORROW_MS) {
+			LOGGER.info("Waited " + waitMs + "ms for a connection of pool " + name + " (active=" + getActiveCount()
+					+ ")");
+		}
+	}
+
+	/**
+	 * Give back a connection to the pool
+	 *
+	 * @param pooled
+	 */
+	private void release(PooledConnection pooled) {
+
+		boolean reusable = pooled.reset();
+
+		synchronized (this) {
+
+			active--;
+
+			if (reusable && !closed) {
+				idle.push(pooled);
+			} else {
+				size--;
+				pooled.closePhysical();
+			}
+
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Get the number of borrowed connections
+	 *
+	 * @return
+	 */
+	public synchronized int getActiveCount() {
+		return active;
+	}
+
+	/**
+	 * Close all the connections of the pool. Borrowed connections are closed when
+	 * they are given back.
+	 */
+	public void close() {
+
+		Collection<PooledConnection> toClose;
+
+		synchronized (this) {
+
+			if (closed)
+				return;
+
+			closed = true;
+
+			toClose = new ArrayList<>(idle);
+			size -= idle.size();
+			idle.clear();
+
+			notifyAll();
+		}
+
+		for (PooledConnection pooled : toClose)
+			pooled.closePhysical();
+
+		logMetrics();
+	}
+
+	/**
+	 * Log the usage statistics of the pool
+	 */
+	public void logMetrics() {
+
+		long borrows = borrowCount.get();
+		long avgWaitMicros = borrows == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(borrowWaitNanos.get() / borrows);
+
+		LOGGER.info("Connection pool " + name + ": borrowed=" + borrows + ", opened=" + createdCount.get()
+				+ ", active=" + getActiveCount() + ", peakActive=" + peakActive + ", avgBorrowWait=" + avgWaitMicros
+				+ "us, maxBorrowWait=" + TimeUnit.NANOSECONDS.toMillis(maxBorrowWaitNanos.get())
+				+ "ms, statementCacheHits=" + stmtCacheHits.get() + ", statementCacheMisses="
+				+ stmtCacheMisses.get());
+	}
+
+	/**
+	 * Physical connection of the pool with its statement cache
+	 */
+	private class PooledConnection implements InvocationHandler {
+
+		private final Connection physical;
+
+		// state of the connection when opened, restored at each release
+		private final int isolation;
+		private final int holdability;
+		private final boolean readOnly;
+
+		// sql => cached statement (LRU)
+		private final LinkedHashMap<String, CachedStatement> statements;
+
+		// not cached statements opened during the current borrow
+		private final Collection<Statement> opened;
+
+		// proxy given to the current borrower, null if not borrowed
+		private Connection handle;
+
+		public PooledConnection(Connection physical) throws SQLException {
+
+			this.physical = physical;
+			this.isolation = physical.getTransactionIsolation();
+			this.holdability = physical.getHoldability();
+			this.readOnly = physical.isReadOnly();
+			this.opened = new ArrayList<>();
+
+			this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+
+					if (size() <= STATEMENT_CACHE_SIZE || eldest.getValue().inUse)
+						return false;
+
+					eldest.getValue().closePhysical();
+					return true;
+				}
+			};
+		}
+
+		public Connection borrow() {
+			handle = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, this);
+			return handle;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			String methodName = method.getName();
+
+			// the connection was already given back
+			if (proxy != handle) {
+
+				if (methodName.equals("close") || methodName.equals("isClosed"))
+					return methodName.equals("isClosed") ? true : null;
+
+				throw new SQLException("Connection already closed");
+			}
+
+			switch (methodName) {
+			case "close":
+				handle = null;
+				release(this);
+				return null;
+			case "isClosed":
+				return false;
+			case "unwrap":
+			case "isWrapperFor":
+				return invokePhysical(physical, method, args);
+			case "prepareStatement":
+
+				// cache only the plain statements and the ones
+				// returning the generated keys
+				if (args.length == 1 || (args.length == 2 && args[1] instanceof Integer))
+					return prepareCached(args);
+
+				break;
+			default:
+				break;
+			}
+
+			Object result = invokePhysical(physical, method, args);
+
+			if (result instanceof Statement)
+				opened.add((Statement) result);
+
+			return result;
+		}
+
+		/**
+		 * Get a prepared statement from the cache, or prepare it if not present
+		 *
+		 * @param args arguments of the prepareStatement method
+		 * @return
+		 * @throws SQLException
+		 */
+		private PreparedStatement prepareCached(Object[] args) throws SQLException {
+
+			String sql = (String) args[0];
+			int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+
+			String key = keys + "|" + sql;
+
+			CachedStatement cached = statements.get(key);
+
+			// the same statement is already used by the borrower => prepare a new one
+			if (cached != null && cached.inUse) {
+
+				stmtCacheMisses.incrementAndGet();
+
+				PreparedStatement stmt = physical.prepareStatement(sql, keys);
+				opened.add(stmt);
+
+				return stmt;
+			}
+
+			if (cached == null) {
+				stmtCacheMisses.incrementAndGet();
+				cached = new CachedStatement(physical.prepareStatement(sql, keys));
+				statements.put(key, cached);
+			} else {
+				stmtCacheHits.incrementAndGet();
+			}
+
+			return cached.borrow();
+		}
+
+		/**
+		 * Prepare the connection to be reused by another borrower: close the
+		 * statements, rollback the uncommitted work and restore the auto commit,
+		 * the isolation level, the holdability and the read only flag. If the
+		 * state cannot be restored the connection must be closed.
+		 *
+		 * @return true if the connection can be reused
+		 */
+		public boolean reset() {
+
+			try {
+
+				if (physical.isClosed())
+					return false;
+
+				for (Statement stmt : opened) {
+					try {
+						stmt.close();
+					} catch (SQLException e) {
+						LOGGER.warn("Cannot close statement", e);
+					}
+				}
+
+				opened.clear();
+
+				for (CachedStatement cached : statements.values())
+					cached.release();
+
+				// rollback uncommitted work
+				if (!physical.getAutoCommit()) {
+					physical.rollback();
+					physical.setAutoCommit(true);
+				}
+
+				if (physical.getTransactionIsolation() != isolation)
+					physical.setTransactionIsolation(isolation);
+
+				if (physical.getHoldability() != holdability)
+					physical.setHoldability(holdability);
+
+				if (physical.isReadOnly() != readOnly)
+					physical.setReadOnly(readOnly);
+
+				physical.clearWarnings();
+
+				return true;
+
+			} catch (SQLException e) {
+				LOGGER.warn("Cannot reuse connection of pool " + name, e);
+				return false;
+			}
+		}
+
+		public void closePhysical() {
+
+			for (CachedStatement cached : statements.values())
+				cached.closePhysical();
+
+			statements.clear();
+
+			try {
+				physical.close();
+			} catch (SQLException e) {
+				LOGGER.warn("Cannot close connection of pool " + name, e);
+			}
+		}
+	}
+
+	/**
+	 * Prepared statement kept in the cache of a pooled connection
+	 */
+	private static class CachedStatement implements InvocationHandler {
+
+		private final PreparedStatement physical;
+
+		// proxy given to the current user, null if not used
+		private PreparedStatement handle;
+
+		private boolean inUse;
+
+		public CachedStatement(PreparedStatement physical) {
+			this.physical = physical;
+			this.inUse = false;
+		}
+
+		public PreparedStatement borrow() {
+			inUse = true;
+			handle = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, this);
+			return handle;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			String methodName = method.getName();
+
+			// statement already closed by its user
+			if (proxy != handle) {
+
+				if (methodName.equals("close") || methodName.equals("isClosed"))
+					return methodName.equals("isClosed") ? true : null;
+
+				throw new SQLException("Statement already closed");
+			}
+
+			switch (methodName) {
+			case "close":
+				release();
+				return null;
+			case "isClosed":
+				return false;
+			default:
+				return invokePhysical(physical, method, args);
+			}
+		}
+
+		/**
+		 * Clean the statement in order to be reused
+		 */
+		public void release() {
+
+			if (!inUse)
+				return;
+
+			handle = null;
+			inUse = false;
+
+			try {
+
+				ResultSet rs = physical.getResultSet();
+				if (rs != null)
+					rs.close();
+
+				physical.clearParameters();
+				physical.clearBatch();
+				physical.clearWarnings();
+
+			} catch (SQLException e) {
+				LOGGER.warn("Cannot clean cached statement", e);
+			}
+		}
+
+		public void closePhysical() {
+			try {
+				physical.close();
+			} catch (SQLException e) {
+				LOGGER.warn("Cannot close cached statement", e);
+			}
+		}
+	}
+
+	/**
+	 * Invoke a method on the physical jdbc object, unwrapping the reflection
+	 * exceptions
+	 *
+	 * @param target
+	 * @param method
+	 * @param args
+	 * @return
+	 * @throws Throwable
+	 */
+	private static Object invokePhysical(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPool " + name;
+	}
+}
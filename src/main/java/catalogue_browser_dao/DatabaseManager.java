@@ -9,7 +9,6 @@ import java.io.OutputStream;
 import java.nio.channels.FileChannel;
 import java.sql.CallableStatement;
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -19,6 +18,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import catalogue.Catalogue;
+import catalogue.CatalogueSnapshot;
 import global_manager.GlobalManager;
 import sql.SQLExecutor;
 import user_preferences.GlobalPreferenceDAO;
@@ -74,6 +74,9 @@ public class DatabaseManager {
 	 */
 	public static final String LOCAL_CAT_DB_FOLDER = OFFICIAL_CAT_DB_FOLDER + "LOCAL_CATS";
 
+	// pool of connections to the main db, available while the main db is started
+	private static volatile ConnectionPool mainDBPool;
+
 	/**
 	 * Get a derby connection url to open the main db connection
 	 * 
@@ -106,12 +109,20 @@ public class DatabaseManager {
 	}
 
 	/**
-	 * Open the db connection with the currently open catalogue
+	 * Open the db connection with the main db. If the main db was started, the
+	 * connection is borrowed from the main db connection pool and it is given
+	 * back when closed.
 	 * 
 	 * @return
 	 * @throws SQLException
 	 */
 	public static Connection getMainDBConnection() throws SQLException {
+
+		ConnectionPool pool = mainDBPool;
+
+		if (pool != null)
+			return pool.getConnection();
+
 		return DriverManager.getConnection(getMainDBURL());
 	}
 
@@ -157,6 +168,8 @@ public class DatabaseManager {
 
 			con.close();
 
+			openMainDBPool();
+
 		} catch (ClassNotFoundException e) {
 			e.printStackTrace();
 			LOGGER.error("Cannot start embedded database: embedded driver missing", e);
@@ -184,9 +197,34 @@ public class DatabaseManager {
 			}
 
 			LOGGER.info("Main database created");
+
+			openMainDBPool();
 		}
 	}
 
+	/**
+	 * Open the pool of connections to the main db
+	 */
+	private static synchronized void openMainDBPool() {
+
+		if (mainDBPool != null)
+			return;
+
+		mainDBPool = new ConnectionPool(MAIN_CAT_DB_FOLDER_NAME, getMainDBURL());
+	}
+
+	/**
+	 * Close the pool of connections to the main db
+	 */
+	private static synchronized void closeMainDBPool() {
+
+		if (mainDBPool == null)
+			return;
+
+		mainDBPool.close();
+		mainDBPool = null;
+	}
+
 	/**
 	 * Add all the tables which were not release with the first version of the
 	 * browser (if they are not present)
@@ -196,9 +234,8 @@ public class DatabaseManager {
 	 */
 	public static void addNotExistingTables() throws SQLException, IOException {
 
-		DatabaseMetaData dbm = getMainDBConnection().getMetaData();
-
-		try (ResultSet rs = dbm.getTables(null, null, "USERS", null);) {
+		try (Connection metaCon = getMainDBConnection();
+				ResultSet rs = metaCon.getMetaData().getTables(null, null, "USERS", null);) {
 
 			if (!rs.next()) {
 
@@ -256,6 +293,9 @@ public class DatabaseManager {
 	 * Close the main db derby connection
 	 */
 	public static void stopMainDB() {
+		// release the pooled connections before shutting down the db
+		closeMainDBPool();
+
 		try {
 			LOGGER.info("Stopping database...");
 			DriverManager.getConnection(stopMainDBURL());
@@ -370,6 +410,9 @@ public class DatabaseManager {
 		// delete the DB with all the subfiles
 		GlobalUtil.deleteFileCascade(new File(catalogue.getDbPath()));
 
+		// and the snapshot of its data
+		CatalogueSnapshot.delete(catalogue);
+
 		// check if no catalogue is present in the parent folder, if so delete also the
 		// parent directory (the dir which contains all the catalogue versions)
 		File parent = new File(catalogue.getDbPath()).getParentFile();
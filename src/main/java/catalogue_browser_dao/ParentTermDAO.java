@@ -1,5 +1,7 @@
 package catalogue_browser_dao;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -12,12 +14,15 @@ import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import catalogue.ApplicabilityIndex;
 import catalogue.Catalogue;
 import catalogue_object.Applicability;
 import catalogue_object.BaseObject;
 import catalogue_object.Hierarchy;
 import catalogue_object.Nameable;
 import catalogue_object.Term;
+import metrics.Metrics;
+import metrics.Timer;
 
 /**
  * Class to manage the communication with the table "parent_term" of the db the
@@ -28,12 +33,35 @@ import catalogue_object.Term;
  * @author shahaal
  *
  */
-public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term, Hierarchy> {
+public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term, Hierarchy>, BulkLoadDAO {
 
 	private static final Logger LOGGER = LogManager.getLogger(ParentTermDAO.class);
 
+	private static final Timer INSERT_TIMER = Metrics.timer("ParentTermDAO.insert");
+	private static final Timer REMOVE_TIMER = Metrics.timer("ParentTermDAO.remove");
+	private static final Timer UPDATE_TIMER = Metrics.timer("ParentTermDAO.update");
+	private static final Timer GET_ALL_TIMER = Metrics.timer("ParentTermDAO.getAll");
+	private static final Timer REMOVE_BY_HIERARCHY_TIMER = Metrics.timer("ParentTermDAO.removeByA2");
+	private static final Timer FIRST_LEVEL_TIMER = Metrics.timer("ParentTermDAO.getFirstLevelNodes");
+	private static final Timer CHILDREN_TIMER = Metrics.timer("ParentTermDAO.getChildren");
+	private static final Timer MAX_ORDER_TIMER = Metrics.timer("ParentTermDAO.getMaxOrder");
+	private static final Timer SHIFT_TIMER = Metrics.timer("ParentTermDAO.shiftTerms");
+	private static final Timer UPDATE_ORDER_TIMER = Metrics.timer("ParentTermDAO.updateTermOrder");
+	private static final Timer ORDER_OFFSET_TIMER = Metrics.timer("ParentTermDAO.addOrderOffset");
+	private static final Timer SWAP_ORDER_TIMER = Metrics.timer("ParentTermDAO.swapTermOrder");
+	private static final Timer UPDATE_ORDERS_TIMER = Metrics.timer("ParentTermDAO.updateOrders");
+
+	// foreign keys of the table, as defined in createCatalogueDB
+	private static final String[] FOREIGN_KEYS = {
+			"alter table APP.PARENT_TERM add foreign key ( TERM_ID ) references APP.TERM ( TERM_ID )",
+			"alter table APP.PARENT_TERM add foreign key ( PARENT_TERM_ID ) references APP.TERM ( TERM_ID )",
+			"alter table APP.PARENT_TERM add foreign key ( HIERARCHY_ID ) references APP.HIERARCHY ( HIERARCHY_ID )" };
+
 	private Catalogue catalogue;
 
+	// not null while the applicabilities are staged for a bulk load
+	private BulkLoader bulkLoader;
+
 	/**
 	 * Initialize the parent term dao with the catalogue we want to communicate with
 	 * 
@@ -59,6 +87,9 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 		appls.add(appl);
 
 		List<Integer> ids = insert(appls);
+
+		CatalogueSchema.increaseDataVersion(catalogue);
+
 		if (ids.isEmpty())
 			return -1;
 
@@ -67,62 +98,150 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 
 	public synchronized List<Integer> insert(Iterable<Applicability> appls) {
 
-		ArrayList<Integer> ids = new ArrayList<>();
+		long start = INSERT_TIMER.start();
 
-		String query = "insert into APP.PARENT_TERM (TERM_ID, HIERARCHY_ID, "
-				+ "PARENT_TERM_ID, TERM_ORDER, TERM_REPORTABLE, TERM_FLAG)" + "values (?, ?, ?, ?, ?, ?)";
+		try {
+			if (bulkLoader != null)
+				return stage(appls);
 
-		try (Connection con = catalogue.getConnection();
-				PreparedStatement stmt = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);) {
+			ArrayList<Integer> ids = new ArrayList<>();
 
-			// get the connection
-			// con.setAutoCommit(false);
+			String query = "insert into APP.PARENT_TERM (TERM_ID, HIERARCHY_ID, "
+					+ "PARENT_TERM_ID, TERM_ORDER, TERM_REPORTABLE, TERM_FLAG)" + "values (?, ?, ?, ?, ?, ?)";
 
-			for (Applicability appl : appls) {
+			try (Connection con = catalogue.getConnection();
+					PreparedStatement stmt = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);) {
 
-				stmt.clearParameters();
+				// insert the batch in a single transaction
+				con.setAutoCommit(false);
 
-				// Create a new record with the term and its parent in the selected hierarchy
-				stmt.setInt(1, appl.getChild().getId());
-				stmt.setInt(2, appl.getHierarchy().getId());
+				for (Applicability appl : appls) {
 
-				// set the parent (the term if term, otherwise null if hierarchy)
-				if (appl.getParentTerm() instanceof Term)
-					stmt.setInt(3, ((Term) appl.getParentTerm()).getId());
-				else
-					stmt.setNull(3, java.sql.Types.INTEGER);
+					stmt.clearParameters();
 
-				stmt.setInt(4, appl.getOrder());
-				stmt.setBoolean(5, appl.isReportable());
+					// Create a new record with the term and its parent in the selected hierarchy
+					stmt.setInt(1, appl.getChild().getId());
+					stmt.setInt(2, appl.getHierarchy().getId());
 
-				// flag is true since the applicability exists
-				stmt.setBoolean(6, true);
+					// set the parent (the term if term, otherwise null if hierarchy)
+					if (appl.getParentTerm() instanceof Term)
+						stmt.setInt(3, ((Term) appl.getParentTerm()).getId());
+					else
+						stmt.setNull(3, java.sql.Types.INTEGER);
 
-				stmt.addBatch();
-			}
+					stmt.setInt(4, appl.getOrder());
+					stmt.setBoolean(5, appl.isReportable());
+
+					// flag is true since the applicability exists
+					stmt.setBoolean(6, true);
 
-			stmt.executeBatch();
+					stmt.addBatch();
+				}
 
-			try (ResultSet rs = stmt.getGeneratedKeys();) {
-				if (rs != null) {
-					while (rs.next())
-						ids.add(rs.getInt(1));
+				stmt.executeBatch();
 
-					rs.close();
+				try (ResultSet rs = stmt.getGeneratedKeys();) {
+					if (rs != null) {
+						while (rs.next())
+							ids.add(rs.getInt(1));
+
+						rs.close();
+					}
 				}
+
+				stmt.close();
+
+				con.commit();
+				con.close();
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
 			}
 
-			stmt.close();
+			return ids;
+		} finally {
+			INSERT_TIMER.stop(start);
+		}
+	}
 
-			con.commit();
-			con.close();
+	/**
+	 * Stage the applicabilities for the bulk load
+	 * 
+	 * @param appls
+	 * @return an empty list, since the table has no generated ids
+	 * @throws UncheckedIOException if the staging file cannot be written, so
+	 *                              that the import fails
+	 */
+	private List<Integer> stage(Iterable<Applicability> appls) {
+
+		ArrayList<Integer> ids = new ArrayList<>();
+
+		try {
+
+			for (Applicability appl : appls) {
+
+				// the parent is null if it is the hierarchy
+				Integer parentId = null;
+				if (appl.getParentTerm() instanceof Term)
+					parentId = ((Term) appl.getParentTerm()).getId();
 
+				// flag is true since the applicability exists
+				bulkLoader.addRow(appl.getChild().getId(), appl.getHierarchy().getId(), parentId, appl.getOrder(),
+						appl.isReportable(), true);
+			}
+
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot stage applicabilities", e);
+		}
+
+		return ids;
+	}
+
+	@Override
+	public synchronized void startBulkLoad() throws IOException, SQLException {
+
+		if (!BulkLoader.isEmpty(catalogue, "PARENT_TERM"))
+			throw new SQLException("Cannot bulk load the applicabilities of " + catalogue + ", the table is not empty");
+
+		// the foreign keys are created again after the load
+		BulkLoader.dropForeignKeys(catalogue, "PARENT_TERM");
+
+		bulkLoader = new BulkLoader("PARENT_TERM", "TERM_ID", "HIERARCHY_ID", "PARENT_TERM_ID", "TERM_ORDER",
+				"TERM_REPORTABLE", "TERM_FLAG");
+	}
+
+	@Override
+	public synchronized void endBulkLoad() throws IOException, SQLException {
+
+		if (bulkLoader == null)
+			return;
+
+		BulkLoader loader = bulkLoader;
+		bulkLoader = null;
+
+		try {
+			loader.load(catalogue);
+		} finally {
+			BulkLoader.addForeignKeys(catalogue, FOREIGN_KEYS);
+		}
+	}
+
+	@Override
+	public synchronized void cancelBulkLoad() {
+
+		if (bulkLoader == null)
+			return;
+
+		bulkLoader.cancel();
+		bulkLoader = null;
+
+		try {
+			BulkLoader.addForeignKeys(catalogue, FOREIGN_KEYS);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			LOGGER.error("DB error", e);
 		}
-
-		return ids;
 	}
 
 	/**
@@ -143,38 +262,46 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public boolean remove(Hierarchy hierarchy, Nameable parent, Term child) {
 
-		String query = null;
+		long start = REMOVE_TIMER.start();
 
-		// remove the relationships between the parent term in the hierarchy
-		if (parent instanceof Term) // if we have a term we search a parent id
-			query = "delete from APP.PARENT_TERM where HIERARCHY_ID = ? and TERM_ID = ? and PARENT_TERM_ID = ?";
-		else // if we have a hierarchy as parent we search where id = null
-			query = "delete from APP.PARENT_TERM where HIERARCHY_ID = ? and TERM_ID = ? and PARENT_TERM_ID is null";
+		try {
+			String query = null;
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+			// remove the relationships between the parent term in the hierarchy
+			if (parent instanceof Term) // if we have a term we search a parent id
+				query = "delete from APP.PARENT_TERM where HIERARCHY_ID = ? and TERM_ID = ? and PARENT_TERM_ID = ?";
+			else // if we have a hierarchy as parent we search where id = null
+				query = "delete from APP.PARENT_TERM where HIERARCHY_ID = ? and TERM_ID = ? and PARENT_TERM_ID is null";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			stmt.setInt(1, hierarchy.getId());
-			stmt.setInt(2, child.getId());
+				stmt.clearParameters();
 
-			// if we have a parent term get its id, otherwise we check where it is null
-			if (parent instanceof Term)
-				stmt.setInt(3, ((Term) parent).getId());
+				stmt.setInt(1, hierarchy.getId());
+				stmt.setInt(2, child.getId());
 
-			stmt.executeUpdate();
+				// if we have a parent term get its id, otherwise we check where it is null
+				if (parent instanceof Term)
+					stmt.setInt(3, ((Term) parent).getId());
 
-			stmt.close();
-			con.close();
+				stmt.executeUpdate();
 
-			return true;
+				stmt.close();
+				con.close();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-		}
+				CatalogueSchema.increaseDataVersion(catalogue);
 
-		return false;
+				return true;
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+
+			return false;
+		} finally {
+			REMOVE_TIMER.stop(start);
+		}
 	}
 
 	/**
@@ -197,39 +324,47 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public boolean update(Hierarchy hierarchy, Nameable parentTerm, Term term, int order, boolean reportable) {
 
-		String query = "update APP.PARENT_TERM P set TERM_REPORTABLE = ?, "
-				+ "PARENT_TERM_ID = ?, TERM_ORDER = ? where HIERARCHY_ID = ? and TERM_ID = ?";
+		long start = UPDATE_TIMER.start();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			String query = "update APP.PARENT_TERM P set TERM_REPORTABLE = ?, "
+					+ "PARENT_TERM_ID = ?, TERM_ORDER = ? where HIERARCHY_ID = ? and TERM_ID = ?";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+
+				stmt.clearParameters();
 
-			// set if the term is reportable in the selected hierarchy
-			stmt.setBoolean(1, reportable);
+				// set if the term is reportable in the selected hierarchy
+				stmt.setBoolean(1, reportable);
 
-			if (parentTerm instanceof Hierarchy) {
-				stmt.setNull(2, java.sql.Types.INTEGER);
-			} else {
-				Term parent = (Term) parentTerm;
-				stmt.setInt(2, parent.getId());
-			}
-			stmt.setInt(3, order);
-			stmt.setInt(4, hierarchy.getId());
-			stmt.setInt(5, term.getId());
+				if (parentTerm instanceof Hierarchy) {
+					stmt.setNull(2, java.sql.Types.INTEGER);
+				} else {
+					Term parent = (Term) parentTerm;
+					stmt.setInt(2, parent.getId());
+				}
+				stmt.setInt(3, order);
+				stmt.setInt(4, hierarchy.getId());
+				stmt.setInt(5, term.getId());
 
-			stmt.executeUpdate();
+				stmt.executeUpdate();
 
-			stmt.close();
-			con.close();
+				stmt.close();
+				con.close();
 
-			return true;
+				CatalogueSchema.increaseDataVersion(catalogue);
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-		}
+				return true;
 
-		return false;
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+
+			return false;
+		} finally {
+			UPDATE_TIMER.stop(start);
+		}
 	}
 
 	/**
@@ -275,41 +410,47 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public Collection<Applicability> getAll() {
 
-		ArrayList<Applicability> appls = new ArrayList<>();
+		long start = GET_ALL_TIMER.start();
 
-		// get all the parent terms and hierarchies ( we join with term to retrieve the
-		// parent
-		// term information )
-		// Note that we use a left join in order to maintain also terms which does not
-		// have
-		// a parent (i.e. parent_term_id = null)!
-		// These terms will refer directly to the hierarchy they belong to (as parent)
-		String query = "select * from APP.PARENT_TERM P left join APP.TERM T on P.PARENT_TERM_ID = T.TERM_ID";
+		try {
+			ArrayList<Applicability> appls = new ArrayList<>();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+			// get all the parent terms and hierarchies ( we join with term to retrieve the
+			// parent
+			// term information )
+			// Note that we use a left join in order to maintain also terms which does not
+			// have
+			// a parent (i.e. parent_term_id = null)!
+			// These terms will refer directly to the hierarchy they belong to (as parent)
+			String query = "select * from APP.PARENT_TERM P left join APP.TERM T on P.PARENT_TERM_ID = T.TERM_ID";
 
-			stmt.setFetchSize(200);
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			try (ResultSet rs = stmt.executeQuery();) {
+				stmt.setFetchSize(200);
 
-				// analyze results
-				while (rs.next()) {
-					Applicability appl = getByResultSet(rs);
-					appls.add(appl);
+				try (ResultSet rs = stmt.executeQuery();) {
+
+					// analyze results
+					while (rs.next()) {
+						Applicability appl = getByResultSet(rs);
+						appls.add(appl);
+					}
+
+					rs.close();
 				}
 
-				rs.close();
-			}
+				stmt.close();
+				con.close();
 
-			stmt.close();
-			con.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+			return appls;
+		} finally {
+			GET_ALL_TIMER.stop(start);
 		}
-
-		return appls;
 	}
 
 	/**
@@ -321,26 +462,40 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public boolean removeByA2(Hierarchy hierarchy) {
 
-		// remove the relationships between the terms and the hierarchy
-		String query = "delete from APP.PARENT_TERM where HIERARCHY_ID = ?";
+		long start = REMOVE_BY_HIERARCHY_TIMER.start();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			// remove the relationships between the terms and the hierarchy
+			String query = "delete from APP.PARENT_TERM where HIERARCHY_ID = ?";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			stmt.setInt(1, hierarchy.getId());
+				stmt.clearParameters();
 
-			stmt.executeUpdate();
+				stmt.setInt(1, hierarchy.getId());
 
-			stmt.close();
-			con.close();
+				stmt.executeUpdate();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-			return false;
+				stmt.close();
+				con.close();
+
+				CatalogueSchema.increaseDataVersion(catalogue);
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+				return false;
+			}
+
+			// remove also the in memory relationships
+			catalogue.getApplicabilityIndex().remove(hierarchy);
+			catalogue.getInheritedFacetsCache().clear();
+			catalogue.getHierarchyCodeCache().remove(hierarchy);
+
+			return true;
+		} finally {
+			REMOVE_BY_HIERARCHY_TIMER.stop(start);
 		}
-		return true;
 	}
 
 	/**
@@ -351,7 +506,14 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public ArrayList<Term> getFirstLevelNodes(Hierarchy hierarchy, boolean hideDeprecatedTerms,
 			boolean hideNonReportableTerms) {
-		return getChildren(null, hierarchy, hideDeprecatedTerms, hideNonReportableTerms);
+
+		long start = FIRST_LEVEL_TIMER.start();
+
+		try {
+			return getChildren(null, hierarchy, hideDeprecatedTerms, hideNonReportableTerms);
+		} finally {
+			FIRST_LEVEL_TIMER.stop(start);
+		}
 	}
 
 	/**
@@ -361,12 +523,57 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 * non reportable terms which have only non reportable children (considering the
 	 * entire subtree).
 	 * 
+	 * The children are retrieved from the in memory index of the catalogue if it
+	 * was already built, otherwise from the database.
+	 * 
 	 * @param t
 	 * @param hierarchy
 	 * @return
 	 */
 	public ArrayList<Term> getChildren(Nameable t, Hierarchy hierarchy, boolean hideDeprecated, boolean hideDismissed) {
 
+		long start = CHILDREN_TIMER.start();
+
+		try {
+			ApplicabilityIndex index = catalogue.getApplicabilityIndex();
+
+			if (!index.isBuilt())
+				return getChildrenFromDB(t, hierarchy, hideDeprecated, hideDismissed);
+
+			// output list
+			ArrayList<Term> children = new ArrayList<Term>();
+
+			for (Term child : index.getChildren(t, hierarchy)) {
+
+				// skip deprecated terms if required
+				if (hideDeprecated && child.isDeprecated())
+					continue;
+
+				// skip terms which are not reportable and have not reportable
+				// children if required
+				if (hideDismissed && child.isDismissed(hierarchy))
+					continue;
+
+				children.add(child);
+			}
+
+			return children;
+		} finally {
+			CHILDREN_TIMER.stop(start);
+		}
+	}
+
+	/**
+	 * Get all the children of the term in the chosen hierarchy querying the
+	 * database. See {@link #getChildren(Nameable, Hierarchy, boolean, boolean)}
+	 * 
+	 * @param t
+	 * @param hierarchy
+	 * @return
+	 */
+	private ArrayList<Term> getChildrenFromDB(Nameable t, Hierarchy hierarchy, boolean hideDeprecated,
+			boolean hideDismissed) {
+
 		// output list
 		ArrayList<Term> children = new ArrayList<Term>();
 
@@ -451,47 +658,53 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public int getMaxOrder(Nameable parent, Hierarchy hierarchy) {
 
-		// output, default is zero
-		int maxOrder = 0;
+		long start = MAX_ORDER_TIMER.start();
 
-		String query = " select max(TERM_ORDER) as MAX_ORDER from APP.PARENT_TERM " + "where HIERARCHY_ID = ? and ";
+		try {
+			// output, default is zero
+			int maxOrder = 0;
 
-		// if parent is a term set its id
-		if (parent instanceof Term)
-			query = query + "PARENT_TERM_ID = ?";
-		else // otherwise it is null
-			query = query + "PARENT_TERM_ID is null";
+			String query = " select max(TERM_ORDER) as MAX_ORDER from APP.PARENT_TERM " + "where HIERARCHY_ID = ? and ";
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+			// if parent is a term set its id
+			if (parent instanceof Term)
+				query = query + "PARENT_TERM_ID = ?";
+			else // otherwise it is null
+				query = query + "PARENT_TERM_ID is null";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			// Create a new record with the term and its parent in the selected hierarchy
-			stmt.setInt(1, hierarchy.getId());
+				stmt.clearParameters();
 
-			// if parent is a term set its id
-			if (parent instanceof Term)
-				stmt.setInt(2, ((Term) parent).getId());
+				// Create a new record with the term and its parent in the selected hierarchy
+				stmt.setInt(1, hierarchy.getId());
 
-			try (ResultSet rs = stmt.executeQuery();) {
+				// if parent is a term set its id
+				if (parent instanceof Term)
+					stmt.setInt(2, ((Term) parent).getId());
 
-				// Get the max order
-				if (rs.next())
-					maxOrder = rs.getInt("MAX_ORDER");
+				try (ResultSet rs = stmt.executeQuery();) {
 
-				rs.close();
-			}
+					// Get the max order
+					if (rs.next())
+						maxOrder = rs.getInt("MAX_ORDER");
 
-			stmt.close();
-			con.close();
+					rs.close();
+				}
+
+				stmt.close();
+				con.close();
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+				return maxOrder;
+			}
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
 			return maxOrder;
+		} finally {
+			MAX_ORDER_TIMER.stop(start);
 		}
-
-		return maxOrder;
 	}
 
 	/**
@@ -517,34 +730,42 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public void shiftTerms(ArrayList<Term> sources, Hierarchy hierarchy, int offset) {
 
-		String query = "update APP.PARENT_TERM P set P.TERM_ORDER = P.TERM_ORDER + ? "
-				+ "where P.TERM_ID = ? and P.HIERARCHY_ID = ?";
+		long start = SHIFT_TIMER.start();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			String query = "update APP.PARENT_TERM P set P.TERM_ORDER = P.TERM_ORDER + ? "
+					+ "where P.TERM_ID = ? and P.HIERARCHY_ID = ?";
 
-			// for each source term we add an offset to their order
-			for (Term source : sources) {
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-				stmt.clearParameters();
+				// for each source term we add an offset to their order
+				for (Term source : sources) {
 
-				// prepare the parameters of the query
-				stmt.setInt(1, offset);
-				stmt.setInt(2, source.getId());
-				stmt.setInt(3, hierarchy.getId());
+					stmt.clearParameters();
 
-				// add the batch
-				stmt.addBatch();
-			}
+					// prepare the parameters of the query
+					stmt.setInt(1, offset);
+					stmt.setInt(2, source.getId());
+					stmt.setInt(3, hierarchy.getId());
 
-			// execute update
-			stmt.executeBatch();
+					// add the batch
+					stmt.addBatch();
+				}
 
-			stmt.close();
-			con.close();
+				// execute update
+				stmt.executeBatch();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+				stmt.close();
+				con.close();
+
+				CatalogueSchema.increaseDataVersion(catalogue);
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+		} finally {
+			SHIFT_TIMER.stop(start);
 		}
 	}
 
@@ -557,26 +778,34 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public void updateTermOrder(Term term, Hierarchy hierarchy, int order) {
 
-		String query = "UPDATE APP.PARENT_TERM set TERM_ORDER = ? where TERM_ID = ? and HIERARCHY_ID = ? ";
+		long start = UPDATE_ORDER_TIMER.start();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			String query = "UPDATE APP.PARENT_TERM set TERM_ORDER = ? where TERM_ID = ? and HIERARCHY_ID = ? ";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+
+				stmt.clearParameters();
 
-			// set the order
-			stmt.setInt(1, order);
-			stmt.setInt(2, term.getId());
-			stmt.setInt(3, hierarchy.getId());
+				// set the order
+				stmt.setInt(1, order);
+				stmt.setInt(2, term.getId());
+				stmt.setInt(3, hierarchy.getId());
 
-			// execute query
-			stmt.executeUpdate();
+				// execute query
+				stmt.executeUpdate();
 
-			stmt.close();
-			con.close();
+				stmt.close();
+				con.close();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+				CatalogueSchema.increaseDataVersion(catalogue);
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+		} finally {
+			UPDATE_ORDER_TIMER.stop(start);
 		}
 	}
 
@@ -589,35 +818,43 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public void addOrderOffset(Term parent, Hierarchy hierarchy, String operator, int childOrder, int offset) {
 
-		String query = "UPDATE APP.PARENT_TERM " + "set TERM_ORDER = TERM_ORDER + ? "
-				+ "where PARENT_TERM_ID = ? and HIERARCHY_ID = ? ";
+		long start = ORDER_OFFSET_TIMER.start();
 
-		query = query + "and TERM_ORDER " + operator + " ? ";
+		try {
+			String query = "UPDATE APP.PARENT_TERM " + "set TERM_ORDER = TERM_ORDER + ? "
+					+ "where PARENT_TERM_ID = ? and HIERARCHY_ID = ? ";
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+			query = query + "and TERM_ORDER " + operator + " ? ";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			// set the order offset
-			stmt.setInt(1, offset);
+				stmt.clearParameters();
 
-			if (parent != null)
-				stmt.setInt(2, parent.getId());
-			else // otherwise null
-				stmt.setNull(2, java.sql.Types.INTEGER);
+				// set the order offset
+				stmt.setInt(1, offset);
 
-			stmt.setInt(3, hierarchy.getId());
-			stmt.setInt(4, childOrder);
+				if (parent != null)
+					stmt.setInt(2, parent.getId());
+				else // otherwise null
+					stmt.setNull(2, java.sql.Types.INTEGER);
 
-			// execute query
-			stmt.executeUpdate();
+				stmt.setInt(3, hierarchy.getId());
+				stmt.setInt(4, childOrder);
 
-			stmt.close();
-			con.close();
+				// execute query
+				stmt.executeUpdate();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+				stmt.close();
+				con.close();
+
+				CatalogueSchema.increaseDataVersion(catalogue);
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+		} finally {
+			ORDER_OFFSET_TIMER.stop(start);
 		}
 	}
 
@@ -630,35 +867,106 @@ public class ParentTermDAO implements CatalogueRelationDAO<Applicability, Term,
 	 */
 	public void swapTermOrder(Term source, Term target, Hierarchy hierarchy) {
 
-		String query = "update APP.PARENT_TERM P set P.TERM_ORDER = ? " + "where P.TERM_ID = ? and P.HIERARCHY_ID = ?";
+		long start = SWAP_ORDER_TIMER.start();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			String query = "update APP.PARENT_TERM P set P.TERM_ORDER = ? " + "where P.TERM_ID = ? and P.HIERARCHY_ID = ?";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			// set the target order as the source order
-			stmt.setInt(1, source.getOrder(hierarchy));
-			stmt.setInt(2, target.getId());
-			stmt.setInt(3, hierarchy.getId());
+				stmt.clearParameters();
 
-			stmt.addBatch();
+				// set the target order as the source order
+				stmt.setInt(1, source.getOrder(hierarchy));
+				stmt.setInt(2, target.getId());
+				stmt.setInt(3, hierarchy.getId());
 
-			// set the source order as the target order
-			stmt.setInt(1, target.getOrder(hierarchy));
-			stmt.setInt(2, source.getId());
-			stmt.setInt(3, hierarchy.getId());
+				stmt.addBatch();
 
-			stmt.addBatch();
+				// set the source order as the target order
+				stmt.setInt(1, target.getOrder(hierarchy));
+				stmt.setInt(2, source.getId());
+				stmt.setInt(3, hierarchy.getId());
 
-			// execute update
-			stmt.executeBatch();
+				stmt.addBatch();
 
-			stmt.close();
-			con.close();
+				// execute update
+				stmt.executeBatch();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+				stmt.close();
+				con.close();
+
+				CatalogueSchema.increaseDataVersion(catalogue);
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+		} finally {
+			SWAP_ORDER_TIMER.stop(start);
+		}
+	}
+
+	/**
+	 * Save the parents and the orders of several applicabilities with a single
+	 * batch, in one transaction. If an update fails, none of them is saved.
+	 * 
+	 * @param appls
+	 * @return true if all the applicabilities were saved
+	 */
+	public boolean updateOrders(Collection<Applicability> appls) {
+
+		long start = UPDATE_ORDERS_TIMER.start();
+
+		try {
+			String query = "update APP.PARENT_TERM P set PARENT_TERM_ID = ?, TERM_ORDER = ? "
+					+ "where HIERARCHY_ID = ? and TERM_ID = ?";
+
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+
+				con.setAutoCommit(false);
+
+				try {
+
+					for (Applicability appl : appls) {
+
+						stmt.clearParameters();
+
+						if (appl.getParentTerm() instanceof Term)
+							stmt.setInt(1, ((Term) appl.getParentTerm()).getId());
+						else
+							stmt.setNull(1, java.sql.Types.INTEGER);
+
+						stmt.setInt(2, appl.getOrder());
+						stmt.setInt(3, appl.getHierarchy().getId());
+						stmt.setInt(4, appl.getChild().getId());
+
+						stmt.addBatch();
+					}
+
+					stmt.executeBatch();
+
+					con.commit();
+
+					CatalogueSchema.increaseDataVersion(catalogue);
+
+				} catch (SQLException e) {
+					con.rollback();
+					throw e;
+				} finally {
+					con.setAutoCommit(true);
+				}
+
+				return true;
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+
+			return false;
+		} finally {
+			UPDATE_ORDERS_TIMER.stop(start);
 		}
 	}
 
@@ -1,5 +1,7 @@
 package catalogue_browser_dao;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -16,6 +18,8 @@ import catalogue.Catalogue;
 import catalogue_object.Attribute;
 import catalogue_object.Term;
 import catalogue_object.TermAttribute;
+import metrics.Metrics;
+import metrics.Timer;
 
 /**
  * Class to manage all the database interactions with the term attributes table.
@@ -27,12 +31,28 @@ import catalogue_object.TermAttribute;
  * @author shahaal
  *
  */
-public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Term, Attribute> {
+public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Term, Attribute>, BulkLoadDAO {
 
 	private static final Logger LOGGER = LogManager.getLogger(TermAttributeDAO.class);
 
+	private static final Timer INSERT_TIMER = Metrics.timer("TermAttributeDAO.insert");
+	private static final Timer UPDATE_TIMER = Metrics.timer("TermAttributeDAO.update");
+	private static final Timer GET_ALL_TIMER = Metrics.timer("TermAttributeDAO.getAll");
+	private static final Timer GET_BY_TERM_TIMER = Metrics.timer("TermAttributeDAO.getByA1");
+	private static final Timer REMOVE_BY_TERM_TIMER = Metrics.timer("TermAttributeDAO.removeByA1");
+	private static final Timer REMOVE_BY_ATTRIBUTE_TIMER = Metrics.timer("TermAttributeDAO.removeByA2");
+	private static final Timer UPDATE_BY_TERM_TIMER = Metrics.timer("TermAttributeDAO.updateByA1");
+
+	// foreign keys of the table, as defined in createCatalogueDB
+	private static final String[] FOREIGN_KEYS = {
+			"alter table APP.TERM_ATTRIBUTE add foreign key ( TERM_ID ) references APP.TERM ( TERM_ID )",
+			"alter table APP.TERM_ATTRIBUTE add foreign key ( ATTR_ID ) references APP.ATTRIBUTE ( ATTR_ID )" };
+
 	private Catalogue catalogue;
 
+	// not null while the term attributes are staged for a bulk load
+	private BulkLoader bulkLoader;
+
 	/**
 	 * Initialize the dao with the catalogue to be interrogated
 	 * 
@@ -54,6 +74,8 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 		tas.add(ta);
 		List<Integer> ids = insert(tas);
 
+		CatalogueSchema.increaseDataVersion(catalogue);
+
 		if (ids.isEmpty())
 			return -1;
 
@@ -62,57 +84,144 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 
 	public synchronized List<Integer> insert(Iterable<TermAttribute> tas) {
 
-		ArrayList<Integer> ids = new ArrayList<>();
+		long start = INSERT_TIMER.start();
 
-		// create the base query for each record
-		String query = "INSERT INTO APP.TERM_ATTRIBUTE (TERM_ID, ATTR_ID, " + "ATTR_VALUE ) VALUES (" + "?, ?, ? )";
+		try {
+			if (bulkLoader != null)
+				return stage(tas);
 
-		try (Connection con = catalogue.getConnection();
-				PreparedStatement stmt = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);) {
+			ArrayList<Integer> ids = new ArrayList<>();
 
-			con.setAutoCommit(false);
+			// create the base query for each record
+			String query = "INSERT INTO APP.TERM_ATTRIBUTE (TERM_ID, ATTR_ID, " + "ATTR_VALUE ) VALUES (" + "?, ?, ? )";
 
-			// get the records one by one and insert them into the database
-			for (TermAttribute ta : tas) {
+			try (Connection con = catalogue.getConnection();
+					PreparedStatement stmt = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);) {
 
-				// set the term id
-				stmt.setInt(1, ta.getTerm().getId());
+				con.setAutoCommit(false);
 
-				// set the attribute id
-				stmt.setInt(2, ta.getAttribute().getId());
+				// get the records one by one and insert them into the database
+				for (TermAttribute ta : tas) {
 
-				// set the value parameter
-				stmt.setString(3, ta.getValue());
+					// set the term id
+					stmt.setInt(1, ta.getTerm().getId());
 
-				// add the record to the batch
-				stmt.addBatch();
-			}
+					// set the attribute id
+					stmt.setInt(2, ta.getAttribute().getId());
 
-			// execute the batch of insertions
-			stmt.executeBatch();
+					// set the value parameter
+					stmt.setString(3, ta.getValue());
 
-			// get all the ids
-			try (ResultSet rs = stmt.getGeneratedKeys();) {
+					// add the record to the batch
+					stmt.addBatch();
+				}
 
-				if (rs != null) {
-					while (rs.next())
-						ids.add(rs.getInt(1));
+				// execute the batch of insertions
+				stmt.executeBatch();
 
-					rs.close();
+				// get all the ids
+				try (ResultSet rs = stmt.getGeneratedKeys();) {
+
+					if (rs != null) {
+						while (rs.next())
+							ids.add(rs.getInt(1));
+
+						rs.close();
+					}
 				}
+
+				stmt.close();
+
+				con.commit();
+				con.close();
+
+				// add the new values to the search index
+				for (TermAttribute ta : tas)
+					catalogue.getSearchIndex().insert(ta);
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
 			}
 
-			stmt.close();
+			return ids;
+		} finally {
+			INSERT_TIMER.stop(start);
+		}
+	}
+
+	/**
+	 * Stage the term attributes for the bulk load
+	 * 
+	 * @param tas
+	 * @return the ids which the term attributes will have in the database
+	 * @throws UncheckedIOException if the staging file cannot be written, so
+	 *                              that the import fails
+	 */
+	private List<Integer> stage(Iterable<TermAttribute> tas) {
 
-			con.commit();
-			con.close();
+		ArrayList<Integer> ids = new ArrayList<>();
 
+		try {
+
+			for (TermAttribute ta : tas) {
+
+				bulkLoader.addRow(ta.getTerm().getId(), ta.getAttribute().getId(), ta.getValue());
+
+				// the ids are generated following the order of the file
+				ids.add(bulkLoader.getRowCount());
+			}
+
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot stage term attributes", e);
+		}
+
+		return ids;
+	}
+
+	@Override
+	public synchronized void startBulkLoad() throws IOException, SQLException {
+
+		if (!BulkLoader.isEmpty(catalogue, "TERM_ATTRIBUTE"))
+			throw new SQLException("Cannot bulk load the term attributes of " + catalogue + ", the table is not empty");
+
+		// the foreign keys are created again after the load
+		BulkLoader.dropForeignKeys(catalogue, "TERM_ATTRIBUTE");
+
+		bulkLoader = new BulkLoader("TERM_ATTRIBUTE", "TERM_ID", "ATTR_ID", "ATTR_VALUE");
+	}
+
+	@Override
+	public synchronized void endBulkLoad() throws IOException, SQLException {
+
+		if (bulkLoader == null)
+			return;
+
+		BulkLoader loader = bulkLoader;
+		bulkLoader = null;
+
+		try {
+			loader.load(catalogue);
+		} finally {
+			BulkLoader.addForeignKeys(catalogue, FOREIGN_KEYS);
+		}
+	}
+
+	@Override
+	public synchronized void cancelBulkLoad() {
+
+		if (bulkLoader == null)
+			return;
+
+		bulkLoader.cancel();
+		bulkLoader = null;
+
+		try {
+			BulkLoader.addForeignKeys(catalogue, FOREIGN_KEYS);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			LOGGER.error("DB error", e);
 		}
-
-		return ids;
 	}
 
 	@Override
@@ -129,30 +238,42 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 	 */
 	public boolean update(TermAttribute ta) {
 
-		// get all the hierarchies
-		String query = "update APP.TERM_ATTRIBUTE set ATTR_VALUE = ? where ATTR_ID = ? and TERM_ID = ?";
+		long start = UPDATE_TIMER.start();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			// get all the hierarchies
+			String query = "update APP.TERM_ATTRIBUTE set ATTR_VALUE = ? where ATTR_ID = ? and TERM_ID = ?";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			stmt.setString(1, ta.getValue());
-			stmt.setInt(2, ta.getAttribute().getId());
-			stmt.setInt(3, ta.getTerm().getId());
+				stmt.clearParameters();
 
-			stmt.executeUpdate();
+				stmt.setString(1, ta.getValue());
+				stmt.setInt(2, ta.getAttribute().getId());
+				stmt.setInt(3, ta.getTerm().getId());
 
-			stmt.close();
-			con.close();
+				stmt.executeUpdate();
 
-			return true;
+				stmt.close();
+				con.close();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-		}
+				CatalogueSchema.increaseDataVersion(catalogue);
+
+				// the picklist terms are indexed with the implicit facets of their base term
+				if (ta.getAttribute().isAllFacet())
+					catalogue.getPicklistIndex().invalidate(ta.getTerm());
 
-		return false;
+				return true;
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+
+			return false;
+		} finally {
+			UPDATE_TIMER.stop(start);
+		}
 	}
 
 	@Override
@@ -168,36 +289,42 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 	 */
 	public ArrayList<TermAttribute> getAll() {
 
-		ArrayList<TermAttribute> tas = new ArrayList<>();
+		long start = GET_ALL_TIMER.start();
 
-		// get all the parent terms and hierarchies
-		String query = "select * from APP.ATTRIBUTE A inner join APP.TERM_ATTRIBUTE TA on A.ATTR_ID = TA.ATTR_ID";
+		try {
+			ArrayList<TermAttribute> tas = new ArrayList<>();
 
-		try (Connection con = catalogue.getConnection();
-				PreparedStatement stmt = con.prepareStatement(query)) {
+			// get all the parent terms and hierarchies
+			String query = "select * from APP.ATTRIBUTE A inner join APP.TERM_ATTRIBUTE TA on A.ATTR_ID = TA.ATTR_ID";
 
-			stmt.setFetchSize(200);
+			try (Connection con = catalogue.getConnection();
+					PreparedStatement stmt = con.prepareStatement(query)) {
+
+				stmt.setFetchSize(200);
 			
-			ResultSet rs = stmt.executeQuery();
+				ResultSet rs = stmt.executeQuery();
 			
-			while (rs.next()) {
+				while (rs.next()) {
 
-				// create the term attribute object
-				TermAttribute ta = getByResultSet(rs);
+					// create the term attribute object
+					TermAttribute ta = getByResultSet(rs);
 
-				tas.add(ta);
-			}
+					tas.add(ta);
+				}
 
-			rs.close();
-			stmt.close();
-			con.close();
+				rs.close();
+				stmt.close();
+				con.close();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-		}
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
 
-		return tas;
+			return tas;
+		} finally {
+			GET_ALL_TIMER.stop(start);
+		}
 	}
 
 	/**
@@ -208,54 +335,60 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 	 */
 	public ArrayList<TermAttribute> getByA1(Term term) {
 
-		ArrayList<TermAttribute> attributes = new ArrayList<>();
+		long start = GET_BY_TERM_TIMER.start();
 
-		// get the term with id = the input term id
-		String query = "select A.*, TA.TERM_ATTR_ID, TA.ATTR_VALUE  " + "from APP.TERM_ATTRIBUTE TA "
-				+ "inner join APP.ATTRIBUTE A on TA.ATTR_ID = A.ATTR_ID " + "where TA.TERM_ID = ?";
+		try {
+			ArrayList<TermAttribute> attributes = new ArrayList<>();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+			// get the term with id = the input term id
+			String query = "select A.*, TA.TERM_ATTR_ID, TA.ATTR_VALUE  " + "from APP.TERM_ATTRIBUTE TA "
+					+ "inner join APP.ATTRIBUTE A on TA.ATTR_ID = A.ATTR_ID " + "where TA.TERM_ID = ?";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			stmt.setInt(1, term.getId());
+				stmt.clearParameters();
 
-			// get the results
-			try (ResultSet rs = stmt.executeQuery()) {
+				stmt.setInt(1, term.getId());
 
-				AttributeDAO attrDao = new AttributeDAO(catalogue);
+				// get the results
+				try (ResultSet rs = stmt.executeQuery()) {
 
-				while (rs.next()) {
+					AttributeDAO attrDao = new AttributeDAO(catalogue);
+
+					while (rs.next()) {
+
+						// get the attribute
+						Attribute attribute = attrDao.getByResultSet(rs);
 
-					// get the attribute
-					Attribute attribute = attrDao.getByResultSet(rs);
+						// get the term attribute id
+						int id = rs.getInt("TERM_ATTR_ID");
 
-					// get the term attribute id
-					int id = rs.getInt("TERM_ATTR_ID");
+						// get the attribute value
+						String value = rs.getString("ATTR_VALUE");
 
-					// get the attribute value
-					String value = rs.getString("ATTR_VALUE");
+						// create the term attribute with attribute and value
+						TermAttribute attr = new TermAttribute(id, term, attribute, value);
 
-					// create the term attribute with attribute and value
-					TermAttribute attr = new TermAttribute(id, term, attribute, value);
+						// add the attribute
+						attributes.add(attr);
+					}
+
+					rs.close();
 
-					// add the attribute
-					attributes.add(attr);
 				}
 
-				rs.close();
+				stmt.close();
+				con.close();
 
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
 			}
 
-			stmt.close();
-			con.close();
-
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+			return attributes;
+		} finally {
+			GET_BY_TERM_TIMER.stop(start);
 		}
-
-		return attributes;
 	}
 
 	@Override
@@ -273,28 +406,36 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 	 */
 	public boolean removeByA1(Term term) {
 
-		// create insert query
-		String query = "delete from APP.TERM_ATTRIBUTE where TERM_ID = ?";
+		long start = REMOVE_BY_TERM_TIMER.start();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			// create insert query
+			String query = "delete from APP.TERM_ATTRIBUTE where TERM_ID = ?";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			stmt.setInt(1, term.getId());
+				stmt.clearParameters();
 
-			// remove all the term attributes related to that term
-			stmt.executeUpdate();
+				stmt.setInt(1, term.getId());
 
-			stmt.close();
-			con.close();
+				// remove all the term attributes related to that term
+				stmt.executeUpdate();
 
-			return true;
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-		}
+				stmt.close();
+				con.close();
+
+				CatalogueSchema.increaseDataVersion(catalogue);
+
+				return true;
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
 
-		return false;
+			return false;
+		} finally {
+			REMOVE_BY_TERM_TIMER.stop(start);
+		}
 	}
 
 	/**
@@ -307,28 +448,36 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 	 */
 	public boolean removeByA2(Attribute attribute) {
 
-		// create insert query
-		String query = "delete from APP.TERM_ATTRIBUTE where ATTR_ID = ?";
+		long start = REMOVE_BY_ATTRIBUTE_TIMER.start();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			// create insert query
+			String query = "delete from APP.TERM_ATTRIBUTE where ATTR_ID = ?";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			stmt.setInt(1, attribute.getId());
+				stmt.clearParameters();
 
-			// remove all the term attributes related to that term
-			stmt.executeUpdate();
+				stmt.setInt(1, attribute.getId());
 
-			stmt.close();
-			con.close();
+				// remove all the term attributes related to that term
+				stmt.executeUpdate();
 
-			return true;
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-		}
+				stmt.close();
+				con.close();
 
-		return false;
+				CatalogueSchema.increaseDataVersion(catalogue);
+
+				return true;
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+
+			return false;
+		} finally {
+			REMOVE_BY_ATTRIBUTE_TIMER.stop(start);
+		}
 	}
 
 	/**
@@ -339,46 +488,61 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 	 */
 	public boolean updateByA1(Term term) {
 
-		// get the compacted term attributes
-		ArrayList<TermAttribute> attrs = term.getAttributes();
+		long start = UPDATE_BY_TERM_TIMER.start();
+
+		try {
+			// get the compacted term attributes
+			ArrayList<TermAttribute> attrs = term.getAttributes();
 
-		String query = "insert into APP.TERM_ATTRIBUTE (TERM_ID, ATTR_ID, ATTR_VALUE) values (?, ?, ?)";
+			String query = "insert into APP.TERM_ATTRIBUTE (TERM_ID, ATTR_ID, ATTR_VALUE) values (?, ?, ?)";
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			// remove all the term attributes to refresh them
-			removeByA1(term);
+				// remove all the term attributes to refresh them
+				removeByA1(term);
 			
-			// for each attribute create a batch update
-			for (TermAttribute ta : attrs) {
+				// for each attribute create a batch update
+				for (TermAttribute ta : attrs) {
 
-				// set the parameters
-				stmt.setInt(1, term.getId());
+					// set the parameters
+					stmt.setInt(1, term.getId());
 				
-				stmt.setInt(2, ta.getAttribute().getId());
+					stmt.setInt(2, ta.getAttribute().getId());
 
-				// set the value
-				stmt.setString(3, ta.getValue());
+					// set the value
+					stmt.setString(3, ta.getValue());
 
-				// add the query as batch update
-				stmt.addBatch();
-			}
+					// add the query as batch update
+					stmt.addBatch();
+				}
 
-			// execute the batch update
-			stmt.executeBatch();
+				// execute the batch update
+				stmt.executeBatch();
 
-			stmt.close();
+				stmt.close();
 
-			// close the connection
-			con.close();
+				// close the connection
+				con.close();
 
-			return true;
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-		}
+				CatalogueSchema.increaseDataVersion(catalogue);
+
+				// refresh the attributes values in the search index
+				catalogue.getSearchIndex().update(term);
 
-		return false;
+				// the implicit facets could be changed
+				catalogue.getInheritedFacetsCache().invalidate(term);
+				catalogue.getPicklistIndex().invalidate(term);
+
+				return true;
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+
+			return false;
+		} finally {
+			UPDATE_BY_TERM_TIMER.stop(start);
+		}
 	}
 
 	/**
@@ -400,10 +564,15 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 	 */
 	public TermAttribute getByResultSet(ResultSet rs) throws SQLException {
 
-		AttributeDAO attrDao = new AttributeDAO(catalogue);
+		// use the attribute object of the catalogue if it was
+		// already loaded, in order to share it among the terms
+		Attribute attribute = catalogue.getAttributeById(rs.getInt("ATTR_ID"));
 
-		// get the attribute
-		Attribute attribute = attrDao.getByResultSet(rs);
+		// otherwise get the attribute from the result set
+		if (attribute == null) {
+			AttributeDAO attrDao = new AttributeDAO(catalogue);
+			attribute = attrDao.getByResultSet(rs);
+		}
 
 		// get the term from the hash map
 		Term term = catalogue.getTermById(rs.getInt("TERM_ID"));
@@ -411,8 +580,8 @@ public class TermAttributeDAO implements CatalogueRelationDAO<TermAttribute, Ter
 		// get the term attribute id
 		int id = rs.getInt("TERM_ATTR_ID");
 
-		// get the value of the attribute
-		String value = rs.getString("ATTR_VALUE");
+		// get the value of the attribute (shared if possible)
+		String value = catalogue.getAttributeValuePool().intern(attribute, rs.getString("ATTR_VALUE"));
 
 		// create the term attribute object
 		TermAttribute ta = new TermAttribute(id, term, attribute, value);
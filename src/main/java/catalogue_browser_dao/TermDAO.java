@@ -1,5 +1,7 @@
 package catalogue_browser_dao;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -10,7 +12,7 @@ import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
@@ -18,6 +20,8 @@ import org.apache.logging.log4j.Logger;
 
 import catalogue.Catalogue;
 import catalogue_object.Term;
+import metrics.Metrics;
+import metrics.Timer;
 
 /**
  * Class to manage all the databse interactions with the Term table.
@@ -26,12 +30,22 @@ import catalogue_object.Term;
  * @author shahaal
  *
  */
-public class TermDAO implements CatalogueEntityDAO<Term> {
+public class TermDAO implements CatalogueEntityDAO<Term>, BulkLoadDAO {
 
 	private static final Logger LOGGER = LogManager.getLogger(TermDAO.class);
 
+	private static final Timer INSERT_TIMER = Metrics.timer("TermDAO.insert");
+	private static final Timer UPDATE_TIMER = Metrics.timer("TermDAO.update");
+	private static final Timer FETCH_TERMS_TIMER = Metrics.timer("TermDAO.fetchTerms");
+	private static final Timer GET_BY_CODE_TIMER = Metrics.timer("TermDAO.getByCode");
+	private static final Timer GET_BY_NAME_TIMER = Metrics.timer("TermDAO.getByName");
+	private static final Timer NAME_UNIQUE_TIMER = Metrics.timer("TermDAO.isTermNameUnique");
+
 	private Catalogue catalogue;
 
+	// not null while the terms are staged for a bulk load
+	private BulkLoader bulkLoader;
+
 	/**
 	 * Initialize term dao with the catalogue we want to communicate with
 	 * 
@@ -57,7 +71,11 @@ public class TermDAO implements CatalogueEntityDAO<Term> {
 		List<Term> terms = new ArrayList<>();
 		terms.add(t);
 
-		return insert(terms).get(0);
+		int id = insert(terms).get(0);
+
+		CatalogueSchema.increaseDataVersion(catalogue);
+
+		return id;
 	}
 
 	/**
@@ -69,73 +87,159 @@ public class TermDAO implements CatalogueEntityDAO<Term> {
 	 */
 	public synchronized List<Integer> insert(Iterable<Term> terms) {
 
-		ArrayList<Integer> ids = new ArrayList<>();
+		long start = INSERT_TIMER.start();
 
-		String query = "insert into APP.TERM (TERM_CODE, TERM_EXTENDED_NAME, "
-				+ "TERM_SHORT_NAME, TERM_SCOPENOTE, TERM_DEPRECATED, TERM_LAST_UPDATE, "
-				+ "TERM_VALID_FROM, TERM_VALID_TO, TERM_STATUS, TERM_VERSION ) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ? )";
+		try {
+			// keep the highest codes up to date for the code generator
+			catalogue.getTermCodeTracker().add(terms);
 
-		try (Connection con = catalogue.getConnection();
-				PreparedStatement stmt = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);) {
+			if (bulkLoader != null)
+				return stage(terms);
 
-			con.setAutoCommit(false);
+			ArrayList<Integer> ids = new ArrayList<>();
 
-			for (Term t : terms) {
+			String query = "insert into APP.TERM (TERM_CODE, TERM_EXTENDED_NAME, "
+					+ "TERM_SHORT_NAME, TERM_SCOPENOTE, TERM_DEPRECATED, TERM_LAST_UPDATE, "
+					+ "TERM_VALID_FROM, TERM_VALID_TO, TERM_STATUS, TERM_VERSION ) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ? )";
 
-				stmt.clearParameters();
+			try (Connection con = catalogue.getConnection();
+					PreparedStatement stmt = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);) {
 
-				stmt.setString(1, t.getCode());
-				stmt.setString(2, t.getName());
-				stmt.setString(3, t.getShortName(false));
-				stmt.setString(4, t.getScopenotes());
-				stmt.setBoolean(5, t.isDeprecated());
+				con.setAutoCommit(false);
 
-				if (t.getLastUpdate() != null)
-					stmt.setTimestamp(6, t.getLastUpdate());
-				else
-					stmt.setNull(6, java.sql.Types.TIMESTAMP);
+				for (Term t : terms) {
 
-				if (t.getValidFrom() != null)
-					stmt.setTimestamp(7, t.getValidFrom());
-				else
-					stmt.setNull(7, java.sql.Types.TIMESTAMP);
+					stmt.clearParameters();
 
-				if (t.getValidTo() != null)
-					stmt.setTimestamp(8, t.getValidTo());
-				else
-					stmt.setNull(8, java.sql.Types.TIMESTAMP);
+					stmt.setString(1, t.getCode());
+					stmt.setString(2, t.getName());
+					stmt.setString(3, t.getShortName(false));
+					stmt.setString(4, t.getScopenotes());
+					stmt.setBoolean(5, t.isDeprecated());
 
-				stmt.setString(9, t.getStatus());
-				stmt.setString(10, t.getVersion());
+					if (t.getLastUpdate() != null)
+						stmt.setTimestamp(6, t.getLastUpdate());
+					else
+						stmt.setNull(6, java.sql.Types.TIMESTAMP);
 
-				stmt.addBatch();
-			}
+					if (t.getValidFrom() != null)
+						stmt.setTimestamp(7, t.getValidFrom());
+					else
+						stmt.setNull(7, java.sql.Types.TIMESTAMP);
 
-			stmt.executeBatch();
+					if (t.getValidTo() != null)
+						stmt.setTimestamp(8, t.getValidTo());
+					else
+						stmt.setNull(8, java.sql.Types.TIMESTAMP);
 
-			// if empty
-			// update the terms ids with the ones given by the database
-			try (ResultSet rs = stmt.getGeneratedKeys();) {
+					stmt.setString(9, t.getStatus());
+					stmt.setString(10, t.getVersion());
 
-				while (rs.next())
-					ids.add(rs.getInt(1));
+					stmt.addBatch();
+				}
 
-				rs.close();
+				stmt.executeBatch();
+
+				// if empty
+				// update the terms ids with the ones given by the database
+				try (ResultSet rs = stmt.getGeneratedKeys();) {
+
+					while (rs.next())
+						ids.add(rs.getInt(1));
+
+					rs.close();
+				}
+
+				stmt.close();
+
+				con.commit();
+				con.close();
+
+				// add the new terms to the search index
+				Iterator<Integer> iter = ids.iterator();
+				for (Term t : terms) {
+
+					if (!iter.hasNext())
+						break;
+
+					catalogue.getSearchIndex().insert(iter.next(), t);
+				}
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
 			}
 
-			stmt.close();
+			return ids;
+		} finally {
+			INSERT_TIMER.stop(start);
+		}
+	}
+
+	/**
+	 * Stage the terms for the bulk load
+	 * 
+	 * @param terms
+	 * @return the ids which the terms will have in the database
+	 * @throws UncheckedIOException if the staging file cannot be written, so
+	 *                              that the import fails
+	 */
+	private List<Integer> stage(Iterable<Term> terms) {
+
+		ArrayList<Integer> ids = new ArrayList<>();
+
+		try {
+
+			for (Term t : terms) {
+
+				bulkLoader.addRow(t.getCode(), t.getName(), t.getShortName(false), t.getScopenotes(),
+						t.isDeprecated(), t.getLastUpdate(), t.getValidFrom(), t.getValidTo(), t.getStatus(),
+						t.getVersion());
 
-			con.commit();
-			con.close();
+				// the ids are generated following the order of the file
+				ids.add(bulkLoader.getRowCount());
+			}
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot stage terms", e);
 		}
 
 		return ids;
 	}
 
+	@Override
+	public synchronized void startBulkLoad() throws IOException, SQLException {
+
+		if (!BulkLoader.isEmpty(catalogue, "TERM"))
+			throw new SQLException("Cannot bulk load the terms of " + catalogue + ", the table is not empty");
+
+		bulkLoader = new BulkLoader("TERM", "TERM_CODE", "TERM_EXTENDED_NAME", "TERM_SHORT_NAME", "TERM_SCOPENOTE",
+				"TERM_DEPRECATED", "TERM_LAST_UPDATE", "TERM_VALID_FROM", "TERM_VALID_TO", "TERM_STATUS",
+				"TERM_VERSION");
+	}
+
+	@Override
+	public synchronized void endBulkLoad() throws IOException, SQLException {
+
+		if (bulkLoader == null)
+			return;
+
+		BulkLoader loader = bulkLoader;
+		bulkLoader = null;
+
+		loader.load(catalogue);
+	}
+
+	@Override
+	public synchronized void cancelBulkLoad() {
+
+		if (bulkLoader == null)
+			return;
+
+		bulkLoader.cancel();
+		bulkLoader = null;
+	}
+
 	/**
 	 * Update the term fields in the DB. The last update field is modified to NOW
 	 * 
@@ -144,59 +248,70 @@ public class TermDAO implements CatalogueEntityDAO<Term> {
 	 */
 	public boolean update(Term t) {
 
-		String query = "update APP.TERM set TERM_CODE = ?, TERM_EXTENDED_NAME = ?, "
-				+ "TERM_SHORT_NAME = ?, TERM_SCOPENOTE = ?, TERM_DEPRECATED = ?, TERM_LAST_UPDATE = ?,"
-				+ "TERM_VALID_FROM = ?, TERM_VALID_TO = ?, TERM_STATUS = ?, TERM_VERSION = ? where TERM_ID = ?";
+		long start = UPDATE_TIMER.start();
 
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			String query = "update APP.TERM set TERM_CODE = ?, TERM_EXTENDED_NAME = ?, "
+					+ "TERM_SHORT_NAME = ?, TERM_SCOPENOTE = ?, TERM_DEPRECATED = ?, TERM_LAST_UPDATE = ?,"
+					+ "TERM_VALID_FROM = ?, TERM_VALID_TO = ?, TERM_STATUS = ?, TERM_VERSION = ? where TERM_ID = ?";
 
-			stmt.clearParameters();
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			stmt.setString(1, t.getCode());
-			stmt.setString(2, t.getName());
-			stmt.setString(3, t.getShortName(false));
-			stmt.setString(4, t.getScopenotes());
-			stmt.setBoolean(5, t.isDeprecated());
+				stmt.clearParameters();
 
-			// set timestamps or null if needed
-			Calendar cal = Calendar.getInstance();
+				stmt.setString(1, t.getCode());
+				stmt.setString(2, t.getName());
+				stmt.setString(3, t.getShortName(false));
+				stmt.setString(4, t.getScopenotes());
+				stmt.setBoolean(5, t.isDeprecated());
 
-			// set the last update to now
-			stmt.setTimestamp(6, new Timestamp(cal.getTimeInMillis()));
+				// set timestamps or null if needed
+				Calendar cal = Calendar.getInstance();
 
-			if (t.getValidFrom() != null)
-				stmt.setTimestamp(7, t.getValidFrom());
-			else
-				stmt.setNull(7, Types.TIMESTAMP);
+				// set the last update to now
+				stmt.setTimestamp(6, new Timestamp(cal.getTimeInMillis()));
 
-			if (t.getValidTo() != null)
-				stmt.setTimestamp(8, t.getValidTo());
-			else
-				stmt.setNull(8, Types.TIMESTAMP);
+				if (t.getValidFrom() != null)
+					stmt.setTimestamp(7, t.getValidFrom());
+				else
+					stmt.setNull(7, Types.TIMESTAMP);
 
-			stmt.setString(9, t.getStatus());
+				if (t.getValidTo() != null)
+					stmt.setTimestamp(8, t.getValidTo());
+				else
+					stmt.setNull(8, Types.TIMESTAMP);
 
-			stmt.setString(10, t.getVersion());
+				stmt.setString(9, t.getStatus());
 
-			stmt.setInt(11, t.getId());
+				stmt.setString(10, t.getVersion());
 
-			// execute the statement
-			stmt.executeUpdate();
+				stmt.setInt(11, t.getId());
 
-			// close statement
-			stmt.close();
+				// execute the statement
+				stmt.executeUpdate();
 
-			// close the connection
-			con.close();
+				// close statement
+				stmt.close();
 
-			return true;
+				// close the connection
+				con.close();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-		}
+				CatalogueSchema.increaseDataVersion(catalogue);
 
-		return false;
+				// refresh the code and the name in the search index
+				catalogue.getSearchIndex().update(t);
+
+				return true;
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+
+			return false;
+		} finally {
+			UPDATE_TIMER.stop(start);
+		}
 	}
 
 	// update the term in the hashmap of terms (which is used to
@@ -212,7 +327,7 @@ public class TermDAO implements CatalogueEntityDAO<Term> {
 	 * @return
 	 */
 	public Collection<Term> getAll() {
-		return fetchTerms().values();
+		return fetchTerms();
 	}
 
 	/**
@@ -221,114 +336,137 @@ public class TermDAO implements CatalogueEntityDAO<Term> {
 	 * 
 	 * @return
 	 */
-	public HashMap<Integer, Term> fetchTerms() {
+	public ArrayList<Term> fetchTerms() {
+
+		long start = FETCH_TERMS_TIMER.start();
 
-		HashMap<Integer, Term> terms = new HashMap<>();
+		try {
+			ArrayList<Term> terms = new ArrayList<>();
 
-		String query = "select * from APP.TERM";
+			String query = "select * from APP.TERM";
 
-		try (Connection con = catalogue.getConnection();
-				PreparedStatement stmt = con.prepareStatement(query)) {
+			try (Connection con = catalogue.getConnection();
+					PreparedStatement stmt = con.prepareStatement(query)) {
 
-			stmt.setFetchSize(2000);
+				stmt.setFetchSize(2000);
 			
-			ResultSet rs = stmt.executeQuery();
+				ResultSet rs = stmt.executeQuery();
 			
-			// save all the terms
-			while (rs.next()) {
+				// save all the terms
+				while (rs.next()) {
 
-				Term term = getByResultSet(rs);
-				terms.put(term.getId(), term);
-			}
+					Term term = getByResultSet(rs);
+					terms.add(term);
+				}
 
-			rs.close();
-			stmt.close();
-			con.close();
+				rs.close();
+				stmt.close();
+				con.close();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-			return null;
-		}
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+				return null;
+			}
 
-		return terms;
+			return terms;
+		} finally {
+			FETCH_TERMS_TIMER.stop(start);
+		}
 	}
 
 	/**
-	 * Retrieve a term from the database using its code
+	 * Retrieve a term from the database using its code (case insensitive)
 	 * 
 	 * @param code
 	 * @return
 	 */
 	public Term getByCode(String code) {
 
-		String query = "select TERM_ID " + " from  APP.TERM " + " where upper( TERM_CODE ) = ? ";
+		long start = GET_BY_CODE_TIMER.start();
 
-		Term term = null;
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			// indexed upper case column, see createCatalogueDB
+			String query = catalogue.hasTermLookupColumns() ? "select TERM_ID from APP.TERM where TERM_CODE_UPPER = ?"
+					: "select TERM_ID from APP.TERM where upper( TERM_CODE ) = ?";
 
-			stmt.clearParameters();
+			Term term = null;
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			/* I want to retrieve the first level under the root */
-			stmt.setString(1, code.toUpperCase());
+				stmt.clearParameters();
 
-			try (ResultSet rs = stmt.executeQuery();) {
+				/* I want to retrieve the first level under the root */
+				stmt.setString(1, code.toUpperCase());
 
-				if (rs.next())
-					term = catalogue.getTermById(rs.getInt("TERM_ID"));
+				try (ResultSet rs = stmt.executeQuery();) {
 
-				rs.close();
-			}
+					if (rs.next())
+						term = catalogue.getTermById(rs.getInt("TERM_ID"));
 
-			stmt.close();
-			con.close();
+					rs.close();
+				}
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-			return null;
-		}
+				stmt.close();
+				con.close();
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+				return null;
+			}
 
-		return term;
+			return term;
+		} finally {
+			GET_BY_CODE_TIMER.stop(start);
+		}
 	}
 
 	/**
 	 * Retrieve a term from the database using its name ( which is unique in the
-	 * catalogue )
+	 * catalogue ), case insensitive
 	 * 
 	 * @param code
 	 * @return
 	 */
 	public Term getByName(String extendedName) {
 
-		String query = "select * from APP.TERM where upper( TERM_EXTENDED_NAME ) = ? ";
+		long start = GET_BY_NAME_TIMER.start();
 
-		Term term = null;
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+		try {
+			// indexed upper case column, see createCatalogueDB
+			String query = catalogue.hasTermLookupColumns()
+					? "select TERM_ID from APP.TERM where TERM_EXTENDED_NAME_UPPER = ?"
+					: "select TERM_ID from APP.TERM where upper( TERM_EXTENDED_NAME ) = ?";
 
-			stmt.clearParameters();
+			Term term = null;
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-			/* I want to retrieve the first level under the root */
-			stmt.setString(1, extendedName.toUpperCase());
+				stmt.clearParameters();
 
-			try (ResultSet rs = stmt.executeQuery();) {
+				/* I want to retrieve the first level under the root */
+				stmt.setString(1, extendedName.toUpperCase());
 
-				if (rs.next())
-					term = catalogue.getTermById(rs.getInt("TERM_ID"));
+				try (ResultSet rs = stmt.executeQuery();) {
 
-				rs.close();
-			}
+					if (rs.next())
+						term = catalogue.getTermById(rs.getInt("TERM_ID"));
 
-			stmt.close();
-			con.close();
+					rs.close();
+				}
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-			return null;
-		}
+				stmt.close();
+				con.close();
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+				return null;
+			}
 
-		return term;
+			return term;
+		} finally {
+			GET_BY_NAME_TIMER.stop(start);
+		}
 	}
 
 	/**
@@ -399,46 +537,53 @@ public class TermDAO implements CatalogueEntityDAO<Term> {
 	 */
 	public boolean isTermNameUnique(String termCode, String termName, boolean extended) {
 
-		// true if empty name
-		if (termName.isEmpty())
-			return true;
+		long start = NAME_UNIQUE_TIMER.start();
+
+		try {
+			// true if empty name
+			if (termName.isEmpty())
+				return true;
+
+			// both the name fields are indexed
+			String query = "select TERM_ID from APP.TERM where ";
 
-		String query = "select TERM_ID from APP.TERM where ";
+			// check on the correct field
+			if (extended)
+				query = query + "TERM_EXTENDED_NAME = ? ";
+			else
+				query = query + "TERM_SHORT_NAME = ? ";
 
-		// check on the correct field
-		if (extended)
-			query = query + "TERM_EXTENDED_NAME = ? ";
-		else
-			query = query + "TERM_SHORT_NAME = ? ";
+			query = query + "and TERM_CODE <> ?";
 
-		query = query + "and TERM_CODE <> ?";
+			boolean noDupl = true;
+			try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
 
-		boolean noDupl = true;
-		try (Connection con = catalogue.getConnection(); PreparedStatement stmt = con.prepareStatement(query);) {
+				stmt.clearParameters();
 
-			stmt.clearParameters();
+				stmt.setString(1, termName);
+				stmt.setString(2, termCode);
 
-			stmt.setString(1, termName);
-			stmt.setString(2, termCode);
+				try (ResultSet rs = stmt.executeQuery();) {
+					noDupl = !rs.next();
 
-			try (ResultSet rs = stmt.executeQuery();) {
-				noDupl = !rs.next();
+					rs.close();
+				}
 
-				rs.close();
-			}
+				stmt.close();
+				con.close();
 
-			stmt.close();
-			con.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+				return false;
+			}
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
-			return false;
+			// if there is a record in the next => a term with the same name
+			// but different code actually exists
+			return noDupl;
+		} finally {
+			NAME_UNIQUE_TIMER.stop(start);
 		}
-
-		// if there is a record in the next => a term with the same name
-		// but different code actually exists
-		return noDupl;
 	}
 
 	@Override
@@ -1,6 +1,9 @@
 package catalogue_generator;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.concurrent.CountDownLatch;
+
 import javax.xml.soap.SOAPException;
 
 import org.apache.logging.log4j.LogManager;
@@ -10,6 +13,7 @@ import org.eclipse.swt.widgets.Shell;
 
 import catalogue.AttachmentNotFoundException;
 import catalogue.Catalogue;
+import config.AppConfig;
 import i18n_messages.CBMessages;
 import progress_bar.FormProgressBar;
 import progress_bar.IProgressBar;
@@ -23,6 +27,13 @@ import utilities.GlobalUtil;
  * {@link ThreadFinishedListener} using the
  * {@link #setDoneListener(ThreadFinishedListener)} method.
  * 
+ * The download is tried again (waiting more and more between the attempts) if
+ * the dcf cannot be reached. The download and the import can also be run
+ * separately (see {@link #downloadCatalogue()} and
+ * {@link #importCatalogue(File)}), as done by the
+ * {@link CatalogueDownloaderManager} to import a catalogue while the next ones
+ * are downloaded.
+ * 
  * @author avonva
  * @author shahaal
  *
@@ -31,10 +42,19 @@ public class CatalogueDownloader extends Thread {
 
 	private static final Logger LOGGER = LogManager.getLogger(CatalogueDownloader.class);
 
+	// wait before the second attempt, doubled for each next one
+	private static final long FIRST_RETRY_DELAY = 2000;
+	private static final long MAX_RETRY_DELAY = 30000;
+
 	private ThreadFinishedListener doneListener;
 	private IProgressBar progressBar;
 	private Catalogue catalogue;
-	private boolean finished;
+	private int attempts;
+	private volatile boolean finished;
+	private volatile int resultCode;
+
+	// released when the download (and import) finishes
+	private final CountDownLatch done = new CountDownLatch(1);
 
 	/**
 	 * Download and import in the application database the selected
@@ -44,17 +64,49 @@ public class CatalogueDownloader extends Thread {
 	 */
 	public CatalogueDownloader(Catalogue catalogue) {
 		this.catalogue = catalogue;
+		this.attempts = AppConfig.getDownloadAttempts();
 		finished = false;
 	}
 
 	@Override
 	public void run() {
+
+		File file = downloadCatalogue();
+
+		if (file != null)
+			importCatalogue(file);
+	}
+
+	/**
+	 * Download the catalogue from the dcf. The catalogue data are downloaded in
+	 * xml format. If the download fails, the process is stopped and the done
+	 * listener is called.
+	 * 
+	 * @return the downloaded file, or null if the download failed
+	 */
+	public File downloadCatalogue() {
+
+		// show the progress bar
+		if (progressBar != null) {
+			progressBar.setLabel(CBMessages.getString("DownloadCatalogue.ProgressBarDownload"));
+			progressBar.addProgress(10);
+		}
+
 		try {
-			downloadAndImport();
+
+			File file = downloadWithRetry();
+
+			// if file not found
+			if (!file.exists()) {
+				stop(ThreadFinishedListener.ERROR, new FileNotFoundException());
+				return null;
+			}
+
+			return file;
+
 		} catch (SOAPException e) {
 
-			// TODO show an error and force the user to wait 1 minute, then try again to
-			// download the catalogue failed
+			// the dcf asked to wait, but we already retried
 			if (e instanceof DetailedSOAPException) {
 				String[] warning = GlobalUtil.getSOAPWarning((DetailedSOAPException) e);
 				GlobalUtil.showErrorDialog(new Shell(new Display()), warning[0], warning[1]);
@@ -67,40 +119,71 @@ public class CatalogueDownloader extends Thread {
 
 		} catch (AttachmentNotFoundException e) {
 			stop(ThreadFinishedListener.ERROR, e);
+		} catch (InterruptedException e) {
+			LOGGER.warn("Download interrupted for catalogue=" + catalogue, e);
+			stop(ThreadFinishedListener.EXCEPTION, e);
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot download catalogue=" + catalogue, e);
+			stop(ThreadFinishedListener.EXCEPTION, e);
 		}
+
+		return null;
 	}
 
 	/**
-	 * Get the catalogue. add the metadata to the master table and create the db
-	 * related to the catalogue. The catalogue data are downloaded from the dcf. The
-	 * downloaded catalogue is in xml format and it will be converted into xlsx
-	 * format to be imported
+	 * Import the downloaded catalogue in the application database, in the
+	 * calling thread. The done listener is called when the import finishes.
 	 * 
-	 * @param catalogue
-	 * @throws SOAPException
-	 * @throws AttachmentNotFoundException
+	 * @param file the file returned by {@link #downloadCatalogue()}
 	 */
-	private void downloadAndImport() throws SOAPException, AttachmentNotFoundException {
+	public void importCatalogue(File file) {
 
-		// show the progress bar
-		if (progressBar != null) {
-			progressBar.setLabel(CBMessages.getString("DownloadCatalogue.ProgressBarDownload"));
-			progressBar.addProgress(10);
+		try {
+
+			catalogue.importXml(file, progressBar, 90, new ThreadFinishedListener() {
+				@Override
+				public void finished(Thread thread, int code, Exception e) {
+					finish(code);
+				}
+			});
+
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot import catalogue=" + catalogue, e);
+			stop(ThreadFinishedListener.EXCEPTION, e);
 		}
+	}
+
+	/**
+	 * Download the catalogue, trying again if the dcf cannot be reached
+	 * 
+	 * @return
+	 * @throws SOAPException               if the last attempt failed
+	 * @throws AttachmentNotFoundException
+	 * @throws InterruptedException
+	 */
+	private File downloadWithRetry() throws SOAPException, AttachmentNotFoundException, InterruptedException {
+
+		long delay = FIRST_RETRY_DELAY;
+
+		for (int attempt = 1;; attempt++) {
+
+			try {
+				return catalogue.download();
+			} catch (SOAPException e) {
 
-		// download and import the catalogue
-		boolean ok = catalogue.downloadAndImport(progressBar, 90, new ThreadFinishedListener() {
-			@Override
-			public void finished(Thread thread, int code, Exception e) {
-				callListener(code);
-				finished = true;
+				if (attempt >= attempts)
+					throw e;
+
+				LOGGER.warn("Download of catalogue=" + catalogue + " failed (attempt " + attempt + "/" + attempts
+						+ "), trying again in " + delay + " ms", e);
 			}
-		});
 
-		// if file not found
-		if (!ok) {
-			stop(ThreadFinishedListener.ERROR, new FileNotFoundException());
-			return;
+			Thread.sleep(delay);
+
+			delay = Math.min(delay * 2, MAX_RETRY_DELAY);
 		}
 	}
 
@@ -110,19 +193,33 @@ public class CatalogueDownloader extends Thread {
 	 * @param code
 	 */
 	private void stop(int code, Exception e) {
-		progressBar.stop(e);
-		callListener(code);
-		finished = true;
+
+		if (progressBar != null)
+			progressBar.stop(e);
+
+		finish(code);
 	}
 
 	/**
-	 * Call the done listener ({@link #doneListener})
+	 * Call the done listener ({@link #doneListener}) and signal that the
+	 * process finished. Only the first call has effect.
 	 * 
-	 * @param correct
+	 * @param code
 	 */
-	private void callListener(int code) {
-		if (doneListener != null)
-			doneListener.finished(this, code, null);
+	private synchronized void finish(int code) {
+
+		if (finished)
+			return;
+
+		resultCode = code;
+
+		try {
+			if (doneListener != null)
+				doneListener.finished(this, code, null);
+		} finally {
+			finished = true;
+			done.countDown();
+		}
 	}
 
 	/**
@@ -152,6 +249,33 @@ public class CatalogueDownloader extends Thread {
 		return finished;
 	}
 
+	/**
+	 * Wait until the thread finishes its work
+	 * 
+	 * @throws InterruptedException
+	 */
+	public void awaitFinished() throws InterruptedException {
+		done.await();
+	}
+
+	/**
+	 * Get the result of the process, see {@link ThreadFinishedListener}
+	 * 
+	 * @return
+	 */
+	public int getResultCode() {
+		return resultCode;
+	}
+
+	/**
+	 * Set how many times the download is tried before giving up
+	 * 
+	 * @param attempts
+	 */
+	public void setAttempts(int attempts) {
+		this.attempts = Math.max(1, attempts);
+	}
+
 	/**
 	 * Get the catalogue which is being downloaded
 	 * 
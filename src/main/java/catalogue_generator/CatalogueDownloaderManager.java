@@ -1,17 +1,29 @@
 package catalogue_generator;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.ListIterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.swt.widgets.Listener;
 
+import config.AppConfig;
+
 /**
- * Manager used to manage several threads. It is possible
- * to start the threads in batches, limiting the maximum
- * number of threads active at runtime (save computational power
- * and memory)
+ * Manager used to download several catalogues. The downloads are performed by
+ * a pool of threads, limiting the maximum number of downloads active at
+ * runtime (save bandwidth and memory). Each downloaded catalogue is then
+ * imported by a single import thread, so that the import of a catalogue
+ * (disk and cpu bound) overlaps with the download of the next ones (network
+ * bound) without having several imports competing for the disk.
+ * 
+ * The done listener is called as soon as the last catalogue is imported.
  * @author avonva
  *
  */
@@ -22,16 +34,28 @@ public class CatalogueDownloaderManager extends Thread {
 	private ArrayList<CatalogueDownloader> threads;
 	private int batchSize;
 	private Listener doneListener;
-	private int startedCount = 0;
+
+	// aggregate progress
+	private final AtomicInteger completed = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private CountDownLatch remaining;
+
+	/**
+	 * Initialise the manager with the number of parallel
+	 * downloads of the configuration
+	 */
+	public CatalogueDownloaderManager() {
+		this( AppConfig.getDownloadConcurrency() );
+	}
 
 	/**
 	 * Initialise the manager
-	 * @param batchSize maximum number of threads which can
-	 * be active at runtime in the same time
+	 * @param batchSize maximum number of catalogues which can
+	 * be downloaded at the same time
 	 */
 	public CatalogueDownloaderManager( int batchSize ) {
 		this.threads = new ArrayList<>();
-		this.batchSize = batchSize;
+		this.batchSize = Math.max( 1, batchSize );
 	}
 
 	/**
@@ -43,67 +67,137 @@ public class CatalogueDownloaderManager extends Thread {
 	}
 
 	/**
-	 * Plan a new thread
+	 * Plan a new download. The downloader is not started as
+	 * thread, its steps are run by the manager threads.
 	 * @param downloader
 	 */
 	public void add( CatalogueDownloader downloader ) {
 		threads.add( downloader );
 	}
 
+	/**
+	 * Get the number of catalogues which were downloaded and imported
+	 * (or which failed) so far
+	 * @return
+	 */
+	public int getCompletedCount() {
+		return completed.get();
+	}
+
+	/**
+	 * Get the number of catalogues which could not be downloaded or imported
+	 * @return
+	 */
+	public int getFailedCount() {
+		return failed.get();
+	}
+
 	@Override
 	public void run() {
 
-		if ( batchSize > threads.size() ) {
-			LOGGER.warn( "CatalogueDownloaderManager: Cannot create a batch size greater "
-					+ "that the available threads. Setting to " + threads.size() );
-			batchSize = threads.size();
-		}
+		long start = System.currentTimeMillis();
 
-		ListIterator<CatalogueDownloader> list = threads.listIterator();
+		int size = Math.min( batchSize, Math.max( 1, threads.size() ) );
 
-		// continue until we have something
-		while ( list.hasNext() ) {
-			
-			// proceed if we can start a thread
-			if ( startedCount < batchSize ) {
+		final ExecutorService downloads = Executors.newFixedThreadPool( size, 
+				new NamedThreadFactory( "catalogue-download" ) );
+		
+		final ExecutorService imports = Executors.newSingleThreadExecutor( 
+				new NamedThreadFactory( "catalogue-import" ) );
+
+		ArrayList<Future<?>> futures = new ArrayList<>();
 
-				// start the next thread
-				CatalogueDownloader thread = list.next();
+		remaining = new CountDownLatch( threads.size() );
 
-				// when finished decrease the thread count
-				thread.setDoneListener( new ThreadFinishedListener() {
+		try {
+
+			for ( final CatalogueDownloader downloader : threads ) {
+
+				futures.add( downloads.submit( new Runnable() {
 
 					@Override
-					public void finished(Thread thread, int code, Exception e) {
-						startedCount--;
+					public void run() {
+
+						final File file = downloader.downloadCatalogue();
+
+						// download failed, the downloader already finished
+						if ( file == null ) {
+							progress( downloader );
+							return;
+						}
+
+						// import it while the next catalogues are downloaded
+						imports.submit( new Runnable() {
+
+							@Override
+							public void run() {
+								try {
+									downloader.importCatalogue( file );
+								} finally {
+									progress( downloader );
+								}
+							}
+						});
 					}
-				});
+				}));
+			}
 
-				thread.start();
+			// wait the downloads and then the imports
+			remaining.await();
 
-				startedCount++;
-			}
-			else {  // Otherwise wait for a while
-				sleepFor(300);
-			}
-		} // end while
-		
-		// wait remaining threads to finish
-		for ( CatalogueDownloader thread : threads ) {
-			while ( !thread.isFinished() )
-				sleepFor(300);
+			LOGGER.info( "Catalogues downloaded and imported: " + completed.get() + " (failed " + failed.get() 
+				+ ") in " + ( System.currentTimeMillis() - start ) + " ms" );
+
+		} catch ( InterruptedException e ) {
+
+			LOGGER.warn( "Catalogues download interrupted", e );
+
+			for ( Future<?> future : futures )
+				future.cancel( true );
+
+			Thread.currentThread().interrupt();
+
+		} finally {
+			downloads.shutdownNow();
+			imports.shutdownNow();
 		}
 
 		if ( doneListener != null )
 			doneListener.handleEvent( null );
 	}
-	
-	private void sleepFor ( long time ) {
-		try {
-			Thread.sleep( time );
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-			LOGGER.error("Cannot sleep thread=" + this, e);
+
+	/**
+	 * Update the aggregate progress when a catalogue is finished
+	 * @param downloader
+	 */
+	private void progress( CatalogueDownloader downloader ) {
+
+		if ( downloader.getResultCode() != ThreadFinishedListener.OK )
+			failed.incrementAndGet();
+
+		LOGGER.info( "Catalogues completed " + completed.incrementAndGet() + "/" + threads.size() 
+			+ ", last=" + downloader.getCatalogue() );
+
+		remaining.countDown();
+	}
+
+	/**
+	 * Daemon threads with a recognisable name
+	 */
+	private static class NamedThreadFactory implements ThreadFactory {
+
+		private final String name;
+		private final AtomicInteger count = new AtomicInteger();
+
+		public NamedThreadFactory( String name ) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread( Runnable r ) {
+			Thread thread = new Thread( r, name + "-" + count.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
 		}
 	}
 }
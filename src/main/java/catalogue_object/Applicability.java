@@ -77,6 +77,19 @@ public class Applicability {
 	public void update() {
 		ParentTermDAO dao = new ParentTermDAO(child.getCatalogue());
 		dao.update(this);
+		refreshIndexes();
+	}
+
+	/**
+	 * Refresh the in-memory indexes and caches of the catalogue which depend on
+	 * the parent and the order of the term, after they were saved
+	 */
+	public void refreshIndexes() {
+
+		// parent or order could be changed
+		child.getCatalogue().getApplicabilityIndex().update(this);
+		child.getCatalogue().getInheritedFacetsCache().invalidate(child, hierarchy);
+		child.getCatalogue().getHierarchyCodeCache().invalidate(child, hierarchy);
 	}
 	
 	@Override
@@ -0,0 +1,203 @@
+package catalogue_object;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue_browser_dao.ParentTermDAO;
+import metrics.Metrics;
+import metrics.Timer;
+
+/**
+ * Reorder the terms of a hierarchy. The new parents and orders of the terms are
+ * computed in memory, and then {@link #commit()} saves only the
+ * applicabilities which really changed, with a single batch in one
+ * transaction. If the batch fails, the terms get back their previous parents
+ * and orders.
+ */
+public class LevelReorder {
+
+	private static final Logger LOGGER = LogManager.getLogger(LevelReorder.class);
+
+	private static final Timer COMMIT_TIMER = Metrics.timer("LevelReorder.commit");
+
+	// reorders which change at least this number of terms are logged as info
+	private static final int BIG_REORDER = 100;
+
+	private Hierarchy hierarchy;
+
+	// dao used to save the changes, null to use the one of the catalogue
+	private ParentTermDAO parentDao;
+
+	// term id => applicability before the reorder
+	private LinkedHashMap<Integer, Original> originals;
+
+	/**
+	 * Parent and order of an applicability before the reorder
+	 */
+	private static class Original {
+
+		private Applicability appl;
+		private Nameable parent;
+		private int order;
+
+		public Original(Applicability appl) {
+			this.appl = appl;
+			this.parent = appl.getParentTerm();
+			this.order = appl.getOrder();
+		}
+
+		public boolean isChanged() {
+			return order != appl.getOrder() || !Objects.equals(parent, appl.getParentTerm());
+		}
+
+		public void restore() {
+			appl.setParentTerm(parent);
+			appl.setOrder(order);
+		}
+	}
+
+	/**
+	 * Start reordering terms of the hierarchy
+	 * 
+	 * @param hierarchy
+	 */
+	public LevelReorder(Hierarchy hierarchy) {
+		this(hierarchy, null);
+	}
+
+	/**
+	 * Start reordering terms of the hierarchy, saving the changes with a
+	 * specific dao
+	 * 
+	 * @param hierarchy
+	 * @param parentDao
+	 */
+	LevelReorder(Hierarchy hierarchy, ParentTermDAO parentDao) {
+		this.hierarchy = hierarchy;
+		this.parentDao = parentDao;
+		this.originals = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Change the order of a term (in memory)
+	 * 
+	 * @param term
+	 * @param order
+	 */
+	public void setOrder(Term term, int order) {
+
+		Applicability appl = track(term);
+
+		if (appl != null)
+			appl.setOrder(order);
+	}
+
+	/**
+	 * Change the parent of a term (in memory)
+	 * 
+	 * @param term
+	 * @param parent
+	 */
+	public void setParent(Term term, Nameable parent) {
+
+		Applicability appl = track(term);
+
+		if (appl != null)
+			appl.setParentTerm(parent);
+	}
+
+	/**
+	 * Fill the holes between the orders of the terms of a level, replacing them
+	 * with increasing numbers starting from 1 (maintaining the same order)
+	 * 
+	 * @param termsOnLevel the terms, which are sorted by order
+	 */
+	public void normalize(List<Term> termsOnLevel) {
+
+		Collections.sort(termsOnLevel, new Comparator<Term>() {
+			public int compare(Term t1, Term t2) {
+				return Integer.compare(t1.getOrder(hierarchy), t2.getOrder(hierarchy));
+			};
+		});
+
+		for (int i = 0; i < termsOnLevel.size(); i++)
+			setOrder(termsOnLevel.get(i), i + 1);
+	}
+
+	/**
+	 * Save the changed applicabilities in the database and refresh the indexes
+	 * of the catalogue. If the save fails, the changes are undone.
+	 * 
+	 * @return true if the changes were saved
+	 */
+	public boolean commit() {
+
+		long start = System.currentTimeMillis();
+		long timer = COMMIT_TIMER.start();
+
+		ArrayList<Applicability> changed = new ArrayList<>();
+
+		for (Original original : originals.values()) {
+			if (original.isChanged())
+				changed.add(original.appl);
+		}
+
+		boolean saved = true;
+
+		if (!changed.isEmpty()) {
+
+			ParentTermDAO dao = parentDao != null ? parentDao
+					: new ParentTermDAO(changed.get(0).getChild().getCatalogue());
+
+			saved = dao.updateOrders(changed);
+
+			if (saved) {
+				for (Applicability appl : changed)
+					appl.refreshIndexes();
+			} else {
+				for (Original original : originals.values())
+					original.restore();
+			}
+		}
+
+		COMMIT_TIMER.stop(timer);
+
+		String message = "Reorder in hierarchy " + hierarchy.getCode() + ": " + changed.size() + " of "
+				+ originals.size() + " terms changed, saved=" + saved + " in " + (System.currentTimeMillis() - start)
+				+ " ms";
+
+		if (changed.size() >= BIG_REORDER)
+			LOGGER.info(message);
+		else
+			LOGGER.debug(message);
+
+		originals.clear();
+
+		return saved;
+	}
+
+	/**
+	 * Remember the current parent and order of the term, if it was not changed
+	 * yet
+	 * 
+	 * @param term
+	 * @return the applicability of the term in the hierarchy, null if the term is
+	 *         not in the hierarchy
+	 */
+	private Applicability track(Term term) {
+
+		Applicability appl = term.getApplicability(hierarchy);
+
+		if (appl != null && !originals.containsKey(term.getId()))
+			originals.put(term.getId(), new Original(appl));
+
+		return appl;
+	}
+}
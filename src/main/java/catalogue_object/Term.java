@@ -24,6 +24,8 @@ import org.eclipse.swt.graphics.FontData;
 import org.eclipse.swt.widgets.Display;
 
 import catalogue.Catalogue;
+import catalogue.HierarchyCodeCache;
+import catalogue.SubtreeCounts;
 import catalogue_browser_dao.ParentTermDAO;
 import catalogue_browser_dao.TermDAO;
 import data_transformation.BooleanConverter;
@@ -59,7 +61,7 @@ public class Term extends CatalogueObject implements Mappable {
 	private TermAttribute termType;
 
 	// the implicit facets of the term
-	private ArrayList<FacetDescriptor> implicitFacets; public void setImplicitFacets(ArrayList<FacetDescriptor> implicit) {this.implicitFacets = implicit;}
+	private ArrayList<FacetDescriptor> implicitFacets; public void setImplicitFacets(ArrayList<FacetDescriptor> implicit) {this.implicitFacets = implicit; invalidateInheritedFacets();}
 
 	// list of attributes and their values related to the term
 	private ArrayList<TermAttribute> termAttributes; public void setTermAttributes(ArrayList<TermAttribute> attributes) {this.termAttributes = attributes;}
@@ -365,9 +367,103 @@ public class Term extends CatalogueObject implements Mappable {
 	 *         facets using their children)
 	 */
 	public ArrayList<DescriptorTreeItem> getInheritedImplicitFacets(Attribute facetCategory) {
+
+		// only the terms of the catalogue are cached, the temporary
+		// copies (as in the describe) can have different facets
+		boolean cacheable = catalogue != null && catalogue.containsTermInstance(this);
+
+		if (cacheable) {
+			ArrayList<DescriptorTreeItem> cached = catalogue.getInheritedFacetsCache().get(this, facetCategory);
+			if (cached != null)
+				return cached;
+		}
+
+		// get the descriptors before computing the facets, since
+		// the computation can remove some of them from the terms
+		Collection<Term> descriptors = cacheable ? getInheritedDescriptors(facetCategory) : null;
+
 		ArrayList<DescriptorTreeItem> itemsRetrieved = this.getImplicitFacetsLeaves(getImplicitFacetsTree(facetCategory)); // In describe vengono tutti segnati come inherited
 		
-		return itemsRetrieved.stream().filter(x ->  !((x.isInherited()) && (facetCategory.getInheritance().equals("D")))).collect(Collectors.toCollection(ArrayList::new));
+		ArrayList<DescriptorTreeItem> items = itemsRetrieved.stream().filter(x ->  !((x.isInherited()) && (facetCategory.getInheritance().equals("D")))).collect(Collectors.toCollection(ArrayList::new));
+
+		if (cacheable)
+			catalogue.getInheritedFacetsCache().put(this, facetCategory, items, descriptors);
+
+		return items;
+	}
+
+	/**
+	 * Get the descriptors of the facet category which are defined in this term
+	 * and in its ancestors in the master hierarchy
+	 * 
+	 * @param facetCategory
+	 * @return
+	 */
+	private Collection<Term> getInheritedDescriptors(Attribute facetCategory) {
+
+		Collection<Term> descriptors = new ArrayList<>();
+
+		Hierarchy master = catalogue.getMasterHierarchy();
+
+		Term current = this;
+		while (current != null) {
+
+			for (FacetDescriptor descriptor : current.getDescriptorsByCategory(facetCategory, true))
+				descriptors.add(catalogue.getTermByCode(descriptor.getFacetCode()));
+
+			current = current.getParent(master);
+		}
+
+		return descriptors;
+	}
+
+	/**
+	 * Invalidate the inherited implicit facets of this term and of its children,
+	 * since its implicit facets changed
+	 */
+	private void invalidateInheritedFacets() {
+		if (catalogue != null)
+			catalogue.getInheritedFacetsCache().invalidate(this);
+	}
+
+	/**
+	 * Invalidate the inherited implicit facets which depends on the position of
+	 * the term in the hierarchy, since its parent changed
+	 * 
+	 * @param hierarchy
+	 */
+	private void invalidateInheritedFacets(Hierarchy hierarchy) {
+		if (catalogue != null) {
+			catalogue.getInheritedFacetsCache().invalidate(this, hierarchy);
+			catalogue.getHierarchyCodeCache().invalidate(this, hierarchy);
+		}
+	}
+
+	@Override
+	public void setDeprecated(boolean deprecated) {
+
+		boolean changed = deprecated != isDeprecated();
+
+		super.setDeprecated(deprecated);
+
+		// update the subtree counts of the parents
+		if (changed && catalogue != null)
+			catalogue.getApplicabilityIndex().updateDeprecation(this);
+	}
+
+	/**
+	 * Get the counts of the terms contained in the subtree of the term
+	 * 
+	 * @param hierarchy
+	 * @return the counts or null if the applicabilities of the catalogue were not
+	 *         loaded yet
+	 */
+	private SubtreeCounts getSubtreeCounts(Hierarchy hierarchy) {
+
+		if (catalogue == null)
+			return null;
+
+		return catalogue.getApplicabilityIndex().getSubtreeCounts(this, hierarchy);
 	}
 
 	/**
@@ -529,57 +625,24 @@ public class Term extends CatalogueObject implements Mappable {
 		if (appl == null)
 			return null;
 
-		// start from the order integer of the term
-		String hierarchyCode = String.valueOf(appl.getOrder());
-
-		// add zeros to format code
-		while (hierarchyCode.length() < 4) {
-			hierarchyCode = "0" + hierarchyCode;
-		}
-
-		return hierarchyCode;
+		// order integer of the term padded with zeros
+		return HierarchyCodeCache.formatOrder(appl.getOrder());
 	}
 
 	/**
 	 * Create the hierarchy code for this term considering the selected hierarchy. A
-	 * hierarchy code is a Z0001.0001.0002.
+	 * hierarchy code is a Z0001.0001.0002. The codes are cached by the catalogue
+	 * (see {@link HierarchyCodeCache}).
 	 * 
 	 * @param hierarchy
 	 * @return
 	 */
 	public String getHierarchyCode(Hierarchy hierarchy) {
 
-		String hierarchyCode = this.getSingleHierarchyCode(hierarchy);
-
-		// if no code found return void
-		if (hierarchyCode == null)
-			return "";
-
-		// get the parent
-		Term parent = this.getParent(hierarchy);
-
-		// do until root
-		while (parent != null) {
-
-			// get the single hierarchy code of the parent
-			String parentHierarchyCode = parent.getSingleHierarchyCode(hierarchy);
-
-			// if no code found exit cycle
-			if (parentHierarchyCode == null)
-				break;
+		if (catalogue == null)
+			return HierarchyCodeCache.compute(this, hierarchy);
 
-			// concatenate the parent hierarchy code with the rest
-			// in a dot separated way
-			hierarchyCode = parentHierarchyCode + "." + hierarchyCode;
-
-			// get the next parent
-			parent = parent.getParent(hierarchy);
-		}
-
-		// add the Z at the beginning (to avoid excel issues)
-		hierarchyCode = "Z" + hierarchyCode;
-
-		return hierarchyCode;
+		return catalogue.getHierarchyCodeCache().get(this, hierarchy);
 	}
 
 	@Override
@@ -676,8 +739,6 @@ public class Term extends CatalogueObject implements Mappable {
 	 */
 	private String getHierarchyProperty(String key, ParentField field) {
 
-		String value = "";
-
 		// get the hierarchy code from the key
 		String hierarchyCode = key.split("_", 2)[1];
 
@@ -690,6 +751,21 @@ public class Term extends CatalogueObject implements Mappable {
 		else
 			hierarchy = catalogue.getHierarchyByCode(hierarchyCode);
 
+		return getHierarchyProperty(hierarchy, field);
+	}
+
+	/**
+	 * Get the parent field of the term in the selected hierarchy
+	 * 
+	 * @param hierarchy the hierarchy of the field
+	 * @param field     field which is being analyzed
+	 * @return the value of the field, or an empty string if the term is not in
+	 *         the hierarchy
+	 */
+	public String getHierarchyProperty(Hierarchy hierarchy, ParentField field) {
+
+		String value = "";
+
 		// get the term applicability related to the found hierarchy
 		Applicability appl = this.getApplicability(hierarchy);
 
@@ -846,6 +922,10 @@ public class Term extends CatalogueObject implements Mappable {
 				// update the reportability of the term in the selected hierarchy
 				appl.setReportable(reportable);
 
+				// update the subtree counts of the parents
+				if (catalogue != null)
+					catalogue.getApplicabilityIndex().updateReportability(appl);
+
 				found = true;
 				break;
 			}
@@ -1008,6 +1088,7 @@ public class Term extends CatalogueObject implements Mappable {
 			// create an implicit facet descriptor
 			FacetDescriptor fa = new FacetDescriptor(this, ta, FacetType.IMPLICIT);
 			implicitFacets.add(fa);
+			invalidateInheritedFacets();
 		}
 	}
 
@@ -1022,8 +1103,10 @@ public class Term extends CatalogueObject implements Mappable {
 		termAttributes.remove(ta);
 
 		// if it was an implicit facet remove it also from the cache
-		if (ta.getAttribute().isImplicitFacet())
+		if (ta.getAttribute().isImplicitFacet()) {
 			implicitFacets.remove(ta);
+			invalidateInheritedFacets();
+		}
 
 		if (ta.getAttribute().isDetailLevel())
 			detailLevel = null;
@@ -1048,6 +1131,7 @@ public class Term extends CatalogueObject implements Mappable {
 
 		termAttributes.add(fd.getTermAttribute());
 		implicitFacets.add(fd);
+		invalidateInheritedFacets();
 	}
 
 	/**
@@ -1063,6 +1147,7 @@ public class Term extends CatalogueObject implements Mappable {
 
 		// remove the descriptor
 		implicitFacets.remove(fd);
+		invalidateInheritedFacets();
 	}
 
 	/**
@@ -1073,8 +1158,10 @@ public class Term extends CatalogueObject implements Mappable {
 		if (termAttributes != null)
 			termAttributes.clear();
 
-		if (implicitFacets != null)
+		if (implicitFacets != null && !implicitFacets.isEmpty()) {
 			implicitFacets.clear();
+			invalidateInheritedFacets();
+		}
 
 		detailLevel = null;
 		termType = null;
@@ -1123,8 +1210,10 @@ public class Term extends CatalogueObject implements Mappable {
 
 				// if we have an implicit facet then we remove also from the implicit facet
 				// array
-				if (removed.getAttribute().isImplicitFacet())
+				if (removed.getAttribute().isImplicitFacet()) {
 					implicitFacets.remove(removed);
+					invalidateInheritedFacets();
+				}
 
 				if (removed.getAttribute().isDetailLevel())
 					detailLevel = null;
@@ -1151,12 +1240,16 @@ public class Term extends CatalogueObject implements Mappable {
 		if (!applicabilities.contains(appl)) {
 
 			applicabilities.add(appl);
+			invalidateInheritedFacets(appl.getHierarchy());
 
 			ParentTermDAO parentDao = new ParentTermDAO(catalogue);
 
 			// add the new applicability permanently if required
-			if (permanent)
+			// and update the parent/child relationships in RAM
+			if (permanent) {
 				parentDao.insert(appl);
+				catalogue.getApplicabilityIndex().add(appl);
+			}
 
 			return true;
 		}
@@ -1185,12 +1278,15 @@ public class Term extends CatalogueObject implements Mappable {
 	public void removeApplicability(Applicability appl, boolean permanent) {
 
 		applicabilities.remove(appl);
+		invalidateInheritedFacets(appl.getHierarchy());
 
 		ParentTermDAO parentDao = new ParentTermDAO(catalogue);
 
 		// remove permanently
-		if (permanent)
+		if (permanent) {
 			parentDao.remove(appl);
+			catalogue.getApplicabilityIndex().remove(appl);
+		}
 	}
 
 	/**
@@ -1511,6 +1607,17 @@ public class Term extends CatalogueObject implements Mappable {
 		// deprecated or not
 		for (Hierarchy hierarchy : getApplicableHierarchies()) {
 
+			SubtreeCounts counts = getSubtreeCounts(hierarchy);
+
+			// use the counts of the subtree if available
+			if (counts != null) {
+
+				if (counts.getNotDeprecated() > 0)
+					return false;
+
+				continue;
+			}
+
 			// create a subtree iterator for all the terms contained in the subtree
 			// related to this parent term in the current hierarchy
 			TermSubtreeIterator iterator = new TermSubtreeIterator(this, hierarchy);
@@ -1541,6 +1648,11 @@ public class Term extends CatalogueObject implements Mappable {
 	 */
 	public boolean hasReportableChildren(Hierarchy hierarchy) {
 
+		SubtreeCounts counts = getSubtreeCounts(hierarchy);
+
+		if (counts != null)
+			return counts.getReportable() > 0;
+
 		// create a subtree iterator for all the terms contained in the subtree
 		// related to this parent term in the current hierarchy
 		TermSubtreeIterator iterator = new TermSubtreeIterator(this, hierarchy);
@@ -1598,6 +1710,11 @@ public class Term extends CatalogueObject implements Mappable {
 	 */
 	public boolean hasOnlyDeprecatedOrNotReportableChildren(Hierarchy hierarchy) {
 
+		SubtreeCounts counts = getSubtreeCounts(hierarchy);
+
+		if (counts != null)
+			return counts.getReportableNotDeprecated() == 0;
+
 		// create a subtree iterator for all the terms contained in the subtree
 		// related to this parent term in the current hierarchy
 		TermSubtreeIterator iterator = new TermSubtreeIterator(this, hierarchy);
@@ -1805,7 +1922,7 @@ public class Term extends CatalogueObject implements Mappable {
 
 	/**
 	 * Move the term before or after the target depending on the position
-	 * {@code pos}
+	 * {@code pos}. The changed orders are saved all together.
 	 * 
 	 * @param target    the target of the movement
 	 * @param hierarchy the hierarchy in which we move the term
@@ -1830,8 +1947,10 @@ public class Term extends CatalogueObject implements Mappable {
 
 		ArrayList<Term> termsToNormalize = this.getSiblings(hierarchy);
 
+		LevelReorder reorder = new LevelReorder(hierarchy);
+
 		// change the source parent with the target parent
-		this.setParent(hierarchy, targetParent);
+		reorder.setParent(this, targetParent);
 
 		// save the target order
 		int targetOrder = target.getOrder(hierarchy);
@@ -1844,7 +1963,7 @@ public class Term extends CatalogueObject implements Mappable {
 
 			// if below target, then move down to free one space
 			if (siblingOrder > targetOrder) {
-				sibling.setOrder(hierarchy, siblingOrder + 1);
+				reorder.setOrder(sibling, siblingOrder + 1);
 			}
 		}
 
@@ -1853,14 +1972,14 @@ public class Term extends CatalogueObject implements Mappable {
 		if (pos == Position.BEFORE) {
 
 			// put the source in the target position
-			this.setOrder(hierarchy, targetOrder);
+			reorder.setOrder(this, targetOrder);
 
 			// move the target down to free space
-			target.setOrder(hierarchy, targetOrder + 1);
+			reorder.setOrder(target, targetOrder + 1);
 		} else {
 			// if after the target, do not touch target order
 			// and place the source under the target
-			this.setOrder(hierarchy, targetOrder + 1);
+			reorder.setOrder(this, targetOrder + 1);
 		}
 
 		if (!termsToNormalize.isEmpty()) {
@@ -1877,26 +1996,39 @@ public class Term extends CatalogueObject implements Mappable {
 				termsToNormalize.add(this);
 			}
 
-			normalizeLevel(termsToNormalize, hierarchy);
+			reorder.normalize(termsToNormalize);
 		}
+
+		reorder.commit();
 	}
 
+	/**
+	 * Move the term as last child of the target, and normalize the orders of its
+	 * previous level. The changed orders are saved all together.
+	 * 
+	 * @param target
+	 * @param hierarchy
+	 */
 	public void moveAsChild(Nameable target, Hierarchy hierarchy) {
 
 		ArrayList<Term> termsToNormalize = new ArrayList<>(this.getSiblings(hierarchy));
 
 		int newOrder = getFirstAvailableChildrenOrder(target, hierarchy);
 
+		LevelReorder reorder = new LevelReorder(hierarchy);
+
 		// change the order with the first available
-		this.setOrder(hierarchy, newOrder);
+		reorder.setOrder(this, newOrder);
 
 		// change the source parent with the target parent
-		this.setParent(hierarchy, target);
+		reorder.setParent(this, target);
 
 		// normalize source level
 		if (!termsToNormalize.isEmpty()) {
-			normalizeLevel(termsToNormalize, hierarchy);
+			reorder.normalize(termsToNormalize);
 		}
+
+		reorder.commit();
 	}
 
 	public boolean isRootTerm(Hierarchy hierarchy) {
@@ -2022,38 +2154,17 @@ public class Term extends CatalogueObject implements Mappable {
 	/**
 	 * Normalize the terms siblings order, that is, all the integer order holes
 	 * between siblings are filled replacing the terms orders with increasing
-	 * numbers (maintaining the same order!).
+	 * numbers (maintaining the same order!). Only the changed orders are saved,
+	 * all together.
 	 * 
 	 * @param hierarchy the hierarchy in which the siblings are retrieved
 	 * @return the list of siblings with normalized order
 	 */
 	public static void normalizeLevel(ArrayList<Term> termsOnLevel, final Hierarchy hierarchy) {
 
-		// sort terms by order
-		Collections.sort(termsOnLevel, new Comparator<Term>() {
-			public int compare(Term t1, Term t2) {
-
-				int o1 = t1.getOrder(hierarchy);
-				int o2 = t2.getOrder(hierarchy);
-
-				if (o1 == o2)
-					return 0;
-
-				else if (o1 < o2)
-					return -1;
-
-				return 1;
-			};
-		});
-
-		// normalize order integer replacing orders
-		// with increasing numbers to cover all the
-		// orders holes
-
-		for (int i = 0; i < termsOnLevel.size(); i++) {
-			// set order for siblings
-			termsOnLevel.get(i).setOrder(hierarchy, i + 1);
-		}
+		LevelReorder reorder = new LevelReorder(hierarchy);
+		reorder.normalize(termsOnLevel);
+		reorder.commit();
 	}
 
 	/**
@@ -85,7 +85,7 @@ public class TxtTermsParser {
 		try {
 			
 			// initialise the code generatore
-			CodeGenerator generator = new CodeGenerator();
+			CodeGenerator generator = new CodeGenerator(catalogue);
 			
 			// iterate the file
 			while(hasNext()) {
@@ -27,6 +27,17 @@ public class AppConfig {
 	private static final String DCF_XML_CREATOR_UPDATE = "DcfXmlUpdatesCreator.UpdateFolder";
 	private static final String DCF_XML_CREATOR_OUT = "DcfXmlUpdatesCreator.OutputFolder";
 	private static final String APP_HELP_REPOSITORY_PROPERTY = "Application.HelpRepository";
+	private static final String IMPORT_STREAM_XML = "Import.StreamXml";
+	private static final String CATALOGUE_SNAPSHOT = "Catalogue.Snapshot";
+	private static final String IMPORT_DELTA = "Import.Delta";
+	private static final String IMPORT_READ_BATCH = "Import.ReadBatchSize";
+	private static final String IMPORT_WRITE_BATCH = "Import.WriteBatchSize";
+	private static final String IMPORT_WORKERS = "Import.Workers";
+	private static final String IMPORT_BULK_LOAD = "Import.BulkLoad";
+	private static final String DOWNLOAD_CONCURRENCY = "Download.Concurrency";
+	private static final String DOWNLOAD_ATTEMPTS = "Download.Attempts";
+	private static final String METRICS_ENABLED = "Metrics.Enabled";
+	private static final String METRICS_LOG_INTERVAL = "Metrics.LogInterval";
 
 	private static final String NOT_FOUND = "not found";
 	
@@ -97,6 +108,146 @@ public class AppConfig {
 		return getValue(APP_HELP_REPOSITORY_PROPERTY) + "/";
 	}
 
+	/**
+	 * Check if the .xml catalogues should be imported directly, without
+	 * converting them into .xlsx workbooks. Enabled if not specified.
+	 * 
+	 * @return
+	 */
+	public static boolean isXmlStreamingImport() {
+		String value = getValue(IMPORT_STREAM_XML);
+		return value == null || value.equals(NOT_FOUND) || Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * Check if the loaded catalogues should be saved in a binary snapshot, to
+	 * open them faster the next time. Enabled if not specified.
+	 * 
+	 * @return
+	 */
+	public static boolean isCatalogueSnapshot() {
+		String value = getValue(CATALOGUE_SNAPSHOT);
+		return value == null || value.equals(NOT_FOUND) || Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * Check if a .xlsx imported into an existing catalogue should only write the
+	 * differences with the catalogue database. Enabled if not specified.
+	 * 
+	 * @return
+	 */
+	public static boolean isDeltaImport() {
+		String value = getValue(IMPORT_DELTA);
+		return value == null || value.equals(NOT_FOUND) || Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * Get the number of rows which are read at once from the sheets of a .xlsx
+	 * catalogue during the import (500 if not specified)
+	 * 
+	 * @return
+	 */
+	public static int getImportReadBatchSize() {
+		return getIntValue(IMPORT_READ_BATCH, 500);
+	}
+
+	/**
+	 * Get the number of records which are inserted at once in each table of the
+	 * database during the import of a .xlsx catalogue (1000 if not specified)
+	 * 
+	 * @return
+	 */
+	public static int getImportWriteBatchSize() {
+		return getIntValue(IMPORT_WRITE_BATCH, 1000);
+	}
+
+	/**
+	 * Get the number of threads which convert the rows of the sheets into
+	 * catalogue objects during the import of a .xlsx catalogue. If not specified
+	 * it depends on the available processors.
+	 * 
+	 * @return
+	 */
+	public static int getImportWorkers() {
+		int defaultWorkers = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+		return getIntValue(IMPORT_WORKERS, defaultWorkers);
+	}
+
+	/**
+	 * Check if the terms, the term attributes and the parent terms should be
+	 * loaded with the Derby import procedures when a .xlsx catalogue is imported
+	 * into a new database. Enabled if not specified.
+	 * 
+	 * @return
+	 */
+	public static boolean isBulkLoadImport() {
+		String value = getValue(IMPORT_BULK_LOAD);
+		return value == null || value.equals(NOT_FOUND) || Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * Get the maximum number of catalogues which are downloaded at the same time
+	 * when several catalogues are downloaded together
+	 * 
+	 * @return
+	 */
+	public static int getDownloadConcurrency() {
+		return getIntValue(DOWNLOAD_CONCURRENCY, 3);
+	}
+
+	/**
+	 * Get how many times the download of a catalogue is tried before giving up
+	 * 
+	 * @return
+	 */
+	public static int getDownloadAttempts() {
+		return getIntValue(DOWNLOAD_ATTEMPTS, 3);
+	}
+
+	/**
+	 * Check if the timers and the counters of the application should be collected
+	 * (see {@link metrics.Metrics}). Disabled if not specified.
+	 * 
+	 * @return
+	 */
+	public static boolean isMetricsEnabled() {
+		String value = getValue(METRICS_ENABLED);
+		return value != null && !value.equals(NOT_FOUND) && Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * Get every how many seconds the collected metrics are written in the log (0
+	 * if not specified, that is, never)
+	 * 
+	 * @return
+	 */
+	public static int getMetricsLogInterval() {
+		return getIntValue(METRICS_LOG_INTERVAL, 0);
+	}
+
+	/**
+	 * Get a positive integer property value given the key
+	 * 
+	 * @param property
+	 * @param defaultValue value returned if the property is not set or not valid
+	 * @return
+	 */
+	private static int getIntValue(String property, int defaultValue) {
+
+		String value = getValue(property);
+
+		if (value == null || value.equals(NOT_FOUND))
+			return defaultValue;
+
+		try {
+			int number = Integer.parseInt(value.trim());
+			return number > 0 ? number : defaultValue;
+		} catch (NumberFormatException e) {
+			LOGGER.error("Wrong value for " + property + ": " + value, e);
+			return defaultValue;
+		}
+	}
+
 	/**
 	 * Get a property value given the key
 	 * 
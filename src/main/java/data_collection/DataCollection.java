@@ -16,6 +16,7 @@ import org.apache.logging.log4j.Logger;
 import catalogue.Catalogue;
 import catalogue_browser_dao.CatalogueDAO;
 import catalogue_generator.CatalogueDownloader;
+import catalogue_generator.CatalogueDownloaderManager;
 import dcf_manager.Dcf;
 import i18n_messages.CBMessages;
 import progress_bar.ProgressList;
@@ -232,30 +233,31 @@ public class DataCollection implements IDcfDataCollection {
 		ProgressList list = new ProgressList ( 100 );
 		list.addProgressListener( listener );
 
-		// start downloading all the catalogues 
-		// related to the data collection
+		// download all the catalogues related to the data collection,
+		// a limited number at a time
+		CatalogueDownloaderManager manager = new CatalogueDownloaderManager();
+
 		Collection<CatalogueDownloader> down = prepareDownloadThreads();
 
 		for ( final CatalogueDownloader thread : down ) {
 
-			// start the thread
-			thread.start();
+			manager.add( thread );
 
-			// create a wait progress step for that thread
+			// create a wait progress step for that catalogue
 			list.add( new ProgressStep( "t_" + thread.getId(), 
 					thread.getCatalogue().toString() ) {
 
 				@Override
 				public void execute() throws InterruptedException {
-					while ( !thread.isFinished() ) {
-						Thread.sleep( 100 );
-					}
+					thread.awaitFinished();
 				}
 			});
 		}
 
+		manager.start();
+
 		// start the execution of the steps
-		// i.e. wait all the threads
+		// i.e. wait all the catalogues
 		list.start();
 	}
 
@@ -335,10 +337,10 @@ public class DataCollection implements IDcfDataCollection {
 	}
 
 	/**
-	 * Start all the download processes which download the
+	 * Prepare the download processes which download the
 	 * data collections catalogues
-	 * @return a collection of {@link CataglogueDownloader} threads
-	 * which were started
+	 * @return a collection of {@link CatalogueDownloader} which
+	 * need to be run
 	 */
 	private Collection<CatalogueDownloader> prepareDownloadThreads() {
 
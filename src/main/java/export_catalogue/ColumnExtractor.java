@@ -0,0 +1,30 @@
+package export_catalogue;
+
+import catalogue_object.Mappable;
+
+/**
+ * Get the value of a column of a sheet from the exported records. The
+ * extractors are created once for each column of the sheet (see
+ * {@link SheetWriter#compileColumn(String)}), in order to resolve the column
+ * key only once and not for each exported cell.
+ */
+public interface ColumnExtractor {
+
+	/**
+	 * Get the value of the column for the record
+	 * 
+	 * @param record
+	 * @return
+	 */
+	public String getValue(Mappable record);
+
+	/**
+	 * Check if the value can be computed outside the thread which writes the
+	 * sheet, in parallel with the other records. The values which change the
+	 * state of the records (or which use not thread safe objects) should be
+	 * computed by the writer, in the order of the records.
+	 * 
+	 * @return
+	 */
+	public boolean isThreadSafe();
+}
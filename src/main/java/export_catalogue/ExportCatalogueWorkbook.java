@@ -10,6 +10,8 @@ import catalogue.Catalogue;
 import dcf_user.User;
 import i18n_messages.CBMessages;
 import ict_add_on.ICTInstaller;
+import metrics.Metrics;
+import metrics.Timer;
 import naming_convention.Headers;
 import progress_bar.IProgressBar;
 
@@ -23,6 +25,8 @@ public class ExportCatalogueWorkbook {
 
 	private static final Logger LOGGER = LogManager.getLogger(ExportCatalogueWorkbook.class);
 
+	private static final Timer EXPORT_TIMER = Metrics.timer("Export.exportCatalogue");
+
 	private IProgressBar progressBar; // progress bar to show the export process to the user
 	private static boolean extractXML; // flag used to add dump record if called from extract xml
 
@@ -49,6 +53,7 @@ public class ExportCatalogueWorkbook {
 	public void exportCatalogue(Catalogue catalogue, String filename, Boolean flag) throws IOException {
 
 		long startTime = System.currentTimeMillis();
+		long start = EXPORT_TIMER.start();
 
 		LOGGER.info("Starting export process...");
 
@@ -167,6 +172,8 @@ public class ExportCatalogueWorkbook {
 		if (progressBar != null)
 			progressBar.close();
 
+		EXPORT_TIMER.stop(start);
+
 		LOGGER.info("Export finished, statistics: overall time = " + (System.currentTimeMillis() - startTime) / 1000.00
 				+ " seconds");
 	}
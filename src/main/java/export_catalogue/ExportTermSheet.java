@@ -116,6 +116,11 @@ public class ExportTermSheet extends SheetWriter {
 		return headers;
 	}
 
+	@Override
+	protected ColumnExtractor compileColumn(String key) {
+		return TermColumn.compile(catalogue, key);
+	}
+
 	@Override
 	public Collection<? extends Mappable> getData() {
 		
@@ -123,6 +128,12 @@ public class ExportTermSheet extends SheetWriter {
 		
 		Collections.sort( terms, new CodeSorter() );
 		
+		// compute the hierarchy codes of all the terms with a single
+		// visit of each hierarchy, instead of walking the parents
+		// of each term for each hierarchyCode_ column
+		if ( flag )
+			catalogue.getHierarchyCodeCache().build( catalogue.getHierarchies() );
+		
 		return terms;
 	}
 }
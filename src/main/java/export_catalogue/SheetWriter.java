@@ -1,13 +1,25 @@
 package export_catalogue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import catalogue_object.Mappable;
+import metrics.Metrics;
 import progress_bar.IProgressBar;
 import sheet_header.SheetHeader;
 
@@ -21,6 +33,14 @@ import sheet_header.SheetHeader;
  */
 public abstract class SheetWriter {
 
+	private static final Logger LOGGER = LogManager.getLogger(SheetWriter.class);
+
+	// minimum number of records to compute the values in parallel
+	private static final int PARALLEL_THRESHOLD = 2000;
+
+	// number of records computed by each task
+	private static final int CHUNK_SIZE = 500;
+
 	// progress bar which has to be updated while processing terms
 	// if it is set, it is updated
 	// see setProgressBar method
@@ -33,6 +53,12 @@ public abstract class SheetWriter {
 	// the considered fields of the xml which will be the sheet columns
 	public HashMap<String, SheetHeader> headers;
 
+	// the extractors of the columns, in the order of the headers
+	private ColumnExtractor[] extractors;
+
+	// the indexes of the columns, in the order of the headers
+	private int[] columnIndexes;
+
 	// the current number of rows
 	private int rowNum = 0;
 
@@ -106,6 +132,48 @@ public abstract class SheetWriter {
 		// insert the headers
 		for (SheetHeader header : headers.values())
 			createCell(header.getColumnIndex(), row, header.getColumnName());
+
+		compileColumns();
+	}
+
+	/**
+	 * Create the extractors of the values of the columns
+	 */
+	private void compileColumns() {
+
+		extractors = new ColumnExtractor[headers.size()];
+		columnIndexes = new int[headers.size()];
+
+		int i = 0;
+		for (String key : headers.keySet()) {
+			extractors[i] = compileColumn(key);
+			columnIndexes[i] = headers.get(key).getColumnIndex();
+			i++;
+		}
+	}
+
+	/**
+	 * Create the extractor of the values of a column. By default the values are
+	 * retrieved with {@link Mappable#getValueByKey(String)}, override this
+	 * method to resolve the key only once.
+	 * 
+	 * @param key the key of the column header
+	 * @return
+	 */
+	protected ColumnExtractor compileColumn(final String key) {
+
+		return new ColumnExtractor() {
+
+			@Override
+			public String getValue(Mappable record) {
+				return record.getValueByKey(key);
+			}
+
+			@Override
+			public boolean isThreadSafe() {
+				return false;
+			}
+		};
 	}
 
 	/**
@@ -122,19 +190,169 @@ public abstract class SheetWriter {
 		// for each row maxFill/#rows
 		double increment = (double) maxFill / data.size();
 
-		// for each record we create a row
-		// with the values into the right cells
-		for (Mappable record : data) {
+		long start = System.currentTimeMillis();
+
+		if (data.size() >= PARALLEL_THRESHOLD && hasThreadSafeColumns()) {
+			insertDataParallel(new ArrayList<>(data), increment);
+		} else {
+
+			// for each record we create a row
+			// with the values into the right cells
+			for (Mappable record : data) {
+
+				// insert a single row
+				insertDataRow(record);
+
+				// refresh the progress bar if needed
+				if (progressBar != null)
+					progressBar.addProgress(increment);
+			}
+		}
+
+		if (Metrics.isEnabled())
+			Metrics.recordRate("Export." + sheet.getSheetName() + ".rowsPerSecond", data.size(),
+					System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Insert the data computing the thread safe values of the rows in parallel
+	 * chunks. The rows are written only by the current thread, in the order of
+	 * the records, since the sheet cannot be written concurrently. Only a limited
+	 * number of chunks is computed in advance, to limit the memory used.
+	 * 
+	 * @param data
+	 * @param increment progress for each row
+	 */
+	private void insertDataParallel(List<? extends Mappable> data, double increment) {
+
+		long start = System.currentTimeMillis();
+
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		Queue<List<? extends Mappable>> chunks = new LinkedList<>();
+		Queue<Future<String[][]>> pending = new LinkedList<>();
+
+		try {
+
+			for (int from = 0; from < data.size(); from += CHUNK_SIZE) {
 
-			// insert a single row
-			insertDataRow(record);
+				final List<? extends Mappable> chunk = data.subList(from, Math.min(from + CHUNK_SIZE, data.size()));
+
+				chunks.add(chunk);
+				pending.add(executor.submit(new Callable<String[][]>() {
+					@Override
+					public String[][] call() {
+						return computeValues(chunk, true);
+					}
+				}));
+
+				// write the oldest chunk if too many chunks are waiting
+				while (pending.size() >= threads * 2)
+					insertChunk(chunks.poll(), pending.poll(), increment);
+			}
+
+			while (!pending.isEmpty())
+				insertChunk(chunks.poll(), pending.poll(), increment);
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+		LOGGER.info("Sheet " + sheet.getSheetName() + ": " + data.size() + " rows written in "
+				+ (System.currentTimeMillis() - start) + " ms with " + threads + " threads");
+	}
+
+	/**
+	 * Write the rows of a chunk, computing the values which are not thread safe.
+	 * If the computation of the chunk failed, all its values are computed again
+	 * by the current thread.
+	 * 
+	 * @param chunk
+	 * @param future    the values computed in parallel
+	 * @param increment
+	 */
+	private void insertChunk(List<? extends Mappable> chunk, Future<String[][]> future, double increment) {
+
+		String[][] values;
+
+		try {
+			values = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOGGER.error("Interrupted while computing the rows of " + sheet.getSheetName(), e);
+			values = computeValues(chunk, false);
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot compute the rows of " + sheet.getSheetName() + " in parallel", e);
+			values = computeValues(chunk, false);
+		}
+
+		for (int i = 0; i < chunk.size(); i++) {
+
+			Mappable record = chunk.get(i);
+
+			Row row = createRow(sheet);
+
+			for (int j = 0; j < extractors.length; j++) {
+
+				String value = values[i][j];
+
+				// not computed in parallel
+				if (value == null && !extractors[j].isThreadSafe())
+					value = extractors[j].getValue(record);
+
+				createCell(columnIndexes[j], row, value);
+			}
 
-			// refresh the progress bar if needed
 			if (progressBar != null)
 				progressBar.addProgress(increment);
 		}
 	}
 
+	/**
+	 * Compute the values of the records
+	 * 
+	 * @param records
+	 * @param onlyThreadSafe true to compute only the thread safe values (the
+	 *                       others are left null)
+	 * @return the values for each record and column
+	 */
+	private String[][] computeValues(List<? extends Mappable> records, boolean onlyThreadSafe) {
+
+		String[][] values = new String[records.size()][];
+
+		for (int i = 0; i < records.size(); i++) {
+
+			Mappable record = records.get(i);
+
+			values[i] = new String[extractors.length];
+
+			for (int j = 0; j < extractors.length; j++) {
+				if (!onlyThreadSafe || extractors[j].isThreadSafe())
+					values[i][j] = extractors[j].getValue(record);
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Check if at least one column can be computed in parallel
+	 * 
+	 * @return
+	 */
+	private boolean hasThreadSafeColumns() {
+
+		for (ColumnExtractor extractor : extractors) {
+			if (extractor.isThreadSafe())
+				return true;
+		}
+
+		return false;
+	}
+
 	/**
 	 * create a dump string of length 4000 useful for not truncating strings in SAS
 	 * 
@@ -181,13 +399,13 @@ public abstract class SheetWriter {
 		Row row = createRow(sheet);
 
 		// for each header we set the cell value related to it
-		for (String dbColumnName : headers.keySet()) {
+		for (int i = 0; i < extractors.length; i++) {
 
 			// get the value of the catalogue field
-			String value = record.getValueByKey(dbColumnName);
+			String value = extractors[i].getValue(record);
 
 			// add the cell to the sheet
-			createCell(headers.get(dbColumnName).getColumnIndex(), row, value);
+			createCell(columnIndexes[i], row, value);
 		}
 	}
 
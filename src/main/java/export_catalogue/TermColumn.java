@@ -0,0 +1,197 @@
+package export_catalogue;
+
+import catalogue.Catalogue;
+import catalogue_object.Hierarchy;
+import catalogue_object.Mappable;
+import catalogue_object.ParentField;
+import catalogue_object.Term;
+import data_transformation.BooleanConverter;
+import data_transformation.DateTrimmer;
+import naming_convention.SpecialValues;
+import ui_implicit_facet.ComparatorAlphaFacetDescriptor;
+
+/**
+ * Column of the term sheet. The key of the column is parsed only once, and the
+ * attribute name or the hierarchy of the column are resolved when the column
+ * is created. The values are the same of {@link Term#getValueByKey(String)}.
+ */
+public class TermColumn implements ColumnExtractor {
+
+	private enum Kind {
+		CODE, NAME, SHORT_NAME, SCOPENOTE, VERSION, LAST_UPDATE, VALID_FROM, VALID_TO, STATUS, DEPRECATED,
+		ALL_FACETS, IMPLICIT_FACETS, ATTRIBUTE, HIERARCHY, NONE
+	}
+
+	private Kind kind;
+	private String attributeName;
+	private Hierarchy hierarchy;
+	private ParentField field;
+
+	private TermColumn(Kind kind) {
+		this.kind = kind;
+	}
+
+	/**
+	 * Create the column related to the key of the header
+	 * 
+	 * @param catalogue the exported catalogue
+	 * @param key       the key of the header, as TERM_CODE, attribute_ +
+	 *                  attribute name or flag_ + hierarchy code
+	 * @return
+	 */
+	public static TermColumn compile(Catalogue catalogue, String key) {
+
+		TermColumn column;
+
+		switch (key) {
+		case "TERM_CODE":
+			column = new TermColumn(Kind.CODE);
+			break;
+		case "TERM_EXTENDED_NAME":
+			column = new TermColumn(Kind.NAME);
+			break;
+		case "TERM_SHORT_NAME":
+			column = new TermColumn(Kind.SHORT_NAME);
+			break;
+		case "TERM_SCOPENOTE":
+			column = new TermColumn(Kind.SCOPENOTE);
+			break;
+		case "TERM_VERSION":
+			column = new TermColumn(Kind.VERSION);
+			break;
+		case "TERM_LAST_UPDATE":
+			column = new TermColumn(Kind.LAST_UPDATE);
+			break;
+		case "TERM_VALID_FROM":
+			column = new TermColumn(Kind.VALID_FROM);
+			break;
+		case "TERM_VALID_TO":
+			column = new TermColumn(Kind.VALID_TO);
+			break;
+		case "TERM_STATUS":
+			column = new TermColumn(Kind.STATUS);
+			break;
+		case "TERM_DEPRECATED":
+			column = new TermColumn(Kind.DEPRECATED);
+			break;
+		default:
+			column = new TermColumn(Kind.NONE);
+			break;
+		}
+
+		// parametrized attribute (attribute_ + attribute name)
+		if (key.contains("attribute_")) {
+
+			String attrName = key.split("_", 2)[1];
+
+			if (attrName.equals(SpecialValues.ALL_FACETS_NAME))
+				column = new TermColumn(Kind.ALL_FACETS);
+			else if (attrName.equals(SpecialValues.IMPLICIT_FACETS_NAME))
+				column = new TermColumn(Kind.IMPLICIT_FACETS);
+			else {
+				column = new TermColumn(Kind.ATTRIBUTE);
+				column.attributeName = attrName;
+			}
+		}
+
+		// parametrized hierarchy fields (as in the terms, the last one wins)
+		if (key.contains("flag_"))
+			column = hierarchyColumn(catalogue, key, ParentField.FLAG);
+
+		if (key.contains("parent_"))
+			column = hierarchyColumn(catalogue, key, ParentField.PARENT_CODE);
+
+		if (key.contains("order_"))
+			column = hierarchyColumn(catalogue, key, ParentField.ORDER);
+
+		if (key.contains("reportable_"))
+			column = hierarchyColumn(catalogue, key, ParentField.REPORTABLE);
+
+		if (key.contains("hierarchyCode_"))
+			column = hierarchyColumn(catalogue, key, ParentField.HIERARCHY_CODE);
+
+		return column;
+	}
+
+	/**
+	 * Create a column of a hierarchy field, the key contains the hierarchy code
+	 * 
+	 * @param catalogue
+	 * @param key
+	 * @param field
+	 * @return
+	 */
+	private static TermColumn hierarchyColumn(Catalogue catalogue, String key, ParentField field) {
+
+		String hierarchyCode = key.split("_", 2)[1];
+
+		TermColumn column = new TermColumn(Kind.HIERARCHY);
+		column.field = field;
+
+		if (hierarchyCode.equals(Hierarchy.MASTER_HIERARCHY_CODE))
+			column.hierarchy = catalogue.getMasterHierarchy();
+		else
+			column.hierarchy = catalogue.getHierarchyByCode(hierarchyCode);
+
+		return column;
+	}
+
+	@Override
+	public String getValue(Mappable record) {
+
+		Term term = (Term) record;
+
+		switch (kind) {
+		case CODE:
+			return term.getCode();
+		case NAME:
+			return term.getName();
+		case SHORT_NAME:
+			return term.getShortName(false);
+		case SCOPENOTE:
+			return term.getScopenotes();
+		case VERSION:
+			return term.getVersion();
+		case LAST_UPDATE:
+			return term.getLastUpdate() == null ? "" : DateTrimmer.dateToString(term.getLastUpdate());
+		case VALID_FROM:
+			return term.getValidFrom() == null ? "" : DateTrimmer.dateToString(term.getValidFrom());
+		case VALID_TO:
+			return term.getValidTo() == null ? "" : DateTrimmer.dateToString(term.getValidTo());
+		case STATUS:
+			return term.getStatus();
+		case DEPRECATED:
+			return BooleanConverter.toNumericBoolean(String.valueOf(term.isDeprecated()));
+		case ALL_FACETS:
+			return term.getFullCode(true, true, new ComparatorAlphaFacetDescriptor());
+		case IMPLICIT_FACETS:
+			return term.getFullCode(false, false, new ComparatorAlphaFacetDescriptor());
+		case ATTRIBUTE:
+			return term.getAttributeValueByName(attributeName);
+		case HIERARCHY:
+			return term.getHierarchyProperty(hierarchy, field);
+		default:
+			return "";
+		}
+	}
+
+	/**
+	 * The facets are computed by the writer since their computation updates the
+	 * implicit facets of the terms and of their parents. The dates are formatted
+	 * by the writer too, since the date formats are not thread safe.
+	 */
+	@Override
+	public boolean isThreadSafe() {
+
+		switch (kind) {
+		case ALL_FACETS:
+		case IMPLICIT_FACETS:
+		case LAST_UPDATE:
+		case VALID_FROM:
+		case VALID_TO:
+			return false;
+		default:
+			return true;
+		}
+	}
+}
@@ -0,0 +1,976 @@
+package import_catalogue;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+
+import catalogue.Catalogue;
+import catalogue_browser_dao.AttributeDAO;
+import catalogue_browser_dao.CatalogueSchema;
+import catalogue_browser_dao.HierarchyDAO;
+import catalogue_browser_dao.ICatalogueDAO;
+import catalogue_browser_dao.TermDAO;
+import catalogue_object.Attribute;
+import catalogue_object.BaseObject;
+import catalogue_object.Hierarchy;
+import catalogue_object.RepeatableParser;
+import catalogue_object.Term;
+import naming_convention.Headers;
+import naming_convention.SpecialValues;
+import open_xml_reader.ResultDataSet;
+import open_xml_reader.WorkbookReader;
+import term_code_generator.CodeGenerator;
+
+/**
+ * Import a catalogue workbook into an already existing catalogue database
+ * writing only the differences. For each term of the workbook we compute a hash
+ * of its fields, of its attribute values and of its parents, and we compare
+ * them with the hashes of the rows already contained in the database. Then only
+ * the changed terms are inserted, updated or deleted, together with their
+ * TERM_ATTRIBUTE and PARENT_TERM rows, in a single transaction.
+ *
+ * The delta import is possible only if the hierarchies and the attributes of
+ * the workbook have the same codes of the ones of the database (their other
+ * fields are updated) and if the workbook does not contain new terms with
+ * temporary codes. Otherwise nothing is written and the full import should be
+ * used.
+ */
+public class CatalogueDeltaImporter {
+
+	private static final Logger LOGGER = LogManager.getLogger(CatalogueDeltaImporter.class);
+
+	private static final int BATCH_SIZE = 1000;
+
+	private ICatalogueDAO catDao;
+	private Catalogue openedCat;
+
+	// the catalogue read from the workbook
+	private Catalogue catalogue;
+
+	// data read from the workbook
+	private List<Hierarchy> hierarchies;
+	private List<Attribute> attributes;
+	private LinkedHashMap<String, TermRow> incoming;
+
+	// true if a term with a temporary code was found
+	private boolean tempCodes;
+
+	// summary of the changes
+	private int added;
+	private int removed;
+	private int changedFields;
+	private int changedAttributes;
+	private int changedParents;
+	private int unchanged;
+
+	/**
+	 * @param catDao    dao of the main catalogues table
+	 * @param openedCat the catalogue in which the workbook is imported
+	 */
+	public CatalogueDeltaImporter(ICatalogueDAO catDao, Catalogue openedCat) {
+		this.catDao = catDao;
+		this.openedCat = openedCat;
+	}
+
+	/**
+	 * Import the workbook writing only the differences with the catalogue
+	 * database. The release notes are not imported.
+	 *
+	 * @param workbookReader
+	 * @return true if the delta was applied, false if the full import is needed
+	 *         (in this case the database was not modified)
+	 * @throws SQLException
+	 * @throws ImportException
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 * @throws InvalidFormatException
+	 */
+	public boolean importDelta(WorkbookReader workbookReader)
+			throws SQLException, ImportException, InvalidFormatException, IOException, XMLStreamException {
+
+		long start = System.currentTimeMillis();
+
+		// read the structure of the workbook
+		String excelCode = readCatalogue(workbookReader);
+		readHierarchies(workbookReader, excelCode);
+		readAttributes(workbookReader);
+
+		if (!isSameStructure())
+			return false;
+
+		// read all the terms of the workbook
+		readTerms(workbookReader);
+
+		if (tempCodes) {
+			LOGGER.info("New terms with temporary codes found, the delta import cannot be used for " + openedCat);
+			return false;
+		}
+
+		long read = System.currentTimeMillis();
+
+		// hashes of the terms of the database
+		HashMap<String, TermRow> existing = readExisting();
+
+		long load = System.currentTimeMillis();
+
+		// compare the terms
+		List<TermRow> toInsert = new ArrayList<>();
+		List<TermRow> toUpdate = new ArrayList<>();
+		List<TermRow> toRemove = new ArrayList<>();
+
+		diff(incoming, existing, toInsert, toUpdate, toRemove);
+
+		long diff = System.currentTimeMillis();
+
+		// write the differences
+		apply(existing, toInsert, toUpdate, toRemove);
+
+		long apply = System.currentTimeMillis();
+
+		// update the definitions of hierarchies, attributes, term types and
+		// catalogue
+		updateStructure();
+
+		long end = System.currentTimeMillis();
+
+		LOGGER.info("Delta import of " + catalogue + ": " + added + " terms added, " + removed + " removed, "
+				+ changedFields + " with changed fields, " + changedAttributes + " with changed attributes, "
+				+ changedParents + " with changed parents, " + unchanged + " unchanged");
+
+		LOGGER.info("Delta import times (ms): read workbook=" + (read - start) + ", read database=" + (load - read)
+				+ ", diff=" + (diff - load) + ", write=" + (apply - diff) + ", structure=" + (end - apply)
+				+ ", total=" + (end - start));
+
+		return true;
+	}
+
+	/**
+	 * Get the catalogue read from the workbook, with the code and version of the
+	 * opened catalogue
+	 *
+	 * @return
+	 */
+	public Catalogue getImportedCatalogue() {
+		return catalogue;
+	}
+
+	/**
+	 * Read the catalogue sheet
+	 *
+	 * @param workbookReader
+	 * @return the code of the catalogue in the workbook
+	 */
+	private String readCatalogue(WorkbookReader workbookReader)
+			throws InvalidFormatException, IOException, XMLStreamException, SQLException {
+
+		workbookReader.processSheetName(Headers.CAT_SHEET_NAME);
+
+		ResultDataSet sheetData = workbookReader.next();
+
+		CatalogueSheetImporter catImp = new CatalogueSheetImporter(catDao);
+		catImp.setOpenedCatalogue(openedCat);
+
+		if (sheetData.next())
+			catImp.setImportedCatalogue(CatalogueSheetImporter.getCatalogueFromExcel(sheetData));
+
+		sheetData.close();
+
+		catalogue = catImp.getImportedCatalogue();
+
+		if (catalogue == null)
+			throw new SQLException("No catalogue found in the catalogue sheet");
+
+		catalogue.setId(openedCat.getId());
+
+		return catImp.getExcelCode();
+	}
+
+	/**
+	 * Read the hierarchy sheet without importing it
+	 *
+	 * @param workbookReader
+	 * @param excelCode
+	 */
+	private void readHierarchies(WorkbookReader workbookReader, String excelCode)
+			throws InvalidFormatException, IOException, XMLStreamException, ImportException {
+
+		workbookReader.processSheetName(Headers.HIER_SHEET_NAME);
+
+		ResultDataSet sheetData = workbookReader.next();
+
+		final List<Hierarchy> read = new ArrayList<>();
+
+		HierarchySheetImporter hierImp = new HierarchySheetImporter(null, catalogue, excelCode) {
+			@Override
+			public void insert(Collection<Hierarchy> data) {
+				read.addAll(data);
+			}
+		};
+
+		hierImp.importData(sheetData);
+
+		sheetData.close();
+
+		this.hierarchies = read;
+	}
+
+	/**
+	 * Read the attribute sheet without importing it
+	 *
+	 * @param workbookReader
+	 */
+	private void readAttributes(WorkbookReader workbookReader)
+			throws InvalidFormatException, IOException, XMLStreamException, ImportException {
+
+		workbookReader.processSheetName(Headers.ATTR_SHEET_NAME);
+
+		ResultDataSet sheetData = workbookReader.next();
+
+		final List<Attribute> read = new ArrayList<>();
+
+		AttributeSheetImporter attrImp = new AttributeSheetImporter(null, catalogue) {
+			@Override
+			public void insert(Collection<Attribute> data) {
+				read.addAll(data);
+			}
+		};
+
+		attrImp.importData(sheetData);
+
+		sheetData.close();
+
+		this.attributes = read;
+	}
+
+	/**
+	 * Check if the hierarchies and the attributes of the workbook have the same
+	 * codes of the ones contained in the database. If so, the ids of the database
+	 * are set to the hierarchies and attributes of the workbook.
+	 *
+	 * @return
+	 */
+	private boolean isSameStructure() {
+
+		HashMap<String, Integer> hierIds = new HashMap<>();
+		for (Hierarchy h : new HierarchyDAO(catalogue).getAll())
+			hierIds.put(h.getCode(), h.getId());
+
+		HashMap<String, Integer> attrIds = new HashMap<>();
+		for (Attribute a : new AttributeDAO(catalogue).getAll())
+			attrIds.put(a.getCode(), a.getId());
+
+		if (!sameCodes(hierIds, hierarchies) || !sameCodes(attrIds, attributes)) {
+			LOGGER.info("Hierarchies or attributes changed, the delta import cannot be used for " + openedCat);
+			return false;
+		}
+
+		for (Hierarchy h : hierarchies)
+			h.setId(hierIds.get(h.getCode()));
+
+		for (Attribute a : attributes)
+			a.setId(attrIds.get(a.getCode()));
+
+		// sort by id, to compare the values as they are read from the db
+		Collections.sort(hierarchies, new Comparator<Hierarchy>() {
+			public int compare(Hierarchy h1, Hierarchy h2) {
+				return Integer.compare(h1.getId(), h2.getId());
+			}
+		});
+
+		Collections.sort(attributes, new Comparator<Attribute>() {
+			public int compare(Attribute a1, Attribute a2) {
+				return Integer.compare(a1.getId(), a2.getId());
+			}
+		});
+
+		return true;
+	}
+
+	private static boolean sameCodes(Map<String, Integer> ids, List<? extends BaseObject> objs) {
+
+		HashSet<String> codes = new HashSet<>();
+		for (BaseObject obj : objs)
+			codes.add(obj.getCode());
+
+		return codes.size() == objs.size() && codes.equals(ids.keySet());
+	}
+
+	/**
+	 * Read all the terms of the term sheet with their attributes and parents
+	 *
+	 * @param workbookReader
+	 */
+	private void readTerms(WorkbookReader workbookReader)
+			throws InvalidFormatException, IOException, XMLStreamException, ImportException {
+
+		incoming = new LinkedHashMap<>();
+
+		workbookReader.processSheetName(Headers.TERM_SHEET_NAME);
+
+		final TermSheetImporter termImp = new TermSheetImporter(null, catalogue);
+		final CodeGenerator generator = new CodeGenerator();
+
+		QuickImporter quickImp = new QuickImporter(workbookReader, 100) {
+
+			@Override
+			public void importData(ResultDataSet rs) throws ImportException {
+
+				while (rs.next()) {
+
+					String code = rs.getString(Headers.TERM_CODE);
+
+					if (code == null || code.isEmpty())
+						continue;
+
+					if (generator.isTempCode(code)) {
+						tempCodes = true;
+						continue;
+					}
+
+					TermRow row = new TermRow(termImp.getByResultSet(rs));
+
+					readAttributes(rs, row);
+					readParents(rs, row);
+
+					row.computeHashes();
+
+					incoming.put(code, row);
+				}
+			}
+		};
+
+		quickImp.importSheet();
+	}
+
+	/**
+	 * Read the attribute values of the current term
+	 *
+	 * @param rs
+	 * @param row
+	 */
+	private void readAttributes(ResultDataSet rs, TermRow row) {
+
+		for (Attribute attr : attributes) {
+
+			String value = rs.getString(attr.getName());
+
+			if (value == null || value.isEmpty())
+				continue;
+
+			if (attr.isRepeatable()) {
+				for (String single : RepeatableParser.getRepeatableValues(value))
+					row.attributes.add(new Value(attr.getId(), single));
+			} else {
+				row.attributes.add(new Value(attr.getId(), value));
+			}
+		}
+	}
+
+	/**
+	 * Read the parents of the current term, as done by the {@link ParentImporter}
+	 *
+	 * @param rs
+	 * @param row
+	 * @throws ImportException
+	 */
+	private void readParents(ResultDataSet rs, TermRow row) throws ImportException {
+
+		for (Hierarchy hierarchy : hierarchies) {
+
+			String parentCode = rs.getString(getHierarchyFieldName(hierarchy, Headers.SUFFIX_PARENT_CODE));
+
+			if (parentCode == null || parentCode.isEmpty())
+				continue;
+
+			if (parentCode.equals(row.term.getCode())) {
+				ImportException e = new ImportException(
+						"ERROR: A TERM CANNOT BE PARENT OF ITSELF: term code " + parentCode, "X101");
+				e.setData(parentCode);
+				throw e;
+			}
+
+			int order = rs.getInt(getHierarchyFieldName(hierarchy, Headers.SUFFIX_ORDER), -1);
+			boolean reportable = rs.getBoolean(getHierarchyFieldName(hierarchy, Headers.SUFFIX_REPORT), true);
+
+			// null parent code for the first level terms
+			if (parentCode.equalsIgnoreCase(SpecialValues.NO_PARENT))
+				parentCode = null;
+
+			row.parents.add(new Parent(hierarchy.getId(), parentCode, order, reportable));
+		}
+	}
+
+	private String getHierarchyFieldName(Hierarchy hierarchy, String field) {
+
+		if (hierarchy.getCode().equals(catalogue.getCode()))
+			return Headers.PREFIX_MASTER_CODE + field;
+
+		return hierarchy.getCode() + field;
+	}
+
+	/**
+	 * Read the terms of the database and compute the hashes of their rows
+	 *
+	 * @return the terms by code
+	 * @throws SQLException
+	 */
+	private HashMap<String, TermRow> readExisting() throws SQLException {
+
+		HashMap<String, TermRow> existing = new HashMap<>();
+		HashMap<Integer, TermRow> byId = new HashMap<>();
+
+		TermDAO termDao = new TermDAO(catalogue);
+
+		try (Connection con = catalogue.getConnection(); Statement stmt = con.createStatement();) {
+
+			try (ResultSet rs = stmt.executeQuery("select * from APP.TERM");) {
+				while (rs.next()) {
+					TermRow row = new TermRow(termDao.getByResultSet(rs));
+					existing.put(row.term.getCode(), row);
+					byId.put(row.term.getId(), row);
+				}
+			}
+
+			try (ResultSet rs = stmt.executeQuery(
+					"select TERM_ID, ATTR_ID, ATTR_VALUE from APP.TERM_ATTRIBUTE order by TERM_ATTR_ID");) {
+				while (rs.next()) {
+
+					TermRow row = byId.get(rs.getInt("TERM_ID"));
+
+					if (row != null)
+						row.attributes.add(new Value(rs.getInt("ATTR_ID"), rs.getString("ATTR_VALUE")));
+				}
+			}
+
+			try (ResultSet rs = stmt.executeQuery("select TERM_ID, HIERARCHY_ID, PARENT_TERM_ID, "
+					+ "TERM_ORDER, TERM_REPORTABLE from APP.PARENT_TERM");) {
+				while (rs.next()) {
+
+					TermRow row = byId.get(rs.getInt("TERM_ID"));
+
+					if (row == null)
+						continue;
+
+					int parentId = rs.getInt("PARENT_TERM_ID");
+					TermRow parent = rs.wasNull() ? null : byId.get(parentId);
+
+					row.parents.add(new Parent(rs.getInt("HIERARCHY_ID"), parent == null ? null : parent.term.getCode(),
+							rs.getInt("TERM_ORDER"), rs.getBoolean("TERM_REPORTABLE")));
+				}
+			}
+		}
+
+		for (TermRow row : existing.values()) {
+			row.computeHashes();
+
+			// only the hashes are needed
+			row.attributes = null;
+			row.parents = null;
+		}
+
+		return existing;
+	}
+
+	/**
+	 * Compare the terms of the workbook with the ones of the database. The ids of
+	 * the database are set to the terms of the workbook which are already present.
+	 *
+	 * @param incoming
+	 * @param existing
+	 * @param toInsert
+	 * @param toUpdate
+	 * @param toRemove
+	 */
+	void diff(Map<String, TermRow> incoming, Map<String, TermRow> existing, List<TermRow> toInsert,
+			List<TermRow> toUpdate, List<TermRow> toRemove) {
+
+		for (TermRow row : incoming.values()) {
+
+			TermRow old = existing.get(row.term.getCode());
+
+			if (old == null) {
+				row.isNew = true;
+				toInsert.add(row);
+				continue;
+			}
+
+			row.term.setId(old.term.getId());
+
+			row.fieldsChanged = row.fieldsHash != old.fieldsHash;
+			row.attributesChanged = row.attributesHash != old.attributesHash;
+			row.parentsChanged = row.parentsHash != old.parentsHash;
+
+			if (row.fieldsChanged)
+				changedFields++;
+
+			if (row.attributesChanged)
+				changedAttributes++;
+
+			if (row.parentsChanged)
+				changedParents++;
+
+			if (row.fieldsChanged || row.attributesChanged || row.parentsChanged)
+				toUpdate.add(row);
+			else
+				unchanged++;
+		}
+
+		for (TermRow old : existing.values()) {
+			if (!incoming.containsKey(old.term.getCode()))
+				toRemove.add(old);
+		}
+
+		added = toInsert.size();
+		removed = toRemove.size();
+	}
+
+	/**
+	 * Write the differences into the database in a single transaction
+	 *
+	 * @param existing
+	 * @param toInsert
+	 * @param toUpdate
+	 * @param toRemove
+	 * @throws SQLException
+	 */
+	private void apply(HashMap<String, TermRow> existing, List<TermRow> toInsert, List<TermRow> toUpdate,
+			List<TermRow> toRemove) throws SQLException {
+
+		// term code => term id, also for the new terms
+		HashMap<String, Integer> ids = new HashMap<>();
+		for (TermRow row : existing.values())
+			ids.put(row.term.getCode(), row.term.getId());
+
+		for (TermRow row : toRemove)
+			ids.remove(row.term.getCode());
+
+		try (Connection con = catalogue.getConnection();) {
+
+			con.setAutoCommit(false);
+
+			try {
+
+				// remove the relations of the removed and changed terms
+				try (PreparedStatement delTa = con.prepareStatement("delete from APP.TERM_ATTRIBUTE where TERM_ID = ?");
+						PreparedStatement delParent = con
+								.prepareStatement("delete from APP.PARENT_TERM where TERM_ID = ?");
+						PreparedStatement delChildren = con
+								.prepareStatement("delete from APP.PARENT_TERM where PARENT_TERM_ID = ?");
+						PreparedStatement delTerm = con.prepareStatement("delete from APP.TERM where TERM_ID = ?");) {
+
+					Batch taBatch = new Batch(delTa);
+					Batch parentBatch = new Batch(delParent);
+					Batch childrenBatch = new Batch(delChildren);
+
+					for (TermRow row : toRemove) {
+						taBatch.add(row.term.getId());
+						parentBatch.add(row.term.getId());
+						childrenBatch.add(row.term.getId());
+					}
+
+					for (TermRow row : toUpdate) {
+
+						if (row.attributesChanged)
+							taBatch.add(row.term.getId());
+
+						if (row.parentsChanged)
+							parentBatch.add(row.term.getId());
+					}
+
+					taBatch.flush();
+					parentBatch.flush();
+					childrenBatch.flush();
+
+					Batch termBatch = new Batch(delTerm);
+
+					for (TermRow row : toRemove)
+						termBatch.add(row.term.getId());
+
+					termBatch.flush();
+				}
+
+				updateTerms(con, toUpdate);
+
+				insertTerms(con, toInsert, ids);
+
+				insertRelations(con, toInsert, toUpdate, ids);
+
+				con.commit();
+
+				CatalogueSchema.increaseDataVersion(openedCat);
+
+				// the codes of the opened catalogue were changed without the term dao
+				openedCat.getTermCodeTracker().clear();
+
+			} catch (SQLException e) {
+				con.rollback();
+				throw e;
+			} finally {
+				con.setAutoCommit(true);
+			}
+		}
+	}
+
+	/**
+	 * Update the fields of the changed terms
+	 */
+	private void updateTerms(Connection con, List<TermRow> toUpdate) throws SQLException {
+
+		String query = "update APP.TERM set TERM_CODE = ?, TERM_EXTENDED_NAME = ?, "
+				+ "TERM_SHORT_NAME = ?, TERM_SCOPENOTE = ?, TERM_DEPRECATED = ?, TERM_LAST_UPDATE = ?,"
+				+ "TERM_VALID_FROM = ?, TERM_VALID_TO = ?, TERM_STATUS = ?, TERM_VERSION = ? where TERM_ID = ?";
+
+		try (PreparedStatement stmt = con.prepareStatement(query);) {
+
+			int count = 0;
+
+			for (TermRow row : toUpdate) {
+
+				if (!row.fieldsChanged)
+					continue;
+
+				setTermFields(stmt, row.term);
+				stmt.setInt(11, row.term.getId());
+				stmt.addBatch();
+
+				if (++count % BATCH_SIZE == 0)
+					stmt.executeBatch();
+			}
+
+			stmt.executeBatch();
+		}
+	}
+
+	/**
+	 * Insert the new terms, one at a time in order to get their ids
+	 */
+	private void insertTerms(Connection con, List<TermRow> toInsert, HashMap<String, Integer> ids)
+			throws SQLException {
+
+		String query = "insert into APP.TERM (TERM_CODE, TERM_EXTENDED_NAME, "
+				+ "TERM_SHORT_NAME, TERM_SCOPENOTE, TERM_DEPRECATED, TERM_LAST_UPDATE, "
+				+ "TERM_VALID_FROM, TERM_VALID_TO, TERM_STATUS, TERM_VERSION ) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ? )";
+
+		try (PreparedStatement stmt = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);) {
+
+			for (TermRow row : toInsert) {
+
+				setTermFields(stmt, row.term);
+				stmt.executeUpdate();
+
+				try (ResultSet rs = stmt.getGeneratedKeys();) {
+					if (rs.next())
+						row.term.setId(rs.getInt(1));
+				}
+
+				ids.put(row.term.getCode(), row.term.getId());
+			}
+		}
+	}
+
+	private static void setTermFields(PreparedStatement stmt, Term t) throws SQLException {
+
+		stmt.clearParameters();
+
+		stmt.setString(1, t.getCode());
+		stmt.setString(2, t.getName());
+		stmt.setString(3, t.getShortName(false));
+		stmt.setString(4, t.getScopenotes());
+		stmt.setBoolean(5, t.isDeprecated());
+		setTimestamp(stmt, 6, t.getLastUpdate());
+		setTimestamp(stmt, 7, t.getValidFrom());
+		setTimestamp(stmt, 8, t.getValidTo());
+		stmt.setString(9, t.getStatus());
+		stmt.setString(10, t.getVersion());
+	}
+
+	private static void setTimestamp(PreparedStatement stmt, int index, Timestamp ts) throws SQLException {
+		if (ts != null)
+			stmt.setTimestamp(index, ts);
+		else
+			stmt.setNull(index, Types.TIMESTAMP);
+	}
+
+	/**
+	 * Insert the attribute values and the parents of the new and changed terms
+	 */
+	private void insertRelations(Connection con, List<TermRow> toInsert, List<TermRow> toUpdate,
+			HashMap<String, Integer> ids) throws SQLException {
+
+		try (PreparedStatement taStmt = con
+				.prepareStatement("insert into APP.TERM_ATTRIBUTE (TERM_ID, ATTR_ID, ATTR_VALUE) values (?, ?, ?)");
+				PreparedStatement parentStmt = con.prepareStatement("insert into APP.PARENT_TERM (TERM_ID, "
+						+ "HIERARCHY_ID, PARENT_TERM_ID, TERM_ORDER, TERM_REPORTABLE, TERM_FLAG) "
+						+ "values (?, ?, ?, ?, ?, ?)");) {
+
+			int taCount = 0;
+			int parentCount = 0;
+
+			List<TermRow> rows = new ArrayList<>(toInsert);
+			rows.addAll(toUpdate);
+
+			for (TermRow row : rows) {
+
+				if (row.isNew || row.attributesChanged) {
+
+					for (Value value : row.attributes) {
+
+						taStmt.clearParameters();
+						taStmt.setInt(1, row.term.getId());
+						taStmt.setInt(2, value.attrId);
+						taStmt.setString(3, value.value);
+						taStmt.addBatch();
+
+						if (++taCount % BATCH_SIZE == 0)
+							taStmt.executeBatch();
+					}
+				}
+
+				if (row.isNew || row.parentsChanged) {
+
+					for (Parent parent : row.parents) {
+
+						Integer parentId = parent.parentCode == null ? null : ids.get(parent.parentCode);
+
+						// as in the full import, parents which are not in the
+						// catalogue are skipped
+						if (parent.parentCode != null && parentId == null) {
+							LOGGER.error("The parent term " + parent.parentCode + " is not present in the DB, please check!");
+							continue;
+						}
+
+						parentStmt.clearParameters();
+						parentStmt.setInt(1, row.term.getId());
+						parentStmt.setInt(2, parent.hierarchyId);
+
+						if (parentId != null)
+							parentStmt.setInt(3, parentId);
+						else
+							parentStmt.setNull(3, Types.INTEGER);
+
+						parentStmt.setInt(4, parent.order);
+						parentStmt.setBoolean(5, parent.reportable);
+						parentStmt.setBoolean(6, true);
+						parentStmt.addBatch();
+
+						if (++parentCount % BATCH_SIZE == 0)
+							parentStmt.executeBatch();
+					}
+				}
+			}
+
+			taStmt.executeBatch();
+			parentStmt.executeBatch();
+		}
+	}
+
+	/**
+	 * Update the hierarchies, the attributes, the term types and the catalogue
+	 * metadata with the ones of the workbook. The release notes are removed.
+	 *
+	 * @throws SQLException
+	 */
+	private void updateStructure() throws SQLException {
+
+		HierarchyDAO hierDao = new HierarchyDAO(catalogue);
+		for (Hierarchy hierarchy : hierarchies)
+			hierDao.update(hierarchy);
+
+		AttributeDAO attrDao = new AttributeDAO(catalogue);
+		for (Attribute attribute : attributes)
+			attrDao.update(attribute);
+
+		// the term types are imported again from the updated attributes
+		try (Connection con = catalogue.getConnection(); Statement stmt = con.createStatement();) {
+			stmt.execute("delete from APP.RELEASE_NOTES_OP");
+			stmt.execute("delete from APP.TERM_TYPE");
+		}
+
+		TermTypeImporter ttImp = new TermTypeImporter(catalogue);
+		ttImp.importSheet();
+
+		catDao.update(catalogue);
+	}
+
+	/**
+	 * Hash of a string (64 bit FNV-1a)
+	 *
+	 * @param hash the hash computed so far
+	 * @param text
+	 * @return
+	 */
+	static long hash(long hash, String text) {
+
+		long h = hash;
+
+		if (text != null) {
+			for (int i = 0; i < text.length(); i++) {
+				h ^= text.charAt(i);
+				h *= 0x100000001b3L;
+			}
+		}
+
+		// separator, to distinguish null and empty values
+		h ^= text == null ? 0xff : 0xfe;
+		h *= 0x100000001b3L;
+
+		return h;
+	}
+
+	static final long HASH_SEED = 0xcbf29ce484222325L;
+
+	/**
+	 * A term with its attribute values and parents
+	 */
+	static class TermRow {
+
+		Term term;
+		List<Value> attributes;
+		List<Parent> parents;
+
+		long fieldsHash;
+		long attributesHash;
+		long parentsHash;
+
+		boolean isNew;
+		boolean fieldsChanged;
+		boolean attributesChanged;
+		boolean parentsChanged;
+
+		public TermRow(Term term) {
+			this.term = term;
+			this.attributes = new ArrayList<>();
+			this.parents = new ArrayList<>();
+		}
+
+		public void computeHashes() {
+
+			long h = HASH_SEED;
+			h = hash(h, term.getName());
+			h = hash(h, term.getShortName(false));
+			h = hash(h, term.getScopenotes());
+			h = hash(h, String.valueOf(term.isDeprecated()));
+			h = hash(h, getTime(term.getLastUpdate()));
+			h = hash(h, getTime(term.getValidFrom()));
+			h = hash(h, getTime(term.getValidTo()));
+			h = hash(h, term.getStatus());
+			h = hash(h, term.getVersion());
+			fieldsHash = h;
+
+			// attribute values sorted by attribute, keeping the order of the
+			// values of the same attribute
+			List<Value> sortedValues = new ArrayList<>(attributes);
+			Collections.sort(sortedValues, new Comparator<Value>() {
+				public int compare(Value v1, Value v2) {
+					return Integer.compare(v1.attrId, v2.attrId);
+				}
+			});
+
+			h = HASH_SEED;
+			for (Value value : sortedValues) {
+				h = hash(h, String.valueOf(value.attrId));
+				h = hash(h, value.value);
+			}
+			attributesHash = h;
+
+			List<Parent> sortedParents = new ArrayList<>(parents);
+			Collections.sort(sortedParents, new Comparator<Parent>() {
+				public int compare(Parent p1, Parent p2) {
+					return Integer.compare(p1.hierarchyId, p2.hierarchyId);
+				}
+			});
+
+			h = HASH_SEED;
+			for (Parent parent : sortedParents) {
+				h = hash(h, String.valueOf(parent.hierarchyId));
+				h = hash(h, parent.parentCode);
+				h = hash(h, String.valueOf(parent.order));
+				h = hash(h, String.valueOf(parent.reportable));
+			}
+			parentsHash = h;
+		}
+
+		private static String getTime(Timestamp ts) {
+			return ts == null ? null : String.valueOf(ts.getTime());
+		}
+	}
+
+	/**
+	 * Value of an attribute of a term
+	 */
+	static class Value {
+
+		int attrId;
+		String value;
+
+		public Value(int attrId, String value) {
+			this.attrId = attrId;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Parent of a term in a hierarchy
+	 */
+	static class Parent {
+
+		int hierarchyId;
+		String parentCode;
+		int order;
+		boolean reportable;
+
+		public Parent(int hierarchyId, String parentCode, int order, boolean reportable) {
+			this.hierarchyId = hierarchyId;
+			this.parentCode = parentCode;
+			this.order = order;
+			this.reportable = reportable;
+		}
+	}
+
+	/**
+	 * Batch of statements with a single integer parameter
+	 */
+	private static class Batch {
+
+		private PreparedStatement stmt;
+		private int count;
+
+		public Batch(PreparedStatement stmt) {
+			this.stmt = stmt;
+		}
+
+		public void add(int id) throws SQLException {
+
+			stmt.clearParameters();
+			stmt.setInt(1, id);
+			stmt.addBatch();
+
+			if (++count % BATCH_SIZE == 0)
+				stmt.executeBatch();
+		}
+
+		public void flush() throws SQLException {
+			stmt.executeBatch();
+		}
+	}
+}
@@ -2,8 +2,12 @@ package import_catalogue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
@@ -23,6 +27,7 @@ import catalogue_object.Attribute;
 import catalogue_object.Hierarchy;
 import catalogue_object.Term;
 import catalogue_object.TermAttribute;
+import config.AppConfig;
 import progress_bar.IProgressBar;
 import utilities.GlobalUtil;
 import xml_to_excel.XmlCatalogueToExcel;
@@ -39,6 +44,13 @@ public class CatalogueImporter {
 	private double maxProgress;
 	private double preprocProgress;
 
+	// true to import the .xml without converting it to .xlsx
+	private boolean streamXml;
+
+	// true to write only the differences when a .xlsx is imported
+	// into the opened catalogue
+	private boolean deltaImport;
+
 	// list of temporary files which need to
 	// be deleted at the end of the process
 	private ArrayList<String> garbage;
@@ -75,6 +87,8 @@ public class CatalogueImporter {
 		this.garbage = new ArrayList<>();
 		this.progressBar = progressBar;
 		this.maxProgress = maxProgress;
+		this.streamXml = AppConfig.isXmlStreamingImport();
+		this.deltaImport = AppConfig.isDeltaImport();
 	}
 
 	public CatalogueImporter(String filename, ImportFileFormat format) {
@@ -95,6 +109,26 @@ public class CatalogueImporter {
 		this.notesDao = notesDao;
 	}
 
+	/**
+	 * Set if the .xml and .ecf files should be imported directly with the
+	 * {@link XmlCatalogueImporter} (true) or converted into .xlsx before (false)
+	 * 
+	 * @param streamXml
+	 */
+	public void setStreamXml(boolean streamXml) {
+		this.streamXml = streamXml;
+	}
+
+	/**
+	 * Set if a .xlsx imported into the opened catalogue should only write the
+	 * differences with the catalogue database (see {@link CatalogueDeltaImporter})
+	 * 
+	 * @param deltaImport
+	 */
+	public void setDeltaImport(boolean deltaImport) {
+		this.deltaImport = deltaImport;
+	}
+
 	/**
 	 * Import the file
 	 * 
@@ -211,6 +245,11 @@ public class CatalogueImporter {
 	private void importEcf(String filename) throws TransformerException, IOException, XMLStreamException,
 			OpenXML4JException, SAXException, SQLException, ImportException {
 
+		if (streamXml) {
+			streamEcf(filename);
+			return;
+		}
+
 		String xmlFile = processEcf(filename);
 
 		// at the end of the process delete the
@@ -236,6 +275,12 @@ public class CatalogueImporter {
 	private void importXml(String filename) throws TransformerException, IOException, XMLStreamException,
 			OpenXML4JException, SAXException, SQLException, ImportException {
 
+		if (streamXml) {
+			XmlCatalogueImporter importer = createXmlImporter();
+			importer.importXml(progressBar, filename, maxProgress - preprocProgress);
+			return;
+		}
+
 		String xlsxFile = processXml(filename);
 
 		// at the end of the process delete the
@@ -246,6 +291,62 @@ public class CatalogueImporter {
 		importXlsx(xlsxFile);
 	}
 
+	/**
+	 * Import the .xml contained in the .ecf file reading it directly from the zip
+	 * entry, without extracting it. The entry is decompressed by a separate thread
+	 * while the xml is parsed (see {@link ReadAheadInputStream}).
+	 * 
+	 * @param filename the absolute path of the .ecf file
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 * @throws SQLException
+	 * @throws ImportException
+	 */
+	private void streamEcf(String filename) throws IOException, XMLStreamException, SQLException, ImportException {
+
+		try (ZipFile zip = new ZipFile(filename);) {
+
+			ZipEntry xmlEntry = null;
+
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements() && xmlEntry == null) {
+				ZipEntry entry = entries.nextElement();
+				if (!entry.isDirectory())
+					xmlEntry = entry;
+			}
+
+			if (xmlEntry == null) {
+				LOGGER.error("Wrong file format, cannot find the xml file inside the .ecf " + filename);
+				throw new IOException("Cannot find the xml file inside the .ecf " + filename);
+			}
+
+			try (InputStream input = new ReadAheadInputStream(zip.getInputStream(xmlEntry));) {
+				XmlCatalogueImporter importer = createXmlImporter();
+				importer.importXml(progressBar, input, maxProgress - preprocProgress);
+			}
+		}
+	}
+
+	/**
+	 * Create the importer for the .xml catalogues with the current settings
+	 * 
+	 * @return
+	 */
+	private XmlCatalogueImporter createXmlImporter() {
+
+		XmlCatalogueImporter importer = null;
+
+		if (this.attrDao == null)
+			importer = new XmlCatalogueImporter();
+		else
+			importer = new XmlCatalogueImporter(catDao, attrDao, hierDao, termDao, taDao, parentDao, notesDao);
+
+		if (openedCat != null)
+			importer.setOpenedCatalogue(openedCat);
+
+		return importer;
+	}
+
 	/**
 	 * Import a .xlsx catalogue
 	 * 
@@ -264,9 +365,10 @@ public class CatalogueImporter {
 		// some settings
 		CatalogueWorkbookImporter importer = null;
 
-		if (this.attrDao == null)
+		if (this.attrDao == null) {
 			importer = new CatalogueWorkbookImporter();
-		else
+			importer.setDeltaImport(deltaImport);
+		} else
 			importer = new CatalogueWorkbookImporter(catDao, attrDao, hierDao, termDao, taDao, parentDao, notesDao);
 
 		if (openedCat != null)
@@ -31,6 +31,9 @@ public class CatalogueSheetImporter extends SheetImporter<Catalogue> {
 
 	private String excelCatCode;
 
+	// true if the database of the catalogue was created by the import
+	private boolean newDatabase;
+
 	public CatalogueSheetImporter() {
 		this(new CatalogueDAO());
 	}
@@ -63,6 +66,19 @@ public class CatalogueSheetImporter extends SheetImporter<Catalogue> {
 			LOGGER.error("Cannot extract catalogue from the catalogue sheet", e);
 		}
 
+		return setImportedCatalogue(catalogue);
+	}
+
+	/**
+	 * Set the catalogue read from the file as the imported one. If an opened
+	 * catalogue was set, some of its fields are maintained (see
+	 * {@link #setOpenedCatalogue(Catalogue)}).
+	 * 
+	 * @param catalogue the catalogue read from the file
+	 * @return the imported catalogue
+	 */
+	Catalogue setImportedCatalogue(Catalogue catalogue) {
+
 		// save the excel code in global variable
 		// since if we have a local catalogue this
 		// code will be overridden (and we need it
@@ -250,6 +266,8 @@ public class CatalogueSheetImporter extends SheetImporter<Catalogue> {
 			// create the standard database structure for
 			// the new catalogue
 			DatabaseManager.createCatalogueDatabase(catalogue.getDbPath());
+
+			newDatabase = true;
 		}
 	}
 
@@ -274,6 +292,16 @@ public class CatalogueSheetImporter extends SheetImporter<Catalogue> {
 		return excelCatCode;
 	}
 
+	/**
+	 * Check if the database of the catalogue was created by the import, i.e. its
+	 * tables are empty and their ids start from 1
+	 * 
+	 * @return
+	 */
+	public boolean isNewDatabase() {
+		return newDatabase;
+	}
+
 	@Override
 	public void end() {
 	}
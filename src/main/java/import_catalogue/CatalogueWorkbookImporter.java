@@ -15,9 +15,11 @@ import org.xml.sax.SAXException;
 import catalogue.Catalogue;
 import catalogue.ReleaseNotesOperation;
 import catalogue_browser_dao.AttributeDAO;
+import catalogue_browser_dao.BulkLoadDAO;
 import catalogue_browser_dao.CatalogueDAO;
 import catalogue_browser_dao.CatalogueEntityDAO;
 import catalogue_browser_dao.CatalogueRelationDAO;
+import catalogue_browser_dao.CatalogueSchema;
 import catalogue_browser_dao.HierarchyDAO;
 import catalogue_browser_dao.ICatalogueDAO;
 import catalogue_browser_dao.ParentTermDAO;
@@ -29,6 +31,7 @@ import catalogue_object.Attribute;
 import catalogue_object.Hierarchy;
 import catalogue_object.Term;
 import catalogue_object.TermAttribute;
+import config.AppConfig;
 import i18n_messages.CBMessages;
 import naming_convention.Headers;
 import open_xml_reader.ResultDataSet;
@@ -62,7 +65,14 @@ public class CatalogueWorkbookImporter {
 	private IProgressBar progressBar;
 	private double maxProgress;
 
+	// true to write only the differences into the opened catalogue
+	private boolean deltaImport;
+
+	// true to load the terms and their relations in bulk
+	private boolean bulkLoad;
+
 	public CatalogueWorkbookImporter() {
+		this.deltaImport = AppConfig.isDeltaImport();
 		this.catDao = new CatalogueDAO();
 		this.attrDao = null;
 		this.hierDao = null;
@@ -84,6 +94,9 @@ public class CatalogueWorkbookImporter {
 		this.taDao = taDao;
 		this.parentDao = parentDao;
 		this.notesDao = notesDao;
+
+		// the delta is computed directly on the database
+		this.deltaImport = false;
 	}
 
 	/**
@@ -96,6 +109,17 @@ public class CatalogueWorkbookImporter {
 		this.openedCat = openedCat;
 	}
 
+	/**
+	 * Set if only the differences between the workbook and the opened catalogue
+	 * should be written (see {@link CatalogueDeltaImporter}). If the delta cannot
+	 * be computed, the full import is performed.
+	 * 
+	 * @param deltaImport
+	 */
+	public void setDeltaImport(boolean deltaImport) {
+		this.deltaImport = deltaImport;
+	}
+
 	private void initDaos(Catalogue catalogue) {
 
 		if (this.attrDao == null) {
@@ -132,6 +156,10 @@ public class CatalogueWorkbookImporter {
 		this.progressBar = pb;
 		this.maxProgress = maxProgress;
 
+		// write only the changes if possible
+		if (deltaImport && openedCat != null && importDelta(filename))
+			return;
+
 		// get the excel data
 		try (WorkbookReader workbookReader = new WorkbookReader(filename)) {
 
@@ -147,6 +175,9 @@ public class CatalogueWorkbookImporter {
 			LOGGER.info("Imported catalogue from getImportedCatalogue: {}", importedCat);
 			String catExcelCode = catImp.getExcelCode();
 
+			// the bulk load requires empty tables with ids starting from 1
+			this.bulkLoad = catImp.isNewDatabase() && AppConfig.isBulkLoadImport();
+
 			// prepare daos to import data
 			this.initDaos(importedCat);
 
@@ -198,6 +229,9 @@ public class CatalogueWorkbookImporter {
 			SearchOptionDAO optDao = new SearchOptionDAO(importedCat);
 			optDao.insertDefaultSearchOpt();
 
+			// the data of the catalogue were replaced
+			CatalogueSchema.increaseDataVersion(importedCat);
+
 			if (progressBar != null) {
 				// add progress
 				double prog = ProgressSettings.getProgress(ProgressSettings.DEFAULT_PREF, maxProgress);
@@ -211,6 +245,59 @@ public class CatalogueWorkbookImporter {
 		}
 	}
 
+	/**
+	 * Import the workbook into the opened catalogue writing only the differences
+	 * 
+	 * @param filename
+	 * @return true if the delta was imported, false if the full import is needed
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 * @throws OpenXML4JException
+	 * @throws SAXException
+	 * @throws SQLException
+	 * @throws ImportException
+	 */
+	private boolean importDelta(String filename)
+			throws IOException, XMLStreamException, OpenXML4JException, SAXException, SQLException, ImportException {
+
+		try (WorkbookReader workbookReader = new WorkbookReader(filename)) {
+
+			LOGGER.info("Import the differences with " + openedCat);
+
+			if (progressBar != null)
+				progressBar.setLabel(CBMessages.getString("Import.Term"));
+
+			CatalogueDeltaImporter deltaImp = new CatalogueDeltaImporter(catDao, openedCat);
+
+			if (!deltaImp.importDelta(workbookReader)) {
+				LOGGER.info("Cannot import only the differences, importing the entire workbook");
+				return false;
+			}
+
+			Catalogue importedCat = deltaImp.getImportedCatalogue();
+
+			this.initDaos(importedCat);
+
+			if (progressBar != null) {
+				double notesProg = ProgressSettings.getProgress(ProgressSettings.NOTES_SHEET, maxProgress);
+				progressBar.addProgress(maxProgress - notesProg);
+			}
+
+			// the release notes are always imported again
+			LOGGER.info("Import release notes sheet");
+			if (progressBar != null)
+				progressBar.setLabel(CBMessages.getString("Import.ReleaseNotes"));
+			importReleaseNotes(workbookReader, importedCat);
+
+			LOGGER.info(importedCat + " successfully updated in " + importedCat.getDbPath());
+
+			// clear temporary files
+			GlobalUtil.clearTempDir();
+		}
+
+		return true;
+	}
+
 	/**
 	 * Import the catalogue sheet
 	 * 
@@ -336,37 +423,39 @@ public class CatalogueWorkbookImporter {
 	}
 
 	/**
-	 * Import a sheet in a smarter way. In particular, two parallel threads are
-	 * started. The first thread reads the data from the workbookReader object. The
-	 * second thread writes the read data into the database. Note that the first
-	 * thread reads the data also while the second one is writing the data of the
-	 * previous batch. This results in improved performances, since delay times are
-	 * reduced. Note that this method requires that you set a batch size for the
-	 * workbookReader (see {@link WorkbookReader#setBatchSize(int)}, otherwise the
-	 * data would not be separable, since they are all contained in a single big
-	 * batch.
+	 * Import a sheet in a smarter way. The sheet is read, converted into objects
+	 * and written into the database by separated stages which work in parallel
+	 * (see {@link SheetImportPipeline}). The batch sizes are defined in the
+	 * application configuration.
 	 * 
 	 * @param workbookReader the reader with a sheet already loaded
+	 * @param sheetName      the name of the sheet
+	 * @param table          the table where the objects are inserted
 	 * @param importer       the sheet importer
-	 * @throws XMLStreamException
-	 * @throws CloneNotSupportedException
-	 * @throws IOException
-	 * @throws InvalidFormatException
+	 * @param dao            the dao used by the importer
 	 * @throws ImportException
 	 */
-	private void importQuickly(WorkbookReader workbookReader, String sheetName, int batchSize,
-			final SheetImporter<?> importer)
-			throws XMLStreamException, InvalidFormatException, IOException, ImportException {
+	private void importQuickly(WorkbookReader workbookReader, String sheetName, String table,
+			SheetImporter<?> importer, CatalogueEntityDAO<?> dao) throws ImportException {
 
-		QuickImporter quickImp = new QuickImporter(workbookReader, batchSize) {
+		SheetImportPipeline pipeline = new SheetImportPipeline(workbookReader, sheetName);
+		pipeline.addTarget(table, importer, getBulkDao(dao));
+		pipeline.importSheet();
+	}
 
-			@Override
-			public void importData(ResultDataSet rs) throws ImportException {
-				importer.importData(rs);
-			}
-		};
+	/**
+	 * Get the dao as bulk load dao if the bulk load is enabled
+	 * 
+	 * @param dao
+	 * @return the dao or null if the records should be inserted without bulk
+	 *         load
+	 */
+	private BulkLoadDAO getBulkDao(CatalogueEntityDAO<?> dao) {
 
-		quickImp.importSheet();
+		if (bulkLoad && dao instanceof BulkLoadDAO)
+			return (BulkLoadDAO) dao;
+
+		return null;
 	}
 
 	/**
@@ -386,8 +475,6 @@ public class CatalogueWorkbookImporter {
 	private TermSheetImporter importTermSheet(WorkbookReader workbookReader, Catalogue catalogue)
 			throws InvalidFormatException, IOException, XMLStreamException, SQLException, ImportException {
 
-		final int batchSize = 100;
-
 		// get the hierarchy sheet
 		workbookReader.processSheetName(Headers.TERM_SHEET_NAME);
 
@@ -399,7 +486,7 @@ public class CatalogueWorkbookImporter {
 		}
 
 		// import terms in a quick way
-		importQuickly(workbookReader, Headers.TERM_SHEET_NAME, batchSize, termImp);
+		importQuickly(workbookReader, Headers.TERM_SHEET_NAME, "TERM", termImp, termDao);
 
 		return termImp;
 	}
@@ -420,14 +507,12 @@ public class CatalogueWorkbookImporter {
 			HashMap<String, String> newCodes)
 			throws SQLException, InvalidFormatException, XMLStreamException, IOException, ImportException {
 
-		final int batchSize = 100;
-
 		// note that we need to have imported the terms to import
 		// term attributes and parent terms!
 		// import term attributes and parent terms in a parallel way
 		// since they are independent processes
 		QuickParentAttributesImporter tapImporter = new QuickParentAttributesImporter(taDao, parentDao, catalogue,
-				workbookReader, Headers.TERM_SHEET_NAME, batchSize);
+				workbookReader, Headers.TERM_SHEET_NAME, AppConfig.getImportReadBatchSize());
 
 		if (progressBar != null) {
 			double progTa = ProgressSettings.getProgress(ProgressSettings.TERM_ATTR_SHEET, maxProgress);
@@ -438,6 +523,7 @@ public class CatalogueWorkbookImporter {
 		}
 
 		tapImporter.manageNewTerms(newCodes);
+		tapImporter.setBulkLoad(bulkLoad);
 		tapImporter.importSheet();
 	}
 
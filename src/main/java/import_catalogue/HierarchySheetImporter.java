@@ -63,10 +63,39 @@ public class HierarchySheetImporter extends SheetImporter<Hierarchy> {
 			return null;
 		}
 
-		boolean isMaster = code.equals( masterCode );
-
 		HierarchyBuilder builder = new HierarchyBuilder();
 
+		builder.setScopenotes( rs.getString ( Headers.SCOPENOTE ) );
+		builder.setApplicability( rs.getString ( Headers.HIER_APPL ) );
+
+		builder.setOrder( rs.getInt ( Headers.HIER_ORDER, 1 ) );
+		builder.setStatus( rs.getString ( Headers.STATUS ) );
+
+		builder.setLastUpdate( rs.getTimestamp( Headers.LAST_UPDATE ) );
+		builder.setValidFrom( rs.getTimestamp( Headers.VALID_FROM ) );
+		builder.setValidTo( rs.getTimestamp( Headers.VALID_TO ) );
+		builder.setVersion( rs.getString ( Headers.VERSION ) );
+
+		builder.setDeprecated( rs.getBoolean( Headers.DEPRECATED, false ) );
+		builder.setGroups( rs.getString ( Headers.HIER_GROUPS ) );
+
+		return createHierarchy( builder, code, rs.getString ( Headers.NAME ), 
+				rs.getString ( Headers.LABEL ) );
+	}
+	
+	/**
+	 * Complete the hierarchy with its code and names and build it. The
+	 * master hierarchy is recognised by the {@code masterCode}.
+	 * @param builder the builder with the other hierarchy fields already set
+	 * @param code the code of the hierarchy in the imported file
+	 * @param name
+	 * @param label
+	 * @return
+	 */
+	Hierarchy createHierarchy( HierarchyBuilder builder, String code, String name, String label ) {
+		
+		boolean isMaster = code.equals( masterCode );
+
 		builder.setCatalogue( catalogue );
 		
 		// for local catalogues the master
@@ -79,29 +108,15 @@ public class HierarchySheetImporter extends SheetImporter<Hierarchy> {
 		}
 		else {
 			builder.setCode( code );
-			builder.setName( rs.getString ( Headers.NAME ) );
-			builder.setLabel( rs.getString ( Headers.LABEL ) );
+			builder.setName( name );
+			builder.setLabel( label );
 		}
 
-		builder.setScopenotes( rs.getString ( Headers.SCOPENOTE ) );
-		builder.setApplicability( rs.getString ( Headers.HIER_APPL ) );
-
-		builder.setOrder( rs.getInt ( Headers.HIER_ORDER, 1 ) );
-		builder.setStatus( rs.getString ( Headers.STATUS ) );
-
 		// set the is_master field as true if the hierarchy code
 		// is the same as the catalogue code (convention)
 		// otherwise false
 		builder.setMaster( isMaster );
 
-		builder.setLastUpdate( rs.getTimestamp( Headers.LAST_UPDATE ) );
-		builder.setValidFrom( rs.getTimestamp( Headers.VALID_FROM ) );
-		builder.setValidTo( rs.getTimestamp( Headers.VALID_TO ) );
-		builder.setVersion( rs.getString ( Headers.VERSION ) );
-
-		builder.setDeprecated( rs.getBoolean( Headers.DEPRECATED, false ) );
-		builder.setGroups( rs.getString ( Headers.HIER_GROUPS ) );
-
 		return builder.build();
 	}
 	
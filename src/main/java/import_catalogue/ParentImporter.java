@@ -3,7 +3,11 @@ package import_catalogue;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -45,6 +49,8 @@ public class ParentImporter extends SheetImporter<Applicability> {
 	private HashMap<String, String> newCodes;
 	// temporary applicabilities
 	private Collection<Applicability> tempAppl;
+	// temporary applicabilities which were read but not inserted yet
+	private Set<Applicability> pendingTempAppl;
 
 	public ParentImporter(CatalogueRelationDAO<Applicability, Term, Hierarchy> dao, Catalogue catalogue)
 			throws SQLException {
@@ -52,6 +58,7 @@ public class ParentImporter extends SheetImporter<Applicability> {
 		this.catalogue = catalogue;
 		this.newCodes = new HashMap<>();
 		this.tempAppl = new ArrayList<>();
+		this.pendingTempAppl = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
 
 		// get all the term ids of the database of the catalogue
 		this.termIds = createIdHashMap(catalogue, "TERM_ID", "TERM_CODE", "APP.TERM");
@@ -87,64 +94,20 @@ public class ParentImporter extends SheetImporter<Applicability> {
 	public Collection<Applicability> getAllByResultSet(ResultDataSet rs) throws ImportException {
 
 		Collection<Applicability> appls = new ArrayList<>();
-		boolean addParent = true;
-
-		// initialise the code generator
-		CodeGenerator generator = new CodeGenerator();
 
 		// get the term code
 		String termCode = rs.getString(Headers.TERM_CODE);
 
-		// if temp code we need to get the real code
-		// of the term
-		if (generator.isTempCode(termCode)) {
-			termCode = newCodes.get(termCode);
-			addParent = false; // do not add a temporary applicability
-		}
-
-		// skip if no term code was found
-		if (termCode == null || termCode.isEmpty())
-			return null;
-
-		// get the term id using the term code from the hashmap (global var)
-		int termId = termIds.get(termCode);
-
-		// for each attribute we create a record for the term attributes table
+		// for each hierarchy we create a record for the parent terms table
 		for (Hierarchy hierarchy : hierarchies) {
 
 			// get the parent term code
 			String parentCode = rs.getString(getHierarchyFieldName(hierarchy, Headers.SUFFIX_PARENT_CODE));
 
-			// if temp code we need to get the real code
-			// of the term
-			if (newCodes != null && generator.isTempCode(parentCode)) {
-				parentCode = newCodes.get(parentCode);
-			}
-
 			// next if no parent term is found
 			if (parentCode == null || parentCode.isEmpty())
 				continue;
 
-			// ERROR! cannot set a term parent of itself
-			if (parentCode.equals(termCode)) {
-				ImportException e = new ImportException(
-						"ERROR: A TERM CANNOT BE PARENT OF ITSELF: term code " + termCode, "X101");
-				e.setData(termCode);
-				throw e;
-			}
-
-			// check if we have the root term or not
-			boolean isRoot = parentCode.equalsIgnoreCase(SpecialValues.NO_PARENT);
-
-			// get the parent term id from the code
-			Integer parentId = termIds.get(parentCode);
-
-			// if not root and parent id not found => error
-			if (parentId == null && !isRoot) {
-				LOGGER.error("The parent term " + parentCode + " is not present in the DB, please check!");
-				continue;
-			}
-
 			// get the term flag, NOTE this field is useless because it is always 1
 			// if a parent code is defined
 			// boolean flag = rs.getBoolean(
@@ -156,19 +119,123 @@ public class ParentImporter extends SheetImporter<Applicability> {
 			// get the term reportability
 			boolean reportable = rs.getBoolean(getHierarchyFieldName(hierarchy, Headers.SUFFIX_REPORT), true);
 
-			Applicability appl = createApplicability(isRoot, termId, parentId, hierarchy, order, reportable);
+			addApplicability(appls, termCode, hierarchy, parentCode, order, reportable);
+		}
 
-			// Add only real parents, not temporary ones!
-			// because we need to define their order code
-			if (addParent)
-				appls.add(appl);
-			else // add the applicability to the temporary ones
-				tempAppl.add(appl);
+		return appls;
+	}
+
+	/**
+	 * Get the applicabilities of a term of a catalogue .xml
+	 * 
+	 * @param termCode
+	 * @param assignments hierarchy code => assignment of the term to the
+	 *                    hierarchy
+	 * @param masterCode  the code used in the file for the master hierarchy
+	 * @return
+	 * @throws ImportException
+	 */
+	Collection<Applicability> getApplicabilities(String termCode, Map<String, Assignment> assignments,
+			String masterCode) throws ImportException {
+
+		Collection<Applicability> appls = new ArrayList<>();
+
+		// follow the hierarchies order as for the term sheet
+		for (Hierarchy hierarchy : hierarchies) {
+
+			String code = hierarchy.isMaster() ? masterCode : hierarchy.getCode();
+
+			Assignment assignment = assignments.get(code);
+
+			// next if no parent term is found
+			if (assignment == null || assignment.parentCode == null || assignment.parentCode.isEmpty())
+				continue;
+
+			addApplicability(appls, termCode, hierarchy, assignment.parentCode, assignment.order,
+					assignment.reportable);
 		}
 
 		return appls;
 	}
 
+	/**
+	 * Create the applicability of the term in the hierarchy. Applicabilities of
+	 * new terms are not added to {@code appls}, since their order still needs to be
+	 * defined (see {@link #end()}).
+	 * 
+	 * @param appls      collection where the applicability is added
+	 * @param termCode
+	 * @param hierarchy
+	 * @param parentCode
+	 * @param order
+	 * @param reportable
+	 * @throws ImportException
+	 */
+	private void addApplicability(Collection<Applicability> appls, String termCode, Hierarchy hierarchy,
+			String parentCode, int order, boolean reportable) throws ImportException {
+
+		boolean addParent = true;
+
+		// initialise the code generator
+		CodeGenerator generator = new CodeGenerator();
+
+		// if temp code we need to get the real code
+		// of the term
+		if (generator.isTempCode(termCode)) {
+			termCode = newCodes.get(termCode);
+			addParent = false; // do not add a temporary applicability
+		}
+
+		// skip if no term code was found
+		if (termCode == null || termCode.isEmpty())
+			return;
+
+		// get the term id using the term code from the hashmap (global var)
+		int termId = termIds.get(termCode);
+
+		// if temp code we need to get the real code
+		// of the term
+		if (newCodes != null && generator.isTempCode(parentCode)) {
+			parentCode = newCodes.get(parentCode);
+		}
+
+		// next if no parent term is found
+		if (parentCode == null || parentCode.isEmpty())
+			return;
+
+		// ERROR! cannot set a term parent of itself
+		if (parentCode.equals(termCode)) {
+			ImportException e = new ImportException(
+					"ERROR: A TERM CANNOT BE PARENT OF ITSELF: term code " + termCode, "X101");
+			e.setData(termCode);
+			throw e;
+		}
+
+		// check if we have the root term or not
+		boolean isRoot = parentCode.equalsIgnoreCase(SpecialValues.NO_PARENT);
+
+		// get the parent term id from the code
+		Integer parentId = termIds.get(parentCode);
+
+		// if not root and parent id not found => error
+		if (parentId == null && !isRoot) {
+			LOGGER.error("The parent term " + parentCode + " is not present in the DB, please check!");
+			return;
+		}
+
+		Applicability appl = createApplicability(isRoot, termId, parentId, hierarchy, order, reportable);
+
+		// temporary applicabilities are not inserted with the
+		// real ones, because we need to define their order code
+		// (they are moved to the temporary ones in the insert,
+		// in order to keep the order of the sheet also if the
+		// rows are read by several threads)
+		if (!addParent)
+			pendingTempAppl.add(appl);
+
+		appls.add(appl);
+	}
+
 	/**
 	 * Create an applicability starting with the available information
 	 * 
@@ -229,7 +296,19 @@ public class ParentImporter extends SheetImporter<Applicability> {
 
 	@Override
 	public void insert(Collection<Applicability> data) {
-		dao.insert(data);
+
+		// Add only real parents, not temporary ones!
+		Collection<Applicability> realAppl = new ArrayList<>(data.size());
+
+		for (Applicability appl : data) {
+			if (pendingTempAppl.remove(appl))
+				tempAppl.add(appl);
+			else
+				realAppl.add(appl);
+		}
+
+		if (!realAppl.isEmpty())
+			dao.insert(realAppl);
 	}
 
 	@Override
@@ -263,5 +342,23 @@ public class ParentImporter extends SheetImporter<Applicability> {
 				insert(applCol);
 			}
 		}
+
+		tempAppl.clear();
+	}
+
+	/**
+	 * Assignment of a term to a hierarchy, as read from a catalogue .xml
+	 */
+	static class Assignment {
+
+		private String parentCode;
+		private int order;
+		private boolean reportable;
+
+		Assignment(String parentCode, int order, boolean reportable) {
+			this.parentCode = parentCode;
+			this.order = order;
+			this.reportable = reportable;
+		}
 	}
 }
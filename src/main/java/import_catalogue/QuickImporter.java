@@ -14,7 +14,9 @@ import open_xml_reader.WorkbookReader;
 /**
  * Import a work sheet in a quicker way separating the import and reading work
  * using threads. To use this class you need to implement
- * {@link #importData(ResultDataSet)}.
+ * {@link #importData(ResultDataSet)}. The batches are read by a background
+ * thread and imported one at a time by the calling thread. To map and insert
+ * the rows in parallel use {@link SheetImportPipeline}.
  * 
  * @author avonva
  *
@@ -51,69 +53,36 @@ public abstract class QuickImporter {
 		if (!workbookReader.hasNext())
 			return;
 
-		ResultDataSet fetched = null;
+		// a single thread reads the batches in background
+		// while the current one imports them
+		SheetReaderThread reader = new SheetReaderThread(workbookReader, 2);
+		reader.start();
 
-		// resolve memory leak
 		try {
 
-			fetched = workbookReader.next();
+			ResultDataSet current;
+			while ((current = reader.take()) != null) {
 
-			// read the first batch
-			while (fetched != null) {
-
-				// copy the data set to use it in the import
-				ResultDataSet current = null;
-				try {
-					current = (ResultDataSet) fetched.clone();
-				} catch (CloneNotSupportedException e1) {
-					e1.printStackTrace();
-					return;
-				}
-
-				// meanwhile read the second batch
-				// note that this will override the fetched
-				// result data set since we are pointing to
-				// that result data set
-				SheetReaderThread t = new SheetReaderThread(workbookReader);
-				t.start();
-
-				// import the first batch of data
-				// while reading the second
-				importData(current);
-
-				// wait that the read thread is finished
 				try {
-
-					t.join();
-
-					// close used result set
+					importData(current);
+				} finally {
+					// solve memory leak
 					current.close();
-
-					// if no next data stop!
-					if (t.getData() == null) {
-						if (fetched != null) {
-							fetched.close();
-							fetched = null;
-						}
-					}
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-					LOGGER.error("Cannot import sheet", e);
 				}
-				// solve memory leak
-				current.close();
 			}
-		} catch (Exception e) {
+
+		} catch (InterruptedException e) {
 			e.printStackTrace();
 			LOGGER.error("Cannot import sheet", e);
+			Thread.currentThread().interrupt();
 		} finally {
-			try {
-				fetched.close();
-			} catch (Exception e) {
-				// TODO: handle exception
-			}
+
+			// stop the reader before using the workbook again
+			reader.cancel();
 		}
 
+		if (reader.getError() != null)
+			throw new ImportException(reader.getError());
 	}
 
 	/**
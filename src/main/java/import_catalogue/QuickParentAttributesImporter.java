@@ -6,11 +6,10 @@ import java.util.HashMap;
 
 import javax.xml.stream.XMLStreamException;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 
 import catalogue.Catalogue;
+import catalogue_browser_dao.BulkLoadDAO;
 import catalogue_browser_dao.CatalogueRelationDAO;
 import catalogue_browser_dao.ParentTermDAO;
 import catalogue_browser_dao.TermAttributeDAO;
@@ -19,25 +18,32 @@ import catalogue_object.Attribute;
 import catalogue_object.Hierarchy;
 import catalogue_object.Term;
 import catalogue_object.TermAttribute;
+import config.AppConfig;
 import naming_convention.Headers;
-import open_xml_reader.ResultDataSet;
 import open_xml_reader.WorkbookReader;
 import progress_bar.IProgressBar;
 
 /**
  * Import in a parallel way both the parent terms and the term attributes
- * contained in the term sheet.
+ * contained in the term sheet. The rows are read once and the term attributes
+ * and the parent terms are inserted by two different writers (see
+ * {@link SheetImportPipeline}).
  * 
  * @author avonva
  *
  */
-public class QuickParentAttributesImporter extends QuickImporter {
+public class QuickParentAttributesImporter {
 
-	private static final Logger LOGGER = LogManager.getLogger(QuickParentAttributesImporter.class);
+	private WorkbookReader workbookReader;
+	private String termSheetName;
+	private int batchSize;
+
+	private CatalogueRelationDAO<TermAttribute, Term, Attribute> taDao;
+	private CatalogueRelationDAO<Applicability, Term, Hierarchy> parentDao;
+	private boolean bulkLoad;
 
 	private TermAttributeImporter taImp;
 	private ParentImporter parentImp;
-	private ImportException occurredEx;
 
 	/**
 	 * Initialize the importer.
@@ -63,7 +69,12 @@ public class QuickParentAttributesImporter extends QuickImporter {
 			CatalogueRelationDAO<Applicability, Term, Hierarchy> parentDao, Catalogue catalogue,
 			WorkbookReader workbookReader, String termSheetName, int batchSize)
 			throws SQLException, InvalidFormatException, IOException, XMLStreamException {
-		super(workbookReader, batchSize);
+
+		this.workbookReader = workbookReader;
+		this.termSheetName = termSheetName;
+		this.batchSize = batchSize;
+		this.taDao = taDao;
+		this.parentDao = parentDao;
 
 		workbookReader.processSheetName(Headers.TERM_SHEET_NAME);
 
@@ -102,59 +113,37 @@ public class QuickParentAttributesImporter extends QuickImporter {
 		this.parentImp.manageNewTerms(newCodes);
 	}
 
-	@Override
-	public void importData(final ResultDataSet rs) throws ImportException {
-
-		// import the term attribute sheet in parallel
-		Thread thread = new Thread(new Runnable() {
-
-			@Override
-			public void run() {
-
-				// copy result data set to perform
-				// parallel actions
-				ResultDataSet clonedRs;
-				try {
-					clonedRs = (ResultDataSet) rs.clone();
-				} catch (CloneNotSupportedException e) {
-					e.printStackTrace();
-					LOGGER.error("Cannot import result data set batch", e);
-					return;
-				}
-
-				// import the dataset
-				try {
-					taImp.importData(clonedRs);
-				} catch (ImportException e) {
-					e.printStackTrace();
-					LOGGER.error("Cannot import result dataset batch", e);
-					occurredEx = e;
-				}
-
-				// close the dataset
-				clonedRs.close();
-			}
-		});
-
-		// start the thread
-		thread.start();
-
-		// import also the parent terms
-		// in parallel to the term attributes
-		parentImp.importData(rs);
-
-		// wait for the term attribute process
-		// to finish to guarantee that we can
-		// proceed with the next batch
-		try {
-			thread.join();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-
-		// if an exception occurred in the thread throw it
-		if (occurredEx != null) {
-			throw occurredEx;
-		}
+	/**
+	 * Set if the term attributes and the parent terms should be loaded in bulk
+	 * (only if the daos support it, see {@link BulkLoadDAO})
+	 * 
+	 * @param bulkLoad
+	 */
+	public void setBulkLoad(boolean bulkLoad) {
+		this.bulkLoad = bulkLoad;
+	}
+
+	/**
+	 * Import the term attributes and the parent terms of the term sheet
+	 * 
+	 * @throws ImportException
+	 */
+	public void importSheet() throws ImportException {
+
+		SheetImportPipeline pipeline = new SheetImportPipeline(workbookReader, termSheetName, batchSize,
+				AppConfig.getImportWriteBatchSize(), AppConfig.getImportWorkers());
+
+		pipeline.addTarget("TERM_ATTRIBUTE", taImp, getBulkDao(taDao));
+		pipeline.addTarget("PARENT_TERM", parentImp, getBulkDao(parentDao));
+
+		pipeline.importSheet();
+	}
+
+	private BulkLoadDAO getBulkDao(CatalogueRelationDAO<?, ?, ?> dao) {
+
+		if (bulkLoad && dao instanceof BulkLoadDAO)
+			return (BulkLoadDAO) dao;
+
+		return null;
 	}
 }
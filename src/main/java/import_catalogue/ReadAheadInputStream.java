@@ -0,0 +1,280 @@
+package import_catalogue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Input stream which reads its source in a separate thread, some buffers ahead
+ * of the consumer. Used to decompress the .xml entry of the .ecf files while
+ * the previous bytes are being parsed, instead of alternating the two
+ * operations in the same thread.
+ *
+ * The buffers are recycled between the reader thread and the consumer, so no
+ * memory is allocated after the creation of the stream. Closing the stream
+ * stops the reader thread and closes the source.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	private static final Logger LOGGER = LogManager.getLogger(ReadAheadInputStream.class);
+
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+	private static final int DEFAULT_BUFFERS = 4;
+
+	private final InputStream source;
+
+	// buffers filled by the reader and buffers ready to be filled
+	private final BlockingQueue<Chunk> filled;
+	private final BlockingQueue<Chunk> free;
+
+	private final Thread reader;
+
+	// buffer which is being consumed
+	private Chunk current;
+	private int position;
+	private boolean eof;
+	private boolean closed;
+
+	// statistics
+	private long bytes;
+	private long waitNanos;
+
+	/**
+	 * Buffer passed between the reader and the consumer
+	 */
+	private static class Chunk {
+
+		private final byte[] data;
+
+		// -1 marks the end of the source
+		private int length;
+
+		// error raised while reading the source
+		private IOException error;
+
+		public Chunk(int size) {
+			this.data = new byte[size];
+		}
+	}
+
+	/**
+	 * Start reading the source with the default buffers (4 x 256 KB)
+	 *
+	 * @param source
+	 */
+	public ReadAheadInputStream(InputStream source) {
+		this(source, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+	}
+
+	/**
+	 * Start reading the source
+	 *
+	 * @param source     the stream to read
+	 * @param bufferSize size of each buffer
+	 * @param buffers    number of buffers which can be read ahead
+	 */
+	public ReadAheadInputStream(InputStream source, int bufferSize, int buffers) {
+
+		this.source = source;
+		this.filled = new ArrayBlockingQueue<>(buffers + 1);
+		this.free = new ArrayBlockingQueue<>(buffers);
+
+		for (int i = 0; i < buffers; i++)
+			free.add(new Chunk(bufferSize));
+
+		this.reader = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				readSource();
+			}
+		}, "read-ahead");
+
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Fill the free buffers with the bytes of the source until the end of the
+	 * source is reached (reader thread)
+	 */
+	private void readSource() {
+
+		try {
+
+			while (true) {
+
+				Chunk chunk = free.take();
+
+				try {
+					chunk.length = fill(chunk.data);
+				} catch (IOException e) {
+					chunk.error = e;
+				} catch (RuntimeException e) {
+					chunk.error = new IOException(e);
+				}
+
+				filled.put(chunk);
+
+				if (chunk.length < 0 || chunk.error != null)
+					return;
+			}
+
+		} catch (InterruptedException e) {
+			// stream closed by the consumer
+		}
+	}
+
+	/**
+	 * Read the source until the buffer is full or the source ends
+	 *
+	 * @param data
+	 * @return the number of bytes read, or -1 if the source ended
+	 * @throws IOException
+	 */
+	private int fill(byte[] data) throws IOException {
+
+		int length = 0;
+
+		while (length < data.length) {
+
+			int read = source.read(data, length, data.length - length);
+
+			if (read < 0)
+				break;
+
+			length += read;
+		}
+
+		return length == 0 ? -1 : length;
+	}
+
+	/**
+	 * Get the buffer to consume, waiting for the reader if needed
+	 *
+	 * @return false if the source ended
+	 * @throws IOException
+	 */
+	private boolean nextChunk() throws IOException {
+
+		if (closed)
+			throw new IOException("Stream closed");
+
+		if (current != null)
+			return true;
+
+		if (eof)
+			return false;
+
+		long start = System.nanoTime();
+
+		Chunk chunk;
+
+		try {
+			chunk = filled.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the read ahead buffers");
+		}
+
+		waitNanos += System.nanoTime() - start;
+
+		if (chunk.error != null) {
+			eof = true;
+			throw chunk.error;
+		}
+
+		if (chunk.length < 0) {
+			eof = true;
+			return false;
+		}
+
+		current = chunk;
+		position = 0;
+
+		return true;
+	}
+
+	/**
+	 * Give back the consumed buffer to the reader
+	 */
+	private void release() {
+
+		if (position < current.length)
+			return;
+
+		free.add(current);
+		current = null;
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		if (!nextChunk())
+			return -1;
+
+		int value = current.data[position++] & 0xff;
+
+		bytes++;
+
+		release();
+
+		return value;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+
+		if (len == 0)
+			return 0;
+
+		if (!nextChunk())
+			return -1;
+
+		int count = Math.min(len, current.length - position);
+
+		System.arraycopy(current.data, position, b, off, count);
+
+		position += count;
+		bytes += count;
+
+		release();
+
+		return count;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return current == null ? 0 : current.length - position;
+	}
+
+	/**
+	 * Stop the reader thread and close the source
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (closed)
+			return;
+
+		closed = true;
+
+		// the reader stops at the next take/put, after the current read
+		reader.interrupt();
+
+		try {
+			reader.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		LOGGER.debug("Read ahead of " + bytes + " bytes, consumer waited " + waitNanos / 1000000 + " ms");
+
+		source.close();
+	}
+}
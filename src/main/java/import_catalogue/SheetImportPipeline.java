@@ -0,0 +1,602 @@
+package import_catalogue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue_browser_dao.BulkLoadDAO;
+import config.AppConfig;
+import metrics.Metrics;
+import open_xml_reader.ResultDataSet;
+import open_xml_reader.WorkbookReader;
+
+/**
+ * Import a sheet using a pipeline of stages. A reader stage reads the rows of
+ * the sheet in batches, several mapping workers convert the rows into the
+ * objects of each target table (see {@link SheetImporter#read}) and a writer
+ * stage for each target table inserts the objects into the database in batches
+ * (see {@link SheetImporter#write}). The stages are linked by bounded queues and
+ * the number of batches in progress is limited, therefore the reader waits for
+ * the slower stages instead of filling the memory.
+ *
+ * The writers insert the objects following the order of the sheet rows, also if
+ * the rows are mapped in parallel. Note that you should call
+ * {@link WorkbookReader#processSheetName(String)} before using this class.
+ */
+public class SheetImportPipeline {
+
+	private static final Logger LOGGER = LogManager.getLogger(SheetImportPipeline.class);
+
+	// interval used to check if another stage failed while waiting
+	private static final long POLL_MS = 100;
+
+	private WorkbookReader workbookReader;
+	private String name;
+	private int readBatchSize;
+	private int writeBatchSize;
+	private int workers;
+
+	private List<Target<?>> targets;
+
+	// batches which are not written yet by all the writers
+	private Semaphore inProgress;
+	private int maxInProgress;
+
+	// batches read from the sheet
+	private BlockingQueue<RowBatch> rows;
+
+	// marker for the end of the sheet
+	private final RowBatch endOfSheet = new RowBatch(-1, null, 0);
+
+	// first error occurred in a stage
+	private AtomicReference<Exception> error;
+
+	private StageStats readStats;
+	private StageStats mapStats;
+
+	/**
+	 * Create a pipeline with the batch sizes and the number of workers defined in
+	 * the application configuration
+	 *
+	 * @param workbookReader reader with the sheet already loaded
+	 * @param name           name of the imported sheet, used in the logs
+	 */
+	public SheetImportPipeline(WorkbookReader workbookReader, String name) {
+		this(workbookReader, name, AppConfig.getImportReadBatchSize(), AppConfig.getImportWriteBatchSize(),
+				AppConfig.getImportWorkers());
+	}
+
+	/**
+	 * Create a pipeline
+	 *
+	 * @param workbookReader reader with the sheet already loaded
+	 * @param name           name of the imported sheet, used in the logs
+	 * @param readBatchSize  number of rows read at once from the sheet
+	 * @param writeBatchSize number of objects inserted at once in each table
+	 * @param workers        number of threads which map the rows into objects
+	 */
+	public SheetImportPipeline(WorkbookReader workbookReader, String name, int readBatchSize, int writeBatchSize,
+			int workers) {
+		this.workbookReader = workbookReader;
+		this.name = name;
+		this.readBatchSize = Math.max(1, readBatchSize);
+		this.writeBatchSize = Math.max(1, writeBatchSize);
+		this.workers = Math.max(1, workers);
+		this.targets = new ArrayList<>();
+	}
+
+	/**
+	 * Add a target table of the import. Each row of the sheet is read by all the
+	 * importers and the objects of each importer are inserted by a dedicated
+	 * writer.
+	 *
+	 * @param table    name of the target table, used in the logs
+	 * @param importer importer which reads and inserts the objects
+	 */
+	public <T> void addTarget(String table, SheetImporter<T> importer) {
+		addTarget(table, importer, null);
+	}
+
+	/**
+	 * Add a target table which is loaded in bulk. The objects inserted by the
+	 * writer are staged by the dao and loaded into the table when all the rows
+	 * were read, before calling {@link SheetImporter#end()}.
+	 *
+	 * @param table    name of the target table, used in the logs
+	 * @param importer importer which reads and inserts the objects
+	 * @param bulkDao  the dao used by the importer, null to insert the objects
+	 *                 without bulk load
+	 */
+	public <T> void addTarget(String table, SheetImporter<T> importer, BulkLoadDAO bulkDao) {
+		targets.add(new Target<>(table, importer, bulkDao));
+	}
+
+	/**
+	 * Import the sheet into all the targets. The {@link SheetImporter#end()}
+	 * method of the importers is called once at the end of the import.
+	 *
+	 * @throws ImportException
+	 */
+	public void importSheet() throws ImportException {
+
+		if (targets.isEmpty())
+			return;
+
+		this.maxInProgress = workers * 2 + 2;
+		this.inProgress = new Semaphore(maxInProgress);
+		this.rows = new ArrayBlockingQueue<>(maxInProgress + workers);
+		this.error = new AtomicReference<>();
+		this.readStats = new StageStats("read", "batches");
+		this.mapStats = new StageStats("map", "rows");
+
+		long start = System.currentTimeMillis();
+
+		// stage the objects of the bulk loaded tables
+		startBulkLoad();
+
+		// start the writers
+		List<Thread> writerThreads = new ArrayList<>();
+		for (Target<?> target : targets) {
+			target.init();
+			writerThreads.add(start(target.getWriter(), "writer-" + target.table));
+		}
+
+		// start the mapping workers
+		List<Thread> workerThreads = new ArrayList<>();
+		for (int i = 0; i < workers; i++)
+			workerThreads.add(start(new Worker(), "mapper-" + i));
+
+		// read the sheet in this thread
+		try {
+			read();
+		} catch (Exception e) {
+			fail(e);
+		}
+
+		// stop the workers when all the read batches are mapped
+		for (int i = 0; i < workers; i++)
+			rows.add(endOfSheet);
+
+		join(workerThreads);
+
+		// stop the writers when all the mapped batches are written
+		for (Target<?> target : targets)
+			target.end();
+
+		join(writerThreads);
+
+		// load the staged objects
+		endBulkLoad();
+
+		Exception e = error.get();
+
+		if (e instanceof ImportException)
+			throw (ImportException) e;
+
+		if (e != null)
+			throw new ImportException(e);
+
+		// end the import of each table
+		for (Target<?> target : targets)
+			target.importer.end();
+
+		logStats(System.currentTimeMillis() - start);
+
+		if (Metrics.isEnabled())
+			Metrics.recordRate("Import." + name + ".rowsPerSecond", mapStats.items.get(),
+					System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Start staging the objects of the bulk loaded targets
+	 *
+	 * @throws ImportException
+	 */
+	private void startBulkLoad() throws ImportException {
+
+		for (Target<?> target : targets) {
+
+			if (target.bulkDao == null)
+				continue;
+
+			try {
+				target.bulkDao.startBulkLoad();
+			} catch (Exception e) {
+				cancelBulkLoad();
+				throw new ImportException(e);
+			}
+		}
+	}
+
+	/**
+	 * Load the staged objects into the tables, or discard them if an error
+	 * occurred
+	 */
+	private void endBulkLoad() {
+
+		for (Target<?> target : targets) {
+
+			if (target.bulkDao == null)
+				continue;
+
+			if (isFailed()) {
+				target.bulkDao.cancelBulkLoad();
+				continue;
+			}
+
+			long time = System.nanoTime();
+
+			try {
+				target.bulkDao.endBulkLoad();
+			} catch (Exception e) {
+				fail(e);
+				continue;
+			}
+
+			target.loadStats.add(1, System.nanoTime() - time);
+		}
+	}
+
+	private void cancelBulkLoad() {
+		for (Target<?> target : targets) {
+			if (target.bulkDao != null)
+				target.bulkDao.cancelBulkLoad();
+		}
+	}
+
+	/**
+	 * Reader stage. Read the batches of rows and pass them to the workers.
+	 *
+	 * @throws XMLStreamException
+	 * @throws CloneNotSupportedException
+	 * @throws InterruptedException
+	 */
+	private void read() throws XMLStreamException, CloneNotSupportedException, InterruptedException {
+
+		workbookReader.setBatchSize(readBatchSize);
+
+		long sequence = 0;
+
+		ResultDataSet fetched = null;
+
+		try {
+
+			while (!isFailed() && workbookReader.hasNext()) {
+
+				// wait that the slower stages consume some batches
+				if (!inProgress.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS))
+					continue;
+
+				long time = System.nanoTime();
+
+				// note that the reader always returns the same data
+				// set, therefore we need a copy of it
+				fetched = workbookReader.next();
+
+				if (fetched == null) {
+					inProgress.release();
+					break;
+				}
+
+				ResultDataSet copy = (ResultDataSet) fetched.clone();
+
+				readStats.add(1, System.nanoTime() - time);
+
+				rows.add(new RowBatch(sequence++, copy, targets.size()));
+			}
+		} finally {
+			if (fetched != null)
+				fetched.close();
+		}
+	}
+
+	/**
+	 * Mapping stage. Convert the read rows into the objects of each target.
+	 */
+	private class Worker implements Runnable {
+
+		@Override
+		public void run() {
+
+			try {
+
+				while (true) {
+
+					RowBatch batch = rows.poll(POLL_MS, TimeUnit.MILLISECONDS);
+
+					if (isFailed() || batch == endOfSheet)
+						return;
+
+					if (batch == null)
+						continue;
+
+					long time = System.nanoTime();
+
+					// each target needs its own copy of the rows
+					List<ResultDataSet> copies = new ArrayList<>();
+					copies.add(batch.data);
+
+					for (int i = 1; i < targets.size(); i++)
+						copies.add((ResultDataSet) batch.data.clone());
+
+					int count = 0;
+					for (int i = 0; i < targets.size(); i++) {
+						count = targets.get(i).map(batch, copies.get(i));
+						copies.get(i).close();
+					}
+
+					mapStats.add(count, System.nanoTime() - time);
+				}
+
+			} catch (Exception e) {
+				fail(e);
+			}
+		}
+	}
+
+	/**
+	 * A target table of the import, with its writer stage
+	 *
+	 * @param <T> type of objects inserted in the table
+	 */
+	private class Target<T> {
+
+		private String table;
+		private SheetImporter<T> importer;
+		private BulkLoadDAO bulkDao;
+		private BlockingQueue<MappedBatch<T>> mapped;
+		private StageStats writeStats;
+		private StageStats loadStats;
+
+		public Target(String table, SheetImporter<T> importer, BulkLoadDAO bulkDao) {
+			this.table = table;
+			this.importer = importer;
+			this.bulkDao = bulkDao;
+		}
+
+		public void init() {
+			this.mapped = new ArrayBlockingQueue<>(maxInProgress + 1);
+			this.writeStats = new StageStats(bulkDao == null ? "write " + table : "stage " + table, "records");
+			this.loadStats = new StageStats("bulk load " + table, "files");
+		}
+
+		/**
+		 * Map the rows of a batch and pass the objects to the writer
+		 *
+		 * @param batch
+		 * @param data  copy of the rows to read
+		 * @return the number of read rows
+		 * @throws ImportException
+		 */
+		public int map(RowBatch batch, ResultDataSet data) throws ImportException {
+
+			List<T> objs = new ArrayList<>();
+
+			int count = 0;
+			while (data.next()) {
+				importer.read(data, objs);
+				count++;
+			}
+
+			// the queue has room for all the batches in progress
+			mapped.add(new MappedBatch<>(batch, objs, count));
+
+			return count;
+		}
+
+		/**
+		 * Stop the writer after the last batch
+		 */
+		public void end() {
+			mapped.add(new MappedBatch<T>(null, null, 0));
+		}
+
+		public Runnable getWriter() {
+			return new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						write();
+					} catch (Exception e) {
+						fail(e);
+					}
+				}
+			};
+		}
+
+		/**
+		 * Writer stage. Insert the objects following the order of the batches.
+		 *
+		 * @throws InterruptedException
+		 * @throws ImportException
+		 */
+		private void write() throws InterruptedException, ImportException {
+
+			// batches mapped before the previous ones
+			HashMap<Long, MappedBatch<T>> pending = new HashMap<>();
+			long next = 0;
+
+			List<T> buffer = new ArrayList<>();
+			int bufferedRows = 0;
+
+			while (!isFailed()) {
+
+				MappedBatch<T> batch = mapped.poll(POLL_MS, TimeUnit.MILLISECONDS);
+
+				if (batch == null)
+					continue;
+
+				// last batch
+				if (batch.batch == null)
+					break;
+
+				pending.put(batch.batch.sequence, batch);
+
+				// write all the batches which are in order
+				while (pending.containsKey(next)) {
+
+					MappedBatch<T> current = pending.remove(next);
+					next++;
+
+					buffer.addAll(current.objs);
+					bufferedRows += current.rows;
+
+					if (buffer.size() >= writeBatchSize) {
+						flush(buffer, bufferedRows);
+						bufferedRows = 0;
+					}
+
+					// the batch was consumed by this writer
+					current.batch.written();
+				}
+			}
+
+			if (!isFailed())
+				flush(buffer, bufferedRows);
+		}
+
+		private void flush(List<T> buffer, int bufferedRows) throws ImportException {
+
+			long time = System.nanoTime();
+			int size = buffer.size();
+
+			importer.write(buffer, bufferedRows);
+			buffer.clear();
+
+			writeStats.add(size, System.nanoTime() - time);
+		}
+	}
+
+	/**
+	 * Batch of rows read from the sheet
+	 */
+	private class RowBatch {
+
+		private long sequence;
+		private ResultDataSet data;
+		private AtomicInteger remaining;
+
+		public RowBatch(long sequence, ResultDataSet data, int targets) {
+			this.sequence = sequence;
+			this.data = data;
+			this.remaining = new AtomicInteger(targets);
+		}
+
+		/**
+		 * Called when a writer consumed the batch. When all the writers consumed it,
+		 * a new batch can be read.
+		 */
+		public void written() {
+			if (remaining.decrementAndGet() == 0)
+				inProgress.release();
+		}
+	}
+
+	/**
+	 * Objects read from a batch of rows for a target
+	 */
+	private static class MappedBatch<T> {
+
+		private RowBatch batch;
+		private List<T> objs;
+		private int rows;
+
+		public MappedBatch(RowBatch batch, List<T> objs, int rows) {
+			this.batch = batch;
+			this.objs = objs;
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * Throughput of a stage
+	 */
+	private static class StageStats {
+
+		private String stage;
+		private String unit;
+		private AtomicLong items;
+		private AtomicLong nanos;
+
+		public StageStats(String stage, String unit) {
+			this.stage = stage;
+			this.unit = unit;
+			this.items = new AtomicLong();
+			this.nanos = new AtomicLong();
+		}
+
+		public void add(long count, long time) {
+			items.addAndGet(count);
+			nanos.addAndGet(time);
+		}
+
+		@Override
+		public String toString() {
+
+			long ms = TimeUnit.NANOSECONDS.toMillis(nanos.get());
+			long perSecond = nanos.get() == 0 ? 0 : items.get() * 1000000000L / nanos.get();
+
+			return stage + "=" + items.get() + " " + unit + " in " + ms + " ms (" + perSecond + " " + unit + "/s)";
+		}
+	}
+
+	private Thread start(Runnable runnable, String threadName) {
+		Thread thread = new Thread(runnable, name + "-" + threadName);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	private void join(List<Thread> threads) {
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				fail(e);
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void fail(Exception e) {
+
+		if (error.compareAndSet(null, e)) {
+			e.printStackTrace();
+			LOGGER.error("Cannot import sheet " + name, e);
+		}
+	}
+
+	private boolean isFailed() {
+		return error.get() != null;
+	}
+
+	private void logStats(long totalMs) {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("Sheet ").append(name).append(" imported in ").append(totalMs).append(" ms with ").append(workers)
+				.append(" workers: ").append(readStats).append(", ").append(mapStats);
+
+		for (Target<?> target : targets) {
+
+			sb.append(", ").append(target.writeStats);
+
+			if (target.bulkDao != null)
+				sb.append(", ").append(target.loadStats);
+		}
+
+		LOGGER.info(sb.toString());
+	}
+}
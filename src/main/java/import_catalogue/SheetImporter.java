@@ -47,41 +47,14 @@ public abstract class SheetImporter<T> {
 		while (data.next()) {
 			//LOGGER.info("Processing row in ResultDataSet: {}", data.getCurrentRow());
 			// read the current line and get the
-			// related object
-			T obj = getByResultSet(data);
-
-			// get all the objects from the results set
-			Collection<T> allObjs = getAllByResultSet(data);
-
-			// add the object to the list
-			// if an object was created
-			if (obj != null) {
-				objs.add(obj);
-				obj = null;
-			}
-
-			// add the multiple objects to the list if they
-			// were created
-			if (allObjs != null) {
-				objs.addAll(allObjs);
-				allObjs.clear();
-				allObjs = null;
-			}
+			// related objects
+			read(data, objs);
 
 			processedSheetRows++;
 		}
 
 		// insert all the remaining T objects into the db
-		if (!objs.isEmpty()) {
-
-			insert(objs);
-
-			// notify the progress if enabled
-			if (progressBar != null) {
-				double progress = (processedSheetRows * maxProgress * 1.0000000) / rowCount;
-				progressBar.addProgress(progress);
-			}
-		}
+		write(objs, processedSheetRows);
 
 		objs.clear();
 		objs = null;
@@ -90,6 +63,57 @@ public abstract class SheetImporter<T> {
 		end();
 	}
 
+	/**
+	 * Read the objects related to the current row of the data set. This method
+	 * can be called by several threads at the same time (see
+	 * {@link SheetImportPipeline}).
+	 * 
+	 * @param data the data set, already positioned on the row
+	 * @param objs collection where the read objects are added
+	 * @throws ImportException
+	 */
+	void read(ResultDataSet data, Collection<T> objs) throws ImportException {
+
+		// read the current line and get the
+		// related object
+		T obj = getByResultSet(data);
+
+		// get all the objects from the results set
+		Collection<T> allObjs = getAllByResultSet(data);
+
+		// add the object to the list
+		// if an object was created
+		if (obj != null)
+			objs.add(obj);
+
+		// add the multiple objects to the list if they
+		// were created
+		if (allObjs != null)
+			objs.addAll(allObjs);
+	}
+
+	/**
+	 * Insert the objects read from a number of sheet rows into the db and notify
+	 * the progress
+	 * 
+	 * @param objs objects to insert
+	 * @param rows number of sheet rows from which the objects were read
+	 * @throws ImportException
+	 */
+	void write(Collection<T> objs, int rows) throws ImportException {
+
+		if (objs.isEmpty())
+			return;
+
+		insert(objs);
+
+		// notify the progress if enabled
+		if (progressBar != null) {
+			double progress = (rows * maxProgress * 1.0000000) / rowCount;
+			progressBar.addProgress(progress);
+		}
+	}
+
 	/**
 	 * Set a progress bar for the process
 	 * 
@@ -1,5 +1,9 @@
 package import_catalogue;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.logging.log4j.LogManager;
@@ -10,7 +14,9 @@ import open_xml_reader.WorkbookReader;
 
 /**
  * This thread is used to read batches of excel data
- * in background.
+ * in background. The read batches are put in a bounded
+ * queue, therefore the thread waits if the consumer is
+ * slower than the reader.
  * @author avonva
  *
  */
@@ -18,47 +24,128 @@ public class SheetReaderThread extends Thread {
 	
 	private static final Logger LOGGER = LogManager.getLogger(SheetReaderThread.class);
 	
-	private ResultDataSet rs;
+	private static final long POLL_MS = 100;
+	
 	private WorkbookReader reader;
-	private boolean finished;
+	private BlockingQueue<ResultDataSet> batches;
+	private volatile boolean finished;
+	private volatile boolean cancelled;
+	private volatile Exception error;
 	
 	/**
-	 * Thread which reads one batch of the sheet
+	 * Thread which reads all the batches of the sheet
 	 * contained in the {@code reader}. Note that
 	 * you should call {@link WorkbookReader#processSheetName(String)}
 	 * and set {@link WorkbookReader#setBatchSize(int)}
 	 * before using this class.
 	 * @param reader
+	 * @param capacity maximum number of batches read in advance
 	 */
-	public SheetReaderThread( WorkbookReader reader ) {
+	public SheetReaderThread( WorkbookReader reader, int capacity ) {
 		this.reader = reader;
+		this.batches = new ArrayBlockingQueue<>( Math.max( 1, capacity ) );
 		this.finished = false;
+		this.cancelled = false;
+		setDaemon( true );
 	}
 	
 	@Override
 	public void run() {
 
-		if ( !reader.hasNext() )
-			return;
+		ResultDataSet fetched = null;
 		
-		// read the next batch of data
 		try {
-			rs = reader.next();
-		} catch (XMLStreamException e) {
+			
+			while ( !cancelled && reader.hasNext() ) {
+				
+				// read the next batch of data, note that the reader
+				// always returns the same data set, therefore
+				// we need a copy of it
+				fetched = reader.next();
+				
+				if ( fetched == null )
+					break;
+				
+				ResultDataSet copy = (ResultDataSet) fetched.clone();
+				
+				// wait that the consumer takes some batches
+				boolean added = false;
+				while ( !cancelled && !( added = batches.offer( copy, POLL_MS, TimeUnit.MILLISECONDS ) ) );
+				
+				// cancelled while waiting
+				if ( !added )
+					copy.close();
+			}
+		} catch ( XMLStreamException | CloneNotSupportedException | InterruptedException e ) {
 			e.printStackTrace();
-			LOGGER.error("Cannot read workbook", e);
+			LOGGER.error( "Cannot read workbook", e );
+			error = e;
 		}
-
-		finished = true;
+		finally {
+			
+			if ( fetched != null )
+				fetched.close();
+			
+			finished = true;
+		}
+	}
+	
+	/**
+	 * Get the next read batch, waiting for it if needed
+	 * @return the batch or null if the sheet is finished
+	 * @throws InterruptedException
+	 */
+	public ResultDataSet take() throws InterruptedException {
+		
+		while ( true ) {
+			
+			// check the flag before polling, since the
+			// last batch is added before setting it
+			boolean end = finished;
+			
+			ResultDataSet rs = batches.poll( POLL_MS, TimeUnit.MILLISECONDS );
+			
+			if ( rs != null || end )
+				return rs;
+		}
+	}
+	
+	/**
+	 * Stop reading the sheet and wait for the thread
+	 * to exit
+	 */
+	public void cancel() {
+		
+		cancelled = true;
+		
+		// close the batches which will not be consumed,
+		// so that a reader waiting on a full queue can exit
+		closeBatches();
+		
+		if ( Thread.currentThread() != this ) {
+			try {
+				join();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		// a batch offered before the flag was seen
+		closeBatches();
+	}
+	
+	private void closeBatches() {
+		ResultDataSet rs;
+		while ( ( rs = batches.poll() ) != null )
+			rs.close();
 	}
 	
 	/**
-	 * Get the read data (when the process
-	 * is finished)
+	 * Get the error occurred while reading, if any
 	 * @return
 	 */
-	public ResultDataSet getData() {
-		return rs;
+	public Exception getError() {
+		return error;
 	}
 	
 	public boolean isFinished() {
@@ -4,6 +4,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Map;
 
 import catalogue.Catalogue;
 import catalogue_browser_dao.AttributeDAO;
@@ -80,12 +81,70 @@ public class TermAttributeImporter extends SheetImporter<TermAttribute> {
 
 		Collection<TermAttribute> tas = new ArrayList<>();
 
+		// get the term id using the term code
+		Integer termId = getTermId(rs.getString(Headers.TERM_CODE));
+
+		// skip if no term code was found
+		if (termId == null)
+			return null;
+
+		// for each attribute we create a record for the term attributes table
+		for (Attribute attr : attributes) {
+
+			// get the attribute value in the term sheet using the attribute name
+			String attrValue = rs.getString(attr.getName());
+
+			addTermAttributes(tas, termId, attr, attrValue);
+		}
+
+		return tas;
+	}
+
+	/**
+	 * Get the term attributes of a term of a catalogue .xml. The values are
+	 * identified by the attribute code (or name) and repeatable values are $
+	 * separated, as in the term sheet.
+	 * 
+	 * @param termCode
+	 * @param values   attribute code => attribute value
+	 * @return
+	 */
+	Collection<TermAttribute> getTermAttributes(String termCode, Map<String, String> values) {
+
+		Collection<TermAttribute> tas = new ArrayList<>();
+
+		Integer termId = getTermId(termCode);
+
+		// skip if no term code was found
+		if (termId == null || values.isEmpty())
+			return tas;
+
+		// follow the attributes order as for the term sheet
+		for (Attribute attr : attributes) {
+
+			String attrValue = values.get(attr.getCode());
+
+			if (attrValue == null)
+				attrValue = values.get(attr.getName());
+
+			addTermAttributes(tas, termId, attr, attrValue);
+		}
+
+		return tas;
+	}
+
+	/**
+	 * Get the id of the term in the database, managing also the temporary codes
+	 * of the new terms
+	 * 
+	 * @param termCode
+	 * @return the id of the term or null if the term was not found
+	 */
+	private Integer getTermId(String termCode) {
+
 		// initialise the code generator
 		CodeGenerator generator = new CodeGenerator();
 
-		// get the term code
-		String termCode = rs.getString(Headers.TERM_CODE);
-
 		if (generator.isTempCode(termCode))
 			termCode = newCodes.get(termCode);
 
@@ -94,30 +153,32 @@ public class TermAttributeImporter extends SheetImporter<TermAttribute> {
 			return null;
 
 		// get the term id using the term code from the hashmap (global var)
-		int termId = termIds.get(termCode);
-
-		// for each attribute we create a record for the term attributes table
-		for (Attribute attr : attributes) {
+		return termIds.get(termCode);
+	}
 
-			// get the attribute value in the term sheet using the attribute name
-			String attrValue = rs.getString(attr.getName());
+	/**
+	 * Add the term attributes related to the attribute value
+	 * 
+	 * @param tas       collection where the term attributes are added
+	 * @param termId
+	 * @param attr
+	 * @param attrValue the value, $ separated if the attribute is repeatable
+	 */
+	private void addTermAttributes(Collection<TermAttribute> tas, int termId, Attribute attr, String attrValue) {
 
-			// continue only if there is indeed a value
-			if (attrValue == null || attrValue.isEmpty())
-				continue;
+		// continue only if there is indeed a value
+		if (attrValue == null || attrValue.isEmpty())
+			return;
 
-			// if repeatable we insert a record for each single value
-			if (attr.isRepeatable()) {
+		// if repeatable we insert a record for each single value
+		if (attr.isRepeatable()) {
 
-				// add all the term attributes to the collection
-				for (String singleValue : RepeatableParser.getRepeatableValues(attrValue))
-					tas.add(createTermAttribute(termId, attr, singleValue));
-			} else { // if single attribute add a single term attribute
-				tas.add(createTermAttribute(termId, attr, attrValue));
-			}
+			// add all the term attributes to the collection
+			for (String singleValue : RepeatableParser.getRepeatableValues(attrValue))
+				tas.add(createTermAttribute(termId, attr, singleValue));
+		} else { // if single attribute add a single term attribute
+			tas.add(createTermAttribute(termId, attr, attrValue));
 		}
-
-		return tas;
 	}
 
 	/**
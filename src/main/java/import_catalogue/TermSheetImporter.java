@@ -3,6 +3,7 @@ package import_catalogue;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -90,7 +91,22 @@ public class TermSheetImporter extends SheetImporter<Term> {
 		builder.setValidTo(rs.getTimestamp(Headers.VALID_TO, true));
 		builder.setStatus(rs.getString(Headers.STATUS));
 
-		Term term = builder.build();
+		// temporary terms are managed in the insert, in order
+		// to keep the order of the sheet also if the rows are
+		// read by several threads
+		return builder.build();
+	}
+
+	/**
+	 * Check if the term has a temporary code. Temporary terms are saved and
+	 * inserted at the end of the import (see {@link #end()}).
+	 * 
+	 * @param term
+	 * @return the term if it has a standard code, null if it is a temporary term
+	 */
+	Term manageTempTerm(Term term) {
+
+		String code = term.getCode();
 
 		// if we have a temp term we save it but we
 		// don't insert it yet, we need to wait all the
@@ -111,8 +127,18 @@ public class TermSheetImporter extends SheetImporter<Term> {
 
 	@Override
 	public void insert(Collection<Term> terms) {
+
+		// temporary terms are inserted at the end
+		Collection<Term> standardTerms = new ArrayList<>(terms.size());
+
+		for (Term term : terms) {
+			if (manageTempTerm(term) != null)
+				standardTerms.add(term);
+		}
+
 		// insert the batch of terms into the db
-		dao.insert(terms);
+		if (!standardTerms.isEmpty())
+			dao.insert(standardTerms);
 	}
 
 	@Override
@@ -141,22 +167,34 @@ public class TermSheetImporter extends SheetImporter<Term> {
 			}
 		}
 
+		if (tempTerms.isEmpty())
+			return;
+
+		// create the new term codes following the catalogue
+		// term code mask (since we are creating terms
+		// automatically, a term code mask needs to be
+		// defined! Otherwise we cannot do the append)
+		List<String> codes;
+		try {
+			codes = new CodeGenerator(catalogue).getTermCodes(catalogue.getTermCodeMask(), tempTerms.size());
+		} catch (TermCodeException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot generate additional codes for catalogue=" + catalogue
+					+ ". Maximum term code reached for mask=" + catalogue.getTermCodeMask(), e);
+			throw new ImportException(e.getMessage(), "X100");
+		}
+
+		if (codes.size() < tempTerms.size()) {
+			LOGGER.error("Cannot generate additional codes for catalogue=" + catalogue);
+			throw new ImportException("Cannot generate the term codes", "X100");
+		}
+
+		int i = 0;
+
 		// for each temp term
 		for (Term newTerm : tempTerms) {
 
-			// create a new term code following the catalogue
-			// term code mask (since we are creating terms
-			// automatically, a term code mask needs to be
-			// defined! Otherwise we cannot do the append)
-			String newCode;
-			try {
-				newCode = generator.getTermCode(catalogue.getTermCodeMask());
-			} catch (TermCodeException e) {
-				e.printStackTrace();
-				LOGGER.error("Cannot generate additional codes for catalogue=" + catalogue
-						+ ". Maximum term code reached for mask=" + catalogue.getTermCodeMask(), e);
-				throw new ImportException(e.getMessage(), "X100");
-			}
+			String newCode = codes.get(i++);
 
 			String tempCode = newTerm.getCode();
 
@@ -167,17 +205,12 @@ public class TermSheetImporter extends SheetImporter<Term> {
 
 			// update the term code with the real one
 			newTerm.setCode(newCode);
+		}
 
-			// we need a collection since the insert uses
-			// only collections
-			Collection<Term> term = new ArrayList<>();
-			term.add(newTerm);
+		// the codes were reserved all together,
+		// therefore the terms can be inserted at once
+		dao.insert(tempTerms);
 
-			// insert the current term (we need to insert
-			// one term at a time, otherwise new term codes
-			// which are based on the database will be always
-			// equal among them)
-			insert(term);
-		}
+		tempTerms.clear();
 	}
 }
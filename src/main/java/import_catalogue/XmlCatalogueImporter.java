@@ -0,0 +1,1030 @@
+package import_catalogue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue.Catalogue;
+import catalogue.CatalogueBuilder;
+import catalogue.ReleaseNotes;
+import catalogue.ReleaseNotesOperation;
+import catalogue_browser_dao.AttributeDAO;
+import catalogue_browser_dao.CatalogueDAO;
+import catalogue_browser_dao.CatalogueEntityDAO;
+import catalogue_browser_dao.CatalogueRelationDAO;
+import catalogue_browser_dao.CatalogueSchema;
+import catalogue_browser_dao.HierarchyDAO;
+import catalogue_browser_dao.ICatalogueDAO;
+import catalogue_browser_dao.ParentTermDAO;
+import catalogue_browser_dao.ReleaseNotesOperationDAO;
+import catalogue_browser_dao.TermAttributeDAO;
+import catalogue_browser_dao.TermDAO;
+import catalogue_object.Applicability;
+import catalogue_object.Attribute;
+import catalogue_object.AttributeBuilder;
+import catalogue_object.Hierarchy;
+import catalogue_object.HierarchyBuilder;
+import catalogue_object.Term;
+import catalogue_object.TermAttribute;
+import catalogue_object.TermBuilder;
+import dcf_manager.Dcf;
+import i18n_messages.CBMessages;
+import import_catalogue.ParentImporter.Assignment;
+import progress_bar.IProgressBar;
+import ui_search_bar.SearchOptionDAO;
+import user_preferences.CataloguePreferenceDAO;
+
+/**
+ * Import a catalogue .xml (as the ones downloaded from the dcf or contained in
+ * the .ecf files) directly into the catalogue database. The .xml is read with a
+ * StAX parser and its elements are converted into the catalogue objects, which
+ * are then inserted using the same sheet importers (and therefore the same dao
+ * batches) of the {@link CatalogueWorkbookImporter}. In this way we avoid
+ * writing and reading again the .xlsx workbook of the catalogue.
+ *
+ * Since the parents of a term can be defined after the term itself, the term
+ * attributes and the applicabilities are kept in memory (only their codes and
+ * values) and they are inserted when all the terms were imported.
+ */
+public class XmlCatalogueImporter {
+
+	private static final Logger LOGGER = LogManager.getLogger(XmlCatalogueImporter.class);
+
+	private static final int BATCH_SIZE = 100;
+
+	// separator of the repeated values, as in the workbook
+	private static final String VALUES_SEPARATOR = "$";
+
+	// parser of the xml dates, created once since looking up the implementation
+	// is expensive (the factory has no state)
+	private static final DatatypeFactory DATATYPE_FACTORY = createDatatypeFactory();
+
+	private ICatalogueDAO catDao;
+	private CatalogueEntityDAO<Attribute> attrDao;
+	private CatalogueEntityDAO<Hierarchy> hierDao;
+	private CatalogueEntityDAO<Term> termDao;
+	private CatalogueRelationDAO<TermAttribute, Term, Attribute> taDao;
+	private CatalogueRelationDAO<Applicability, Term, Hierarchy> parentDao;
+	private CatalogueEntityDAO<ReleaseNotesOperation> notesDao;
+
+	// set this to import a local catalogue
+	private Catalogue openedCat;
+	private IProgressBar progressBar;
+	private double maxProgress;
+
+	// state of the import
+	private HashMap<String, String> catalogueRecord;
+	private ArrayList<Record> hierarchyRecords;
+	private ArrayList<Record> attributeRecords;
+	private ArrayList<TermRelations> relations;
+	private Catalogue importedCat;
+	private String catXmlCode;
+	private TermSheetImporter termImp;
+	private Collection<Term> termBatch;
+	private boolean hierarchiesImported;
+	private boolean attributesImported;
+	private boolean termsImported;
+
+	public XmlCatalogueImporter() {
+		this.catDao = new CatalogueDAO();
+		this.attrDao = null;
+		this.hierDao = null;
+		this.termDao = null;
+		this.taDao = null;
+		this.parentDao = null;
+		this.notesDao = null;
+	}
+
+	public XmlCatalogueImporter(ICatalogueDAO catDao, CatalogueEntityDAO<Attribute> attrDao,
+			CatalogueEntityDAO<Hierarchy> hierDao, CatalogueEntityDAO<Term> termDao,
+			CatalogueRelationDAO<TermAttribute, Term, Attribute> taDao,
+			CatalogueRelationDAO<Applicability, Term, Hierarchy> parentDao,
+			CatalogueEntityDAO<ReleaseNotesOperation> notesDao) {
+		this.catDao = catDao;
+		this.attrDao = attrDao;
+		this.hierDao = hierDao;
+		this.termDao = termDao;
+		this.taDao = taDao;
+		this.parentDao = parentDao;
+		this.notesDao = notesDao;
+	}
+
+	/**
+	 * Set this to import the .xml in the catalogue opened in the main panel, in
+	 * order to override its data
+	 *
+	 * @param openedCat
+	 */
+	public void setOpenedCatalogue(Catalogue openedCat) {
+		this.openedCat = openedCat;
+	}
+
+	private void initDaos(Catalogue catalogue) {
+
+		if (this.attrDao == null) {
+			this.attrDao = new AttributeDAO(catalogue);
+			this.hierDao = new HierarchyDAO(catalogue);
+			this.termDao = new TermDAO(catalogue);
+			this.notesDao = new ReleaseNotesOperationDAO(catalogue);
+			this.taDao = new TermAttributeDAO(catalogue);
+			this.parentDao = new ParentTermDAO(catalogue);
+		}
+
+		this.hierDao.setCatalogue(catalogue);
+		this.attrDao.setCatalogue(catalogue);
+		this.termDao.setCatalogue(catalogue);
+		this.taDao.setCatalogue(catalogue);
+		this.parentDao.setCatalogue(catalogue);
+		this.notesDao.setCatalogue(catalogue);
+	}
+
+	/**
+	 * Import the catalogue .xml file
+	 *
+	 * @param pb
+	 * @param filename
+	 * @param maxProgress
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 * @throws SQLException
+	 * @throws ImportException
+	 */
+	public void importXml(IProgressBar pb, String filename, double maxProgress)
+			throws IOException, XMLStreamException, SQLException, ImportException {
+
+		try (InputStream input = new FileInputStream(filename);) {
+			importXml(pb, input, maxProgress);
+		}
+	}
+
+	/**
+	 * Import a catalogue .xml reading it from the stream (which is not closed)
+	 *
+	 * @param pb
+	 * @param input
+	 * @param maxProgress
+	 * @throws XMLStreamException
+	 * @throws SQLException
+	 * @throws ImportException
+	 */
+	public void importXml(IProgressBar pb, InputStream input, double maxProgress)
+			throws XMLStreamException, SQLException, ImportException {
+
+		this.progressBar = pb;
+		this.maxProgress = maxProgress;
+
+		this.catalogueRecord = new HashMap<>();
+		this.hierarchyRecords = new ArrayList<>();
+		this.attributeRecords = new ArrayList<>();
+		this.relations = new ArrayList<>();
+		this.termBatch = new ArrayList<>();
+		this.importedCat = null;
+		this.hierarchiesImported = false;
+		this.attributesImported = false;
+		this.termsImported = false;
+
+		long start = System.currentTimeMillis();
+
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+
+		// the catalogue has no dtd, do not resolve external entities
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+		XMLStreamReader reader = factory.createXMLStreamReader(input);
+
+		// true if we are inside the attributes of the catalogue
+		// (the term attributes have the same element name)
+		boolean catalogueAttributes = false;
+
+		try {
+
+			while (reader.hasNext()) {
+
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+
+					switch (reader.getLocalName()) {
+					case "catalogueDesc":
+					case "catalogueVersion":
+					case "catalogueGroups":
+						catalogueRecord.putAll(readRecord(reader).values);
+						break;
+					case "catalogueHierarchies":
+						importCatalogue();
+						break;
+					case "hierarchy":
+						hierarchyRecords.add(readRecord(reader));
+						break;
+					case "catalogueAttributes":
+						importHierarchies();
+						catalogueAttributes = true;
+						break;
+					case "attribute":
+						if (catalogueAttributes)
+							attributeRecords.add(readRecord(reader));
+						break;
+					case "catalogueTerms":
+						importAttributes();
+						startTerms();
+						break;
+					case "term":
+						addTerm(readRecord(reader));
+						break;
+					case "releaseNotes":
+						importTerms();
+						importReleaseNotes(reader);
+						break;
+					default:
+						break;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+
+					switch (reader.getLocalName()) {
+					case "catalogueHierarchies":
+						importHierarchies();
+						break;
+					case "catalogueAttributes":
+						importAttributes();
+						catalogueAttributes = false;
+						break;
+					case "catalogueTerms":
+					case "catalogue":
+						importTerms();
+						break;
+					default:
+						break;
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		// catalogues without terms
+		importTerms();
+
+		// insert default preferences
+		LOGGER.info("Creating default preferences");
+		if (progressBar != null)
+			progressBar.setLabel(CBMessages.getString("Import.Preferences"));
+
+		CataloguePreferenceDAO prefDao = new CataloguePreferenceDAO(importedCat);
+		prefDao.insertDefaultPreferences();
+
+		// insert the default search options
+		SearchOptionDAO optDao = new SearchOptionDAO(importedCat);
+		optDao.insertDefaultSearchOpt();
+
+		// the data of the catalogue were replaced
+		CatalogueSchema.increaseDataVersion(importedCat);
+
+		addProgress(ProgressSettings.DEFAULT_PREF);
+
+		LOGGER.info(importedCat + " successfully imported in " + importedCat.getDbPath() + " from xml in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Create the catalogue (and its database) using the catalogue data read so
+	 * far. Nothing is done if the catalogue was already imported.
+	 *
+	 * @throws ImportException
+	 */
+	private void importCatalogue() throws ImportException {
+
+		if (importedCat != null)
+			return;
+
+		LOGGER.info("Import catalogue");
+
+		if (progressBar != null)
+			progressBar.setLabel(CBMessages.getString("Import.Catalogue"));
+
+		CatalogueSheetImporter catImp = new CatalogueSheetImporter(catDao);
+
+		if (openedCat != null)
+			catImp.setOpenedCatalogue(openedCat);
+
+		Collection<Catalogue> cats = new ArrayList<>();
+		cats.add(catImp.setImportedCatalogue(createCatalogue(catalogueRecord)));
+
+		catImp.insert(cats);
+
+		importedCat = catImp.getImportedCatalogue();
+		catXmlCode = catImp.getExcelCode();
+
+		// refresh catalogue in memory
+		openedCat = importedCat;
+
+		// prepare daos to import data
+		initDaos(importedCat);
+
+		addProgress(ProgressSettings.CAT_SHEET);
+	}
+
+	/**
+	 * Import the hierarchies read so far. Nothing is done if they were already
+	 * imported.
+	 *
+	 * @throws ImportException
+	 */
+	private void importHierarchies() throws ImportException {
+
+		importCatalogue();
+
+		if (hierarchiesImported)
+			return;
+
+		LOGGER.info("Import hierarchies");
+
+		if (progressBar != null)
+			progressBar.setLabel(CBMessages.getString("Import.Hierarchy"));
+
+		HierarchySheetImporter hierImp = new HierarchySheetImporter(hierDao, importedCat, catXmlCode);
+
+		ArrayList<Hierarchy> hierarchies = new ArrayList<>();
+
+		boolean masterFound = false;
+		for (Record record : hierarchyRecords) {
+
+			Hierarchy hierarchy = createHierarchy(hierImp, record);
+
+			if (hierarchy == null)
+				continue;
+
+			masterFound = masterFound || hierarchy.isMaster();
+			hierarchies.add(hierarchy);
+		}
+
+		// the master hierarchy is not listed in the .xml, since it
+		// is described by the catalogue itself
+		if (!masterFound)
+			hierarchies.add(0, createMasterHierarchy(hierImp));
+
+		hierImp.insert(hierarchies);
+		hierImp.end();
+
+		hierarchyRecords.clear();
+		hierarchiesImported = true;
+
+		addProgress(ProgressSettings.HIER_SHEET);
+	}
+
+	/**
+	 * Import the attributes read so far and their term types. Nothing is done if
+	 * they were already imported.
+	 *
+	 * @throws ImportException
+	 */
+	private void importAttributes() throws ImportException {
+
+		importHierarchies();
+
+		if (attributesImported)
+			return;
+
+		LOGGER.info("Import attributes");
+
+		if (progressBar != null)
+			progressBar.setLabel(CBMessages.getString("Import.Attribute"));
+
+		AttributeSheetImporter attrImp = new AttributeSheetImporter(attrDao, importedCat);
+
+		Collection<Attribute> attrs = new ArrayList<>();
+		for (Record record : attributeRecords) {
+
+			Attribute attr = createAttribute(record);
+
+			if (attr != null)
+				attrs.add(attr);
+		}
+
+		if (!attrs.isEmpty())
+			attrImp.insert(attrs);
+
+		attrImp.end();
+
+		// import the term types related to the attributes
+		TermTypeImporter ttImp = new TermTypeImporter(importedCat);
+		ttImp.importSheet();
+
+		attributeRecords.clear();
+		attributesImported = true;
+
+		addProgress(ProgressSettings.ATTR_SHEET);
+	}
+
+	/**
+	 * Prepare the import of the terms
+	 *
+	 * @throws ImportException
+	 */
+	private void startTerms() throws ImportException {
+
+		if (termImp != null)
+			return;
+
+		importAttributes();
+
+		LOGGER.info("Import terms");
+
+		if (progressBar != null)
+			progressBar.setLabel(CBMessages.getString("Import.Term"));
+
+		termImp = new TermSheetImporter(termDao, importedCat);
+	}
+
+	/**
+	 * Add a term to the current batch of terms and save its relations for later
+	 *
+	 * @param record
+	 * @throws ImportException
+	 */
+	private void addTerm(Record record) throws ImportException {
+
+		startTerms();
+
+		String code = get(record.values, "termCode");
+
+		// skip if no term code
+		if (code == null || code.isEmpty()) {
+			LOGGER.error("Empty code found, skipping this term");
+			return;
+		}
+
+		TermBuilder builder = new TermBuilder();
+
+		builder.setCatalogue(importedCat);
+		builder.setCode(code);
+		builder.setName(get(record.values, "termExtendedName"));
+		builder.setLabel(get(record.values, "termShortName"));
+		builder.setScopenotes(get(record.values, "termScopeNote"));
+		builder.setDeprecated(getBoolean(record.values, "deprecated", false));
+		builder.setVersion(get(record.values, "version"));
+		builder.setLastUpdate(getTimestamp(record.values, "lastUpdate"));
+		builder.setValidFrom(getTimestamp(record.values, "validFrom"));
+		builder.setValidTo(getTimestamp(record.values, "validTo"));
+		builder.setStatus(get(record.values, "status"));
+
+		Term term = termImp.manageTempTerm(builder.build());
+
+		if (term != null)
+			termBatch.add(term);
+
+		relations.add(new TermRelations(code, record));
+
+		if (termBatch.size() >= BATCH_SIZE) {
+			termImp.insert(termBatch);
+			termBatch = new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Complete the import of the terms and import their attributes and
+	 * applicabilities. Nothing is done if the terms were already imported.
+	 *
+	 * @throws ImportException
+	 * @throws SQLException
+	 */
+	private void importTerms() throws ImportException, SQLException {
+
+		if (termsImported)
+			return;
+
+		startTerms();
+
+		if (!termBatch.isEmpty()) {
+			termImp.insert(termBatch);
+			termBatch = new ArrayList<>();
+		}
+
+		// insert the terms with temporary codes
+		termImp.end();
+
+		addProgress(ProgressSettings.TERM_SHEET);
+
+		LOGGER.info("Import term attributes and parents");
+
+		if (progressBar != null)
+			progressBar.setLabel(CBMessages.getString("Import.TermAttrParent"));
+
+		// note that we need to have imported the terms to import
+		// term attributes and parent terms!
+		TermAttributeImporter taImp = new TermAttributeImporter(taDao, importedCat);
+		ParentImporter parentImp = new ParentImporter(parentDao, importedCat);
+
+		taImp.manageNewTerms(termImp.getNewCodes());
+		parentImp.manageNewTerms(termImp.getNewCodes());
+
+		Collection<TermAttribute> tas = new ArrayList<>();
+		Collection<Applicability> appls = new ArrayList<>();
+
+		for (TermRelations rel : relations) {
+
+			tas.addAll(taImp.getTermAttributes(rel.termCode, rel.attributes));
+			appls.addAll(parentImp.getApplicabilities(rel.termCode, rel.assignments, catXmlCode));
+
+			if (tas.size() >= BATCH_SIZE) {
+				taImp.insert(tas);
+				tas = new ArrayList<>();
+			}
+
+			if (appls.size() >= BATCH_SIZE) {
+				parentImp.insert(appls);
+				appls = new ArrayList<>();
+			}
+		}
+
+		if (!tas.isEmpty())
+			taImp.insert(tas);
+
+		if (!appls.isEmpty())
+			parentImp.insert(appls);
+
+		taImp.end();
+		parentImp.end();
+
+		relations.clear();
+		termsImported = true;
+
+		addProgress(ProgressSettings.TERM_ATTR_SHEET);
+		addProgress(ProgressSettings.PARENT_SHEET);
+	}
+
+	/**
+	 * Import the release notes of the catalogue. The reader should be positioned
+	 * on the releaseNotes element.
+	 *
+	 * @param reader
+	 * @throws XMLStreamException
+	 */
+	private void importReleaseNotes(XMLStreamReader reader) throws XMLStreamException {
+
+		LOGGER.info("Import release notes");
+
+		if (progressBar != null)
+			progressBar.setLabel(CBMessages.getString("Import.ReleaseNotes"));
+
+		String description = null;
+		Timestamp date = null;
+		String internalVersion = null;
+		String internalVersionNote = null;
+
+		Collection<ReleaseNotesOperation> ops = new ArrayList<>();
+
+		String opName = null;
+		Timestamp opDate = null;
+		int groupId = 0;
+
+		boolean firstVersion = true;
+
+		while (reader.hasNext()) {
+
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("releaseNotes"))
+				break;
+
+			if (event != XMLStreamConstants.START_ELEMENT)
+				continue;
+
+			switch (reader.getLocalName()) {
+			case "description":
+				description = reader.getElementText();
+				break;
+			case "versionDate":
+				date = toTimestamp(reader.getElementText());
+				break;
+			case "version":
+				// the last internal version is the first one
+				if (firstVersion)
+					internalVersion = reader.getAttributeValue(null, "internalVersion");
+				break;
+			case "internalVersionNote":
+				String note = reader.getElementText();
+				if (firstVersion) {
+					internalVersionNote = note;
+					firstVersion = false;
+				}
+				break;
+			case "operationsDetail":
+				opName = reader.getAttributeValue(null, "operationName");
+				opDate = toTimestamp(reader.getAttributeValue(null, "operationDate"));
+				groupId++;
+				break;
+			case "operationInfo":
+				ops.add(new ReleaseNotesOperation(opName, opDate, reader.getElementText(), groupId));
+				break;
+			default:
+				break;
+			}
+		}
+
+		importedCat.setReleaseNotes(new ReleaseNotes(description, date, internalVersion, internalVersionNote, null));
+
+		try {
+			NotesSheetImporter notesImp = new NotesSheetImporter(notesDao);
+
+			if (!ops.isEmpty())
+				notesImp.insert(ops);
+
+			notesImp.end();
+		} catch (Exception e) {
+			LOGGER.error("Release notes not imported for " + importedCat, e);
+		}
+
+		addProgress(ProgressSettings.NOTES_SHEET);
+	}
+
+	/**
+	 * Create the catalogue from the catalogueDesc and catalogueVersion data
+	 *
+	 * @param values
+	 * @return
+	 */
+	private static Catalogue createCatalogue(HashMap<String, String> values) {
+
+		CatalogueBuilder builder = new CatalogueBuilder();
+
+		builder.setCode(get(values, "code"));
+		builder.setVersion(get(values, "version"));
+		builder.setName(get(values, "name"));
+		builder.setLabel(get(values, "label"));
+		builder.setScopenotes(get(values, "scopeNote"));
+		builder.setTermCodeMask(get(values, "termCodeMask"));
+		builder.setTermCodeLength(get(values, "termCodeLength"));
+		builder.setTermMinCode(get(values, "termMinCode"));
+		builder.setAcceptNonStandardCodes(getBoolean(values, "acceptNonStandardCodes", true));
+		builder.setGenerateMissingCodes(getBoolean(values, "generateMissingCodes", false));
+		builder.setStatus(get(values, "status"));
+		builder.setCatalogueGroups(get(values, "catalogueGroup"));
+
+		Timestamp ts = getTimestamp(values, "lastUpdate");
+		if (ts != null)
+			builder.setLastUpdate(ts);
+
+		ts = getTimestamp(values, "validFrom");
+		if (ts != null)
+			builder.setValidFrom(ts);
+
+		ts = getTimestamp(values, "validTo");
+		if (ts != null)
+			builder.setValidTo(ts);
+
+		builder.setDeprecated(getBoolean(values, "deprecated", false));
+
+		// the release notes are after the catalogue in the .xml
+		// they are set when they are read
+		builder.setReleaseNotes(new ReleaseNotes(null, null, null, null, null));
+
+		// as for the workbooks, use the dcf type used to import the catalogue
+		builder.setCatalogueType(Dcf.dcfType);
+
+		return builder.build();
+	}
+
+	/**
+	 * Create an hierarchy from the hierarchyDesc and hierarchyVersion data
+	 *
+	 * @param hierImp
+	 * @param record
+	 * @return
+	 */
+	private static Hierarchy createHierarchy(HierarchySheetImporter hierImp, Record record) {
+
+		HashMap<String, String> values = record.values;
+
+		String code = get(values, "code");
+
+		// if empty ignore
+		if (code == null || code.isEmpty()) {
+			LOGGER.error("Empty hierarchy code found, skipping...");
+			return null;
+		}
+
+		HierarchyBuilder builder = new HierarchyBuilder();
+
+		builder.setScopenotes(get(values, "scopeNote"));
+		builder.setApplicability(get(values, "hierarchyApplicability"));
+		builder.setOrder(getInt(values, "hierarchyOrder", 1));
+		builder.setStatus(get(values, "status"));
+		builder.setLastUpdate(getTimestamp(values, "lastUpdate"));
+		builder.setValidFrom(getTimestamp(values, "validFrom"));
+		builder.setValidTo(getTimestamp(values, "validTo"));
+		builder.setVersion(get(values, "version"));
+		builder.setDeprecated(getBoolean(values, "deprecated", false));
+		builder.setGroups(get(values, "hierarchyGroup"));
+
+		return hierImp.createHierarchy(builder, code, get(values, "name"), get(values, "label"));
+	}
+
+	/**
+	 * Create the master hierarchy using the catalogue data
+	 *
+	 * @param hierImp
+	 * @return
+	 */
+	private Hierarchy createMasterHierarchy(HierarchySheetImporter hierImp) {
+
+		HashMap<String, String> values = catalogueRecord;
+
+		HierarchyBuilder builder = new HierarchyBuilder();
+
+		builder.setScopenotes(get(values, "scopeNote"));
+		builder.setApplicability("both");
+		builder.setOrder(0);
+		builder.setStatus(get(values, "status"));
+		builder.setLastUpdate(getTimestamp(values, "lastUpdate"));
+		builder.setValidFrom(getTimestamp(values, "validFrom"));
+		builder.setValidTo(getTimestamp(values, "validTo"));
+		builder.setVersion(get(values, "version"));
+		builder.setDeprecated(getBoolean(values, "deprecated", false));
+		builder.setGroups(get(values, "catalogueGroup"));
+
+		return hierImp.createHierarchy(builder, catXmlCode, get(values, "name"), get(values, "label"));
+	}
+
+	/**
+	 * Create an attribute from the attributeDesc and attributeVersion data
+	 *
+	 * @param record
+	 * @return
+	 */
+	private Attribute createAttribute(Record record) {
+
+		HashMap<String, String> values = record.values;
+
+		String code = get(values, "code");
+
+		// ignore if no code
+		if (code == null || code.isEmpty())
+			return null;
+
+		AttributeBuilder builder = new AttributeBuilder();
+
+		builder.setCatalogue(importedCat);
+		builder.setCode(code);
+		builder.setName(get(values, "name"));
+		builder.setLabel(get(values, "label"));
+		builder.setScopenotes(get(values, "scopeNote"));
+		builder.setReportable(get(values, "attributeReportable"));
+		builder.setVisible(getBoolean(values, "attributeVisible", true));
+		builder.setSearchable(getBoolean(values, "attributeSearchable", true));
+		builder.setOrder(getInt(values, "attributeOrder", 1));
+		builder.setType(get(values, "attributeType"));
+		builder.setMaxLength(getInt(values, "attributeMaxLength", -1));
+		builder.setPrecision(getInt(values, "attributePrecision", -1));
+		builder.setScale(getInt(values, "attributeScale", -1));
+		builder.setCatalogueCode(get(values, "attributeCatalogueCode"));
+		builder.setSingleOrRepeatable(get(values, "attributeSingleOrRepeatable"));
+		builder.setInheritance(get(values, "attributeInheritance"));
+		builder.setUniqueness(getBoolean(values, "attributeUniqueness", false));
+		builder.setTermCodeAlias(getBoolean(values, "attributeTermCodeAlias", false));
+		builder.setLastUpdate(getTimestamp(values, "lastUpdate"));
+		builder.setValidFrom(getTimestamp(values, "validFrom"));
+		builder.setValidTo(getTimestamp(values, "validTo"));
+		builder.setStatus(get(values, "status"));
+		builder.setDeprecated(getBoolean(values, "deprecated", false));
+		builder.setVersion(get(values, "version"));
+
+		return builder.build();
+	}
+
+	/**
+	 * Read the element on which the reader is positioned. The text of all the
+	 * nested elements is saved with the name of the element, joining repeated
+	 * elements with a $. The term attributes and the hierarchy assignments are
+	 * read as separate records.
+	 *
+	 * @param reader
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private static Record readRecord(XMLStreamReader reader) throws XMLStreamException {
+
+		Record record = new Record();
+
+		int depth = 1;
+		String leaf = null;
+		StringBuilder text = new StringBuilder();
+
+		while (depth > 0 && reader.hasNext()) {
+
+			int event = reader.next();
+
+			switch (event) {
+			case XMLStreamConstants.START_ELEMENT:
+
+				String name = reader.getLocalName();
+
+				// nested records
+				if (name.equals("attribute") || name.equals("hierarchyAssignment")) {
+					record.add(name, readRecord(reader));
+					leaf = null;
+					break;
+				}
+
+				depth++;
+				leaf = name;
+				text.setLength(0);
+				break;
+
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+				if (leaf != null)
+					text.append(reader.getText());
+				break;
+
+			case XMLStreamConstants.END_ELEMENT:
+
+				depth--;
+
+				// save only the elements without children
+				if (leaf != null && leaf.equals(reader.getLocalName()))
+					record.put(leaf, text.toString());
+
+				leaf = null;
+				break;
+
+			default:
+				break;
+			}
+		}
+
+		return record;
+	}
+
+	private void addProgress(int step) {
+		if (progressBar != null)
+			progressBar.addProgress(ProgressSettings.getProgress(step, maxProgress));
+	}
+
+	private static String get(HashMap<String, String> values, String key) {
+		return values.get(key);
+	}
+
+	private static int getInt(HashMap<String, String> values, String key, int defaultValue) {
+
+		String value = values.get(key);
+
+		if (value == null || value.trim().isEmpty())
+			return defaultValue;
+
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			LOGGER.error("Wrong integer " + value + " for " + key, e);
+			return defaultValue;
+		}
+	}
+
+	private static boolean getBoolean(HashMap<String, String> values, String key, boolean defaultValue) {
+
+		String value = values.get(key);
+
+		if (value == null || value.trim().isEmpty())
+			return defaultValue;
+
+		value = value.trim();
+
+		return value.equalsIgnoreCase("true") || value.equals("1");
+	}
+
+	private static Timestamp getTimestamp(HashMap<String, String> values, String key) {
+		return toTimestamp(values.get(key));
+	}
+
+	/**
+	 * Convert an xml date time (as 2018-01-31T14:21:10) into a timestamp
+	 *
+	 * @param value
+	 * @return the timestamp or null if the value is empty or not valid
+	 */
+	private static Timestamp toTimestamp(String value) {
+
+		if (value == null || value.trim().isEmpty())
+			return null;
+
+		try {
+			return new Timestamp(
+					DATATYPE_FACTORY.newXMLGregorianCalendar(value.trim()).toGregorianCalendar().getTimeInMillis());
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("Wrong date " + value, e);
+			return null;
+		}
+	}
+
+	private static DatatypeFactory createDatatypeFactory() {
+		try {
+			return DatatypeFactory.newInstance();
+		} catch (DatatypeConfigurationException e) {
+			throw new IllegalStateException("Cannot create the xml datatype factory", e);
+		}
+	}
+
+	/**
+	 * Values of an xml element and of its nested elements
+	 */
+	private static class Record {
+
+		private HashMap<String, String> values = new HashMap<>();
+		private HashMap<String, ArrayList<Record>> children = new HashMap<>();
+
+		public void put(String key, String value) {
+
+			String old = values.get(key);
+
+			if (old != null && !old.isEmpty())
+				value = old + VALUES_SEPARATOR + value;
+
+			values.put(key, value);
+		}
+
+		public void add(String name, Record child) {
+
+			ArrayList<Record> list = children.get(name);
+
+			if (list == null) {
+				list = new ArrayList<>();
+				children.put(name, list);
+			}
+
+			list.add(child);
+		}
+
+		public ArrayList<Record> getChildren(String name) {
+
+			ArrayList<Record> list = children.get(name);
+
+			if (list == null)
+				return new ArrayList<>();
+
+			return list;
+		}
+	}
+
+	/**
+	 * Term attributes and hierarchy assignments of a term, which are imported
+	 * after all the terms
+	 */
+	private static class TermRelations {
+
+		private String termCode;
+
+		// attribute code => $ separated values
+		private LinkedHashMap<String, String> attributes;
+
+		// hierarchy code => assignment
+		private HashMap<String, Assignment> assignments;
+
+		public TermRelations(String termCode, Record record) {
+
+			this.termCode = termCode;
+			this.attributes = new LinkedHashMap<>();
+			this.assignments = new HashMap<>();
+
+			for (Record attr : record.getChildren("attribute")) {
+
+				String code = get(attr.values, "attributeCode");
+				String value = get(attr.values, "attributeValue");
+
+				if (code == null || value == null)
+					continue;
+
+				String old = attributes.get(code);
+				attributes.put(code, old == null ? value : old + VALUES_SEPARATOR + value);
+			}
+
+			for (Record assign : record.getChildren("hierarchyAssignment")) {
+
+				String hierarchyCode = get(assign.values, "hierarchyCode");
+
+				if (hierarchyCode == null)
+					continue;
+
+				Assignment assignment = new Assignment(get(assign.values, "parentCode"),
+						getInt(assign.values, "order", -1), getBoolean(assign.values, "reportable", true));
+
+				assignments.put(hierarchyCode, assignment);
+			}
+		}
+	}
+}
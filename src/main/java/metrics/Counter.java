@@ -0,0 +1,50 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter of events. Nothing is recorded if the metrics are disabled.
+ */
+public class Counter extends Metric implements CounterMBean {
+
+	private final LongAdder count = new LongAdder();
+
+	public Counter(String name) {
+		super(name);
+	}
+
+	/**
+	 * Count an event
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * Count several events
+	 * 
+	 * @param events
+	 */
+	public void add(long events) {
+
+		if (!Metrics.isEnabled())
+			return;
+
+		count.add(events);
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public void reset() {
+		count.reset();
+	}
+
+	@Override
+	public String getSummary() {
+		return "count=" + getCount();
+	}
+}
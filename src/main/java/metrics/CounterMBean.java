@@ -0,0 +1,13 @@
+package metrics;
+
+/**
+ * JMX interface of a {@link Counter}
+ */
+public interface CounterMBean {
+
+	public String getName();
+
+	public long getCount();
+
+	public void reset();
+}
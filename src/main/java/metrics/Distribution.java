@@ -0,0 +1,171 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non negative values (durations, rates, sizes...). The values
+ * are counted in buckets with power of two bounds, so recording a value does
+ * not allocate memory and does not need locks. Nothing is recorded if the
+ * metrics are disabled.
+ */
+public class Distribution extends Metric implements DistributionMBean {
+
+	// bucket i contains the values with i significant bits
+	private static final int BUCKETS = 65;
+
+	private final String unit;
+
+	// divisor which converts the recorded values into the unit
+	private final double scale;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Create a distribution of values reported as they are recorded
+	 * 
+	 * @param name
+	 * @param unit unit of the values, for the reports
+	 */
+	public Distribution(String name, String unit) {
+		this(name, unit, 1);
+	}
+
+	/**
+	 * Create a distribution
+	 * 
+	 * @param name
+	 * @param unit  unit of the reported values
+	 * @param scale the recorded values are divided by the scale when reported
+	 */
+	protected Distribution(String name, String unit, double scale) {
+		super(name);
+		this.unit = unit;
+		this.scale = scale;
+	}
+
+	/**
+	 * Record a value, negative values are recorded as zero
+	 * 
+	 * @param value
+	 */
+	public void record(long value) {
+
+		if (!Metrics.isEnabled())
+			return;
+
+		if (value < 0)
+			value = 0;
+
+		buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+		count.increment();
+		sum.add(value);
+
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value))
+			;
+	}
+
+	@Override
+	public String getUnit() {
+		return unit;
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public double getMean() {
+
+		long n = count.sum();
+
+		if (n == 0)
+			return 0;
+
+		return sum.sum() / scale / n;
+	}
+
+	@Override
+	public double getMax() {
+		return max.get() / scale;
+	}
+
+	@Override
+	public double getP50() {
+		return getPercentile(50);
+	}
+
+	@Override
+	public double getP90() {
+		return getPercentile(90);
+	}
+
+	@Override
+	public double getP99() {
+		return getPercentile(99);
+	}
+
+	/**
+	 * Get a percentile of the recorded values
+	 * 
+	 * @param percent
+	 * @return the upper bound of the bucket which contains the percentile (at
+	 *         most the maximum value recorded), 0 if there are no values
+	 */
+	public double getPercentile(int percent) {
+
+		long total = 0;
+		long[] counts = new long[BUCKETS];
+
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * total));
+
+		long seen = 0;
+		int bucket = 0;
+
+		while (bucket < BUCKETS - 1) {
+
+			seen += counts[bucket];
+
+			if (seen >= rank)
+				break;
+
+			bucket++;
+		}
+
+		// largest value with the bits of the bucket
+		long bound = bucket == 0 ? 0 : bucket == 64 ? Long.MAX_VALUE : (1L << bucket) - 1;
+
+		return Math.min(bound, max.get()) / scale;
+	}
+
+	@Override
+	public void reset() {
+
+		for (int i = 0; i < BUCKETS; i++)
+			buckets.set(i, 0);
+
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	@Override
+	public String getSummary() {
+		return String.format("count=%d, mean=%.2f %s, p50=%.2f, p90=%.2f, p99=%.2f, max=%.2f", getCount(), getMean(),
+				unit, getP50(), getP90(), getP99(), getMax());
+	}
+}
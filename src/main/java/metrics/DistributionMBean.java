@@ -0,0 +1,26 @@
+package metrics;
+
+/**
+ * JMX interface of a {@link Distribution}. The percentiles are approximated
+ * with the upper bound of the histogram bucket which contains them.
+ */
+public interface DistributionMBean {
+
+	public String getName();
+
+	public String getUnit();
+
+	public long getCount();
+
+	public double getMean();
+
+	public double getMax();
+
+	public double getP50();
+
+	public double getP90();
+
+	public double getP99();
+
+	public void reset();
+}
@@ -0,0 +1,41 @@
+package metrics;
+
+/**
+ * Named measure collected by the {@link Metrics} registry.
+ */
+public abstract class Metric {
+
+	private final String name;
+
+	public Metric(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get how many values were recorded
+	 * 
+	 * @return
+	 */
+	public abstract long getCount();
+
+	/**
+	 * Discard the recorded values
+	 */
+	public abstract void reset();
+
+	/**
+	 * Get a one line description of the recorded values, used in the log
+	 * 
+	 * @return
+	 */
+	public abstract String getSummary();
+
+	@Override
+	public String toString() {
+		return name + ": " + getSummary();
+	}
+}
@@ -0,0 +1,229 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import config.AppConfig;
+
+/**
+ * Registry of the timers and the counters of the application (database
+ * queries, loading of the catalogues, import, export, business rules...).
+ * 
+ * The metrics are collected only if enabled in the configuration, otherwise
+ * recording a value does nothing (the clock is not even read). The collected
+ * metrics are exposed as JMX MBeans in the {@value #DOMAIN} domain and they are
+ * written in the log periodically if a log interval is configured.
+ * 
+ * The metrics which are used in frequently called methods should be created
+ * once and kept in static fields, in order to avoid the lookup by name.
+ */
+public class Metrics {
+
+	private static final Logger LOGGER = LogManager.getLogger(Metrics.class);
+
+	public static final String DOMAIN = "catalogue_browser";
+
+	private static final long MB = 1024 * 1024;
+
+	private static final boolean ENABLED = AppConfig.isMetricsEnabled();
+
+	// name => metric, sorted by name for the log
+	private static final Map<String, Metric> METRICS = new ConcurrentSkipListMap<>();
+
+	static {
+		if (ENABLED) {
+
+			int interval = AppConfig.getMetricsLogInterval();
+
+			if (interval > 0)
+				startLog(interval);
+
+			LOGGER.info("Metrics enabled, log interval=" + interval + " s");
+		}
+	}
+
+	/**
+	 * Check if the metrics are collected
+	 * 
+	 * @return
+	 */
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Get the timer with the given name, creating it if needed
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public static Timer timer(String name) {
+		return (Timer) register(new Timer(name));
+	}
+
+	/**
+	 * Get the counter with the given name, creating it if needed
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public static Counter counter(String name) {
+		return (Counter) register(new Counter(name));
+	}
+
+	/**
+	 * Get the distribution with the given name, creating it if needed
+	 * 
+	 * @param name
+	 * @param unit unit of the values
+	 * @return
+	 */
+	public static Distribution distribution(String name, String unit) {
+		return (Distribution) register(new Distribution(name, unit));
+	}
+
+	/**
+	 * Record how many rows per second were processed by an operation, in the
+	 * distribution with the given name
+	 * 
+	 * @param name
+	 * @param rows   processed rows
+	 * @param millis duration of the operation
+	 */
+	public static void recordRate(String name, long rows, long millis) {
+
+		if (!ENABLED)
+			return;
+
+		distribution(name, "rows/s").record(rows * 1000 / Math.max(1, millis));
+	}
+
+	/**
+	 * Record the heap memory which is currently used, in MB
+	 * 
+	 * @param name name of the distribution
+	 */
+	public static void recordUsedHeap(String name) {
+
+		if (!ENABLED)
+			return;
+
+		Runtime runtime = Runtime.getRuntime();
+
+		distribution(name, "MB").record((runtime.totalMemory() - runtime.freeMemory()) / MB);
+	}
+
+	/**
+	 * Add a metric to the registry and to the MBean server, if there is not
+	 * already a metric with the same name
+	 * 
+	 * @param metric
+	 * @return the metric which is registered with the name
+	 */
+	private static synchronized Metric register(Metric metric) {
+
+		Metric registered = METRICS.get(metric.getName());
+
+		if (registered != null)
+			return registered;
+
+		METRICS.put(metric.getName(), metric);
+
+		if (ENABLED)
+			registerMBean(metric);
+
+		return metric;
+	}
+
+	/**
+	 * Expose a metric via JMX
+	 * 
+	 * @param metric
+	 */
+	private static void registerMBean(Metric metric) {
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			ObjectName name = new ObjectName(DOMAIN + ":type=" + metric.getClass().getSimpleName() + ",name="
+					+ ObjectName.quote(metric.getName()));
+
+			server.registerMBean(metric, name);
+
+		} catch (JMException e) {
+			LOGGER.warn("Cannot register the MBean of " + metric.getName(), e);
+		}
+	}
+
+	/**
+	 * Write in the log all the metrics which recorded something
+	 */
+	public static void log() {
+
+		StringBuilder sb = new StringBuilder("Metrics:");
+
+		int logged = 0;
+
+		for (Metric metric : METRICS.values()) {
+
+			if (metric.getCount() == 0)
+				continue;
+
+			sb.append(System.lineSeparator()).append(metric);
+			logged++;
+		}
+
+		if (logged > 0)
+			LOGGER.info(sb.toString());
+	}
+
+	/**
+	 * Discard the values of all the metrics
+	 */
+	public static void reset() {
+		for (Metric metric : METRICS.values())
+			metric.reset();
+	}
+
+	/**
+	 * Write the metrics in the log periodically, in a daemon thread
+	 * 
+	 * @param seconds
+	 */
+	private static void startLog(int seconds) {
+
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "metrics-log");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		executor.scheduleAtFixedRate(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					log();
+				} catch (RuntimeException e) {
+					LOGGER.error("Cannot log the metrics", e);
+				}
+			}
+		}, seconds, seconds, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,45 @@
+package metrics;
+
+/**
+ * Distribution of the durations of an operation, reported in milliseconds. To
+ * time an operation:
+ * 
+ * <pre>
+ * long start = timer.start();
+ * try {
+ * 	...
+ * } finally {
+ * 	timer.stop(start);
+ * }
+ * </pre>
+ * 
+ * If the metrics are disabled, the clock is not read and nothing is recorded.
+ */
+public class Timer extends Distribution {
+
+	public Timer(String name) {
+		super(name, "ms", 1000000.0);
+	}
+
+	/**
+	 * Start timing an operation
+	 * 
+	 * @return the start time to pass to {@link #stop(long)}
+	 */
+	public long start() {
+		return Metrics.isEnabled() ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Stop timing an operation and record its duration
+	 * 
+	 * @param start the value returned by {@link #start()}
+	 */
+	public void stop(long start) {
+
+		if (!Metrics.isEnabled())
+			return;
+
+		record(System.nanoTime() - start);
+	}
+}
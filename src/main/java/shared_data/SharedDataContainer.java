@@ -20,6 +20,7 @@ public class SharedDataContainer {
 		else
 		{
 			facetsHierarchies = catalogue.getFacetHierarchies();	
+			catalogue.getInheritedFacetsCache().clear();
 		}
 		
 	}
@@ -0,0 +1,300 @@
+package term_code_generator;
+
+import java.util.ArrayList;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Term code mask, made of constant characters and variable characters. The
+ * variable part of a code is made of the characters of the code which are in
+ * the positions of the variable characters of the mask.
+ */
+public class CodeMask {
+
+	private static final Logger LOGGER = LogManager.getLogger(CodeMask.class);
+
+	/*
+	 * Possible increments
+	 * 
+	 * # numbers -> 0,1,2,3,4,5,6,7,8,9
+	 * 
+	 * @ letters excluding i, o, u, w -> A,B,C,D,E,F,G,H,J,K,L,M,N,P,Q,R,S,T,V,X,Y,Z
+	 *  numbers and letters ->
+	 * 0,1,2,3,4,5,6,7,8,9,A,B,C,D,E,F,G,H,J,K,L,M,N,P,Q,R,S,T,V,X,Y,Z
+	 */
+
+	private static final char[] /* # */ NUMBER_CODE = "0123456789".toCharArray();
+	private static final char[] /* @ */ ALPHA_CODE = "ABCDEFGHJKLMNPQRSTVXYZ".toCharArray();
+	private static final char[] /*  */ NUMBER_ALPHA_CODE = "0123456789ABCDEFGHJKLMNPQRSTVXYZ".toCharArray();
+
+	private String codeMask;
+
+	private ArrayList<StringSegment> constantSegments;
+	private ArrayList<StringSegment> variableSegments;
+
+	// the variable characters of the mask
+	private String variableMask;
+
+	/**
+	 * Parse a code mask
+	 * 
+	 * @param codeMask
+	 */
+	public CodeMask(String codeMask) {
+
+		this.codeMask = codeMask;
+		this.constantSegments = new ArrayList<StringSegment>();
+		this.variableSegments = new ArrayList<StringSegment>();
+
+		boolean readingConstant = false;
+		boolean readingVariable = false;
+
+		for (int i = 0; i < codeMask.length(); i++) {
+			if (isVariable(codeMask.charAt(i))) {
+				// I am reading a variable
+				if (readingConstant) {
+					// I was reading a constant
+					StringSegment strSeg = new StringSegment();
+					strSeg.start = i;
+					strSeg.length = 1;
+					variableSegments.add(strSeg);
+				} else {
+					// if I was not reading a variable it must be the first time
+					if (!readingVariable) {
+						StringSegment strSeg = new StringSegment();
+						strSeg.start = i;
+						strSeg.length = 1;
+						variableSegments.add(strSeg);
+					} else {
+						// I was already reading a variable
+						StringSegment strSeg = variableSegments.get(variableSegments.size() - 1);
+						strSeg.length++;
+					}
+				}
+				readingVariable = true;
+				readingConstant = false;
+			} else {
+				// I am reading a constant
+				if (readingVariable) {
+					/* I was reading a variable */
+					StringSegment strSeg = new StringSegment();
+					strSeg.start = i;
+					strSeg.length = 1;
+					constantSegments.add(strSeg);
+				} else {
+					/*
+					 * I should have been reading a constant, otherwise it is the first time
+					 */
+					if (!readingConstant) {
+						// then I have to create a segment because I was not
+						// doing anything
+						StringSegment strSeg = new StringSegment();
+						strSeg.start = i;
+						strSeg.length = 1;
+						constantSegments.add(strSeg);
+					} else {
+						/* I was already reading a constant */
+						StringSegment strSeg = constantSegments.get(constantSegments.size() - 1);
+						strSeg.length++;
+					}
+				}
+				readingVariable = false;
+				readingConstant = true;
+			}
+		}
+
+		/* prepare the mask for the variable part to use in the increment */
+
+		StringBuilder sb = new StringBuilder();
+
+		for (StringSegment segment : variableSegments)
+			sb.append(codeMask, segment.start, segment.getEnd());
+
+		this.variableMask = sb.toString();
+	}
+
+	public String getMask() {
+		return codeMask;
+	}
+
+	/**
+	 * Get the query which selects the highest variable part of the codes of the
+	 * TERM table which follow the mask
+	 * 
+	 * @return
+	 */
+	public String getMaxQuery() {
+
+		/* prepare SQL variable */
+
+		String sqlVariable = "";
+
+		for (int i = 0; i < variableSegments.size(); i++) {
+			sqlVariable = sqlVariable + "SUBSTR(TERM_CODE," + (variableSegments.get(i).start + 1) + ","
+					+ variableSegments.get(i).length + ")";
+			if (i < variableSegments.size() - 1) {
+				sqlVariable = sqlVariable + "||";
+			}
+		}
+
+		String sqlConstant = "";
+		/* prepare SQL constant */
+		for (int i = 0; i < constantSegments.size(); i++) {
+			sqlConstant = sqlConstant + "SUBSTR(TERM_CODE," + (constantSegments.get(i).start + 1) + ","
+					+ constantSegments.get(i).length + ")='"
+					+ codeMask.substring(constantSegments.get(i).start, constantSegments.get(i).getEnd()) + "'";
+			if (i < constantSegments.size() - 1) {
+				sqlConstant = sqlConstant + " AND ";
+			}
+		}
+
+		/* get the maximum code according to the specified mask */
+		String sql = "select max(" + sqlVariable + ") as CURR_CODE from APP.TERM";
+
+		if (sqlConstant.length() > 0) {
+			sql = sql + " where " + sqlConstant;
+		}
+
+		return sql;
+	}
+
+	/**
+	 * Get the variable part of a code
+	 * 
+	 * @param code
+	 * @return the variable part, or null if the code does not follow the mask
+	 */
+	public String getVariablePart(String code) {
+
+		if (code == null || code.length() != codeMask.length())
+			return null;
+
+		for (StringSegment segment : constantSegments) {
+			if (!code.regionMatches(segment.start, codeMask, segment.start, segment.length))
+				return null;
+		}
+
+		StringBuilder sb = new StringBuilder(variableMask.length());
+
+		for (StringSegment segment : variableSegments)
+			sb.append(code, segment.start, segment.getEnd());
+
+		return sb.toString();
+	}
+
+	/**
+	 * Get the lowest variable part, which is never assigned to a code
+	 * 
+	 * @return
+	 */
+	public String initialise() {
+
+		char[] retVal = new char[variableMask.length()];
+
+		for (int i = 0; i < retVal.length; i++)
+			retVal[i] = getChars(variableMask.charAt(i))[0];
+
+		return String.valueOf(retVal);
+	}
+
+	/**
+	 * Add an offset to a variable part, as if it was a number whose digits are
+	 * the possible values of each character of the mask. Missing characters are
+	 * considered as the lowest values.
+	 * 
+	 * @param alphaNumCode the variable part
+	 * @param offset       positive offset
+	 * @return the new variable part
+	 * @throws TermCodeException if the highest code of the mask is exceeded
+	 */
+	public String add(String alphaNumCode, long offset) throws TermCodeException {
+
+		char[] retVal = new char[variableMask.length()];
+
+		// fix mask missing elements
+		for (int i = 0; i < retVal.length; i++) {
+			if (i < alphaNumCode.length())
+				retVal[i] = alphaNumCode.charAt(i);
+			else
+				retVal[i] = getChars(variableMask.charAt(i))[0];
+		}
+
+		long carry = offset;
+
+		for (int i = retVal.length - 1; i >= 0 && carry > 0; i--) {
+
+			char[] chars = getChars(variableMask.charAt(i));
+
+			// unknown chars are replaced with the lowest value
+			long value = findChar(chars, retVal[i]) + carry;
+
+			retVal[i] = chars[(int) (value % chars.length)];
+			carry = value / chars.length;
+		}
+
+		// if overflow, that is, the maximum code is reached
+		if (carry > 0) {
+			LOGGER.error("Maximum term code reached for mask=" + codeMask);
+			throw new TermCodeException(
+					"Maximum term code reached for the current term code mask. Cannot create new code!");
+		}
+
+		return String.valueOf(retVal);
+	}
+
+	/**
+	 * Create the code which has the given variable part
+	 * 
+	 * @param alphaNumCode
+	 * @return
+	 */
+	public String format(String alphaNumCode) {
+
+		char[] retVal = codeMask.toCharArray();
+
+		/*
+		 * I need to keep for the variable an indication where I am copying the data
+		 * since the code was compacted in one string
+		 */
+		int variableStart = 0;
+
+		for (StringSegment segment : variableSegments) {
+			alphaNumCode.getChars(variableStart, variableStart + segment.length, retVal, segment.start);
+			variableStart += segment.length;
+		}
+
+		return String.valueOf(retVal);
+	}
+
+	private static boolean isVariable(char c) {
+		return c == '#' || c == '@' || c == '';
+	}
+
+	private static char[] getChars(char maskChar) {
+
+		if (maskChar == '#')
+			return NUMBER_CODE;
+
+		if (maskChar == '@')
+			return ALPHA_CODE;
+
+		return NUMBER_ALPHA_CODE;
+	}
+
+	private static int findChar(char[] list, char elem) {
+		int retpos = -1;
+		for (int j = 0; j < list.length; j++) {
+			if (list[j] == elem) {
+				retpos = j;
+				break;
+			}
+		}
+		return retpos;
+	}
+
+	@Override
+	public String toString() {
+		return codeMask;
+	}
+}
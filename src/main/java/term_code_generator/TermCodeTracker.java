@@ -0,0 +1,158 @@
+package term_code_generator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue.Catalogue;
+import catalogue_object.Term;
+
+/**
+ * Highest code of a catalogue for each term code mask. The highest code of a
+ * mask is read from the database the first time a code of the mask is
+ * requested, and then it is kept up to date with the reserved codes and with
+ * the codes of the inserted terms. In this way new codes are created without
+ * scanning the TERM table for each of them.
+ */
+public class TermCodeTracker {
+
+	private static final Logger LOGGER = LogManager.getLogger(TermCodeTracker.class);
+
+	private Catalogue catalogue;
+
+	// code mask => highest variable part used with the mask
+	private HashMap<String, TrackedMask> masks;
+
+	private static class TrackedMask {
+
+		private CodeMask mask;
+
+		// null if there are no codes with the mask yet
+		private String highest;
+
+		public TrackedMask(CodeMask mask, String highest) {
+			this.mask = mask;
+			this.highest = highest;
+		}
+	}
+
+	public TermCodeTracker(Catalogue catalogue) {
+		this.catalogue = catalogue;
+		this.masks = new HashMap<>();
+	}
+
+	/**
+	 * Reserve new consecutive codes following the code mask. The reserved codes
+	 * are never returned again, also if the terms are not inserted.
+	 * 
+	 * @param codeMask
+	 * @param count    number of codes to reserve
+	 * @return the reserved codes, empty if the database cannot be read
+	 * @throws TermCodeException if the mask does not have enough codes left
+	 */
+	public List<String> reserve(String codeMask, int count) throws TermCodeException {
+
+		CodeMask mask;
+		String current;
+
+		synchronized (this) {
+
+			TrackedMask tracked = masks.get(codeMask);
+
+			if (tracked == null) {
+
+				tracked = seed(codeMask);
+
+				if (tracked == null)
+					return new ArrayList<>();
+
+				masks.put(codeMask, tracked);
+			}
+
+			mask = tracked.mask;
+			current = tracked.highest != null ? tracked.highest : mask.initialise();
+
+			// move the highest code after the range (fails if overflow)
+			tracked.highest = mask.add(current, count);
+		}
+
+		// create the codes of the range
+		List<String> codes = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			current = mask.add(current, 1);
+			codes.add(mask.format(current));
+		}
+
+		return codes;
+	}
+
+	/**
+	 * Update the highest codes with the codes of inserted terms
+	 * 
+	 * @param terms
+	 */
+	public synchronized void add(Iterable<Term> terms) {
+
+		// nothing is tracked yet
+		if (masks.isEmpty())
+			return;
+
+		for (Term term : terms) {
+			for (TrackedMask tracked : masks.values()) {
+
+				String part = tracked.mask.getVariablePart(term.getCode());
+
+				if (part != null && (tracked.highest == null || part.compareTo(tracked.highest) > 0))
+					tracked.highest = part;
+			}
+		}
+	}
+
+	/**
+	 * Forget the highest codes, they will be read again from the database
+	 */
+	public synchronized void clear() {
+		masks.clear();
+	}
+
+	/**
+	 * Read the highest code of the mask from the database
+	 * 
+	 * @param codeMask
+	 * @return the tracked mask, or null if the database cannot be read
+	 */
+	private TrackedMask seed(String codeMask) {
+
+		CodeMask mask = new CodeMask(codeMask);
+
+		String currAlphaNumCode = null;
+
+		try (Connection con = catalogue.getConnection();
+				PreparedStatement codeStmt = con.prepareStatement(mask.getMaxQuery());
+				ResultSet codeRs = codeStmt.executeQuery();) {
+
+			while (codeRs.next()) {
+				currAlphaNumCode = codeRs.getString("CURR_CODE");
+			}
+
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error("Cannot generate new code", e);
+			return null;
+		}
+
+		// this is the first instance of this code
+		if (currAlphaNumCode != null && currAlphaNumCode.isEmpty())
+			currAlphaNumCode = null;
+
+		return new TrackedMask(mask, currAlphaNumCode);
+	}
+}
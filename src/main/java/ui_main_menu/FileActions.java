@@ -614,7 +614,7 @@ public class FileActions {
 	private static void downloadCatalogues(final Shell shell, final String title, final String msg,
 			final Collection<Catalogue> cats) {
 
-		CatalogueDownloaderManager manager = new CatalogueDownloaderManager(1);
+		CatalogueDownloaderManager manager = new CatalogueDownloaderManager();
 
 		// download all the dc catalogues
 		final FormMultipleProgress dialog = new FormMultipleProgress(shell);
@@ -656,7 +656,7 @@ public class FileActions {
 			}
 		});
 
-		// start thread in a batch way
+		// download in parallel and import one at a time
 		manager.start();
 
 		dialog.open();
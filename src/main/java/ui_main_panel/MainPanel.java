@@ -1025,8 +1025,8 @@ public class MainPanel implements Observer {
 			@Override
 			public void searchPerformed(SearchEvent event) {
 
-				// if empty warn the user
-				if (event.getResults().isEmpty()) {
+				// if empty warn the user (not while typing)
+				if (event.getResults().isEmpty() && !event.isTyping()) {
 
 					GlobalUtil.showDialog(shell, CBMessages.getString("Browser.SearchResultTitle"),
 							CBMessages.getString("Browser.SearchResultMessage"), SWT.OK);
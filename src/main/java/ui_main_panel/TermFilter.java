@@ -5,6 +5,8 @@ import java.util.Collection;
 import java.util.Observable;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.layout.RowLayout;
@@ -17,6 +19,7 @@ import catalogue_object.Term;
 import i18n_messages.CBMessages;
 import user_preferences.GlobalPreferenceDAO;
 import user_preferences.Preference;
+import user_preferences.PreferenceListener;
 import user_preferences.PreferenceNotFoundException;
 
 /**
@@ -63,7 +66,7 @@ public class TermFilter extends Observable {
 		this.termCode = termCode;
 
 		// composite to which add the hide options
-		Composite hideComp = new Composite(parent, SWT.NONE);
+		final Composite hideComp = new Composite(parent, SWT.NONE);
 		RowLayout layout = new RowLayout();
 	    layout.center = true;
 		hideComp.setLayout(layout);
@@ -127,11 +130,65 @@ public class TermFilter extends Observable {
 				notifyObservers();
 			}
 		});
+		// follow the changes of the preferences made elsewhere
+		final PreferenceListener listener = new PreferenceListener() {
+
+			@Override
+			public void preferenceChanged(final String key, final String value) {
+
+				if (!key.equals(deprCode) && !key.equals(reprCode) && !key.equals(termCode))
+					return;
+
+				hideComp.getDisplay().asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						refreshStatus(key, Boolean.valueOf(value));
+					}
+				});
+			}
+		};
+
+		GlobalPreferenceDAO.getPreferenceCache().addListener(listener);
+
+		hideComp.addDisposeListener(new DisposeListener() {
+			@Override
+			public void widgetDisposed(DisposeEvent e) {
+				GlobalPreferenceDAO.getPreferenceCache().removeListener(listener);
+			}
+		});
+
 		// set the status of the checkboxes
 		// using the last used.
 		// restoreStatus();
 	}
 
+	/**
+	 * Refresh a checkbox after its preference was changed, notifying the
+	 * observers only if the checkbox changed
+	 * 
+	 * @param key   the key of the changed preference
+	 * @param value the new value of the preference
+	 */
+	private void refreshStatus(String key, boolean value) {
+
+		Button button;
+
+		if (key.equals(deprCode))
+			button = hideDeprecated;
+		else if (key.equals(reprCode))
+			button = hideNotInUse;
+		else
+			button = hideTermCode;
+
+		if (button.isDisposed() || button.getSelection() == value)
+			return;
+
+		button.setSelection(value);
+
+		setChanged();
+		notifyObservers();
+	}
+
 	/**
 	 * Restore the status of the two checkboxes using the last ui preferences which
 	 * refers to the last status of the preference. We use this method only in
@@ -3,8 +3,19 @@ package ui_search_bar;
 import java.util.ArrayList;
 import java.util.Observable;
 import java.util.Observer;
-
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.events.FocusEvent;
 import org.eclipse.swt.events.FocusListener;
 import org.eclipse.swt.events.ModifyEvent;
@@ -12,13 +23,13 @@ import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
-import org.eclipse.swt.graphics.Cursor;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.layout.RowLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
 
@@ -42,11 +53,26 @@ import user_preferences.CataloguePreferenceDAO;
  * are ready to be used by the program, a listener is called to update the main
  * thread that the search is finished and it can use the results.
  * 
+ * The search runs in a background thread, one at a time: a new search cancels
+ * the previous one if it is still running. The results are passed to the
+ * listener in pages while they are found. If enabled, the search is also
+ * started while typing, after a short pause of the user.
+ * 
  * @author avonva
  * @author shahaal
  */
 public class SearchBar implements Observer {
 
+	private static final Logger LOGGER = LogManager.getLogger(SearchBar.class);
+
+	// pause in the typing (ms) after which the search is started
+	private static final int DEBOUNCE_DELAY = 300;
+
+	// number of results passed at once to the listener while searching
+	private static final int PAGE_SIZE = 200;
+
+	private static final SearchLatency LATENCY = new SearchLatency();
+
 	private Catalogue catalogue;
 
 	private Term rootTerm;
@@ -75,6 +101,17 @@ public class SearchBar implements Observer {
 	boolean addGlobalSearch; // should global search button be added?
 	boolean globalSearchEnabled = false;
 
+	// thread which performs the searches
+	private ScheduledExecutorService executor;
+	private ScheduledFuture<?> scheduledSearch;
+	private volatile SearchDAO runningSearch;
+
+	// id of the last requested search, the results of the older ones are
+	// discarded
+	private final AtomicLong lastSearchId = new AtomicLong();
+
+	private boolean searchWhileTyping;
+
 	/**
 	 * @wbp.parser.entryPoint
 	 */
@@ -227,6 +264,15 @@ public class SearchBar implements Observer {
 		this.listener = listener;
 	}
 
+	/**
+	 * Start the search automatically while the keywords are typed
+	 * 
+	 * @param searchWhileTyping
+	 */
+	public void setSearchWhileTyping(boolean searchWhileTyping) {
+		this.searchWhileTyping = searchWhileTyping;
+	}
+
 	/**
 	 * Update the search globally feature (used to restore previous state)
 	 * 
@@ -299,7 +345,32 @@ public class SearchBar implements Observer {
 			@Override
 			public void modifyText(ModifyEvent e) {
 
-				buttonSearch.setEnabled(canSearch(textSearch.getText().trim().length()) && textSearch.isEnabled());
+				boolean searchable = canSearch(textSearch.getText().trim().length());
+
+				buttonSearch.setEnabled(searchable && textSearch.isEnabled());
+
+				if (!searchWhileTyping || catalogue == null)
+					return;
+
+				// search when the user stops typing, a shorter
+				// text only stops the previous search
+				if (searchable && textSearch.isEnabled())
+					startSearch(DEBOUNCE_DELAY, true);
+				else
+					cancelSearch();
+			}
+		});
+
+		// stop the search thread with the widget
+		textSearch.addDisposeListener(new DisposeListener() {
+
+			@Override
+			public void widgetDisposed(DisposeEvent e) {
+
+				cancelSearch();
+
+				if (executor != null)
+					executor.shutdownNow();
 			}
 		});
 
@@ -366,30 +437,9 @@ public class SearchBar implements Observer {
 			@Override
 			public void widgetSelected(SelectionEvent e) {
 
-				// change the cursor to wait
-				Cursor cursor = new Cursor(parent.getDisplay(), SWT.CURSOR_WAIT);
-				parent.getShell().setCursor(cursor);
-
-				// call the external listener to say that the search results are ready to be
-				// used
-				searchResults = search(getKeyword(), getSearchMode());
-
-				// dispose the old cursor and instantiate the new one
-				if (cursor != null)
-					cursor.dispose();
-
-				// reload the old cursor, the search is finished
-				cursor = new Cursor(parent.getDisplay(), SWT.CURSOR_ARROW);
-				parent.getShell().setCursor(cursor);
-
-				if (listener != null) {
-
-					SearchEvent event = new SearchEvent();
-					event.setResults(searchResults);
-
-					// call the search listener
-					listener.searchPerformed(event);
-				}
+				// search immediately, the listener is called
+				// when the results are ready
+				startSearch(0, false);
 			}
 
 			@Override
@@ -478,37 +528,238 @@ public class SearchBar implements Observer {
 	}
 
 	/**
-	 * The search method check the query string and search the terms who match the
-	 * query string. Method added for reducing and avoiding duplication code in the
-	 * system. Return an array list of terms (search results), which is empty if no
-	 * results are found
+	 * Start a search in background with the keywords and the options currently
+	 * set. The previous search is cancelled if it is still waiting or running.
+	 * 
+	 * @param delay  milliseconds to wait before searching
+	 * @param typing true if the search is started while typing
 	 */
-	private ArrayList<Term> search(String keyword, SearchType type) {
+	private void startSearch(int delay, boolean typing) {
+
+		cancelSearch();
 
-		// output array
-		ArrayList<Term> searchResults = new ArrayList<>();
+		// show that we are searching if requested by the user
+		setBusy(!typing);
 
-		// if the number of characters of the search are less than the minimum number of
-		// characters
-		if (!canSearch(keyword.trim().length()))
-			return searchResults;
+		SearchTask task = new SearchTask(lastSearchId.get(), typing);
 
-		SearchDAO searchDao = new SearchDAO(catalogue);
+		if (executor == null)
+			executor = createExecutor();
 
-		// Set root term for the search
-		if (rootTerm != null)
-			searchDao.setRootTerm(rootTerm);
+		scheduledSearch = executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+	}
 
-		// get the hierarchy in which we have to search
-		searchHierarchy = globalSearchEnabled ? catalogue.getMasterHierarchy() : currentHierarchy;
+	/**
+	 * Cancel the search which is waiting or running, its results will be
+	 * discarded
+	 */
+	private void cancelSearch() {
 
-		searchResults = searchDao.startSearch(keyword, type, searchHierarchy);
+		// invalidate the results of the previous searches
+		lastSearchId.incrementAndGet();
 
-		// filter deprecated and not in use terms
-		searchResults = TermFilter.filterByFlag(hideDeprecated, hideNotInUse, searchResults, searchHierarchy);
+		if (scheduledSearch != null)
+			scheduledSearch.cancel(false);
 
-		// return the results
-		return searchResults;
+		SearchDAO dao = runningSearch;
+		if (dao != null)
+			dao.cancel();
+
+		setBusy(false);
+	}
+
+	/**
+	 * Set the wait cursor while searching
+	 * 
+	 * @param busy
+	 */
+	private void setBusy(boolean busy) {
+
+		if (parent.isDisposed())
+			return;
+
+		parent.getShell().setCursor(busy ? parent.getDisplay().getSystemCursor(SWT.CURSOR_WAIT) : null);
+	}
+
+	/**
+	 * Create the single thread which performs the searches
+	 * 
+	 * @return
+	 */
+	private static ScheduledExecutorService createExecutor() {
+
+		return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "search");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * A search performed in the search thread. All the parameters are read in the
+	 * ui thread when the search is requested, while the results are passed back
+	 * to the ui thread only if no other search was requested in the meanwhile.
+	 */
+	private class SearchTask implements Runnable {
+
+		private final long id;
+		private final boolean typing;
+		private final Display display;
+		private final Catalogue catalogue;
+		private final Term rootTerm;
+		private final String keyword;
+		private final SearchType type;
+		private final Hierarchy hierarchy;
+		private final boolean hideDeprecated;
+		private final boolean hideNotInUse;
+		private final boolean allowed;
+
+		// pages already passed to the listener, used only in the ui thread
+		private int pages;
+
+		public SearchTask(long id, boolean typing) {
+
+			this.id = id;
+			this.typing = typing;
+			this.display = parent.getDisplay();
+			this.catalogue = SearchBar.this.catalogue;
+			this.rootTerm = SearchBar.this.rootTerm;
+			this.keyword = getKeyword();
+			this.type = getSearchMode();
+
+			// get the hierarchy in which we have to search
+			this.hierarchy = globalSearchEnabled ? catalogue.getMasterHierarchy() : currentHierarchy;
+			this.hideDeprecated = SearchBar.this.hideDeprecated;
+			this.hideNotInUse = SearchBar.this.hideNotInUse;
+
+			// if the number of characters of the search are less than the minimum number of
+			// characters no result is returned
+			this.allowed = canSearch(keyword.trim().length());
+		}
+
+		/**
+		 * Check if another search was requested after this one
+		 * 
+		 * @return
+		 */
+		private boolean isStale() {
+			return id != lastSearchId.get();
+		}
+
+		@Override
+		public void run() {
+
+			if (isStale())
+				return;
+
+			long start = System.currentTimeMillis();
+
+			SearchDAO searchDao = new SearchDAO(catalogue);
+
+			// Set root term for the search
+			if (rootTerm != null)
+				searchDao.setRootTerm(rootTerm);
+
+			// pass the results to the ui while they are found
+			searchDao.setPageListener(PAGE_SIZE, new Consumer<ArrayList<Term>>() {
+
+				@Override
+				public void accept(ArrayList<Term> page) {
+					publish(page, false);
+				}
+			});
+
+			runningSearch = searchDao;
+
+			ArrayList<Term> results = new ArrayList<>();
+
+			try {
+
+				// checked after setting the running search, so that
+				// a newer search can always cancel this one
+				if (isStale() || !allowed)
+					return;
+
+				results = searchDao.startSearch(keyword, type, hierarchy);
+
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				LOGGER.error("Search error", e);
+			} finally {
+				runningSearch = null;
+
+				// the results (also if empty) are always returned
+				// unless another search was requested
+				if (!searchDao.isCancelled() && !isStale()) {
+
+					if (allowed)
+						LATENCY.add(System.currentTimeMillis() - start, results.size());
+
+					publish(results, true);
+				}
+			}
+		}
+
+		/**
+		 * Pass the results to the listener in the ui thread. The deprecated and not
+		 * in use terms are filtered in the ui thread too.
+		 * 
+		 * @param found     the found terms
+		 * @param completed true if these are all the results of the search, false
+		 *                  if it is a page of them
+		 */
+		private void publish(final ArrayList<Term> found, final boolean completed) {
+
+			if (display.isDisposed())
+				return;
+
+			display.asyncExec(new Runnable() {
+
+				@Override
+				public void run() {
+
+					if (parent.isDisposed() || isStale())
+						return;
+
+					// filter deprecated and not in use terms
+					ArrayList<Term> terms = TermFilter.filterByFlag(hideDeprecated, hideNotInUse, found, hierarchy);
+
+					if (!completed && terms.isEmpty())
+						return;
+
+					boolean first = pages == 0;
+
+					if (!completed)
+						pages++;
+
+					if (completed) {
+						searchHierarchy = hierarchy;
+						searchResults = terms;
+						setBusy(false);
+					} else if (first) {
+						searchHierarchy = hierarchy;
+					}
+
+					if (listener == null)
+						return;
+
+					SearchEvent event = new SearchEvent();
+					event.setResults(terms);
+					event.setFirstPage(first);
+					event.setTyping(typing);
+
+					// call the search listener
+					if (completed)
+						listener.searchPerformed(event);
+					else
+						listener.resultsFound(event);
+				}
+			});
+		}
 	}
 
 	/**
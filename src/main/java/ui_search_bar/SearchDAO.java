@@ -4,11 +4,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -17,6 +21,8 @@ import catalogue.Catalogue;
 import catalogue_object.Attribute;
 import catalogue_object.Hierarchy;
 import catalogue_object.Term;
+import metrics.Metrics;
+import metrics.Timer;
 import term_type.TermType;
 import user_preferences.OptionType;
 import user_preferences.SearchOption;
@@ -32,9 +38,19 @@ public class SearchDAO {
 
 	private static final Logger LOGGER = LogManager.getLogger(SearchDAO.class);
 
+	private static final Timer SEARCH_TIMER = Metrics.timer("SearchDAO.startSearch");
+
 	private Catalogue catalogue;
 	private Term rootTerm;
 
+	// listener of the partial results
+	private Consumer<ArrayList<Term>> pageListener;
+	private int pageSize;
+
+	// set by another thread to stop the search
+	private volatile boolean cancelled;
+	private volatile Statement runningStmt;
+
 	/**
 	 * Initialize the search dao with the catalogue we want to communicate with
 	 * 
@@ -54,6 +70,52 @@ public class SearchDAO {
 		this.rootTerm = term;
 	}
 
+	/**
+	 * Receive the results in pages while they are found, before the search ends.
+	 * The pages are passed in the thread which performs the search.
+	 * 
+	 * @param pageSize number of terms of each page (the last one can be smaller)
+	 * @param listener called for each page
+	 */
+	public void setPageListener(int pageSize, Consumer<ArrayList<Term>> listener) {
+		this.pageSize = Math.max(1, pageSize);
+		this.pageListener = listener;
+	}
+
+	/**
+	 * Stop the search, it can be called from any thread. The running query is
+	 * cancelled if the driver supports it, otherwise the search stops at the next
+	 * row read. A cancelled search returns no results and no more pages.
+	 */
+	public void cancel() {
+
+		cancelled = true;
+
+		Statement stmt = runningStmt;
+
+		if (stmt == null)
+			return;
+
+		try {
+			stmt.cancel();
+		} catch (SQLFeatureNotSupportedException e) {
+			// the embedded derby driver does not implement it,
+			// the search will be stopped while reading the rows
+			LOGGER.debug("Statement cancel not supported", e);
+		} catch (SQLException e) {
+			LOGGER.warn("Cannot cancel the search query", e);
+		}
+	}
+
+	/**
+	 * Check if the search was cancelled
+	 * 
+	 * @return
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
 	/**
 	 * Search the text as keyword(s) to find terms in a subset of hierarchies.
 	 * 
@@ -67,23 +129,29 @@ public class SearchDAO {
 	 */
 	public ArrayList<Term> startSearch(String text, SearchType type, Hierarchy hierarchy) {
 
-		ArrayList<String> keywords;
+		long start = SEARCH_TIMER.start();
 
-		// if exact match, we use the entire text as single keyword
-		if (type == SearchType.EXACT_MATCH) {
+		try {
+			ArrayList<String> keywords;
 
-			keywords = new ArrayList<>();
-			keywords.add(text);
+			// if exact match, we use the entire text as single keyword
+			if (type == SearchType.EXACT_MATCH) {
 
-		} else {
+				keywords = new ArrayList<>();
+				keywords.add(text);
 
-			// otherwise, if any or all words we
-			// compute all the keywords which
-			// are space-separated
-			keywords = new ArrayList<String>(Arrays.asList(text.split(" ")));
-		}
+			} else {
 
-		return search(keywords, type, hierarchy);
+				// otherwise, if any or all words we
+				// compute all the keywords which
+				// are space-separated
+				keywords = new ArrayList<String>(Arrays.asList(text.split(" ")));
+			}
+
+			return search(keywords, type, hierarchy);
+		} finally {
+			SEARCH_TIMER.stop(start);
+		}
 	}
 
 	/**
@@ -101,17 +169,41 @@ public class SearchDAO {
 
 		ArrayList<Term> terms = new ArrayList<>();
 
-		ArrayList<Integer> ids1 = findByCodeOrName(keywords, type);
-		ArrayList<Integer> ids2 = findByAttribute(keywords, type);
+		// remove the empty keywords (e.g. double spaces)
+		keywords.removeAll(Collections.singleton(""));
 
-		// create a set to combine the results avoiding duplicated
-		Set<Integer> uniqueIds = new HashSet<>();
-		uniqueIds.addAll(ids1);
-		uniqueIds.addAll(ids2);
+		Set<Integer> uniqueIds;
+
+		TermSearchIndex index = catalogue.getSearchIndex();
+
+		// use the in memory index if it is available
+		if (index.isBuilt()) {
+			uniqueIds = index.search(keywords, type, getSearchableAttributeIds());
+		} else {
+
+			ArrayList<Integer> ids1 = findByCodeOrName(keywords, type);
+			ArrayList<Integer> ids2 = findByAttribute(keywords, type);
+
+			// create a set to combine the results avoiding duplicated
+			uniqueIds = new HashSet<>();
+			uniqueIds.addAll(ids1);
+			uniqueIds.addAll(ids2);
+		}
+
+		if (cancelled)
+			return new ArrayList<>();
+
+		// the searchable term types are read once for all the terms
+		Collection<TermType> types = catalogue.hasTermTypes() ? getSearchableTermTypes() : null;
+
+		ArrayList<Term> page = new ArrayList<>();
 
 		// filter by term type and hierarchy
 		for (Integer id : uniqueIds) {
 
+			if (cancelled)
+				return new ArrayList<>();
+
 			Term term = catalogue.getTermById(id);
 
 			// Hide the term if not in use
@@ -126,11 +218,28 @@ public class SearchDAO {
 
 			// if the term type of the term is searchable and also one
 			// of the hierarchy of the term is searchable, add it
-			if (isTypeSearchable(term) && hasHierachySearchable(term, hierarchy)) {
+			if (isTypeSearchable(term, types) && hasHierachySearchable(term, hierarchy)) {
+
 				terms.add(term);
+
+				if (pageListener != null) {
+
+					page.add(term);
+
+					if (page.size() >= pageSize) {
+						pageListener.accept(page);
+						page = new ArrayList<>();
+					}
+				}
 			}
 		}
 
+		if (cancelled)
+			return new ArrayList<>();
+
+		if (pageListener != null && !page.isEmpty())
+			pageListener.accept(page);
+
 		return terms;
 	}
 
@@ -139,15 +248,17 @@ public class SearchDAO {
 	 * settings
 	 * 
 	 * @param term
+	 * @param types the searchable term types, null if the catalogue does not use
+	 *              term types
 	 * @return
 	 */
 	@SuppressWarnings("unlikely-arg-type")
-	private boolean isTypeSearchable(Term term) {
+	private boolean isTypeSearchable(Term term, Collection<TermType> types) {
 
 		// if the catalogue does not use term types
 		// we return true as default to avoid blocking
 		// search operations
-		if (!catalogue.hasTermTypes())
+		if (types == null)
 			return true;
 
 		// if the term does not have a term type
@@ -155,9 +266,6 @@ public class SearchDAO {
 		if (term.getTermType() == null)
 			return true;
 
-		// get the searchable term types
-		Collection<TermType> types = getSearchableTermTypes();
-
 		// return true if the term type is contained in the
 		// searchable term types
 		return types.contains(term.getTermType());
@@ -211,49 +319,63 @@ public class SearchDAO {
 			return termIds;
 
 		// main query, select terms based on hierarchies and attributes
-		String query = "select distinct(TERM_ID) from APP.TERM where ";
+		StringBuilder query = new StringBuilder("select distinct(TERM_ID) from APP.TERM where ");
 
 		// filter on name and code
-		int count = 0;
-		for (String key : keywords) {
-
-			String value = key.toUpperCase();
-
-			String keyUp = "'" + value + "'";
-			String keyLike = "'%" + value + "%'";
+		for (int i = 0; i < keywords.size(); i++) {
 
-			query = query + " ( upper(TERM_EXTENDED_NAME) like " + keyLike;
-			query = query + " or upper(TERM_CODE) = " + keyUp + " ) ";
-			// query = query + " upper(TERM_CODE) = " + keyUp;
-
-			// go to the next keyword
-			count++;
-
-			// if it is not the last keyword add also
+			// if it is not the first keyword add also
 			// the conjunction operator
-			if (count < keywords.size())
-				query = query + " " + getLogicalOp(type) + " ";
-
+			if (i > 0)
+				query.append(" ").append(getLogicalOp(type)).append(" ");
+
+			// stored upper case columns, not computed for each row
+			if (catalogue.hasTermLookupColumns())
+				query.append(" ( TERM_EXTENDED_NAME_UPPER like ? or TERM_CODE_UPPER = ? ) ");
+			else
+				query.append(" ( upper( TERM_EXTENDED_NAME ) like ? or upper( TERM_CODE ) = ? ) ");
 		}
 
 		// execute the query
 		try (Connection con = catalogue.getConnection();
-				PreparedStatement stmt = con.prepareStatement(query);
-				ResultSet rs = stmt.executeQuery();) {
+				PreparedStatement stmt = con.prepareStatement(query.toString());) {
 
-			// get all the terms ids
-			while (rs.next())
-				termIds.add(rs.getInt("TERM_ID"));
+			runningStmt = stmt;
+
+			int param = 1;
+			for (String key : keywords) {
+				String value = key.toUpperCase();
+				stmt.setString(param++, "%" + value + "%");
+				stmt.setString(param++, value);
+			}
+
+			try (ResultSet rs = stmt.executeQuery();) {
+
+				// get all the terms ids
+				while (!cancelled && rs.next())
+					termIds.add(rs.getInt("TERM_ID"));
+
+				rs.close();
+			}
 
-			rs.close();
 			stmt.close();
 			con.close();
 
 		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+
+			// a cancelled query throws an exception
+			if (!cancelled) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+		} finally {
+			runningStmt = null;
 		}
 
+		// partial results of a cancelled search
+		if (cancelled)
+			termIds.clear();
+
 		return termIds;
 	}
 
@@ -269,168 +391,96 @@ public class SearchDAO {
 
 		ArrayList<Integer> termIds = new ArrayList<>();
 
-		// if no keyword return empty
-		if (keywords.isEmpty())
-			return termIds;
-
 		// get all the attributes ids related to the
 		// attributes we are allowed to search in
-		String attrIds = getAttributeFilter();
+		Collection<Integer> attrIds = getSearchableAttributeIds();
 
-		// get all the term attributes ids which match
-		// the keywords
-		String taIds = getTermAttrFilter(keywords, type);
-
-		// if no attributes matched => return empty
-		// if no term attributes matched => return empty
-		if (attrIds.isEmpty() || taIds.isEmpty())
+		// if no keyword or no attributes => return empty
+		if (keywords.isEmpty() || attrIds.isEmpty())
 			return termIds;
 
-		// here for sure we have at least one attribute id and one
-		// term attribute id, therefore we can use the IN clause
-		// without worrying about empty lists
-
-		// filter on the searchable attributes, get all the term attributes
-		// which have as attribute one contained in the searchable attributes
-		// vector
-		String query = "select distinct (TERM_ID) from APP.TERM_ATTRIBUTE where ATTR_ID in ( " + attrIds
-				+ ") and TERM_ATTR_ID in ( " + taIds + " )";
-
-		// execute the query
-		try (Connection con = catalogue.getConnection();
-				PreparedStatement stmt = con.prepareStatement(query);
-				ResultSet rs = stmt.executeQuery();) {
-
-			// get all the terms ids
-			while (rs.next())
-				termIds.add(rs.getInt("TERM_ID"));
-
-			rs.close();
-			stmt.close();
-			con.close();
+		StringBuilder query = new StringBuilder("select distinct (TERM_ID) from APP.TERM_ATTRIBUTE where ATTR_ID in (");
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+		// filter on the searchable attributes
+		for (int i = 0; i < attrIds.size(); i++) {
+			if (i > 0)
+				query.append(",");
+			query.append("?");
 		}
 
-		return termIds;
-	}
-
-	/**
-	 * Get the searchable attributes ids in a comma separated way in order to use
-	 * them as a filter in the main query
-	 * 
-	 * @return a string which contains the searchable attributes ids in a comma
-	 *         separated way. If no searchable attribute is retrieved an empty
-	 *         string is returned
-	 */
-	private String getAttributeFilter() {
-
-		StringBuilder ids = new StringBuilder();
-
-		// get all the searchable attributes
-		Collection<Attribute> attrs = getSearchableAttributes();
-
-		int attrCount = 0;
-
-		// we take only the records which has as attribute one
-		// of the searchable attributes
-		for (Attribute attr : attrs) {
+		query.append(") and (");
 
-			// add the current attribute id to
-			// the one which can be selected
-			ids.append(attr.getId());
+		// filter on term attributes values
+		for (int i = 0; i < keywords.size(); i++) {
 
-			attrCount++;
+			// if it is not the first keyword add also
+			// the conjunction operator
+			if (i > 0)
+				query.append(" ").append(getLogicalOp(type)).append(" ");
 
-			// add the comma only if it is not
-			// the last one
-			if (attrCount < attrs.size())
-				ids.append(",");
+			query.append(" upper( ATTR_VALUE ) like ? ");
 		}
 
-		return ids.toString();
-	}
-
-	/**
-	 * Select all the term attributes ids which match the keywords with the selected
-	 * search metodology
-	 * 
-	 * @param keywords
-	 * @param type
-	 * @return a string which contains the ids of the term attributes which matched
-	 *         the keywords with their value using the selected search methodology
-	 */
-	private String getTermAttrFilter(ArrayList<String> keywords, SearchType type) {
-
-		// output
-		StringBuilder taFilter = new StringBuilder();
+		query.append(")");
 
-		// query to get the term attributes
-		StringBuilder query = new StringBuilder();
+		// execute the query
+		try (Connection con = catalogue.getConnection();
+				PreparedStatement stmt = con.prepareStatement(query.toString());) {
 
-		query.append("select TERM_ATTR_ID from APP.TERM_ATTRIBUTE where ");
+			runningStmt = stmt;
 
-		// filter on term attributes values
-		int count = 0;
-		for (String key : keywords) {
+			int param = 1;
+			for (Integer attrId : attrIds)
+				stmt.setInt(param++, attrId);
 
-			String keyLike = "'%" + key.toUpperCase() + "%'";
+			for (String key : keywords)
+				stmt.setString(param++, "%" + key.toUpperCase() + "%");
 
-			// search on the term attributes values (we have already filtered
-			// the non relevant term attributes in the join)
-			query.append(" upper( ATTR_VALUE ) like " + keyLike);
+			try (ResultSet rs = stmt.executeQuery();) {
 
-			// go to the next keyword
-			count++;
+				// get all the terms ids
+				while (!cancelled && rs.next())
+					termIds.add(rs.getInt("TERM_ID"));
 
-			// if it is not the last keyword add also
-			// the conjunction operator
-			if (count < keywords.size()) {
-				query.append(" ");
-				query.append(getLogicalOp(type));
-				query.append(" ");
+				rs.close();
 			}
-		}
 
-		// execute the query to retrieve the term attributes
-		try (Connection con = catalogue.getConnection();
-				PreparedStatement stmt = con.prepareStatement(query.toString());
-				ResultSet rs = stmt.executeQuery();) {
-
-			// add ids to array list
-			ArrayList<Integer> ids = new ArrayList<>();
+			stmt.close();
+			con.close();
 
-			while (rs.next())
-				ids.add(rs.getInt("TERM_ATTR_ID"));
+		} catch (SQLException e) {
 
-			// add ids to the string in a comma separated
-			// way. We need the array list to have the
-			// size
-			count = 0;
-			for (Integer id : ids) {
+			// a cancelled query throws an exception
+			if (!cancelled) {
+				e.printStackTrace();
+				LOGGER.error("DB error", e);
+			}
+		} finally {
+			runningStmt = null;
+		}
 
-				taFilter.append(id);
+		// partial results of a cancelled search
+		if (cancelled)
+			termIds.clear();
 
-				count++;
+		return termIds;
+	}
 
-				// add the comma only if it is not
-				// the last one
-				if (count < ids.size())
-					taFilter.append(",");
-			}
+	/**
+	 * Get the ids of the searchable attributes
+	 * 
+	 * @return
+	 */
+	private Set<Integer> getSearchableAttributeIds() {
 
-			rs.close();
-			stmt.close();
-			con.close();
+		Set<Integer> ids = new HashSet<>();
 
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
+		for (Attribute attr : getSearchableAttributes()) {
+			if (attr != null)
+				ids.add(attr.getId());
 		}
 
-		return taFilter.toString();
+		return ids;
 	}
 
 	/**
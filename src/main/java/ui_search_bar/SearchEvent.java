@@ -14,6 +14,8 @@ import catalogue_object.Term;
 public class SearchEvent extends Event {
 	
 	private ArrayList<Term> data;
+	private boolean firstPage;
+	private boolean typing;
 	
 	public void setResults(ArrayList<Term> data) {
 		this.data = data;
@@ -21,4 +23,27 @@ public class SearchEvent extends Event {
 	public ArrayList<Term> getResults() {
 		return data;
 	}
+	
+	/**
+	 * Set if the results are the first page of a new search
+	 * @param firstPage
+	 */
+	public void setFirstPage(boolean firstPage) {
+		this.firstPage = firstPage;
+	}
+	public boolean isFirstPage() {
+		return firstPage;
+	}
+	
+	/**
+	 * Set if the search was started while typing the keywords
+	 * (and not by the search button)
+	 * @param typing
+	 */
+	public void setTyping(boolean typing) {
+		this.typing = typing;
+	}
+	public boolean isTyping() {
+		return typing;
+	}
 }
@@ -0,0 +1,71 @@
+package ui_search_bar;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Collect the latencies of the last searches and log their percentiles
+ * periodically.
+ */
+public class SearchLatency {
+
+	private static final Logger LOGGER = LogManager.getLogger(SearchLatency.class);
+
+	// number of latencies used to compute the percentiles
+	private static final int WINDOW = 256;
+
+	// log the percentiles every n searches
+	private static final int LOG_EVERY = 20;
+
+	private final long[] latencies = new long[WINDOW];
+	private int count;
+
+	/**
+	 * Add the latency of a completed search
+	 *
+	 * @param millis elapsed time in milliseconds
+	 * @param found  number of terms found
+	 */
+	public synchronized void add(long millis, int found) {
+
+		latencies[count % WINDOW] = millis;
+		count++;
+
+		LOGGER.debug("Search completed in " + millis + " ms, " + found + " terms found");
+
+		if (count % LOG_EVERY == 0)
+			log();
+	}
+
+	/**
+	 * Log the percentiles of the collected latencies
+	 */
+	public synchronized void log() {
+
+		int size = Math.min(count, WINDOW);
+
+		if (size == 0)
+			return;
+
+		long[] sorted = Arrays.copyOf(latencies, size);
+		Arrays.sort(sorted);
+
+		LOGGER.info("Search latency over the last " + size + " searches: p50=" + percentile(sorted, 50) + " ms, p90="
+				+ percentile(sorted, 90) + " ms, p99=" + percentile(sorted, 99) + " ms, max=" + sorted[size - 1]
+				+ " ms");
+	}
+
+	/**
+	 * Get a percentile with the nearest rank method
+	 *
+	 * @param sorted
+	 * @param percent
+	 * @return
+	 */
+	private static long percentile(long[] sorted, int percent) {
+		int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+}
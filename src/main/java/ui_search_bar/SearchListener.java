@@ -8,4 +8,12 @@ package ui_search_bar;
 public class SearchListener {
 	public void searchPerformed ( SearchEvent event ) {
 	}
+	
+	/**
+	 * Called for each page of results found while the
+	 * search is still running (before {@link #searchPerformed(SearchEvent)})
+	 * @param event
+	 */
+	public void resultsFound ( SearchEvent event ) {
+	}
 }
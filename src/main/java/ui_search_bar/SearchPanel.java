@@ -56,6 +56,9 @@ public class SearchPanel implements Observer {
 		// create the graphics of the search bar
 		searchBar.display();
 
+		// search also while the user types
+		searchBar.setSearchWhileTyping(true);
+
 		// at the beginning we set all disabled (no catalogue is opened)
 		searchBar.setEnabled(false);
 
@@ -64,6 +67,18 @@ public class SearchPanel implements Observer {
 
 		searchBar.setListener(new SearchListener() {
 
+			@Override
+			public void resultsFound(SearchEvent event) {
+
+				// show the results while they are found
+				if (event.isFirstPage()) {
+					table.removeAll();
+					table.setCurrentHierarchy(searchBar.getSearchHierarchy());
+					table.setInput(new ArrayList<>(event.getResults()));
+				} else
+					table.addTerms(event.getResults());
+			}
+
 			@Override
 			public void searchPerformed(SearchEvent event) {
 
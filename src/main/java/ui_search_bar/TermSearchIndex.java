@@ -0,0 +1,542 @@
+package ui_search_bar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import catalogue.Catalogue;
+import catalogue_object.Term;
+import catalogue_object.TermAttribute;
+
+/**
+ * In memory inverted index of the catalogue terms used by the
+ * {@link SearchDAO}. Each term is indexed with a document which contains its
+ * code and extended name and with a document for each of its term attributes.
+ * The documents are indexed by the trigrams of their upper case text, in order
+ * to answer the substring searches (as the old like '%keyword%' queries) by
+ * intersecting the posting lists of the keyword trigrams and then checking only
+ * the few candidate documents.
+ *
+ * The index is built when the term attributes of the catalogue are loaded (see
+ * {@link Catalogue#refreshTermAttributes()}) and then refreshed for each term
+ * which is inserted or updated in the database.
+ *
+ */
+public class TermSearchIndex {
+
+	private static final Logger LOGGER = LogManager.getLogger(TermSearchIndex.class);
+
+	// length of the grams used to index the texts
+	private static final int GRAM_SIZE = 3;
+
+	// attribute id used for the documents of codes and names
+	private static final int NAME_DOC = -1;
+
+	// term id of the removed documents
+	private static final int REMOVED = -1;
+
+	// minimum number of removed documents before compacting the index
+	private static final int COMPACT_THRESHOLD = 10000;
+
+	// document id => term id
+	private IntList docTerms;
+
+	// document id => attribute id (NAME_DOC for codes and names)
+	private IntList docAttrs;
+
+	// document id => upper case text of the document
+	private ArrayList<String> docTexts;
+
+	// term id => documents of the term
+	private HashMap<Integer, IntList> termDocs;
+
+	// term id => upper case code of the term
+	private HashMap<Integer, String> termCodes;
+
+	// upper case term code => name document of the term
+	private HashMap<String, Integer> codeDocs;
+
+	// gram => sorted ids of the documents which contain the gram
+	private HashMap<String, IntList> postings;
+
+	private int removedDocs;
+	private boolean built;
+
+	public TermSearchIndex() {
+		init();
+		this.built = false;
+	}
+
+	private void init() {
+		this.docTerms = new IntList();
+		this.docAttrs = new IntList();
+		this.docTexts = new ArrayList<>();
+		this.termDocs = new HashMap<>();
+		this.termCodes = new HashMap<>();
+		this.codeDocs = new HashMap<>();
+		this.postings = new HashMap<>();
+		this.removedDocs = 0;
+	}
+
+	/**
+	 * Build the index from scratch using the terms and their term attributes
+	 *
+	 * @param terms
+	 */
+	public synchronized void build(Collection<Term> terms) {
+
+		long start = System.currentTimeMillis();
+
+		init();
+
+		for (Term term : terms)
+			addTerm(term.getId(), term);
+
+		built = true;
+
+		LOGGER.info("Search index built for " + terms.size() + " terms: " + docTerms.size() + " documents, "
+				+ postings.size() + " grams in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Check if the index was built or not. If not, the searches should be
+	 * performed in the database.
+	 *
+	 * @return
+	 */
+	public synchronized boolean isBuilt() {
+		return built;
+	}
+
+	/**
+	 * Remove all the documents from the index
+	 */
+	public synchronized void clear() {
+		init();
+		built = false;
+	}
+
+	/**
+	 * Refresh the code, the name and the term attributes of the term in the index.
+	 * Nothing is done if the index was not built.
+	 *
+	 * @param term
+	 */
+	public synchronized void update(Term term) {
+
+		if (!built || term == null)
+			return;
+
+		removeTerm(term.getId());
+		addTerm(term.getId(), term);
+
+		if (removedDocs > COMPACT_THRESHOLD && removedDocs > docTerms.size() / 2)
+			compact();
+	}
+
+	/**
+	 * Add a term which was inserted in the database to the index. Nothing is
+	 * done if the index was not built.
+	 *
+	 * @param termId the id given to the term by the database
+	 * @param term
+	 */
+	public synchronized void insert(int termId, Term term) {
+
+		if (!built || term == null)
+			return;
+
+		removeTerm(termId);
+		addTerm(termId, term);
+	}
+
+	/**
+	 * Add a term attribute which was inserted in the database to the index.
+	 * Nothing is done if the index was not built.
+	 *
+	 * @param ta
+	 */
+	public synchronized void insert(TermAttribute ta) {
+
+		if (!built || ta.getTerm() == null || ta.getAttribute() == null || ta.getValue() == null)
+			return;
+
+		addDoc(ta.getTerm().getId(), ta.getAttribute().getId(), ta.getValue());
+	}
+
+	/**
+	 * Search the keywords in the codes, in the names and in the values of the
+	 * selected attributes of the terms.
+	 *
+	 * As in the previous database queries, a term is returned if its extended name
+	 * contains the keywords or its code is equal to them, or if the value of one
+	 * of its term attributes contains the keywords. With
+	 * {@link SearchType#ALL_WORDS} all the keywords should be contained in the
+	 * same name or attribute value, with {@link SearchType#ANY_WORD} one is
+	 * enough.
+	 *
+	 * @param keywords the keywords to search (case insensitive)
+	 * @param type     how the keywords are combined
+	 * @param attrIds  ids of the attributes in which we can search
+	 * @return the ids of the terms which matched the keywords
+	 */
+	public synchronized Set<Integer> search(Collection<String> keywords, SearchType type,
+			Collection<Integer> attrIds) {
+
+		Set<Integer> termIds = new HashSet<>();
+
+		IntList docs = null;
+
+		for (String keyword : keywords) {
+
+			// skip the empty keywords (as double spaces)
+			if (keyword == null || keyword.isEmpty())
+				continue;
+
+			IntList matches = getMatchingDocs(keyword.toUpperCase());
+
+			if (docs == null)
+				docs = matches;
+			else if (type == SearchType.ANY_WORD)
+				docs = union(docs, matches);
+			else
+				docs = intersect(docs, matches);
+		}
+
+		if (docs == null)
+			return termIds;
+
+		for (int i = 0; i < docs.size(); i++) {
+
+			int doc = docs.get(i);
+			int attrId = docAttrs.get(doc);
+
+			if (attrId == NAME_DOC || attrIds.contains(attrId))
+				termIds.add(docTerms.get(doc));
+		}
+
+		return termIds;
+	}
+
+	/**
+	 * Get the sorted ids of the documents whose text contains the keyword or,
+	 * for the names, whose term code is equal to the keyword
+	 *
+	 * @param keyword upper case keyword
+	 * @return
+	 */
+	private IntList getMatchingDocs(String keyword) {
+
+		IntList matches = new IntList();
+
+		Integer codeDoc = codeDocs.get(keyword);
+
+		if (keyword.length() < GRAM_SIZE) {
+
+			// too short to use the grams, check all the documents
+			for (int doc = 0; doc < docTerms.size(); doc++) {
+				if (isMatching(doc, keyword, codeDoc))
+					matches.add(doc);
+			}
+
+			return matches;
+		}
+
+		IntList candidates = getCandidateDocs(keyword);
+
+		for (int i = 0; i < candidates.size(); i++) {
+
+			int doc = candidates.get(i);
+
+			if (isMatching(doc, keyword, codeDoc))
+				matches.add(doc);
+		}
+
+		// the code can be shorter than the keyword grams
+		if (codeDoc != null && docTerms.get(codeDoc) != REMOVED) {
+			IntList codeMatch = new IntList();
+			codeMatch.add(codeDoc);
+			matches = union(matches, codeMatch);
+		}
+
+		return matches;
+	}
+
+	/**
+	 * Get the documents which contain all the grams of the keyword. Only these
+	 * documents can contain the whole keyword.
+	 *
+	 * @param keyword
+	 * @return
+	 */
+	private IntList getCandidateDocs(String keyword) {
+
+		ArrayList<IntList> lists = new ArrayList<>();
+
+		for (String gram : getGrams(keyword)) {
+
+			IntList list = postings.get(gram);
+
+			// no document contains the gram
+			if (list == null)
+				return new IntList();
+
+			lists.add(list);
+		}
+
+		// start from the shortest posting lists
+		lists.sort(new Comparator<IntList>() {
+			@Override
+			public int compare(IntList l1, IntList l2) {
+				return Integer.compare(l1.size(), l2.size());
+			}
+		});
+
+		IntList candidates = lists.get(0);
+
+		for (int i = 1; i < lists.size() && candidates.size() > 0; i++)
+			candidates = intersect(candidates, lists.get(i));
+
+		return candidates;
+	}
+
+	private boolean isMatching(int doc, String keyword, Integer codeDoc) {
+
+		if (docTerms.get(doc) == REMOVED)
+			return false;
+
+		if (codeDoc != null && codeDoc == doc)
+			return true;
+
+		return docTexts.get(doc).contains(keyword);
+	}
+
+	/**
+	 * Add the documents of the term to the index
+	 *
+	 * @param termId
+	 * @param term
+	 */
+	private void addTerm(int termId, Term term) {
+
+		String code = term.getCode() == null ? null : term.getCode().toUpperCase();
+
+		int nameDoc = addDoc(termId, NAME_DOC, term.getName());
+
+		if (code != null) {
+			termCodes.put(termId, code);
+			codeDocs.put(code, nameDoc);
+		}
+
+		if (term.getAttributes() == null)
+			return;
+
+		for (TermAttribute ta : term.getAttributes()) {
+
+			if (ta.getAttribute() == null || ta.getValue() == null)
+				continue;
+
+			addDoc(termId, ta.getAttribute().getId(), ta.getValue());
+		}
+	}
+
+	/**
+	 * Remove the documents of the term from the index. The documents are only
+	 * marked as removed, their ids are removed from the posting lists when the
+	 * index is compacted.
+	 *
+	 * @param termId
+	 */
+	private void removeTerm(int termId) {
+
+		IntList docs = termDocs.remove(termId);
+
+		if (docs == null)
+			return;
+
+		for (int i = 0; i < docs.size(); i++) {
+			int doc = docs.get(i);
+			docTerms.set(doc, REMOVED);
+			docTexts.set(doc, null);
+			removedDocs++;
+		}
+
+		String code = termCodes.remove(termId);
+
+		if (code != null)
+			codeDocs.remove(code);
+	}
+
+	/**
+	 * Add a document to the index. Since the document ids are increasing, the
+	 * posting lists remain sorted.
+	 *
+	 * @param termId
+	 * @param attrId
+	 * @param text
+	 * @return the id of the document
+	 */
+	private int addDoc(int termId, int attrId, String text) {
+
+		String upper = text == null ? "" : text.toUpperCase();
+
+		int doc = docTerms.size();
+
+		docTerms.add(termId);
+		docAttrs.add(attrId);
+		docTexts.add(upper);
+
+		IntList docs = termDocs.get(termId);
+		if (docs == null) {
+			docs = new IntList();
+			termDocs.put(termId, docs);
+		}
+		docs.add(doc);
+
+		for (String gram : getGrams(upper)) {
+
+			IntList list = postings.get(gram);
+
+			if (list == null) {
+				list = new IntList();
+				postings.put(gram, list);
+			}
+
+			list.add(doc);
+		}
+
+		return doc;
+	}
+
+	/**
+	 * Rebuild the index without the removed documents
+	 */
+	private void compact() {
+
+		IntList oldTerms = docTerms;
+		IntList oldAttrs = docAttrs;
+		ArrayList<String> oldTexts = docTexts;
+		HashMap<Integer, String> oldCodes = termCodes;
+
+		init();
+
+		for (int doc = 0; doc < oldTerms.size(); doc++) {
+
+			int termId = oldTerms.get(doc);
+
+			if (termId == REMOVED)
+				continue;
+
+			int newDoc = addDoc(termId, oldAttrs.get(doc), oldTexts.get(doc));
+
+			String code = oldCodes.get(termId);
+
+			if (oldAttrs.get(doc) == NAME_DOC && code != null) {
+				termCodes.put(termId, code);
+				codeDocs.put(code, newDoc);
+			}
+		}
+
+		LOGGER.info("Search index compacted: " + docTerms.size() + " documents");
+	}
+
+	/**
+	 * Get the distinct grams of a text
+	 *
+	 * @param text
+	 * @return
+	 */
+	private static Set<String> getGrams(String text) {
+
+		Set<String> grams = new HashSet<>();
+
+		for (int i = 0; i + GRAM_SIZE <= text.length(); i++)
+			grams.add(text.substring(i, i + GRAM_SIZE));
+
+		return grams;
+	}
+
+	private static IntList intersect(IntList l1, IntList l2) {
+
+		IntList out = new IntList();
+
+		int i = 0, j = 0;
+		while (i < l1.size() && j < l2.size()) {
+
+			int a = l1.get(i);
+			int b = l2.get(j);
+
+			if (a == b) {
+				out.add(a);
+				i++;
+				j++;
+			} else if (a < b)
+				i++;
+			else
+				j++;
+		}
+
+		return out;
+	}
+
+	private static IntList union(IntList l1, IntList l2) {
+
+		IntList out = new IntList();
+
+		int i = 0, j = 0;
+		while (i < l1.size() || j < l2.size()) {
+
+			if (j >= l2.size() || (i < l1.size() && l1.get(i) < l2.get(j)))
+				out.add(l1.get(i++));
+			else if (i >= l1.size() || l2.get(j) < l1.get(i))
+				out.add(l2.get(j++));
+			else {
+				out.add(l1.get(i++));
+				j++;
+			}
+		}
+
+		return out;
+	}
+
+	/**
+	 * Growable list of primitive integers, to avoid boxing the document ids
+	 */
+	private static class IntList {
+
+		private int[] data;
+		private int size;
+
+		public IntList() {
+			this.data = new int[4];
+			this.size = 0;
+		}
+
+		public void add(int value) {
+
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+
+			data[size++] = value;
+		}
+
+		public int get(int index) {
+			return data[index];
+		}
+
+		public void set(int index, int value) {
+			data[index] = value;
+		}
+
+		public int size() {
+			return size;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package ui_search_bar;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Observable;
 import java.util.Observer;
@@ -37,6 +38,7 @@ public class TermTable implements Observer {
 
 	private Composite parent;
 	private TableViewer table;
+	private ArrayList<Term> input;
 
 	private LabelProviderTerm labelProvider;
 	private ContentProviderTerm contentProvider;
@@ -225,9 +227,27 @@ public class TermTable implements Observer {
 		if (input != null)
 			Collections.sort(input, new AlphabeticalSorter());
 
+		this.input = input;
 		table.setInput(input);
 	}
 
+	/**
+	 * Append terms to the table input (used to show the results while they are
+	 * found, they are not sorted)
+	 * 
+	 * @param terms
+	 */
+	public void addTerms(Collection<Term> terms) {
+
+		if (input == null) {
+			setInput(new ArrayList<>(terms));
+			return;
+		}
+
+		input.addAll(terms);
+		table.add(terms.toArray());
+	}
+
 	/**
 	 * Add a term to the table
 	 * 
@@ -155,6 +155,10 @@ public class CataloguePreferenceDAO extends PreferenceDAO {
 
 		// update the preference related to the picklist
 		update(pref);
+
+		// prepare the searches in the selected picklist
+		if (picklist != null)
+			new PicklistDAO(catalogue).index(picklist);
 	}
 
 	/**
@@ -193,6 +197,11 @@ public class CataloguePreferenceDAO extends PreferenceDAO {
 		return picklist;
 	}
 
+	@Override
+	protected PreferenceCache getCache() {
+		return catalogue == null ? null : catalogue.getPreferenceCache();
+	}
+
 	@Override
 	public Connection getConnection() throws SQLException {
 		return catalogue.getConnection();
@@ -15,9 +15,27 @@ import dcf_manager.Dcf.DcfType;
 public class GlobalPreferenceDAO extends PreferenceDAO {
 
 	private static final Logger LOGGER = LogManager.getLogger(GlobalPreferenceDAO.class);
+
+	// preferences of the main database
+	private static final PreferenceCache CACHE = new PreferenceCache();
 	
 	@Override
 	public void setCatalogue(Catalogue catalogue) {}
+
+	/**
+	 * Get the cache of the global preferences, which can be used to listen to
+	 * their changes
+	 * 
+	 * @return
+	 */
+	public static PreferenceCache getPreferenceCache() {
+		return CACHE;
+	}
+
+	@Override
+	protected PreferenceCache getCache() {
+		return CACHE;
+	}
 	
 	/**
 	 * Insert the default preferences for user interface
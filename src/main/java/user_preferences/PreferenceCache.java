@@ -0,0 +1,212 @@
+package user_preferences;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory copy of the preferences of a database. The preferences are loaded
+ * all together by the {@link PreferenceDAO} the first time they are read, and
+ * then the dao writes through the cache each change which is saved in the
+ * database, so that the preferences are read without queries.
+ * 
+ * The cache stores its own copies of the preferences, therefore changing a
+ * returned preference does not change the cache until it is saved. The methods
+ * are synchronized on the cache: the dao holds its lock to load and read the
+ * preferences, so that they are not cleared in the meanwhile. A cache which is
+ * not loaded has no preferences.
+ */
+public class PreferenceCache {
+
+	// key => preference, null if not loaded yet
+	private HashMap<String, Preference> preferences;
+
+	private List<PreferenceListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Check if the preferences were loaded
+	 * 
+	 * @return
+	 */
+	public synchronized boolean isLoaded() {
+		return preferences != null;
+	}
+
+	/**
+	 * Load the preferences read from the database, if they were not loaded yet
+	 * 
+	 * @param prefs
+	 */
+	public synchronized void load(Collection<Preference> prefs) {
+
+		if (preferences != null)
+			return;
+
+		preferences = new HashMap<>();
+
+		for (Preference pref : prefs)
+			preferences.put(pref.getKey(), copy(pref));
+	}
+
+	/**
+	 * Get a copy of a preference
+	 * 
+	 * @param key
+	 * @return the preference, or null if not found or not loaded
+	 */
+	public synchronized Preference get(String key) {
+
+		if (preferences == null)
+			return null;
+
+		Preference pref = preferences.get(key);
+
+		return pref == null ? null : copy(pref);
+	}
+
+	/**
+	 * Get a copy of all the preferences
+	 * 
+	 * @return
+	 */
+	public synchronized ArrayList<Preference> getAll() {
+
+		if (preferences == null)
+			return new ArrayList<>();
+
+		ArrayList<Preference> prefs = new ArrayList<>(preferences.size());
+
+		for (Preference pref : preferences.values())
+			prefs.add(copy(pref));
+
+		return prefs;
+	}
+
+	/**
+	 * Check if a preference is present
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public synchronized boolean contains(String key) {
+		return preferences != null && preferences.containsKey(key);
+	}
+
+	/**
+	 * Check if the preference is already saved with the same type, value and
+	 * editability
+	 * 
+	 * @param pref
+	 * @return
+	 */
+	public synchronized boolean isSaved(Preference pref) {
+
+		if (preferences == null)
+			return false;
+
+		Preference saved = preferences.get(pref.getKey());
+
+		return saved != null && saved.getType() == pref.getType() && saved.isEditable() == pref.isEditable()
+				&& equals(saved.getValue(), pref.getValue());
+	}
+
+	/**
+	 * Save a preference which was written in the database
+	 * 
+	 * @param pref
+	 */
+	public void put(Preference pref) {
+
+		boolean changed;
+
+		synchronized (this) {
+
+			// nothing to keep consistent
+			if (preferences == null)
+				return;
+
+			Preference old = preferences.put(pref.getKey(), copy(pref));
+
+			changed = old == null || !equals(old.getValue(), pref.getValue());
+		}
+
+		if (changed)
+			notifyListeners(pref.getKey(), pref.getValue());
+	}
+
+	/**
+	 * Remove a preference which was removed from the database
+	 * 
+	 * @param key
+	 */
+	public void remove(String key) {
+
+		synchronized (this) {
+			if (preferences == null || preferences.remove(key) == null)
+				return;
+		}
+
+		notifyListeners(key, null);
+	}
+
+	/**
+	 * Remove all the preferences, since they were removed from the database
+	 */
+	public void removeAll() {
+
+		List<String> keys;
+
+		synchronized (this) {
+
+			// the database is empty now
+			if (preferences == null) {
+				preferences = new HashMap<>();
+				return;
+			}
+
+			keys = new ArrayList<>(preferences.keySet());
+			preferences.clear();
+		}
+
+		for (String key : keys)
+			notifyListeners(key, null);
+	}
+
+	/**
+	 * Forget the preferences, they will be loaded again from the database
+	 */
+	public synchronized void clear() {
+		preferences = null;
+	}
+
+	/**
+	 * Add a listener called when a preference is saved with a different value or
+	 * removed. The listener is called in the thread which saved the preference.
+	 * 
+	 * @param listener
+	 */
+	public void addListener(PreferenceListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(PreferenceListener listener) {
+		listeners.remove(listener);
+	}
+
+	private void notifyListeners(String key, String value) {
+		for (PreferenceListener listener : listeners)
+			listener.preferenceChanged(key, value);
+	}
+
+	private static Preference copy(Preference pref) {
+		Preference copy = new Preference(pref.getKey(), pref.getType(), null, pref.isEditable());
+		copy.setValue(pref.getValue());
+		return copy;
+	}
+
+	private static boolean equals(String value1, String value2) {
+		return value1 == null ? value2 == null : value1.equals(value2);
+	}
+}
@@ -17,6 +17,42 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 
 	private static final Logger LOGGER = LogManager.getLogger(PreferenceDAO.class);
 
+	/**
+	 * Get the in-memory copy of the preferences of the database, if there is one.
+	 * The dao reads the preferences from the cache and writes through it the
+	 * saved changes.
+	 * 
+	 * @return the cache, or null to always use the database
+	 */
+	protected PreferenceCache getCache() {
+		return null;
+	}
+
+	/**
+	 * Load all the preferences into the cache with a single query, if they were
+	 * not loaded yet. Call it holding the lock of the cache, so that the cache
+	 * cannot be cleared before it is read.
+	 * 
+	 * @param cache
+	 * @return true if the cache is loaded, false if the database cannot be read
+	 *         (the database should be used instead of the cache)
+	 */
+	private boolean load(PreferenceCache cache) {
+
+		if (cache.isLoaded())
+			return true;
+
+		try {
+			cache.load(fetchAll());
+			return true;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error("DB error", e);
+		}
+
+		return false;
+	}
+
 	/**
 	 * Get the preference value as string
 	 * 
@@ -82,6 +118,22 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 	 */
 	public Preference getPreference(String key) throws PreferenceNotFoundException {
 
+		PreferenceCache cache = getCache();
+
+		if (cache != null) {
+			synchronized (cache) {
+				if (load(cache)) {
+
+					Preference pref = cache.get(key);
+
+					if (pref == null)
+						throw new PreferenceNotFoundException();
+
+					return pref;
+				}
+			}
+		}
+
 		// output
 		Preference pref = null;
 
@@ -120,6 +172,33 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 	 */
 	public ArrayList<Preference> getAll() {
 
+		PreferenceCache cache = getCache();
+
+		if (cache != null) {
+			synchronized (cache) {
+				if (load(cache))
+					return cache.getAll();
+			}
+		}
+
+		try {
+			return fetchAll();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error("DB error", e);
+		}
+
+		return new ArrayList<>();
+	}
+
+	/**
+	 * Read all the preferences from the database
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	private ArrayList<Preference> fetchAll() throws SQLException {
+
 		// output
 		ArrayList<Preference> preferences = new ArrayList<>();
 
@@ -141,10 +220,6 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 			rs.close();
 			stmt.close();
 			con.close();
-
-		} catch (SQLException e) {
-			e.printStackTrace();
-			LOGGER.error("DB error", e);
 		}
 
 		return preferences;
@@ -175,6 +250,9 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 
 			stmt.executeUpdate();
 
+			if (getCache() != null)
+				getCache().put(pref);
+
 			try (ResultSet rs = stmt.getGeneratedKeys();) {
 
 				if (rs.next())
@@ -202,6 +280,16 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 	 */
 	public boolean update(Preference pref) {
 
+		PreferenceCache cache = getCache();
+
+		// nothing to save
+		if (cache != null) {
+			synchronized (cache) {
+				if (load(cache) && cache.isSaved(pref))
+					return true;
+			}
+		}
+
 		String query = "update APP.PREFERENCE set PREFERENCE_TYPE = ?, "
 				+ "PREFERENCE_VALUE = ?, PREFERENCE_EDITABLE = ? where PREFERENCE_KEY = ?";
 
@@ -219,6 +307,8 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 			// if no preference was found, insert it!
 			if (affectedRows == 0) {
 				insert(pref);
+			} else if (cache != null) {
+				cache.put(pref);
 			}
 
 			stmt.close();
@@ -245,6 +335,9 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 
 			stmt.executeUpdate();
 
+			if (getCache() != null)
+				getCache().removeAll();
+
 			stmt.close();
 			con.close();
 
@@ -263,6 +356,9 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 			stmt.setString(1, object.getKey());
 			stmt.executeUpdate();
 
+			if (getCache() != null)
+				getCache().remove(object.getKey());
+
 			stmt.close();
 			con.close();
 
@@ -299,6 +395,15 @@ public abstract class PreferenceDAO implements CatalogueEntityDAO<Preference> {
 	 */
 	public boolean contains(Preference pref) {
 
+		PreferenceCache cache = getCache();
+
+		if (cache != null) {
+			synchronized (cache) {
+				if (load(cache))
+					return cache.contains(pref.getKey());
+			}
+		}
+
 		boolean contained = false;
 
 		String query = "select * from APP.PREFERENCE where PREFERENCE_KEY = ?";
@@ -0,0 +1,16 @@
+package user_preferences;
+
+/**
+ * Listener called when a preference is saved or removed (see
+ * {@link PreferenceCache#addListener(PreferenceListener)})
+ */
+public interface PreferenceListener {
+
+	/**
+	 * Called after the value of a preference changed
+	 * 
+	 * @param key   the key of the preference
+	 * @param value the new value, null if the preference was removed
+	 */
+	public void preferenceChanged(String key, String value);
+}
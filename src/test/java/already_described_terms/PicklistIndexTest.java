@@ -0,0 +1,183 @@
+package already_described_terms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import catalogue.Catalogue;
+import catalogue.CatalogueBuilder;
+import catalogue_browser_dao.TermMock;
+import catalogue_object.Attribute;
+import catalogue_object.Term;
+import catalogue_object.TermAttribute;
+import naming_convention.SpecialValues;
+
+/**
+ * Check that the {@link PicklistIndex} finds the picklist terms by the codes of
+ * their base term, explicit facets and implicit facets
+ */
+public class PicklistIndexTest {
+
+	private Catalogue catalogue;
+	private Attribute allFacets;
+	private PicklistIndex index;
+	private int termId;
+
+	private Picklist picklist;
+	private Picklist other;
+
+	@Before
+	public void init() {
+
+		CatalogueBuilder builder = new CatalogueBuilder();
+		builder.setCode("TEST");
+		builder.setName("TEST");
+		builder.setVersion("1.0");
+
+		catalogue = builder.build();
+		termId = 0;
+
+		allFacets = new Attribute(catalogue, 1, SpecialValues.ALL_FACETS_NAME, SpecialValues.ALL_FACETS_NAME, "", "",
+				"", false, false, 0, "catalogue", -1, -1, -1, "", "repeatable", "", false, false, "", "", null, null,
+				null, false);
+
+		addTerm("A01", "F01.X01$F02.X02");
+		addTerm("B01", "B01#F01.X03");
+		addTerm("C01", null);
+
+		index = new PicklistIndex(catalogue);
+
+		picklist = createPicklist(1, "P1", "A01", "B01#F03.X01", "A01#F04.Y01$F05.Y02", "C01#F04.Y011");
+		other = createPicklist(2, "P2", "C01#F01.X03");
+
+		index.put(picklist);
+		index.put(other);
+	}
+
+	@Test
+	public void baseTermAndExplicitFacets() {
+
+		assertCodes(Arrays.asList("A01", "A01#F04.Y01$F05.Y02"), search(picklist, "A01"));
+		assertCodes(Arrays.asList("A01#F04.Y01$F05.Y02"), search(picklist, "Y02"));
+		assertCodes(Arrays.asList("C01#F04.Y011"), search(picklist, "C01"));
+	}
+
+	@Test
+	public void implicitFacetsOfTheBaseTerm() {
+
+		// X01 is an implicit facet of A01 and an explicit facet of B01#F03.X01
+		assertCodes(Arrays.asList("A01", "B01#F03.X01", "A01#F04.Y01$F05.Y02"), search(picklist, "X01"));
+
+		// the base term code before # is not a facet
+		assertCodes(Arrays.asList("B01#F03.X01"), search(picklist, "X03"));
+	}
+
+	@Test
+	public void codesAreMatchedExactly() {
+
+		// Y01 is a substring of Y011, and the facet headers are not codes
+		assertCodes(Arrays.asList("A01#F04.Y01$F05.Y02"), search(picklist, "Y01"));
+		assertTrue(search(picklist, "F04").isEmpty());
+		assertTrue(search(picklist, "A0").isEmpty());
+	}
+
+	@Test
+	public void picklistsAreIndexedSeparately() {
+
+		assertCodes(Arrays.asList("C01#F01.X03"), search(other, "X03"));
+		assertTrue(search(other, "A01").isEmpty());
+
+		index.remove(other);
+
+		assertFalse(index.isIndexed(other));
+		assertTrue(search(other, "X03").isEmpty());
+		assertTrue(index.isIndexed(picklist));
+	}
+
+	@Test
+	public void changedImplicitFacetsInvalidateThePicklist() {
+
+		Term a01 = catalogue.getTermByCode("A01");
+		a01.addAttribute(new TermAttribute(a01, allFacets, "F06.Z01"));
+
+		// still the previous implicit facets
+		assertTrue(search(picklist, "Z01").isEmpty());
+
+		index.invalidate(a01);
+		assertFalse(index.isIndexed(picklist));
+
+		index.put(picklist);
+
+		assertCodes(Arrays.asList("A01", "A01#F04.Y01$F05.Y02"), search(picklist, "Z01"));
+	}
+
+	@Test
+	public void invalidateKeepsTheOtherPicklists() {
+
+		// B01 is a base term only of P1
+		index.invalidate(catalogue.getTermByCode("B01"));
+
+		assertFalse(index.isIndexed(picklist));
+		assertTrue(index.isIndexed(other));
+
+		// X03 is only a facet of P2
+		index.put(picklist);
+		index.invalidate(TermMock.createTerm(catalogue, 0, "X03", "X03", false));
+
+		assertTrue(index.isIndexed(picklist));
+		assertTrue(index.isIndexed(other));
+	}
+
+	@Test
+	public void clearRemovesAllThePicklists() {
+
+		index.clear();
+
+		assertFalse(index.isIndexed(picklist));
+		assertFalse(index.isIndexed(other));
+	}
+
+	private List<PicklistTerm> search(Picklist picklist, String code) {
+		return index.search(picklist, TermMock.createTerm(catalogue, 0, code, code, false));
+	}
+
+	private static void assertCodes(List<String> expected, List<PicklistTerm> terms) {
+
+		List<String> codes = new ArrayList<>();
+
+		for (PicklistTerm term : terms)
+			codes.add(term.getCode());
+
+		assertEquals(expected, codes);
+	}
+
+	private void addTerm(String code, String implicitFacets) {
+
+		Term term = TermMock.createTerm(catalogue, ++termId, code, code, false);
+
+		if (implicitFacets != null)
+			term.addAttribute(new TermAttribute(term, allFacets, implicitFacets));
+
+		catalogue.addTerm(term);
+	}
+
+	private Picklist createPicklist(int id, String code, String... termCodes) {
+
+		ArrayList<PicklistTerm> terms = new ArrayList<>();
+
+		for (String termCode : termCodes)
+			terms.add(new PicklistTerm(catalogue, 1, termCode, termCode));
+
+		Picklist picklist = new Picklist(id, code);
+		picklist.setTerms(terms);
+
+		return picklist;
+	}
+}
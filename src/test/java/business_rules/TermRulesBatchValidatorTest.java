@@ -0,0 +1,164 @@
+package business_rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import business_rules.ValidationReportWriter.ReportFormat;
+import catalogue.Catalogue;
+import catalogue.CatalogueBuilder;
+import catalogue_object.Term;
+
+/**
+ * Check that the {@link TermRulesBatchValidator} gives the same results with
+ * one or more threads, in the order of the codes
+ */
+public class TermRulesBatchValidatorTest {
+
+	private File brData;
+	private File brMessages;
+	private Catalogue catalogue;
+
+	@Before
+	public void init() throws IOException {
+
+		// only the header, no forbidden processes
+		brData = File.createTempFile("brData", ".csv");
+		try (PrintWriter out = new PrintWriter(brData);) {
+			out.println("BASE_TERM_GROUP_CODE;BASE_TERM_GROUP_NAME;FORBIDDEN_PROCESS_CODE;ORDINAL_CODE");
+		}
+
+		// the default messages are written if the file does not exist
+		brMessages = File.createTempFile("brMessages", ".csv");
+		brMessages.delete();
+
+		CatalogueBuilder builder = new CatalogueBuilder();
+		builder.setCode("TEST");
+		builder.setName("TEST");
+		builder.setVersion("1.0");
+
+		catalogue = builder.build();
+
+		for (int i = 1; i <= 20; i++)
+			catalogue.addTerm(new Term(catalogue, i, String.format("A%04d", i), "Term " + i, "Term " + i, "", "",
+					"", null, null, null, false));
+	}
+
+	@After
+	public void clean() {
+		brData.delete();
+		brMessages.delete();
+	}
+
+	@Test
+	public void resultsInOrderOfCodes() throws IOException {
+
+		List<String> codes = createCodes(2000);
+
+		List<CodeValidationResult> results = createValidator(4).validate(codes);
+
+		assertEquals(codes.size(), results.size());
+
+		for (int i = 0; i < codes.size(); i++)
+			assertEquals(codes.get(i), results.get(i).getFullCode());
+	}
+
+	@Test
+	public void sameResultsWithMoreThreads() throws IOException {
+
+		List<String> codes = createCodes(2000);
+
+		List<CodeValidationResult> sequential = createValidator(1).validate(codes);
+		List<CodeValidationResult> parallel = createValidator(4).validate(codes);
+
+		assertEquals(sequential.size(), parallel.size());
+
+		for (int i = 0; i < sequential.size(); i++) {
+			assertEquals(sequential.get(i).toString(), parallel.get(i).toString());
+			assertEquals(getRules(sequential.get(i)), getRules(parallel.get(i)));
+		}
+	}
+
+	@Test
+	public void unknownBaseTerm() throws IOException {
+
+		CodeValidationResult result = createValidator(2).validate(Arrays.asList("ZZZZZ")).get(0);
+
+		assertNull(result.getError());
+		assertTrue(getRules(result).contains("BR29"));
+	}
+
+	@Test
+	public void emptyLinesAreSkipped() throws IOException {
+
+		BufferedReader reader = new BufferedReader(new StringReader("A0001\n\n  \nZZZZZ\nA0002#F01.A0003\n"));
+		StringWriter out = new StringWriter();
+
+		int count = createValidator(2).validate(reader, new ValidationReportWriter(out, ReportFormat.JSON));
+
+		assertEquals(3, count);
+		assertTrue(out.toString().contains("\"fullCode\":\"A0002#F01.A0003\""));
+	}
+
+	private TermRulesBatchValidator createValidator(int threads) throws IOException {
+		return new TermRulesBatchValidator(catalogue, brData.getAbsolutePath(), brMessages.getAbsolutePath(),
+				threads);
+	}
+
+	/**
+	 * Create base terms, full codes, unknown and malformed codes
+	 * 
+	 * @param count
+	 * @return
+	 */
+	private static List<String> createCodes(int count) {
+
+		List<String> codes = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+
+			String code = String.format("A%04d", i % 25 + 1);
+
+			switch (i % 4) {
+			case 0:
+				codes.add(code);
+				break;
+			case 1:
+				codes.add(code + "#F01.A0001$F28.A0002");
+				break;
+			case 2:
+				codes.add(code + "#F01");
+				break;
+			default:
+				codes.add("#" + code);
+				break;
+			}
+		}
+
+		return codes;
+	}
+
+	private static List<String> getRules(CodeValidationResult result) {
+
+		List<String> rules = new ArrayList<>();
+
+		for (CodeValidationResult.Warning warning : result.getWarnings())
+			rules.add(warning.getRule());
+
+		return rules;
+	}
+}
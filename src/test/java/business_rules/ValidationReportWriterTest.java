@@ -0,0 +1,103 @@
+package business_rules;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import business_rules.ValidationReportWriter.ReportFormat;
+
+/**
+ * Check the csv and json reports of the {@link ValidationReportWriter}
+ */
+public class ValidationReportWriterTest {
+
+	private static final String NL = System.lineSeparator();
+
+	@Test
+	public void csvWithoutWarnings() throws IOException {
+
+		String report = write(ReportFormat.CSV,
+				new CodeValidationResult("A01DJ", "NONE", new ArrayList<CodeValidationResult.Warning>(), null));
+
+		assertEquals("FULL_CODE;CODE_LEVEL;RULE;RULE_LEVEL;TEXT_LEVEL;MESSAGE" + NL + "A01DJ;NONE;;;;" + NL + NL,
+				report);
+	}
+
+	@Test
+	public void csvLineForEachWarning() throws IOException {
+
+		String report = write(ReportFormat.CSV,
+				new CodeValidationResult("A01DJ#F28.A07JS", "HIGH",
+						Arrays.asList(new CodeValidationResult.Warning("BR10", "NONE", "LOW", "BR10> Discouraged"),
+								new CodeValidationResult.Warning("BR16", "HIGH", "HIGH", "BR16> Forbidden")),
+						null));
+
+		String[] lines = report.split(NL);
+
+		assertEquals(3, lines.length);
+		assertEquals("A01DJ#F28.A07JS;HIGH;BR10;NONE;LOW;BR10> Discouraged", lines[1]);
+		assertEquals("A01DJ#F28.A07JS;HIGH;BR16;HIGH;HIGH;BR16> Forbidden", lines[2]);
+	}
+
+	@Test
+	public void csvQuotesSeparators() throws IOException {
+
+		String report = write(ReportFormat.CSV,
+				new CodeValidationResult("X", "ERROR", new ArrayList<CodeValidationResult.Warning>(),
+						"wrong; \"code\""));
+
+		assertEquals("X;ERROR;;;;\"wrong; \"\"code\"\"\"", report.split(NL)[1]);
+	}
+
+	@Test
+	public void jsonEmptyReport() throws IOException {
+		assertEquals("[]" + NL, write(ReportFormat.JSON));
+	}
+
+	@Test
+	public void jsonObjectForEachCode() throws IOException {
+
+		CodeValidationResult.Warning warning = new CodeValidationResult.Warning("BR11", "LOW", "LOW",
+				"BR11> \"x\"\n");
+
+		String report = write(ReportFormat.JSON,
+				new CodeValidationResult("A01DJ", "NONE", new ArrayList<CodeValidationResult.Warning>(), null),
+				new CodeValidationResult("A01DL", "LOW", Collections.singletonList(warning), null));
+
+		assertEquals("[\n{\"fullCode\":\"A01DJ\",\"level\":\"NONE\",\"warnings\":[]},\n"
+				+ "{\"fullCode\":\"A01DL\",\"level\":\"LOW\",\"warnings\":[{\"rule\":\"BR11\",\"level\":\"LOW\","
+				+ "\"textLevel\":\"LOW\",\"message\":\"BR11> \\\"x\\\"\\n\"}]}\n]" + NL, report);
+	}
+
+	@Test
+	public void jsonError() throws IOException {
+
+		String report = write(ReportFormat.JSON,
+				new CodeValidationResult("X", "ERROR", new ArrayList<CodeValidationResult.Warning>(), "bad\tcode"));
+
+		assertEquals("[\n{\"fullCode\":\"X\",\"level\":\"ERROR\",\"error\":\"bad\\tcode\",\"warnings\":[]}\n]" + NL,
+				report);
+	}
+
+	private static String write(ReportFormat format, CodeValidationResult... results) throws IOException {
+
+		StringWriter out = new StringWriter();
+
+		ValidationReportWriter report = new ValidationReportWriter(out, format);
+
+		report.start();
+
+		for (CodeValidationResult result : results)
+			report.write(result);
+
+		report.end();
+
+		return out.toString();
+	}
+}
@@ -0,0 +1,224 @@
+package catalogue;
+
+import static catalogue_browser_dao.TermMock.createTerm;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import catalogue_object.Applicability;
+import catalogue_object.Hierarchy;
+import catalogue_object.Nameable;
+import catalogue_object.Term;
+
+/**
+ * Check that the subtree counts of the {@link ApplicabilityIndex} are kept
+ * equal to the ones computed from scratch when the terms are moved, removed or
+ * change deprecation and reportability
+ * 
+ * <pre>
+ * master
+ *  - a
+ *     - c
+ *        - e (deprecated)
+ *     - d (not reportable)
+ *  - b
+ * </pre>
+ */
+public class ApplicabilityIndexTest {
+
+	private Hierarchy master;
+	private Term a, b, c, d, e;
+	private HashMap<Integer, Applicability> appls;
+	private ApplicabilityIndex index;
+
+	@Before
+	public void init() {
+
+		master = new Hierarchy(null, 1, "master", "Master", "", "", "both", 0, "", true, "", null, null, null, false,
+				"");
+
+		a = createTerm(1, "A");
+		b = createTerm(2, "B");
+		c = createTerm(3, "C");
+		d = createTerm(4, "D");
+		e = createTerm(null, 5, "E", "E", true);
+
+		appls = new HashMap<>();
+		addAppl(a, master, true);
+		addAppl(b, master, true);
+		addAppl(c, a, true);
+		addAppl(d, a, false);
+		addAppl(e, c, true);
+
+		index = new ApplicabilityIndex();
+		index.build(appls.values());
+	}
+
+	@Test
+	public void notBuiltIndexHasNoCounts() {
+		assertNull(new ApplicabilityIndex().getSubtreeCounts(a, master));
+	}
+
+	@Test
+	public void countsAfterBuild() {
+		assertCounts(a, 2, 2, 1);
+		assertCounts(c, 0, 1, 0);
+		assertCounts(b, 0, 0, 0);
+		assertCounts(e, 0, 0, 0);
+	}
+
+	@Test
+	public void otherHierarchyHasNoCounts() {
+
+		Hierarchy other = new Hierarchy(null, 2, "other", "Other", "", "", "both", 1, "", false, "", null, null,
+				null, false, "");
+
+		assertCounts(index.getSubtreeCounts(a, other), 0, 0, 0);
+	}
+
+	@Test
+	public void moveSubtree() {
+
+		// move c (with e) from a to b
+		Applicability appl = appls.get(c.getId());
+		appl.setParentTerm(b);
+		index.update(appl);
+
+		assertCounts(a, 1, 0, 0);
+		assertCounts(b, 1, 2, 1);
+		assertSameAsRebuilt();
+	}
+
+	@Test
+	public void moveToFirstLevel() {
+
+		Applicability appl = appls.get(c.getId());
+		appl.setParentTerm(master);
+		index.update(appl);
+
+		assertCounts(a, 1, 0, 0);
+		assertCounts(c, 0, 1, 0);
+		assertSameAsRebuilt();
+	}
+
+	@Test
+	public void removeSubtreeRoot() {
+
+		index.remove(appls.remove(c.getId()));
+
+		assertCounts(a, 1, 0, 0);
+
+		// the children of c are still linked to it
+		assertCounts(c, 0, 1, 0);
+	}
+
+	@Test
+	public void addTerm() {
+
+		Term f = createTerm(6, "F");
+		Applicability appl = addAppl(f, e, true);
+		index.add(appl);
+
+		assertCounts(a, 3, 3, 2);
+		assertCounts(c, 1, 2, 1);
+		assertCounts(e, 1, 1, 1);
+		assertSameAsRebuilt();
+	}
+
+	@Test
+	public void changeReportability() {
+
+		Applicability appl = appls.get(d.getId());
+		appl.setReportable(true);
+		index.updateReportability(appl);
+
+		assertCounts(a, 2, 3, 2);
+		assertSameAsRebuilt();
+	}
+
+	@Test
+	public void changeDeprecation() {
+
+		e.setDeprecated(false);
+		index.updateDeprecation(e);
+
+		c.setDeprecated(true);
+		index.updateDeprecation(c);
+
+		assertCounts(a, 2, 2, 1);
+		assertCounts(c, 1, 1, 1);
+		assertSameAsRebuilt();
+	}
+
+	@Test
+	public void moveDeprecatedTerm() {
+
+		Applicability appl = appls.get(e.getId());
+		appl.setParentTerm(d);
+		index.update(appl);
+
+		e.setDeprecated(false);
+		index.updateDeprecation(e);
+
+		assertCounts(a, 3, 2, 2);
+		assertCounts(c, 0, 0, 0);
+		assertCounts(d, 1, 1, 1);
+		assertSameAsRebuilt();
+	}
+
+	@Test
+	public void buildWithChildBeforeParent() {
+
+		// the order of the applicabilities should not change the counts
+		ArrayList<Applicability> reversed = new ArrayList<>(appls.values());
+		Collections.reverse(reversed);
+
+		ApplicabilityIndex other = new ApplicabilityIndex();
+		other.build(reversed);
+
+		for (Term term : new Term[] { a, b, c, d, e })
+			assertSameCounts(index.getSubtreeCounts(term, master), other.getSubtreeCounts(term, master));
+	}
+
+	/**
+	 * Check that the counts kept up to date by the index are the same of an
+	 * index built from scratch with the current applicabilities
+	 */
+	private void assertSameAsRebuilt() {
+
+		ApplicabilityIndex rebuilt = new ApplicabilityIndex();
+		rebuilt.build(appls.values());
+
+		for (Applicability appl : appls.values()) {
+			Term term = appl.getChild();
+			assertSameCounts(rebuilt.getSubtreeCounts(term, master), index.getSubtreeCounts(term, master));
+		}
+	}
+
+	private void assertCounts(Term term, int notDeprecated, int reportable, int reportableNotDeprecated) {
+		assertCounts(index.getSubtreeCounts(term, master), notDeprecated, reportable, reportableNotDeprecated);
+	}
+
+	private static void assertCounts(SubtreeCounts counts, int notDeprecated, int reportable,
+			int reportableNotDeprecated) {
+		assertEquals("not deprecated", notDeprecated, counts.getNotDeprecated());
+		assertEquals("reportable", reportable, counts.getReportable());
+		assertEquals("reportable not deprecated", reportableNotDeprecated, counts.getReportableNotDeprecated());
+	}
+
+	private static void assertSameCounts(SubtreeCounts expected, SubtreeCounts actual) {
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	private Applicability addAppl(Term child, Nameable parent, boolean reportable) {
+		Applicability appl = new Applicability(child, parent, master, appls.size(), reportable);
+		appls.put(child.getId(), appl);
+		return appl;
+	}
+}
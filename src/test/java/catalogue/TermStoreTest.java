@@ -0,0 +1,185 @@
+package catalogue;
+
+import static catalogue_browser_dao.TermMock.createTerm;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import catalogue_object.Term;
+
+/**
+ * Check the lookups of the {@link TermStore} by id and by code when the terms
+ * are added, replaced or changed and when its tables grow
+ */
+public class TermStoreTest {
+
+	@Test
+	public void lookupsAfterRehash() {
+
+		TermStore store = new TermStore();
+
+		// many more terms than the initial capacity
+		List<Term> terms = createTerms(1, 5000);
+		for (Term term : terms)
+			store.put(term);
+
+		assertEquals(terms.size(), store.size());
+
+		for (Term term : terms) {
+			assertSame(term, store.get(term.getId()));
+			assertSame(term, store.getByCode(term.getCode()));
+		}
+
+		assertNull(store.getByCode("MISSING"));
+		assertNull(store.get(0));
+	}
+
+	@Test
+	public void createWithTerms() {
+
+		List<Term> terms = createTerms(1000, 2000);
+		TermStore store = new TermStore(terms);
+
+		assertEquals(terms.size(), store.size());
+
+		for (Term term : terms)
+			assertSame(term, store.getByCode(term.getCode()));
+	}
+
+	@Test
+	public void outliers() {
+
+		TermStore store = new TermStore(createTerms(1, 100));
+
+		Term far = createTerm(Integer.MAX_VALUE - 1, "FAR");
+		Term negative = createTerm(-5, "NEG");
+		store.put(far);
+		store.put(negative);
+
+		assertSame(far, store.get(far.getId()));
+		assertSame(far, store.getByCode("FAR"));
+		assertSame(negative, store.getByCode("NEG"));
+		assertEquals(102, store.size());
+		assertEquals(102, store.values().size());
+	}
+
+	@Test
+	public void replaceWithOtherCode() {
+
+		TermStore store = new TermStore(createTerms(1, 100));
+
+		Term replacement = createTerm(10, "NEW10");
+		store.put(replacement);
+
+		assertEquals(100, store.size());
+		assertSame(replacement, store.get(10));
+		assertSame(replacement, store.getByCode("NEW10"));
+		assertNull(store.getByCode(code(10)));
+		assertEquals(-1, store.getId(code(10)));
+	}
+
+	@Test
+	public void codeChangedInPlace() {
+
+		TermStore store = new TermStore(createTerms(1, 100));
+
+		Term term = store.get(20);
+		term.setCode("CHANGED");
+		store.put(term);
+
+		assertSame(term, store.getByCode("CHANGED"));
+		assertNull(store.getByCode(code(20)));
+
+		// the code can be used by another term
+		Term other = createTerm(200, code(20));
+		store.put(other);
+
+		assertSame(other, store.getByCode(code(20)));
+		assertSame(term, store.getByCode("CHANGED"));
+	}
+
+	@Test
+	public void codeRemoved() {
+
+		TermStore store = new TermStore(createTerms(1, 100));
+
+		Term term = store.get(30);
+		term.setCode(null);
+		store.put(term);
+
+		assertNull(store.getByCode(code(30)));
+		assertSame(term, store.get(30));
+	}
+
+	@Test
+	public void codesAreFoundAfterManyReplacements() {
+
+		TermStore store = new TermStore(createTerms(1, 2000));
+
+		// change the codes of half of the terms, removing slots in the
+		// middle of the probe sequences of the other codes
+		for (int id = 1; id <= 2000; id += 2) {
+			Term term = store.get(id);
+			term.setCode("R" + id);
+			store.put(term);
+		}
+
+		for (int id = 1; id <= 2000; id++) {
+
+			String current = id % 2 == 1 ? "R" + id : code(id);
+
+			assertEquals(id, store.getId(current));
+
+			if (id % 2 == 1)
+				assertNull(store.getByCode(code(id)));
+		}
+	}
+
+	@Test
+	public void valuesSortedById() {
+
+		TermStore store = new TermStore();
+		for (Term term : createTerms(1, 50))
+			store.put(createTerm(51 - term.getId(), term.getCode()));
+
+		int previous = 0;
+		for (Term term : store.values()) {
+			assertTrue(term.getId() > previous);
+			previous = term.getId();
+		}
+
+		assertEquals(50, previous);
+	}
+
+	@Test
+	public void clear() {
+
+		TermStore store = new TermStore(createTerms(1, 100));
+		store.clear();
+
+		assertTrue(store.isEmpty());
+		assertNull(store.get(1));
+		assertNull(store.getByCode(code(1)));
+		assertTrue(store.values().isEmpty());
+	}
+
+	private static List<Term> createTerms(int from, int to) {
+
+		List<Term> terms = new ArrayList<>();
+
+		for (int id = from; id <= to; id++)
+			terms.add(createTerm(id, code(id)));
+
+		return terms;
+	}
+
+	private static String code(int id) {
+		return "A" + Integer.toString(id, 36).toUpperCase();
+	}
+}
@@ -75,6 +75,9 @@ public class AttributeDAOMock implements CatalogueEntityDAO<Attribute> {
 
 	@Override
 	public List<Integer> insert(Iterable<Attribute> attrs) {
-		return null;
+		List<Integer> ids = new ArrayList<>();
+		for (Attribute object : attrs)
+			ids.add(this.insert(object));
+		return ids;
 	}
 }
@@ -0,0 +1,155 @@
+package catalogue_browser_dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import catalogue.Catalogue;
+
+/**
+ * Check that the records staged by the {@link BulkLoader} are loaded with
+ * their values, nulls and generated ids, and that the foreign keys can be
+ * dropped and created again around the load
+ */
+public class BulkLoaderTest {
+
+	private static final String DB_URL = "jdbc:derby:memory:bulkLoaderTest";
+
+	private Catalogue catalogue;
+
+	@Before
+	public void init() throws SQLException {
+
+		try (Connection con = DriverManager.getConnection(DB_URL + ";create=true");
+				Statement stmt = con.createStatement();) {
+
+			stmt.execute("create table APP.ITEM ( ITEM_ID integer generated always as identity primary key, "
+					+ "ITEM_NAME varchar(100), ITEM_NOTE varchar(100), ITEM_FLAG boolean, ITEM_AMOUNT integer, "
+					+ "ITEM_DATE timestamp )");
+
+			stmt.execute("create table APP.ITEM_LINK ( ITEM_ID integer, LINKED_ID integer, "
+					+ "constraint LINK_ITEM_FK foreign key ( ITEM_ID ) references APP.ITEM ( ITEM_ID ) )");
+		}
+
+		catalogue = new Catalogue() {
+			@Override
+			public String getDbUrl() {
+				return DB_URL;
+			}
+		};
+	}
+
+	@After
+	public void close() {
+		try {
+			DriverManager.getConnection(DB_URL + ";drop=true");
+		} catch (SQLException e) {
+			// dropping the db always throws an exception
+		}
+	}
+
+	@Test
+	public void stagedRecordsAreLoaded() throws IOException, SQLException {
+
+		Timestamp date = Timestamp.valueOf("2020-01-31 10:20:30.5");
+
+		assertTrue(BulkLoader.isEmpty(catalogue, "ITEM"));
+
+		BulkLoader loader = new BulkLoader("ITEM", "ITEM_NAME", "ITEM_NOTE", "ITEM_FLAG", "ITEM_AMOUNT",
+				"ITEM_DATE");
+
+		loader.addRow("first", "with \"quotes\", and commas", true, 10, date);
+		loader.addRow("second", "", false, null, null);
+		loader.addRow("third", null, null, -1, date);
+
+		assertEquals(3, loader.getRowCount());
+
+		loader.load(catalogue);
+
+		assertFalse(BulkLoader.isEmpty(catalogue, "ITEM"));
+
+		try (Connection con = catalogue.getConnection();
+				Statement stmt = con.createStatement();
+				ResultSet rs = stmt.executeQuery("select * from APP.ITEM order by ITEM_ID");) {
+
+			// the ids follow the order of the staged records
+			assertTrue(rs.next());
+			assertEquals(1, rs.getInt("ITEM_ID"));
+			assertEquals("first", rs.getString("ITEM_NAME"));
+			assertEquals("with \"quotes\", and commas", rs.getString("ITEM_NOTE"));
+			assertTrue(rs.getBoolean("ITEM_FLAG"));
+			assertEquals(10, rs.getInt("ITEM_AMOUNT"));
+			assertEquals(date, rs.getTimestamp("ITEM_DATE"));
+
+			// empty strings are kept
+			assertTrue(rs.next());
+			assertEquals(2, rs.getInt("ITEM_ID"));
+			assertEquals("", rs.getString("ITEM_NOTE"));
+			assertFalse(rs.getBoolean("ITEM_FLAG"));
+			rs.getInt("ITEM_AMOUNT");
+			assertTrue(rs.wasNull());
+			assertNull(rs.getTimestamp("ITEM_DATE"));
+
+			assertTrue(rs.next());
+			assertEquals(3, rs.getInt("ITEM_ID"));
+			assertNull(rs.getString("ITEM_NOTE"));
+			rs.getBoolean("ITEM_FLAG");
+			assertTrue(rs.wasNull());
+			assertEquals(-1, rs.getInt("ITEM_AMOUNT"));
+
+			assertFalse(rs.next());
+		}
+	}
+
+	@Test
+	public void cancelledRecordsAreNotLoaded() throws IOException, SQLException {
+
+		BulkLoader loader = new BulkLoader("ITEM", "ITEM_NAME");
+		loader.addRow("first");
+		loader.cancel();
+
+		assertTrue(BulkLoader.isEmpty(catalogue, "ITEM"));
+	}
+
+	@Test
+	public void foreignKeysAreCreatedAfterTheLoad() throws IOException, SQLException {
+
+		BulkLoader.dropForeignKeys(catalogue, "ITEM_LINK");
+
+		// the links are loaded before the items they refer to
+		BulkLoader links = new BulkLoader("ITEM_LINK", "ITEM_ID", "LINKED_ID");
+		links.addRow(1, 2);
+		links.addRow(2, 1);
+		links.load(catalogue);
+
+		BulkLoader items = new BulkLoader("ITEM", "ITEM_NAME");
+		items.addRow("first");
+		items.addRow("second");
+		items.load(catalogue);
+
+		BulkLoader.addForeignKeys(catalogue, "alter table APP.ITEM_LINK add constraint LINK_ITEM_FK "
+				+ "foreign key ( ITEM_ID ) references APP.ITEM ( ITEM_ID )");
+
+		// the foreign key is checked again
+		try (Connection con = catalogue.getConnection(); Statement stmt = con.createStatement();) {
+			stmt.execute("insert into APP.ITEM_LINK ( ITEM_ID, LINKED_ID ) values ( 3, 1 )");
+			fail("The foreign key was not created");
+		} catch (SQLException e) {
+			// expected, the item 3 does not exist
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package catalogue_browser_dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Check that the connections given back to the {@link ConnectionPool} are
+ * cleaned before being borrowed again
+ */
+public class ConnectionPoolTest {
+
+	private static final String DB_URL = "jdbc:derby:memory:connectionPoolTest";
+
+	private ConnectionPool pool;
+	private int defaultIsolation;
+
+	@Before
+	public void init() throws SQLException {
+
+		try (Connection con = DriverManager.getConnection(DB_URL + ";create=true");
+				Statement stmt = con.createStatement();) {
+			stmt.execute("create table APP.ITEM ( ITEM_ID integer )");
+			defaultIsolation = con.getTransactionIsolation();
+		}
+
+		// a single connection, so that each borrow reuses it
+		pool = new ConnectionPool("test", DB_URL, 1);
+	}
+
+	@After
+	public void close() {
+
+		pool.close();
+
+		try {
+			DriverManager.getConnection(DB_URL + ";drop=true");
+		} catch (SQLException e) {
+			// dropping the db always throws an exception
+		}
+	}
+
+	@Test
+	public void uncommittedWorkIsRolledBack() throws SQLException {
+
+		Connection con = pool.getConnection();
+		con.setAutoCommit(false);
+
+		try (PreparedStatement stmt = con.prepareStatement("insert into APP.ITEM (ITEM_ID) values (?)");) {
+			stmt.setInt(1, 1);
+			stmt.executeUpdate();
+		}
+
+		// the borrower fails before committing
+		con.close();
+
+		try (Connection con2 = pool.getConnection();) {
+
+			assertTrue(con2.getAutoCommit());
+			assertEquals(0, count(con2));
+		}
+	}
+
+	@Test
+	public void connectionStateIsRestored() throws SQLException {
+
+		Connection con = pool.getConnection();
+		con.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+		con.setReadOnly(true);
+		con.close();
+
+		try (Connection con2 = pool.getConnection();) {
+			assertEquals(defaultIsolation, con2.getTransactionIsolation());
+			assertFalse(con2.isReadOnly());
+		}
+	}
+
+	@Test
+	public void openStatementsAreClosed() throws SQLException {
+
+		Connection con = pool.getConnection();
+
+		Statement stmt = con.createStatement();
+		ResultSet rs = stmt.executeQuery("select ITEM_ID from APP.ITEM");
+
+		con.close();
+
+		assertTrue(rs.isClosed());
+		assertTrue(stmt.isClosed());
+	}
+
+	@Test
+	public void closedConnectionCannotBeUsed() throws SQLException {
+
+		Connection con = pool.getConnection();
+		con.close();
+
+		// closing again is allowed
+		con.close();
+		assertTrue(con.isClosed());
+
+		try {
+			con.createStatement();
+		} catch (SQLException e) {
+			return;
+		}
+
+		throw new AssertionError("The released connection was used");
+	}
+
+	private static int count(Connection con) throws SQLException {
+
+		try (Statement stmt = con.createStatement();
+				ResultSet rs = stmt.executeQuery("select count(*) from APP.ITEM");) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+}
@@ -7,4 +7,8 @@ public class ExportCatalogueFileMock {
 	public File exportLastInternalVersion() {
 		return new File(getClass().getClassLoader().getResource("/resources/lastInternalVersion.xml").getFile());
 	}
+
+	public File exportXmlImportCatalogue() {
+		return new File(getClass().getClassLoader().getResource("/resources/xmlImportCatalogue.xml").getFile());
+	}
 }
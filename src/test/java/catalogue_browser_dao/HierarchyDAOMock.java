@@ -76,6 +76,9 @@ public class HierarchyDAOMock implements CatalogueEntityDAO<Hierarchy> {
 
 	@Override
 	public List<Integer> insert(Iterable<Hierarchy> attrs) {
-		return null;
+		List<Integer> ids = new ArrayList<>();
+		for (Hierarchy object : attrs)
+			ids.add(this.insert(object));
+		return ids;
 	}
 }
@@ -76,6 +76,9 @@ public class NotesDAOMock implements CatalogueEntityDAO<ReleaseNotesOperation> {
 
 	@Override
 	public List<Integer> insert(Iterable<ReleaseNotesOperation> attrs) {
-		return null;
+		List<Integer> ids = new ArrayList<>();
+		for (ReleaseNotesOperation object : attrs)
+			ids.add(this.insert(object));
+		return ids;
 	}
 }
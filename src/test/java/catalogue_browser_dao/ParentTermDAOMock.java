@@ -61,7 +61,10 @@ public class ParentTermDAOMock implements CatalogueRelationDAO<Applicability, Te
 
 	@Override
 	public List<Integer> insert(Iterable<Applicability> attrs) {
-		return null;
+		List<Integer> ids = new ArrayList<>();
+		for (Applicability object : attrs)
+			ids.add(this.insert(object));
+		return ids;
 	}
 
 	@Override
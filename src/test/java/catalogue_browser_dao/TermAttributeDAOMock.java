@@ -78,7 +78,10 @@ public class TermAttributeDAOMock implements CatalogueRelationDAO<TermAttribute,
 
 	@Override
 	public List<Integer> insert(Iterable<TermAttribute> attrs) {
-		return null;
+		List<Integer> ids = new ArrayList<>();
+		for (TermAttribute object : attrs)
+			ids.add(this.insert(object));
+		return ids;
 	}
 
 	@Override
@@ -76,6 +76,9 @@ public class TermDAOMock implements CatalogueEntityDAO<Term> {
 
 	@Override
 	public List<Integer> insert(Iterable<Term> attrs) {
-		return null;
+		List<Integer> ids = new ArrayList<>();
+		for (Term object : attrs)
+			ids.add(this.insert(object));
+		return ids;
 	}
 }
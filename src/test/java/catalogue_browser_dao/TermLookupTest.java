@@ -0,0 +1,97 @@
+package catalogue_browser_dao;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import catalogue.Catalogue;
+import catalogue.CatalogueBuilder;
+import catalogue_object.Term;
+
+/**
+ * Check that the {@link TermDAO} finds the terms by code and by name also in
+ * the databases created before the upper case lookup columns, when the
+ * catalogue data were not loaded (and the database was not upgraded)
+ */
+public class TermLookupTest {
+
+	private static final String DB_PATH = "memory:termLookupTest";
+
+	private Catalogue catalogue;
+	private Term term;
+
+	@Before
+	public void init() {
+
+		CatalogueBuilder builder = new CatalogueBuilder();
+		builder.setCode("TEST");
+		builder.setName("TEST");
+		builder.setVersion("1.0");
+		builder.setDbPath(DB_PATH);
+
+		catalogue = builder.build();
+
+		// first identity value of the term table
+		term = TermMock.createTerm(catalogue, 1, "A0B1C", "Goat milk", false);
+		catalogue.addTerm(term);
+	}
+
+	@After
+	public void close() {
+		try {
+			DriverManager.getConnection("jdbc:derby:" + DB_PATH + ";drop=true");
+		} catch (SQLException e) {
+			// dropping the db always throws an exception
+		}
+	}
+
+	@Test
+	public void oldSchemaWithoutLoadData() throws SQLException {
+
+		createTermTable("");
+
+		assertFalse(catalogue.hasTermLookupColumns());
+		checkLookups();
+	}
+
+	@Test
+	public void upgradedSchema() throws SQLException {
+
+		createTermTable(", TERM_CODE_UPPER varchar(40) generated always as ( upper( TERM_CODE ) ), "
+				+ "TERM_EXTENDED_NAME_UPPER varchar(3000) generated always as ( upper( TERM_EXTENDED_NAME ) )");
+
+		assertTrue(catalogue.hasTermLookupColumns());
+		checkLookups();
+	}
+
+	private void checkLookups() {
+
+		TermDAO termDao = new TermDAO(catalogue);
+
+		assertSame(term, termDao.getByCode("a0b1c"));
+		assertSame(term, termDao.getByName("GOAT MILK"));
+		assertNull(termDao.getByCode("A0B1"));
+	}
+
+	private void createTermTable(String columns) throws SQLException {
+
+		try (Connection con = DriverManager.getConnection("jdbc:derby:" + DB_PATH + ";create=true");
+				Statement stmt = con.createStatement();) {
+			stmt.execute("create table APP.TERM ( TERM_ID integer generated always as identity, "
+					+ "TERM_CODE varchar(40), TERM_EXTENDED_NAME varchar(3000), TERM_SHORT_NAME varchar(3000)"
+					+ columns + " )");
+			stmt.execute("insert into APP.TERM ( TERM_CODE, TERM_EXTENDED_NAME, TERM_SHORT_NAME ) "
+					+ "values ( 'A0B1C', 'Goat milk', 'Goat milk' )");
+		}
+	}
+}
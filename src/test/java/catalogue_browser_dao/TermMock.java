@@ -0,0 +1,27 @@
+package catalogue_browser_dao;
+
+import catalogue.Catalogue;
+import catalogue_object.Term;
+
+/**
+ * Terms used as fixtures by the tests, with the code used also as names and
+ * empty scopenotes
+ */
+public class TermMock {
+
+	public static Term createTerm(Catalogue catalogue, int id, String code, String name, boolean deprecated) {
+		return new Term(catalogue, id, code, name, name, "", "", "", null, null, null, deprecated);
+	}
+
+	public static Term createTerm(int id, String code, String name) {
+		return createTerm(null, id, code, name, false);
+	}
+
+	public static Term createTerm(int id, String code) {
+		return createTerm(id, code, code);
+	}
+
+	public static Term createTerm(String code) {
+		return createTerm(0, code);
+	}
+}
@@ -0,0 +1,162 @@
+package catalogue_object;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import catalogue.Catalogue;
+import catalogue.CatalogueBuilder;
+import catalogue_browser_dao.ParentTermDAO;
+import catalogue_browser_dao.TermMock;
+
+/**
+ * Check that the {@link LevelReorder} saves only the changed applicabilities
+ * and restores the previous parents and orders if the save fails
+ */
+public class LevelReorderTest {
+
+	private Catalogue catalogue;
+	private Hierarchy master;
+	private Term a, b, c;
+
+	// applicabilities passed to the dao, null if it was not called
+	private List<Applicability> saved;
+	private boolean fail;
+
+	private ParentTermDAO parentDao;
+
+	@Before
+	public void init() {
+
+		CatalogueBuilder builder = new CatalogueBuilder();
+		builder.setCode("TEST");
+		builder.setName("TEST");
+		builder.setVersion("1.0");
+
+		catalogue = builder.build();
+
+		master = new Hierarchy(catalogue, 1, "TEST", "Master", "", "", "both", 0, "", true, "", null, null, null,
+				false, "");
+
+		// orders with holes
+		a = createChild(1, "A", 1);
+		b = createChild(2, "B", 4);
+		c = createChild(3, "C", 9);
+
+		saved = null;
+		fail = false;
+
+		parentDao = new ParentTermDAO(catalogue) {
+			@Override
+			public boolean updateOrders(Collection<Applicability> appls) {
+				saved = new ArrayList<>(appls);
+				return !fail;
+			}
+		};
+	}
+
+	@Test
+	public void normalizeSavesOnlyTheChangedTerms() {
+
+		LevelReorder reorder = new LevelReorder(master, parentDao);
+
+		// not sorted by order
+		reorder.normalize(new ArrayList<>(Arrays.asList(c, a, b)));
+
+		assertTrue(reorder.commit());
+
+		assertEquals(1, a.getOrder(master));
+		assertEquals(2, b.getOrder(master));
+		assertEquals(3, c.getOrder(master));
+
+		// a already had order 1
+		assertEquals(2, saved.size());
+		assertSame(b.getApplicability(master), saved.get(0));
+		assertSame(c.getApplicability(master), saved.get(1));
+	}
+
+	@Test
+	public void unchangedTermsAreNotSaved() {
+
+		LevelReorder reorder = new LevelReorder(master, parentDao);
+
+		// changed and then set back
+		reorder.setOrder(b, 7);
+		reorder.setOrder(b, 4);
+		reorder.setParent(c, master);
+
+		assertTrue(reorder.commit());
+		assertNull(saved);
+	}
+
+	@Test
+	public void failedSaveRestoresParentsAndOrders() {
+
+		fail = true;
+
+		LevelReorder reorder = new LevelReorder(master, parentDao);
+
+		reorder.setParent(c, a);
+		reorder.setOrder(c, 1);
+		reorder.setOrder(c, 2);
+		reorder.setOrder(a, 5);
+
+		assertFalse(reorder.commit());
+		assertEquals(2, saved.size());
+
+		// the values before the first change
+		assertSame(master, c.getApplicability(master).getParentTerm());
+		assertEquals(9, c.getOrder(master));
+		assertEquals(1, a.getOrder(master));
+	}
+
+	@Test
+	public void commitForgetsTheSavedChanges() {
+
+		LevelReorder reorder = new LevelReorder(master, parentDao);
+
+		reorder.setOrder(a, 2);
+		assertTrue(reorder.commit());
+		assertEquals(1, saved.size());
+
+		saved = null;
+
+		// nothing changed after the previous commit
+		assertTrue(reorder.commit());
+		assertNull(saved);
+	}
+
+	@Test
+	public void termsOutOfTheHierarchyAreIgnored() {
+
+		Hierarchy other = new Hierarchy(catalogue, 2, "OTHER", "Other", "", "", "both", 1, "", false, "", null,
+				null, null, false, "");
+
+		LevelReorder reorder = new LevelReorder(other, parentDao);
+
+		reorder.setOrder(a, 3);
+		reorder.setParent(b, c);
+
+		assertTrue(reorder.commit());
+		assertNull(saved);
+		assertEquals(1, a.getOrder(master));
+	}
+
+	private Term createChild(int id, String code, int order) {
+
+		Term term = TermMock.createTerm(catalogue, id, code, code, false);
+		term.addApplicability(new Applicability(term, master, master, order, true), false);
+
+		return term;
+	}
+}
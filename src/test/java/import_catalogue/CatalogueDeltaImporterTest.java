@@ -0,0 +1,262 @@
+package import_catalogue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import catalogue_object.Term;
+import import_catalogue.CatalogueDeltaImporter.Parent;
+import import_catalogue.CatalogueDeltaImporter.TermRow;
+import import_catalogue.CatalogueDeltaImporter.Value;
+
+/**
+ * Check the row hashes and the comparison of the terms of the workbook with the
+ * ones of the database made by the {@link CatalogueDeltaImporter}
+ */
+public class CatalogueDeltaImporterTest {
+
+	private CatalogueDeltaImporter importer;
+
+	private LinkedHashMap<String, TermRow> incoming;
+	private HashMap<String, TermRow> existing;
+
+	private List<TermRow> toInsert;
+	private List<TermRow> toUpdate;
+	private List<TermRow> toRemove;
+
+	@Before
+	public void init() {
+		importer = new CatalogueDeltaImporter(null, null);
+		incoming = new LinkedHashMap<>();
+		existing = new HashMap<>();
+		toInsert = new ArrayList<>();
+		toUpdate = new ArrayList<>();
+		toRemove = new ArrayList<>();
+	}
+
+	@Test
+	public void sameRowsHaveSameHashes() {
+
+		TermRow r1 = createRow(0, "A01");
+		TermRow r2 = createRow(5, "A01");
+
+		assertEquals(r1.fieldsHash, r2.fieldsHash);
+		assertEquals(r1.attributesHash, r2.attributesHash);
+		assertEquals(r1.parentsHash, r2.parentsHash);
+	}
+
+	@Test
+	public void hashDistinguishesNullAndEmpty() {
+
+		long seed = CatalogueDeltaImporter.HASH_SEED;
+
+		assertNotEquals(CatalogueDeltaImporter.hash(seed, null), CatalogueDeltaImporter.hash(seed, ""));
+
+		// the values are separated
+		long ab = CatalogueDeltaImporter.hash(CatalogueDeltaImporter.hash(seed, "a"), "b");
+		long a_b = CatalogueDeltaImporter.hash(CatalogueDeltaImporter.hash(seed, "ab"), "");
+
+		assertNotEquals(ab, a_b);
+	}
+
+	@Test
+	public void fieldsHashChangesWithEachField() {
+
+		long hash = createRow(0, "A01").fieldsHash;
+
+		TermRow row = createRow(0, "A01", false);
+		row.term.setName("Changed");
+		row.computeHashes();
+		assertNotEquals(hash, row.fieldsHash);
+
+		row = createRow(0, "A01", false);
+		row.term.setDeprecated(true);
+		row.computeHashes();
+		assertNotEquals(hash, row.fieldsHash);
+
+		row = createRow(0, "A01", false);
+		row.term.setValidFrom(new Timestamp(2000));
+		row.computeHashes();
+		assertNotEquals(hash, row.fieldsHash);
+
+		// the code is the key of the row, not part of its fields
+		row = createRow(0, "A02");
+		assertEquals(hash, row.fieldsHash);
+	}
+
+	@Test
+	public void attributesHashIgnoresTheOrderOfTheAttributes() {
+
+		TermRow r1 = createRow(0, "A01", false);
+		r1.attributes.clear();
+		r1.attributes.add(new Value(2, "x"));
+		r1.attributes.add(new Value(1, "y"));
+		r1.computeHashes();
+
+		TermRow r2 = createRow(0, "A01", false);
+		r2.attributes.clear();
+		r2.attributes.add(new Value(1, "y"));
+		r2.attributes.add(new Value(2, "x"));
+		r2.computeHashes();
+
+		assertEquals(r1.attributesHash, r2.attributesHash);
+
+		// but not the order of the values of the same attribute
+		TermRow r3 = createRow(0, "A01", false);
+		r3.attributes.clear();
+		r3.attributes.add(new Value(1, "a"));
+		r3.attributes.add(new Value(1, "b"));
+		r3.computeHashes();
+
+		TermRow r4 = createRow(0, "A01", false);
+		r4.attributes.clear();
+		r4.attributes.add(new Value(1, "b"));
+		r4.attributes.add(new Value(1, "a"));
+		r4.computeHashes();
+
+		assertNotEquals(r3.attributesHash, r4.attributesHash);
+	}
+
+	@Test
+	public void parentsHashChangesWithParentOrderAndReportability() {
+
+		long hash = createRow(0, "A01").parentsHash;
+
+		TermRow row = createRow(0, "A01", false);
+		row.parents.get(0).parentCode = "ROOT2";
+		row.computeHashes();
+		assertNotEquals(hash, row.parentsHash);
+
+		row = createRow(0, "A01", false);
+		row.parents.get(0).order = 2;
+		row.computeHashes();
+		assertNotEquals(hash, row.parentsHash);
+
+		row = createRow(0, "A01", false);
+		row.parents.get(0).reportable = false;
+		row.computeHashes();
+		assertNotEquals(hash, row.parentsHash);
+
+		// top level term
+		row = createRow(0, "A01", false);
+		row.parents.get(0).parentCode = null;
+		row.computeHashes();
+		assertNotEquals(hash, row.parentsHash);
+	}
+
+	@Test
+	public void diffFindsInsertedUpdatedAndRemovedTerms() {
+
+		addExisting(createRow(1, "A01"));
+		addExisting(createRow(2, "A02"));
+		addExisting(createRow(3, "A03"));
+		addExisting(createRow(4, "A04"));
+
+		// unchanged
+		addIncoming(createRow(0, "A01"));
+
+		// changed fields
+		TermRow fields = createRow(0, "A02", false);
+		fields.term.setName("Changed");
+		fields.computeHashes();
+		addIncoming(fields);
+
+		// changed attributes and parents
+		TermRow relations = createRow(0, "A03", false);
+		relations.attributes.add(new Value(3, "new"));
+		relations.parents.add(new Parent(2, "ROOT", 1, true));
+		relations.computeHashes();
+		addIncoming(relations);
+
+		// new term, A04 is removed
+		addIncoming(createRow(0, "A05"));
+
+		importer.diff(incoming, existing, toInsert, toUpdate, toRemove);
+
+		assertEquals(1, toInsert.size());
+		assertEquals("A05", toInsert.get(0).term.getCode());
+		assertTrue(toInsert.get(0).isNew);
+
+		assertEquals(2, toUpdate.size());
+
+		assertSame(fields, toUpdate.get(0));
+		assertEquals(2, fields.term.getId());
+		assertTrue(fields.fieldsChanged);
+		assertFalse(fields.attributesChanged);
+		assertFalse(fields.parentsChanged);
+
+		assertSame(relations, toUpdate.get(1));
+		assertEquals(3, relations.term.getId());
+		assertFalse(relations.fieldsChanged);
+		assertTrue(relations.attributesChanged);
+		assertTrue(relations.parentsChanged);
+
+		assertEquals(1, toRemove.size());
+		assertEquals(4, toRemove.get(0).term.getId());
+
+		// the unchanged term gets the id of the database
+		assertEquals(1, incoming.get("A01").term.getId());
+	}
+
+	@Test
+	public void diffOfSameTermsIsEmpty() {
+
+		for (int i = 1; i <= 100; i++) {
+			addExisting(createRow(i, "A" + i));
+			addIncoming(createRow(0, "A" + i));
+		}
+
+		importer.diff(incoming, existing, toInsert, toUpdate, toRemove);
+
+		assertTrue(toInsert.isEmpty());
+		assertTrue(toUpdate.isEmpty());
+		assertTrue(toRemove.isEmpty());
+	}
+
+	private void addExisting(TermRow row) {
+		existing.put(row.term.getCode(), row);
+	}
+
+	private void addIncoming(TermRow row) {
+		incoming.put(row.term.getCode(), row);
+	}
+
+	private static TermRow createRow(int id, String code) {
+		return createRow(id, code, true);
+	}
+
+	/**
+	 * Create a term row with two attribute values and a parent
+	 *
+	 * @param id
+	 * @param code
+	 * @param hash true to compute the hashes
+	 * @return
+	 */
+	private static TermRow createRow(int id, String code, boolean hash) {
+
+		Term term = new Term(null, id, code, "Name", "Label", "Scopenotes", "Status", "1.0",
+				new Timestamp(1000), new Timestamp(1000), null, false);
+
+		TermRow row = new TermRow(term);
+		row.attributes.add(new Value(1, "value1"));
+		row.attributes.add(new Value(2, "value2"));
+		row.parents.add(new Parent(1, "ROOT", 1, true));
+
+		if (hash)
+			row.computeHashes();
+
+		return row;
+	}
+}
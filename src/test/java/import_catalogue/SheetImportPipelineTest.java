@@ -0,0 +1,183 @@
+package import_catalogue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import open_xml_reader.ResultDataSet;
+import open_xml_reader.WorkbookReader;
+
+/**
+ * Check that the {@link SheetImportPipeline} writes the rows of a sheet in
+ * order and stops when a stage fails, and that the {@link SheetReaderThread}
+ * can be cancelled while it is reading
+ */
+public class SheetImportPipelineTest {
+
+	private static final String SHEET = "rows";
+	private static final int ROWS = 1000;
+
+	private File file;
+	private WorkbookReader workbookReader;
+
+	@Before
+	public void init() throws Exception {
+
+		file = File.createTempFile("pipeline", ".xlsx");
+
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file);) {
+
+			Sheet sheet = workbook.createSheet(SHEET);
+
+			Row header = sheet.createRow(0);
+			header.createCell(0).setCellValue("code");
+
+			for (int i = 1; i <= ROWS; i++)
+				sheet.createRow(i).createCell(0).setCellValue("C" + i);
+
+			workbook.write(out);
+		}
+
+		workbookReader = new WorkbookReader(file.getAbsolutePath());
+		workbookReader.processSheetName(SHEET);
+	}
+
+	@After
+	public void close() throws Exception {
+		workbookReader.close();
+		file.delete();
+	}
+
+	@Test
+	public void rowsAreWrittenInOrder() throws ImportException {
+
+		CodeImporter first = new CodeImporter(-1);
+		CodeImporter second = new CodeImporter(-1);
+
+		SheetImportPipeline pipeline = new SheetImportPipeline(workbookReader, SHEET, 7, 13, 4);
+		pipeline.addTarget("FIRST", first);
+		pipeline.addTarget("SECOND", second);
+		pipeline.importSheet();
+
+		List<String> expected = new ArrayList<>();
+		for (int i = 1; i <= ROWS; i++)
+			expected.add("C" + i);
+
+		assertEquals(expected, first.written);
+		assertEquals(expected, second.written);
+
+		assertEquals(1, first.ended.get());
+		assertEquals(1, second.ended.get());
+
+		assertEquals(ROWS, first.rows.get());
+	}
+
+	@Test
+	public void writeErrorStopsTheImport() {
+
+		CodeImporter failing = new CodeImporter(100);
+		CodeImporter other = new CodeImporter(-1);
+
+		SheetImportPipeline pipeline = new SheetImportPipeline(workbookReader, SHEET, 5, 10, 3);
+		pipeline.addTarget("FAILING", failing);
+		pipeline.addTarget("OTHER", other);
+
+		try {
+			pipeline.importSheet();
+			fail("The write error was not thrown");
+		} catch (ImportException e) {
+			assertEquals("write failed", e.getMessage());
+		}
+
+		// the import was not completed
+		assertEquals(0, failing.ended.get());
+		assertEquals(0, other.ended.get());
+		assertTrue(failing.written.size() < ROWS);
+	}
+
+	@Test
+	public void cancelStopsTheReader() throws InterruptedException {
+
+		workbookReader.setBatchSize(1);
+
+		SheetReaderThread reader = new SheetReaderThread(workbookReader, 1);
+		reader.start();
+
+		ResultDataSet first = reader.take();
+		assertNotNull(first);
+		first.close();
+
+		reader.cancel();
+
+		assertFalse(reader.isAlive());
+		assertTrue(reader.isFinished());
+		assertNull(reader.getError());
+
+		// no batch is left in the queue
+		assertNull(reader.take());
+	}
+
+	/**
+	 * Importer which keeps the written codes in memory and fails after a number
+	 * of written codes
+	 */
+	private static class CodeImporter extends SheetImporter<String> {
+
+		private final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+		private final AtomicInteger rows = new AtomicInteger();
+		private final AtomicInteger ended = new AtomicInteger();
+		private final int failAfter;
+
+		public CodeImporter(int failAfter) {
+			this.failAfter = failAfter;
+		}
+
+		@Override
+		public String getByResultSet(ResultDataSet rs) {
+			return rs.getString("code");
+		}
+
+		@Override
+		public Collection<String> getAllByResultSet(ResultDataSet rs) {
+			return null;
+		}
+
+		@Override
+		void write(Collection<String> objs, int rows) throws ImportException {
+			super.write(objs, rows);
+			this.rows.addAndGet(rows);
+		}
+
+		@Override
+		public void insert(Collection<String> data) throws ImportException {
+
+			if (failAfter >= 0 && written.size() + data.size() > failAfter)
+				throw new ImportException("write failed");
+
+			written.addAll(data);
+		}
+
+		@Override
+		public void end() {
+			ended.incrementAndGet();
+		}
+	}
+}
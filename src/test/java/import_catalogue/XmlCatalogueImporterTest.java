@@ -0,0 +1,162 @@
+package import_catalogue;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.TransformerException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import catalogue.Catalogue;
+import catalogue.ReleaseNotesOperation;
+import catalogue_browser_dao.AttributeDAOMock;
+import catalogue_browser_dao.CatalogueDAOMock;
+import catalogue_browser_dao.ExportCatalogueFileMock;
+import catalogue_browser_dao.HierarchyDAOMock;
+import catalogue_browser_dao.NotesDAOMock;
+import catalogue_browser_dao.ParentTermDAOMock;
+import catalogue_browser_dao.TermAttributeDAOMock;
+import catalogue_browser_dao.TermDAOMock;
+import catalogue_object.Applicability;
+import catalogue_object.Attribute;
+import catalogue_object.BaseObject;
+import catalogue_object.Hierarchy;
+import catalogue_object.Term;
+import catalogue_object.TermAttribute;
+import import_catalogue.CatalogueImporter.ImportFileFormat;
+
+/**
+ * Check that the .xml catalogues imported with the {@link XmlCatalogueImporter}
+ * produce the same data of the old .xml => .xlsx conversion
+ */
+public class XmlCatalogueImporterTest {
+
+	private File file;
+	private MockDatabase workbookDb;
+	private MockDatabase xmlDb;
+
+	@Before
+	public void init() {
+		this.file = new ExportCatalogueFileMock().exportXmlImportCatalogue();
+		this.workbookDb = new MockDatabase();
+		this.xmlDb = new MockDatabase();
+	}
+
+	@Test
+	public void xmlImportEqualsWorkbookImport() throws TransformerException, IOException, XMLStreamException,
+			OpenXML4JException, SAXException, SQLException, ImportException {
+
+		workbookDb.importFile(file, false);
+		xmlDb.importFile(file, true);
+
+		assertEquals(1, workbookDb.catDao.getAll().size());
+		assertEquals(1, xmlDb.catDao.getAll().size());
+
+		Catalogue workbookCat = workbookDb.catDao.getAll().iterator().next();
+		Catalogue xmlCat = xmlDb.catDao.getAll().iterator().next();
+
+		assertEquals(describe(workbookCat), describe(xmlCat));
+		assertEquals(workbookCat.isAcceptNonStandardCodes(), xmlCat.isAcceptNonStandardCodes());
+		assertEquals(workbookCat.isGenerateMissingCodes(), xmlCat.isGenerateMissingCodes());
+
+		// master, report and process
+		assertRows(3, describeHierarchies(workbookDb.hierDao.getAll()), describeHierarchies(xmlDb.hierDao.getAll()));
+		assertRows(3, describeAll(workbookDb.attrDao.getAll()), describeAll(xmlDb.attrDao.getAll()));
+		assertRows(6, describeAll(workbookDb.termDao.getAll()), describeAll(xmlDb.termDao.getAll()));
+		assertRows(3, describeTermAttributes(workbookDb.taDao.getAll()), describeTermAttributes(xmlDb.taDao.getAll()));
+		assertRows(8, describeApplicabilities(workbookDb.parentDao.getAll()),
+				describeApplicabilities(xmlDb.parentDao.getAll()));
+		assertRows(3, describeNotes(workbookDb.notesDao.getAll()), describeNotes(xmlDb.notesDao.getAll()));
+	}
+
+	/**
+	 * Check that both the imports produced the expected number of rows, and the
+	 * same rows
+	 */
+	private static void assertRows(int size, List<String> workbookRows, List<String> xmlRows) {
+		assertEquals(size, workbookRows.size());
+		assertEquals(size, xmlRows.size());
+		assertEquals(workbookRows, xmlRows);
+	}
+
+	private static String describe(BaseObject obj) {
+		return obj.getCode() + "|" + obj.getName() + "|" + obj.getLabel() + "|" + obj.getScopenotes() + "|"
+				+ obj.getVersion() + "|" + obj.getStatus() + "|" + obj.getLastUpdate() + "|" + obj.getValidFrom()
+				+ "|" + obj.getValidTo() + "|" + obj.isDeprecated();
+	}
+
+	private static List<String> describeAll(Collection<? extends BaseObject> objs) {
+		List<String> list = new ArrayList<>();
+		for (BaseObject obj : objs)
+			list.add(describe(obj));
+		Collections.sort(list);
+		return list;
+	}
+
+	private static List<String> describeHierarchies(Collection<Hierarchy> hierarchies) {
+		List<String> list = new ArrayList<>();
+		for (Hierarchy h : hierarchies)
+			list.add(describe(h) + "|" + h.getApplicability() + "|" + h.isMaster() + "|" + h.getGroups());
+		Collections.sort(list);
+		return list;
+	}
+
+	private static List<String> describeTermAttributes(Collection<TermAttribute> tas) {
+		List<String> list = new ArrayList<>();
+		for (TermAttribute ta : tas)
+			list.add(ta.getTerm().getId() + "|" + ta.getAttribute().getId() + "|" + ta.getValue());
+		Collections.sort(list);
+		return list;
+	}
+
+	private static List<String> describeApplicabilities(Collection<Applicability> appls) {
+		List<String> list = new ArrayList<>();
+		for (Applicability appl : appls)
+			list.add(appl.getChild().getId() + "|" + appl.getParentTerm().getLabel() + "|"
+					+ appl.getHierarchy().getCode() + "|" + appl.getOrder() + "|" + appl.isReportable());
+		Collections.sort(list);
+		return list;
+	}
+
+	private static List<String> describeNotes(Collection<ReleaseNotesOperation> ops) {
+		List<String> list = new ArrayList<>();
+		for (ReleaseNotesOperation op : ops)
+			list.add(op.getGroupId() + "|" + op.getOpName() + "|" + op.getOpDate() + "|" + op.getOpInfo());
+		Collections.sort(list);
+		return list;
+	}
+
+	/**
+	 * Set of mock daos in which a catalogue is imported
+	 */
+	private static class MockDatabase {
+
+		private CatalogueDAOMock catDao = new CatalogueDAOMock();
+		private AttributeDAOMock attrDao = new AttributeDAOMock();
+		private HierarchyDAOMock hierDao = new HierarchyDAOMock();
+		private TermDAOMock termDao = new TermDAOMock();
+		private TermAttributeDAOMock taDao = new TermAttributeDAOMock();
+		private ParentTermDAOMock parentDao = new ParentTermDAOMock();
+		private NotesDAOMock notesDao = new NotesDAOMock();
+
+		public void importFile(File file, boolean streamXml) throws TransformerException, IOException,
+				XMLStreamException, OpenXML4JException, SAXException, SQLException, ImportException {
+
+			CatalogueImporter importer = new CatalogueImporter(file.getPath(), ImportFileFormat.XML);
+			importer.setDaos(catDao, attrDao, hierDao, termDao, taDao, parentDao, notesDao);
+			importer.setStreamXml(streamXml);
+			importer.makeImport();
+		}
+	}
+}
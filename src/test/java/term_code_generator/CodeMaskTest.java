@@ -0,0 +1,120 @@
+package term_code_generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Check the increments of the {@link CodeMask}, in which each variable
+ * character is a digit whose radix depends on the character of the mask
+ * (# numbers, @ letters,  numbers and letters)
+ */
+public class CodeMaskTest {
+
+	private static final String ALPHANUM = "";
+
+	@Test
+	public void numbers() throws TermCodeException {
+
+		CodeMask mask = new CodeMask("A###");
+
+		assertEquals("000", mask.initialise());
+		assertEquals("001", mask.add("000", 1));
+		assertEquals("010", mask.add("009", 1));
+		assertEquals("100", mask.add("099", 1));
+		assertEquals("999", mask.add("000", 999));
+	}
+
+	@Test
+	public void lettersSkipTheExcludedOnes() throws TermCodeException {
+
+		CodeMask mask = new CodeMask("@@");
+
+		assertEquals("AA", mask.initialise());
+
+		// i, o, u and w are not used
+		assertEquals("AJ", mask.add("AH", 1));
+		assertEquals("AP", mask.add("AN", 1));
+		assertEquals("AV", mask.add("AT", 1));
+		assertEquals("AX", mask.add("AV", 1));
+
+		// 22 letters
+		assertEquals("BA", mask.add("AZ", 1));
+		assertEquals("ZZ", mask.add("AA", 22 * 22 - 1));
+	}
+
+	@Test
+	public void numbersAndLetters() throws TermCodeException {
+
+		CodeMask mask = new CodeMask(ALPHANUM + ALPHANUM);
+
+		assertEquals("00", mask.initialise());
+		assertEquals("0A", mask.add("09", 1));
+		assertEquals("10", mask.add("0Z", 1));
+
+		// 32 characters
+		assertEquals("ZZ", mask.add("00", 32 * 32 - 1));
+	}
+
+	@Test
+	public void mixedRadix() throws TermCodeException {
+
+		CodeMask mask = new CodeMask("@#" + ALPHANUM);
+
+		assertEquals("A00", mask.initialise());
+
+		// the last character has radix 32, the middle one 10
+		assertEquals("A10", mask.add("A0Z", 1));
+		assertEquals("B00", mask.add("A9Z", 1));
+		assertEquals("B00", mask.add("A00", 10 * 32));
+		assertEquals("C15", mask.add("A00", 2 * 10 * 32 + 32 + 5));
+
+		// same as adding one at a time
+		String code = mask.initialise();
+		for (int i = 0; i < 1000; i++)
+			code = mask.add(code, 1);
+
+		assertEquals(mask.add(mask.initialise(), 1000), code);
+	}
+
+	@Test
+	public void overflow() throws TermCodeException {
+
+		CodeMask mask = new CodeMask("@#");
+
+		assertEquals("Z9", mask.add("A0", 22 * 10 - 1));
+
+		try {
+			mask.add("Z9", 1);
+			fail("The maximum code was exceeded");
+		} catch (TermCodeException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void missingCharactersAreTheLowestValues() throws TermCodeException {
+
+		CodeMask mask = new CodeMask("@##");
+
+		assertEquals("B01", mask.add("B", 1));
+		assertEquals("A01", mask.add("", 1));
+	}
+
+	@Test
+	public void variablePartAndFormat() {
+
+		CodeMask mask = new CodeMask("A##B@");
+
+		assertEquals("12C", mask.getVariablePart("A12BC"));
+		assertEquals("A12BC", mask.format("12C"));
+
+		// constant characters or length which do not follow the mask
+		assertNull(mask.getVariablePart("X12BC"));
+		assertNull(mask.getVariablePart("A12XC"));
+		assertNull(mask.getVariablePart("A12B"));
+		assertNull(mask.getVariablePart(null));
+	}
+}
@@ -0,0 +1,169 @@
+package term_code_generator;
+
+import static catalogue_browser_dao.TermMock.createTerm;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import catalogue.Catalogue;
+
+/**
+ * Check that the {@link TermCodeTracker} continues from the highest code of
+ * the database and never returns the same code twice
+ */
+public class TermCodeTrackerTest {
+
+	private static final String DB_URL = "jdbc:derby:memory:termCodeTrackerTest";
+
+	private Catalogue catalogue;
+	private TermCodeTracker tracker;
+
+	@Before
+	public void init() throws SQLException {
+
+		try (Connection con = DriverManager.getConnection(DB_URL + ";create=true");
+				Statement stmt = con.createStatement();) {
+			stmt.execute("create table APP.TERM ( TERM_ID integer generated always as identity, "
+					+ "TERM_CODE varchar(40) )");
+		}
+
+		catalogue = new Catalogue() {
+			@Override
+			public String getDbUrl() {
+				return DB_URL;
+			}
+		};
+
+		tracker = new TermCodeTracker(catalogue);
+	}
+
+	@After
+	public void close() {
+		try {
+			DriverManager.getConnection(DB_URL + ";drop=true");
+		} catch (SQLException e) {
+			// dropping the db always throws an exception
+		}
+	}
+
+	@Test
+	public void firstCodesOfEmptyCatalogue() throws TermCodeException {
+		assertEquals(Arrays.asList("A01", "A02", "A03"), tracker.reserve("A##", 3));
+	}
+
+	@Test
+	public void continueFromHighestCode() throws SQLException, TermCodeException {
+
+		insertCodes("A09", "A05", "B99");
+
+		// B99 does not follow the mask
+		assertEquals(Arrays.asList("A10", "A11"), tracker.reserve("A##", 2));
+
+		// the reserved codes are not returned again
+		assertEquals(Arrays.asList("A12"), tracker.reserve("A##", 1));
+
+		// another mask is tracked separately
+		assertEquals(Arrays.asList("C01"), tracker.reserve("C##", 1));
+	}
+
+	@Test
+	public void insertedTermsMoveTheHighestCode() throws TermCodeException {
+
+		assertEquals(Arrays.asList("A01"), tracker.reserve("A##", 1));
+
+		tracker.add(Arrays.asList(createTerm("A50"), createTerm("A20"), createTerm("X99")));
+
+		assertEquals(Arrays.asList("A51"), tracker.reserve("A##", 1));
+	}
+
+	@Test
+	public void clearReadsTheDatabaseAgain() throws SQLException, TermCodeException {
+
+		assertEquals(Arrays.asList("A01"), tracker.reserve("A##", 1));
+
+		// codes written without the term dao
+		insertCodes("A30");
+		tracker.clear();
+
+		assertEquals(Arrays.asList("A31"), tracker.reserve("A##", 1));
+	}
+
+	@Test
+	public void mixedRadixCodesAreUnique() throws TermCodeException {
+
+		List<String> codes = tracker.reserve("Z@#", 22 * 10 - 1);
+
+		assertEquals("ZA1", codes.get(0));
+		assertEquals("ZA9", codes.get(8));
+		assertEquals("ZB0", codes.get(9));
+		assertEquals("ZZ9", codes.get(codes.size() - 1));
+
+		assertEquals(codes.size(), new HashSet<>(codes).size());
+
+		// no more codes
+		try {
+			tracker.reserve("Z@#", 1);
+			fail("The maximum code was exceeded");
+		} catch (TermCodeException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void concurrentReservationsAreUnique() throws Exception {
+
+		final List<String> codes = Collections.synchronizedList(new ArrayList<String>());
+
+		Thread[] threads = new Thread[4];
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 50; j++)
+							codes.addAll(tracker.reserve("A####", 3));
+					} catch (TermCodeException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+			threads[i].start();
+		}
+
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(4 * 50 * 3, codes.size());
+		assertEquals(codes.size(), new HashSet<>(codes).size());
+		assertTrue(codes.contains("A0600"));
+	}
+
+	private void insertCodes(String... codes) throws SQLException {
+
+		try (Connection con = catalogue.getConnection();
+				PreparedStatement stmt = con.prepareStatement("insert into APP.TERM ( TERM_CODE ) values ( ? )");) {
+
+			for (String code : codes) {
+				stmt.setString(1, code);
+				stmt.executeUpdate();
+			}
+		}
+	}
+}
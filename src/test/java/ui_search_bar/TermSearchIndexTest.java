@@ -0,0 +1,137 @@
+package ui_search_bar;
+
+import static catalogue_browser_dao.TermMock.createTerm;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import catalogue_object.Attribute;
+import catalogue_object.Term;
+import catalogue_object.TermAttribute;
+
+/**
+ * Check that the {@link TermSearchIndex} finds the same terms of the database
+ * queries and that it is refreshed when the terms are inserted or updated
+ */
+public class TermSearchIndexTest {
+
+	private static final Collection<Integer> NO_ATTRIBUTES = Collections.emptyList();
+
+	private TermSearchIndex index;
+	private Attribute scientificName;
+	private Term apple;
+	private Term pear;
+
+	@Before
+	public void init() {
+
+		scientificName = new Attribute(null, 7, "scientificNames", "Scientific names", "", "", "", true, true, 1,
+				"string", 0, 0, 0, "", "repeatable", "", false, false, "", "", null, null, null, false);
+
+		apple = createTerm(1, "A01DJ", "Apples");
+		apple.addAttribute(new TermAttribute(apple, scientificName, "Malus domestica"));
+
+		pear = createTerm(2, "A01DL", "Pears");
+
+		index = new TermSearchIndex();
+		index.build(Arrays.asList(apple, pear));
+	}
+
+	@Test
+	public void nameContainsKeyword() {
+		assertEquals(Collections.singleton(1), search("ppl", SearchType.ALL_WORDS, NO_ATTRIBUTES));
+		assertEquals(Collections.singleton(2), search("pears", SearchType.ALL_WORDS, NO_ATTRIBUTES));
+	}
+
+	@Test
+	public void codeMatchesOnlyWhenEqual() {
+		assertEquals(Collections.singleton(1), search("a01dj", SearchType.ALL_WORDS, NO_ATTRIBUTES));
+		assertTrue(search("01D", SearchType.ALL_WORDS, NO_ATTRIBUTES).isEmpty());
+	}
+
+	@Test
+	public void shortKeyword() {
+		assertEquals(setOf(1, 2), search("s", SearchType.ALL_WORDS, NO_ATTRIBUTES));
+	}
+
+	@Test
+	public void allAndAnyWords() {
+		assertTrue(search("apples pears", SearchType.ALL_WORDS, NO_ATTRIBUTES).isEmpty());
+		assertEquals(setOf(1, 2), search("apples pears", SearchType.ANY_WORD, NO_ATTRIBUTES));
+	}
+
+	@Test
+	public void attributesOnlyWhenSelected() {
+		assertTrue(search("malus", SearchType.ALL_WORDS, NO_ATTRIBUTES).isEmpty());
+		assertEquals(Collections.singleton(1),
+				search("malus", SearchType.ALL_WORDS, Collections.singleton(scientificName.getId())));
+	}
+
+	@Test
+	public void updatedTermIsRefreshed() {
+
+		apple.setName("Green apples");
+		apple.setCode("A01XX");
+		index.update(apple);
+
+		assertEquals(Collections.singleton(1), search("green", SearchType.ALL_WORDS, NO_ATTRIBUTES));
+		assertEquals(Collections.singleton(1), search("A01XX", SearchType.ALL_WORDS, NO_ATTRIBUTES));
+		assertTrue(search("A01DJ", SearchType.ALL_WORDS, NO_ATTRIBUTES).isEmpty());
+	}
+
+	@Test
+	public void insertedTermIsIndexed() {
+
+		// the id is given by the database, the term still has the default one
+		Term cherry = createTerm(-1, "A01GL", "Cherries");
+		index.insert(3, cherry);
+
+		assertEquals(Collections.singleton(3), search("cherr", SearchType.ALL_WORDS, NO_ATTRIBUTES));
+		assertEquals(Collections.singleton(3), search("a01gl", SearchType.ALL_WORDS, NO_ATTRIBUTES));
+	}
+
+	@Test
+	public void insertedTermAttributeIsIndexed() {
+
+		index.insert(new TermAttribute(pear, scientificName, "Pyrus communis"));
+
+		assertEquals(Collections.singleton(2),
+				search("pyrus", SearchType.ALL_WORDS, Collections.singleton(scientificName.getId())));
+	}
+
+	@Test
+	public void notBuiltIndexIsNotChanged() {
+
+		TermSearchIndex empty = new TermSearchIndex();
+		empty.insert(3, createTerm(-1, "A01GL", "Cherries"));
+		empty.update(apple);
+
+		assertFalse(empty.isBuilt());
+		assertTrue(empty.search(Collections.singleton("cherr"), SearchType.ALL_WORDS, NO_ATTRIBUTES).isEmpty());
+	}
+
+	@Test
+	public void clearedIndexIsNotBuilt() {
+		index.clear();
+		assertFalse(index.isBuilt());
+		assertTrue(search("apples", SearchType.ALL_WORDS, NO_ATTRIBUTES).isEmpty());
+	}
+
+	private Set<Integer> search(String keywords, SearchType type, Collection<Integer> attrIds) {
+		return index.search(Arrays.asList(keywords.split(" ")), type, attrIds);
+	}
+
+	private static Set<Integer> setOf(Integer... ids) {
+		return new HashSet<>(Arrays.asList(ids));
+	}
+}
@@ -0,0 +1,129 @@
+package user_preferences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Check that the {@link PreferenceCache} keeps its own copies of the
+ * preferences and notifies only the saved changes
+ */
+public class PreferenceCacheTest {
+
+	private PreferenceCache cache;
+
+	// key=value of the notified changes
+	private List<String> changes;
+
+	@Before
+	public void init() {
+
+		cache = new PreferenceCache();
+		changes = new ArrayList<>();
+
+		cache.addListener(new PreferenceListener() {
+
+			@Override
+			public void preferenceChanged(String key, String value) {
+				changes.add(key + "=" + value);
+			}
+		});
+	}
+
+	@Test
+	public void notLoadedCacheIsEmpty() {
+
+		assertFalse(cache.isLoaded());
+		assertNull(cache.get("A"));
+		assertTrue(cache.getAll().isEmpty());
+		assertFalse(cache.contains("A"));
+		assertFalse(cache.isSaved(pref("A", "1")));
+
+		// nothing to keep consistent
+		cache.put(pref("A", "1"));
+		cache.remove("A");
+
+		assertFalse(cache.isLoaded());
+		assertTrue(changes.isEmpty());
+	}
+
+	@Test
+	public void clearedCacheIsNotLoaded() {
+
+		cache.load(Arrays.asList(pref("A", "1")));
+		assertTrue(cache.contains("A"));
+
+		cache.clear();
+
+		assertFalse(cache.isLoaded());
+		assertNull(cache.get("A"));
+		assertTrue(cache.getAll().isEmpty());
+		assertFalse(cache.contains("A"));
+	}
+
+	@Test
+	public void returnedPreferencesAreCopies() {
+
+		Preference loaded = pref("A", "1");
+		cache.load(Arrays.asList(loaded));
+
+		// changing the loaded or the returned preference does not change the cache
+		loaded.setValue("2");
+		cache.get("A").setValue("3");
+		cache.getAll().get(0).setValue("4");
+
+		assertEquals("1", cache.get("A").getValue());
+		assertTrue(cache.isSaved(pref("A", "1")));
+		assertFalse(cache.isSaved(pref("A", "2")));
+	}
+
+	@Test
+	public void onlyChangedValuesAreNotified() {
+
+		cache.load(Arrays.asList(pref("A", "1")));
+
+		cache.put(pref("A", "1"));
+		cache.put(pref("A", "2"));
+		cache.put(pref("B", "1"));
+		cache.remove("C");
+		cache.remove("A");
+
+		assertEquals(Arrays.asList("A=2", "B=1", "A=null"), changes);
+		assertFalse(cache.contains("A"));
+	}
+
+	@Test
+	public void removeAllNotifiesEachPreference() {
+
+		cache.load(Arrays.asList(pref("A", "1"), pref("B", "2")));
+
+		cache.removeAll();
+
+		assertEquals(2, changes.size());
+		assertTrue(changes.containsAll(Arrays.asList("A=null", "B=null")));
+		assertTrue(cache.isLoaded());
+		assertTrue(cache.getAll().isEmpty());
+	}
+
+	@Test
+	public void removeAllLoadsAnEmptyCache() {
+
+		cache.removeAll();
+
+		// the database is empty, nothing to read
+		assertTrue(cache.isLoaded());
+		assertTrue(changes.isEmpty());
+	}
+
+	private static Preference pref(String key, String value) {
+		return new Preference(key, PreferenceType.STRING, value, true);
+	}
+}
@@ -0,0 +1,207 @@
+package user_preferences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import catalogue.Catalogue;
+
+/**
+ * Check that the {@link PreferenceDAO} reads the preferences from its cache
+ * and writes through it the saved changes
+ */
+public class PreferenceDAOTest {
+
+	private static final String DB_URL = "jdbc:derby:memory:preferenceDAOTest";
+
+	private PreferenceCache cache;
+	private PreferenceDAO dao;
+
+	// number of connections opened by the dao
+	private int connections;
+
+	// number of the next connections which fail
+	private int failures;
+
+	// key=value of the notified changes
+	private List<String> changes;
+
+	@Before
+	public void init() throws SQLException {
+
+		try (Connection con = DriverManager.getConnection(DB_URL + ";create=true");
+				Statement stmt = con.createStatement();) {
+			stmt.execute("create table APP.PREFERENCE ( "
+					+ "PREFERENCE_ID integer not null primary key generated always as identity, "
+					+ "PREFERENCE_KEY varchar(500) unique, PREFERENCE_TYPE varchar(500), "
+					+ "PREFERENCE_VALUE varchar(3000), PREFERENCE_EDITABLE boolean )");
+			stmt.execute("insert into APP.PREFERENCE ( PREFERENCE_KEY, PREFERENCE_TYPE, PREFERENCE_VALUE, "
+					+ "PREFERENCE_EDITABLE ) values ( 'A', 'STRING', '1', true )");
+		}
+
+		cache = new PreferenceCache();
+		connections = 0;
+		failures = 0;
+		changes = new ArrayList<>();
+
+		cache.addListener(new PreferenceListener() {
+
+			@Override
+			public void preferenceChanged(String key, String value) {
+				changes.add(key + "=" + value);
+			}
+		});
+
+		dao = new PreferenceDAO() {
+
+			@Override
+			public void setCatalogue(Catalogue catalogue) {
+			}
+
+			@Override
+			protected PreferenceCache getCache() {
+				return cache;
+			}
+
+			@Override
+			public Connection getConnection() throws SQLException {
+
+				connections++;
+
+				if (failures > 0) {
+					failures--;
+					throw new SQLException("Connection refused");
+				}
+
+				return DriverManager.getConnection(DB_URL);
+			}
+		};
+	}
+
+	@After
+	public void close() {
+		try {
+			DriverManager.getConnection(DB_URL + ";drop=true");
+		} catch (SQLException e) {
+			// dropping the db always throws an exception
+		}
+	}
+
+	@Test
+	public void preferencesAreReadOnce() throws PreferenceNotFoundException {
+
+		assertEquals("1", dao.getPreference("A").getValue());
+		assertTrue(dao.contains("A"));
+		assertFalse(dao.contains("B"));
+		assertEquals(1, dao.getAll().size());
+
+		try {
+			dao.getPreference("B");
+			fail("The preference B does not exist");
+		} catch (PreferenceNotFoundException e) {
+			// expected
+		}
+
+		assertEquals(1, connections);
+	}
+
+	@Test
+	public void savedChangesAreWrittenThrough() throws PreferenceNotFoundException {
+
+		// load the cache
+		dao.getAll();
+
+		dao.insert(pref("B", "2"));
+		dao.update(pref("A", "3"));
+		dao.remove(pref("B", "2"));
+
+		assertEquals(Arrays.asList("B=2", "A=3", "B=null"), changes);
+		assertEquals("3", dao.getPreference("A").getValue());
+		assertFalse(dao.contains("B"));
+
+		// same as the database
+		cache.clear();
+
+		assertEquals("3", dao.getPreference("A").getValue());
+		assertFalse(dao.contains("B"));
+	}
+
+	@Test
+	public void unchangedPreferenceIsNotSaved() {
+
+		dao.getAll();
+		int opened = connections;
+
+		assertTrue(dao.update(pref("A", "1")));
+		assertEquals(opened, connections);
+		assertTrue(changes.isEmpty());
+	}
+
+	@Test
+	public void updateOfMissingPreferenceInsertsIt() throws PreferenceNotFoundException {
+
+		assertTrue(dao.update(pref("B", "2")));
+
+		assertEquals(Arrays.asList("B=2"), changes);
+
+		cache.clear();
+		assertEquals("2", dao.getPreference("B").getValue());
+	}
+
+	@Test
+	public void removeAllEmptiesTheCache() {
+
+		dao.getAll();
+		dao.removeAll();
+
+		assertEquals(Arrays.asList("A=null"), changes);
+		assertTrue(dao.getAll().isEmpty());
+
+		cache.clear();
+		assertTrue(dao.getAll().isEmpty());
+	}
+
+	@Test
+	public void failedLoadUsesTheDatabase() throws PreferenceNotFoundException {
+
+		// the cache cannot be loaded, the preference is read with a second query
+		failures = 1;
+
+		assertEquals("1", dao.getPreference("A").getValue());
+		assertFalse(cache.isLoaded());
+		assertEquals(2, connections);
+
+		// loaded the next time
+		assertTrue(dao.contains("A"));
+		assertTrue(cache.isLoaded());
+	}
+
+	@Test
+	public void failedLoadReturnsNoPreferences() {
+
+		// neither the cache nor the database can be read
+		failures = 2;
+
+		assertTrue(dao.getAll().isEmpty());
+		assertFalse(cache.isLoaded());
+
+		assertEquals(1, dao.getAll().size());
+	}
+
+	private static Preference pref(String key, String value) {
+		return new Preference(key, PreferenceType.STRING, value, true);
+	}
+}